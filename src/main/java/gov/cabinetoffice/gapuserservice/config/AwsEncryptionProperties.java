@@ -0,0 +1,33 @@
+package gov.cabinetoffice.gapuserservice.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Configuration("awsEncryptionProperties")
+@ConfigurationProperties(prefix = "aws.kms.encryption")
+public class AwsEncryptionProperties {
+    // a data key is reused until it reaches any of these limits, then KMS is asked for a new one
+    @Builder.Default
+    private long dataKeyMaxAgeSeconds = 300;
+
+    @Builder.Default
+    private long dataKeyMaxMessages = 10000;
+
+    @Builder.Default
+    private long dataKeyMaxBytes = 10_000_000;
+
+    @Builder.Default
+    private int dataKeyCacheCapacity = 10;
+
+    // fields per task when a batch is split across the encryption executor
+    @Builder.Default
+    private int batchChunkSize = 250;
+}
@@ -4,23 +4,31 @@ import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderClientBuilder;
-import com.auth0.jwk.JwkProvider;
 import com.auth0.jwk.UrlJwkProvider;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import gov.cabinetoffice.gapuserservice.service.jwt.HmacSha256Verifier;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.Clock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @RequiredArgsConstructor
 @Configuration
@@ -28,21 +36,23 @@ public class BeanConfig {
 
     private final ThirdPartyAuthProviderProperties thirdPartyAuthProviderProperties;
 
+    /**
+     * Timeouts keep a stalled Cognito from holding COLA logins and the background refresh indefinitely
+     */
     @Bean
-    public JwkProvider getJwkProvide() {
-        return new UrlJwkProvider(thirdPartyAuthProviderProperties.getDomain());
+    public UrlJwkProvider getJwkProvide(
+            @Value("${cola.jwks.connect-timeout-ms:2000}") final int connectTimeoutMs,
+            @Value("${cola.jwks.read-timeout-ms:2000}") final int readTimeoutMs) throws MalformedURLException {
+        final String domain = thirdPartyAuthProviderProperties.getDomain();
+        // UrlJwkProvider(String) defaults to https when the domain has no scheme, so keep doing the same
+        final String baseUrl = domain.startsWith("http://") || domain.startsWith("https://") ? domain : "https://" + domain;
+        return new UrlJwkProvider(new URL(baseUrl + "/.well-known/jwks.json"), connectTimeoutMs, readTimeoutMs);
     }
 
     @Bean
-    public Mac getSha256Hmac() throws NoSuchAlgorithmException, InvalidKeyException {
-        final String algorithm = HmacAlgorithms.HMAC_SHA_256.getName();
-        final Mac mac = Mac.getInstance(algorithm);
-        final SecretKeySpec secretKey = new SecretKeySpec(
-                thirdPartyAuthProviderProperties.getSecretCookieKey().getBytes(StandardCharsets.UTF_8),
-                algorithm
-        );
-        mac.init(secretKey);
-        return mac;
+    public HmacSha256Verifier getSha256HmacVerifier() throws NoSuchAlgorithmException, InvalidKeyException {
+        return new HmacSha256Verifier(
+                thirdPartyAuthProviderProperties.getSecretCookieKey().getBytes(StandardCharsets.UTF_8));
     }
 
     @Bean
@@ -50,6 +60,42 @@ public class BeanConfig {
         return Clock.systemDefaultZone();
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService tokenVerificationExecutor(
+            @Value("${jwt.batch-validation.threads:4}") final int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService encryptionExecutor(
+            @Value("${aws.kms.encryption.threads:4}") final int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService outboxRelayExecutor(
+            @Value("${user-change-outbox.relay.threads:4}") final int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    // AbortPolicy: once the queue is full, migrations are rejected and deferred to the user's next login, rather
+    // than run on the login thread
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService userMigrationExecutor(
+            @Value("${user-migration.async.threads:4}") final int threads,
+            @Value("${user-migration.async.queue-size:100}") final int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Spring MVC runs streamed responses on the bean with this name. Spring Boot only creates it when there is no
+    // other Executor bean, which the pools above prevent, so without it every stream would get a new thread. Sized
+    // by spring.task.execution.pool.*
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(final TaskExecutorBuilder taskExecutorBuilder) {
+        return taskExecutorBuilder.build();
+    }
+
     @Bean
     public PhoneNumberUtil getPhoneNumberUtil() {
         return PhoneNumberUtil.getInstance();
@@ -0,0 +1,43 @@
+package gov.cabinetoffice.gapuserservice.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Configuration("httpClientProperties")
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+    @Builder.Default
+    private int maxConnections = 50;
+
+    @Builder.Default
+    private int maxConnectionsPerRoute = 20;
+
+    @Builder.Default
+    private long keepAliveSeconds = 30;
+
+    @Builder.Default
+    private long idleEvictionSeconds = 30;
+
+    @Builder.Default
+    private Timeouts oneLogin = new Timeouts(2000, 5000);
+
+    @Builder.Default
+    private Timeouts spotlight = new Timeouts(2000, 10000);
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Timeouts {
+        private int connectTimeoutMs;
+
+        private int readTimeoutMs;
+    }
+}
@@ -1,5 +1,6 @@
 package gov.cabinetoffice.gapuserservice.config;
 
+import gov.cabinetoffice.gapuserservice.enums.JwtSigningMode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -29,4 +30,7 @@ public class JwtProperties {
     private String audience;
 
     private String cookieName;
+
+    @Builder.Default
+    private JwtSigningMode signingMode = JwtSigningMode.KMS;
 }
@@ -16,4 +16,25 @@ import org.springframework.context.annotation.Configuration;
 public class ServiceToServiceConfigProperties {
     private String secret;
     private String privateKey;
+    @Builder.Default
+    private long verifiedHeaderCacheTtlSeconds = 300;
+    @Builder.Default
+    private long verifiedHeaderCacheMaxSize = 100;
+
+    /**
+     * Credentials this service presents when it calls the admin-backend and Find on its own behalf
+     */
+    @Builder.Default
+    private Downstream adminBackend = new Downstream();
+    @Builder.Default
+    private Downstream find = new Downstream();
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Downstream {
+        private String secret;
+        private String publicKey;
+    }
 }
@@ -8,6 +8,8 @@ import org.springframework.core.Ordered;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @RequiredArgsConstructor
 @Configuration
 public class ServiceToServiceInterceptor  implements WebMvcConfigurer {
@@ -15,14 +17,19 @@ public class ServiceToServiceInterceptor  implements WebMvcConfigurer {
 
     @Bean
     public AuthorizationHeaderInterceptor serviceToServiceHeaderInterceptor() {
-        return new AuthorizationHeaderInterceptor(serviceToServiceConfigProperties.getSecret(), serviceToServiceConfigProperties.getPrivateKey());
+        return new AuthorizationHeaderInterceptor(serviceToServiceConfigProperties.getSecret(),
+                serviceToServiceConfigProperties.getPrivateKey(),
+                Duration.ofSeconds(serviceToServiceConfigProperties.getVerifiedHeaderCacheTtlSeconds()),
+                serviceToServiceConfigProperties.getVerifiedHeaderCacheMaxSize());
     }
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(serviceToServiceHeaderInterceptor())
                 .addPathPatterns(
                         "/user",
-                        "/users/emails"
+                        "/users/emails",
+                        "/token-revocations",
+                        "/validate-tokens"
                 )
                 .order(Ordered.HIGHEST_PRECEDENCE);
     }
@@ -0,0 +1,55 @@
+package gov.cabinetoffice.gapuserservice.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Configuration("webClientProperties")
+@ConfigurationProperties(prefix = "web-client")
+public class WebClientProperties {
+    @Builder.Default
+    private Downstream adminBackend = new Downstream();
+
+    @Builder.Default
+    private Downstream find = new Downstream();
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Downstream {
+        @Builder.Default
+        private int maxConnections = 20;
+
+        @Builder.Default
+        private int pendingAcquireMaxCount = 40;
+
+        @Builder.Default
+        private long pendingAcquireTimeoutMs = 2000;
+
+        @Builder.Default
+        private long maxIdleTimeMs = 30000;
+
+        @Builder.Default
+        private int connectTimeoutMs = 2000;
+
+        @Builder.Default
+        private long responseTimeoutMs = 5000;
+
+        @Builder.Default
+        private long blockTimeoutMs = 15000;
+
+        @Builder.Default
+        private int maxRetries = 2;
+
+        @Builder.Default
+        private long retryBackoffMs = 200;
+    }
+}
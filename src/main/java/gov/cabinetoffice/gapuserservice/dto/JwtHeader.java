@@ -20,4 +20,10 @@ public class JwtHeader {
 
     @JsonProperty("alg")
     private String alg;
+
+    /**
+     * Certificate for an ephemeral signing key, only set when the token wasn't signed by KMS directly
+     */
+    @JsonProperty("kcert")
+    private String kcert;
 }
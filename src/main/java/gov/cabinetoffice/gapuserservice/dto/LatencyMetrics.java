@@ -0,0 +1,9 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import java.time.Duration;
+
+/**
+ * Request count, failure count and latency for calls to one upstream, shared by the blocking and reactive clients.
+ */
+public record LatencyMetrics(long requests, long failures, Duration meanLatency, Duration maxLatency) {
+}
@@ -10,6 +10,8 @@ import java.util.List;
 public class SuperAdminDashboardPageDto {
     private List<RoleDto> roles;
     private List<DepartmentDto> departments;
-    private List<UserAndRelationsDto> users;
+    private List<UserDashboardRowDto> users;
     private long userCount;
+    // only set when keyset paging and there's another page
+    private String nextCursor;
 }
@@ -0,0 +1,10 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * @param tokenDigest hex-encoded SHA-256 digest of the revoked token
+ * @param expiryDate  when the token expires, after which it no longer needs to be tracked
+ */
+public record TokenRevocationDto(String tokenDigest, LocalDateTime expiryDate) {
+}
@@ -0,0 +1,10 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import java.util.List;
+
+/**
+ * @param revocations tokens revoked after the requested cursor, oldest first
+ * @param nextCursor  cursor to send on the next poll; unchanged if there were no new revocations
+ */
+public record TokenRevocationFeedDto(List<TokenRevocationDto> revocations, int nextCursor) {
+}
@@ -0,0 +1,10 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * @param isValid whether the token is valid
+ * @param roles   the roles claim of the token, only set if it is valid
+ */
+public record TokenValidationResultDto(@JsonProperty("isValid") boolean isValid, String roles) {
+}
@@ -0,0 +1,53 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.model.Role;
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import gov.cabinetoffice.gapuserservice.model.User;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The parts of a user needed to authorise a request, detached from the entity so it can be cached
+ */
+public record UserAuthorizationSnapshot(Integer gapUserId, String sub, String emailAddress, Set<RoleEnum> roles,
+                                        LoginJourneyState loginJourneyState) {
+
+    public static UserAuthorizationSnapshot from(final User user) {
+        final Set<RoleEnum> roles = user.getRoles().stream()
+                .map(Role::getName)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(RoleEnum.class)));
+        return new UserAuthorizationSnapshot(user.getGapUserId(), user.getSub(), user.getEmailAddress(),
+                Set.copyOf(roles), user.getLoginJourneyState());
+    }
+
+    public Set<String> roleNames() {
+        return roles.stream().map(RoleEnum::name).collect(Collectors.toSet());
+    }
+
+    public boolean isBlocked() {
+        return roles.isEmpty();
+    }
+
+    public boolean isApplicant() {
+        return roles.contains(RoleEnum.APPLICANT) || isAdmin();
+    }
+
+    public boolean isAdmin() {
+        return roles.contains(RoleEnum.ADMIN) || isSuperAdmin();
+    }
+
+    public boolean isSuperAdmin() {
+        return roles.contains(RoleEnum.SUPER_ADMIN);
+    }
+
+    public boolean isTechnicalSupport() {
+        return roles.contains(RoleEnum.TECHNICAL_SUPPORT);
+    }
+
+    public boolean hasAcceptedPrivacyPolicy() {
+        return loginJourneyState != LoginJourneyState.PRIVACY_POLICY_PENDING;
+    }
+}
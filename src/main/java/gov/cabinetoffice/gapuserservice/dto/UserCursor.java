@@ -0,0 +1,38 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the super admin user list, which is ordered by (email, gapUserId). Users without an email sort last.
+ * Encoded as an opaque string for the frontend to send back for the next page.
+ */
+public record UserCursor(String email, Integer gapUserId) {
+
+    private static final char SEPARATOR = ':';
+
+    public String encode() {
+        final String value = email == null ? gapUserId.toString() : gapUserId.toString() + SEPARATOR + email;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null for a blank cursor, which means the first page
+     */
+    public static UserCursor decode(final String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            final String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separator = value.indexOf(SEPARATOR);
+            return separator < 0
+                    ? new UserCursor(null, Integer.valueOf(value))
+                    : new UserCursor(value.substring(separator + 1), Integer.valueOf(value.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import jakarta.annotation.Nullable;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A row of the super admin user list, read straight from the database rather than through the User entity. Has the
+ * same JSON shape as {@link UserAndRelationsDto}.
+ */
+@Data
+@Builder
+public class UserDashboardRowDto {
+
+    // same precedence as User.getHighestRole
+    private static final List<String> ROLE_PRECEDENCE = List.of(RoleEnum.SUPER_ADMIN.name(), RoleEnum.ADMIN.name(),
+            RoleEnum.TECHNICAL_SUPPORT.name(), RoleEnum.APPLICANT.name());
+
+    private String gapUserId;
+    private String emailAddress;
+    private String sub;
+    private String colaSub;
+    private List<RoleDto> roles;
+    private RoleDto role;
+    private DepartmentDto department;
+    @Nullable
+    private Instant created;
+
+    public static RoleDto highestRole(final List<RoleDto> roles) {
+        return ROLE_PRECEDENCE.stream()
+                .flatMap(name -> roles.stream().filter(role -> name.equals(role.getName())))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,9 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor where the next page starts, or null on the last page
+ */
+public record UserKeysetPage(List<UserDashboardRowDto> users, UserCursor nextCursor, long totalCount) {
+}
@@ -0,0 +1,6 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import gov.cabinetoffice.gapuserservice.enums.MigrationStatus;
+
+public record UserMigrationStatusDto(MigrationStatus applyMigrationStatus, MigrationStatus findMigrationStatus) {
+}
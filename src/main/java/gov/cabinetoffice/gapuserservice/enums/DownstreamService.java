@@ -0,0 +1,20 @@
+package gov.cabinetoffice.gapuserservice.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum DownstreamService {
+    /**
+     * Apply admin-backend user endpoints
+     */
+    ADMIN_BACKEND("admin-backend"),
+
+    /**
+     * Find a grant frontend user API
+     */
+    FIND("find-a-grant");
+
+    private final String poolName;
+}
@@ -0,0 +1,13 @@
+package gov.cabinetoffice.gapuserservice.enums;
+
+public enum HttpUpstream {
+    /**
+     * OneLogin /token, /userinfo and JWKS endpoints
+     */
+    ONE_LOGIN,
+
+    /**
+     * Spotlight OAuth token endpoint
+     */
+    SPOTLIGHT
+}
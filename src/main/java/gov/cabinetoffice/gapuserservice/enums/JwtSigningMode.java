@@ -0,0 +1,13 @@
+package gov.cabinetoffice.gapuserservice.enums;
+
+public enum JwtSigningMode {
+    /**
+     * Every token is signed by the KMS signing key
+     */
+    KMS,
+
+    /**
+     * Tokens are signed in-process by a short-lived key, which is certified by the KMS signing key
+     */
+    EPHEMERAL
+}
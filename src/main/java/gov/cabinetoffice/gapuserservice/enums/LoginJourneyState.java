@@ -25,6 +25,26 @@ public enum LoginJourneyState {
         @Override
         public LoginJourneyState nextState(final NextStateArgs nextStateArgs) {
             nextStateArgs.logger().info("Migrating user: " + nextStateArgs.user().getSub());
+            if (nextStateArgs.userMigrationService() != null) {
+                final boolean migrateFind = Objects.equals(nextStateArgs.findAccountsMigrationEnabled(), "true");
+                final boolean migrateApply = nextStateArgs.user().hasColaSub()
+                        && nextStateArgs.user().getLoginJourneyState() != USER_READY;
+                final LoginJourneyState completedState = migrateFind ? USER_MIGRATED_AND_READY : USER_READY;
+                if (migrateFind || migrateApply) {
+                    // marked on this request's copy of the user, which the redirect reads. The migration threads
+                    // are only given the user's id and load their own copy
+                    nextStateArgs.oneLoginUserService().setUsersMigrationStates(nextStateArgs.user(),
+                            migrateFind ? MigrationStatus.IN_PROGRESS : null,
+                            migrateApply ? MigrationStatus.IN_PROGRESS : null,
+                            null);
+                    nextStateArgs.userMigrationService().migrateAsync(nextStateArgs.user().getGapUserId(),
+                            nextStateArgs.user().getSub(), nextStateArgs.jwt(), migrateFind, migrateApply,
+                            completedState);
+                } else {
+                    nextStateArgs.oneLoginUserService().setUsersLoginJourneyState(nextStateArgs.user(), completedState);
+                }
+                return this;
+            }
             if (Objects.equals(nextStateArgs.findAccountsMigrationEnabled(), "true")) {
                 nextStateArgs.oneLoginUserService().migrateFindUser(nextStateArgs.user(), nextStateArgs.jwt());
             }
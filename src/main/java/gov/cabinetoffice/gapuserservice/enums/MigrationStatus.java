@@ -2,6 +2,7 @@ package gov.cabinetoffice.gapuserservice.enums;
 
 public enum MigrationStatus {
     NOT_STARTED,
+    IN_PROGRESS,
     SUCCEEDED,
     FAILED,
     ALREADY_MIGRATED,
@@ -3,11 +3,15 @@ package gov.cabinetoffice.gapuserservice.enums;
 import gov.cabinetoffice.gapuserservice.dto.OneLoginUserInfoDto;
 import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
+import gov.cabinetoffice.gapuserservice.service.user.UserMigrationService;
 import lombok.Builder;
 import org.slf4j.Logger;
 
+/**
+ * @param userMigrationService set to run account migrations asynchronously, or null to run them during the request
+ */
 @Builder
 public record NextStateArgs(OneLoginUserService oneLoginUserService, User user, String jwt, Logger logger,
                             boolean hasAcceptedPrivacyPolicy, OneLoginUserInfoDto userInfo,
-                            String findAccountsMigrationEnabled) {
-}
\ No newline at end of file
+                            String findAccountsMigrationEnabled, UserMigrationService userMigrationService) {
+}
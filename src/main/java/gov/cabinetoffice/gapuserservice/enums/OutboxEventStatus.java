@@ -0,0 +1,7 @@
+package gov.cabinetoffice.gapuserservice.enums;
+
+public enum OutboxEventStatus {
+    PENDING,
+    DELIVERED,
+    DEAD_LETTER
+}
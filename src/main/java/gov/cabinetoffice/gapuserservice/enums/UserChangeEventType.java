@@ -0,0 +1,34 @@
+package gov.cabinetoffice.gapuserservice.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+
+import java.util.function.Predicate;
+
+/**
+ * A change to a user that has to be propagated to Apply or Find, and how to deliver it
+ */
+@Getter
+@RequiredArgsConstructor
+public enum UserChangeEventType {
+    UPDATE_APPLY_FUNDING_ORGANISATION(DownstreamService.ADMIN_BACKEND, HttpMethod.PATCH,
+            status -> status.value() == HttpStatus.NOT_FOUND.value()),
+    ADD_APPLY_TECH_SUPPORT_USER(DownstreamService.ADMIN_BACKEND, HttpMethod.POST, status -> false),
+    REMOVE_APPLY_ADMIN_USER(DownstreamService.ADMIN_BACKEND, HttpMethod.DELETE, HttpStatusCode::is4xxClientError),
+    REMOVE_APPLY_TECH_SUPPORT_USER(DownstreamService.ADMIN_BACKEND, HttpMethod.DELETE, HttpStatusCode::is4xxClientError),
+    DELETE_APPLY_USER(DownstreamService.ADMIN_BACKEND, HttpMethod.DELETE,
+            status -> status.value() == HttpStatus.NOT_FOUND.value()),
+    DELETE_FIND_USER(DownstreamService.FIND, HttpMethod.DELETE, status -> status.value() == HttpStatus.NOT_FOUND.value());
+
+    private final DownstreamService downstream;
+
+    private final HttpMethod method;
+
+    /**
+     * Error responses that mean there's nothing to change downstream, e.g. the user doesn't exist in Apply
+     */
+    private final Predicate<HttpStatusCode> ignoredStatus;
+}
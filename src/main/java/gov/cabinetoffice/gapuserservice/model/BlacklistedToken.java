@@ -13,13 +13,26 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "token_blacklist", indexes = @Index(columnList = "jwt"))
+@Table(name = "token_blacklist", indexes = @Index(columnList = "token_digest"))
 public class BlacklistedToken {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
+    /**
+     * SHA-256 digest of the token
+     */
+    @ToString.Exclude
+    @Column(name = "token_digest", nullable = false, length = 32)
+    private byte[] tokenDigest;
+
+    /**
+     * The token itself, still written so instances on the previous release can read it during a rolling deploy.
+     * Removed with the jwt column once every instance looks tokens up by digest.
+     */
+    @Deprecated
+    @ToString.Exclude
     @Column(length = 4000)
     private String jwt;
 
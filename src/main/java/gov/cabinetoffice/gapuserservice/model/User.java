@@ -49,10 +49,15 @@ public class User {
     @Enumerated(EnumType.STRING)
     private MigrationStatus findAccountMigrated = MigrationStatus.NOT_STARTED;
 
+    // when a migration was last marked IN_PROGRESS, so one left behind by a stopped instance can be told apart
+    @Column(name = "migration_started")
+    private Instant migrationStarted;
+
     @Column(name = "created")
     private Instant created;
 
-    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.PERSIST}, fetch = FetchType.LAZY)
+    // roles are reference data, so users only ever link to existing ones by id
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "roles_users",
             joinColumns = {@JoinColumn(name = "users_gap_user_id", referencedColumnName = "gap_user_id")},
             inverseJoinColumns = {@JoinColumn(name = "roles_id", referencedColumnName = "id")}
@@ -0,0 +1,72 @@
+package gov.cabinetoffice.gapuserservice.model;
+
+import gov.cabinetoffice.gapuserservice.enums.OutboxEventStatus;
+import gov.cabinetoffice.gapuserservice.enums.UserChangeEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "user_change_outbox")
+public class UserChangeOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "event_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private UserChangeEventType eventType;
+
+    /**
+     * Path and query on the downstream service, resolved against its base URL on delivery
+     */
+    @Column(name = "path", nullable = false)
+    private String path;
+
+    /**
+     * JSON request body, if the request has one
+     */
+    @Column(name = "payload")
+    private String payload;
+
+    /**
+     * The super admin's token the change was made with, encrypted with KMS. Only stored while events are relayed
+     * with the user's token rather than service-to-service credentials, and cleared once the event is delivered or
+     * dead-lettered
+     */
+    @ToString.Exclude
+    @Column(name = "encrypted_auth_token")
+    private byte[] encryptedAuthToken;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private OutboxEventStatus status = OutboxEventStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created", nullable = false)
+    private Instant created;
+
+    @Column(name = "delivered_at")
+    private Instant deliveredAt;
+}
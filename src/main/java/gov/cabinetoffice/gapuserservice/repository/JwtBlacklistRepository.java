@@ -1,15 +1,42 @@
 package gov.cabinetoffice.gapuserservice.repository;
 
 import gov.cabinetoffice.gapuserservice.model.BlacklistedToken;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface JwtBlacklistRepository extends JpaRepository<BlacklistedToken, String> {
 
-    long deleteByExpiryDateLessThan(LocalDateTime expiryDate);
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM token_blacklist WHERE id IN " +
+            "(SELECT id FROM token_blacklist WHERE expiry_date < :expiryDate LIMIT :batchSize)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("expiryDate") LocalDateTime expiryDate, @Param("batchSize") int batchSize);
 
-    boolean existsByJwtIs(String jwt);
+    boolean existsByTokenDigest(byte[] tokenDigest);
+
+    @Query("SELECT t.tokenDigest FROM BlacklistedToken t WHERE t.tokenDigest IN :tokenDigests")
+    List<byte[]> findTokenDigestsIn(@Param("tokenDigests") Collection<byte[]> tokenDigests);
+
+    List<BlacklistedToken> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    List<IdAndDigest> findIdAndDigestByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    /**
+     * Only the columns the Bloom filter needs, so loading the blacklist doesn't read whole rows
+     */
+    interface IdAndDigest {
+        int getId();
+
+        byte[] getTokenDigest();
+    }
 }
@@ -0,0 +1,32 @@
+package gov.cabinetoffice.gapuserservice.repository;
+
+import gov.cabinetoffice.gapuserservice.model.UserChangeOutboxEvent;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UserChangeOutboxRepository extends JpaRepository<UserChangeOutboxEvent, Long> {
+
+    /**
+     * The oldest due event of each user, skipping users with an earlier event still pending so each user's
+     * events are delivered in order
+     */
+    @Query(value = "SELECT * FROM user_change_outbox o WHERE o.status = 'PENDING' AND o.next_attempt_at <= :now " +
+            "AND NOT EXISTS (SELECT 1 FROM user_change_outbox earlier WHERE earlier.user_id = o.user_id " +
+            "AND earlier.status = 'PENDING' AND earlier.id < o.id) " +
+            "ORDER BY o.id LIMIT :batchSize", nativeQuery = true)
+    List<UserChangeOutboxEvent> findDeliverableBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM user_change_outbox WHERE status = 'DELIVERED' AND delivered_at < :deliveredBefore",
+            nativeQuery = true)
+    int deleteDeliveredBefore(@Param("deliveredBefore") Instant deliveredBefore);
+}
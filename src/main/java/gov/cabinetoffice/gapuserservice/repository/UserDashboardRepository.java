@@ -0,0 +1,181 @@
+package gov.cabinetoffice.gapuserservice.repository;
+
+import gov.cabinetoffice.gapuserservice.dto.DepartmentDto;
+import gov.cabinetoffice.gapuserservice.dto.RoleDto;
+import gov.cabinetoffice.gapuserservice.dto.UserCursor;
+import gov.cabinetoffice.gapuserservice.dto.UserDashboardRowDto;
+import gov.cabinetoffice.gapuserservice.dto.UserQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read model for the super admin user list. Each page of rows, with their roles and department, is a single query
+ * mapped straight to DTOs, so listing users doesn't load entities or lazily fetch each user's relations.
+ * Keyset queries start from the last (email, gap_user_id) of the previous page, so a deep page costs the same as
+ * the first instead of skipping over every row before it. Emails are unique, so users with an email are sought on
+ * the email index alone, and the users without one, listed last, are sought on their own partial index.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserDashboardRepository {
+
+    private static final String ROWS = """
+            SELECT u.gap_user_id, u.email, u.sub, u.cola_sub, u.created,
+                   d.id AS department_id, d.name AS department_name, d.ggis_id AS department_ggis_id,
+                   array_agg(r.id ORDER BY r.id) FILTER (WHERE r.id IS NOT NULL) AS role_ids,
+                   array_agg(r.name ORDER BY r.id) FILTER (WHERE r.id IS NOT NULL) AS role_names,
+                   array_agg(r.label ORDER BY r.id) FILTER (WHERE r.id IS NOT NULL) AS role_labels,
+                   array_agg(r.description ORDER BY r.id) FILTER (WHERE r.id IS NOT NULL) AS role_descriptions
+                FROM (%s) u
+                LEFT JOIN departments d ON d.id = u.dept_id
+                LEFT JOIN roles_users ru ON ru.users_gap_user_id = u.gap_user_id
+                LEFT JOIN roles r ON r.id = ru.roles_id
+                GROUP BY u.gap_user_id, u.email, u.sub, u.cola_sub, u.created, d.id, d.name, d.ggis_id
+            """;
+
+    private static final String EMAIL_ORDER = " ORDER BY u.email ASC";
+    private static final String ID_ORDER = " ORDER BY u.gap_user_id ASC";
+
+    private static final RowMapper<UserDashboardRowDto> ROW_MAPPER = (rs, rowNum) -> {
+        final List<RoleDto> roles = roles(rs);
+        final Number departmentId = (Number) rs.getObject("department_id");
+        final Timestamp created = rs.getTimestamp("created");
+        return UserDashboardRowDto.builder()
+                .gapUserId(String.valueOf(rs.getInt("gap_user_id")))
+                .emailAddress(rs.getString("email"))
+                .sub(rs.getString("sub"))
+                .colaSub(String.valueOf(rs.getObject("cola_sub")))
+                .roles(roles)
+                .role(UserDashboardRowDto.highestRole(roles))
+                .department(departmentId == null ? null : DepartmentDto.builder()
+                        .id(departmentId.intValue())
+                        .name(rs.getString("department_name"))
+                        .ggisID(rs.getString("department_ggis_id"))
+                        .build())
+                .created(created == null ? null : created.toInstant())
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns up to limit rows after the cursor, in (email, gap_user_id) order with users without an email last
+     */
+    public List<UserDashboardRowDto> findRowsAfter(final UserQueryDto query, final UserCursor after, final int limit) {
+        final List<UserDashboardRowDto> rows = new ArrayList<>(limit);
+        if (after == null || after.email() != null) {
+            rows.addAll(findRowsWithEmailAfter(query, after == null ? null : after.email(), limit));
+        }
+        if (rows.size() < limit) {
+            final Integer afterId = after == null || after.email() != null ? null : after.gapUserId();
+            rows.addAll(findRowsWithoutEmailAfter(query, afterId, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    private List<UserDashboardRowDto> findRowsWithEmailAfter(final UserQueryDto query, final String afterEmail,
+                                                            final int limit) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        final StringBuilder page = new StringBuilder("SELECT * FROM gap_users u").append(where(query, parameters));
+        if (afterEmail == null) {
+            page.append(" AND u.email IS NOT NULL");
+        } else {
+            // a single range condition, so Postgres starts the email index scan at the cursor
+            page.append(" AND u.email > :afterEmail");
+            parameters.addValue("afterEmail", afterEmail);
+        }
+        page.append(EMAIL_ORDER).append(" LIMIT :limit");
+        return jdbcTemplate.query(ROWS.formatted(page) + EMAIL_ORDER, parameters, ROW_MAPPER);
+    }
+
+    private List<UserDashboardRowDto> findRowsWithoutEmailAfter(final UserQueryDto query, final Integer afterId,
+                                                               final int limit) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        final StringBuilder page = new StringBuilder("SELECT * FROM gap_users u").append(where(query, parameters))
+                .append(" AND u.email IS NULL");
+        if (afterId != null) {
+            page.append(" AND u.gap_user_id > :afterId");
+            parameters.addValue("afterId", afterId);
+        }
+        page.append(ID_ORDER).append(" LIMIT :limit");
+        return jdbcTemplate.query(ROWS.formatted(page) + ID_ORDER, parameters, ROW_MAPPER);
+    }
+
+    /**
+     * Returns the rows for the given users, in the order of the ids
+     */
+    public List<UserDashboardRowDto> findRowsByIds(final List<Integer> gapUserIds) {
+        if (gapUserIds.isEmpty()) {
+            return List.of();
+        }
+        final Map<String, UserDashboardRowDto> rowsById = jdbcTemplate.query(
+                        ROWS.formatted("SELECT * FROM gap_users u WHERE u.gap_user_id IN (:gapUserIds)"),
+                        new MapSqlParameterSource("gapUserIds", gapUserIds), ROW_MAPPER)
+                .stream()
+                .collect(Collectors.toMap(UserDashboardRowDto::getGapUserId, Function.identity()));
+        return gapUserIds.stream()
+                .map(id -> rowsById.get(String.valueOf(id)))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public long count(final UserQueryDto query) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource();
+        final Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM gap_users u"
+                + where(query, parameters), parameters, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private static String where(final UserQueryDto query, final MapSqlParameterSource parameters) {
+        final StringBuilder where = new StringBuilder(" WHERE TRUE");
+        if (!query.departmentIds().isEmpty()) {
+            where.append(" AND u.dept_id IN (:departmentIds)");
+            parameters.addValue("departmentIds", query.departmentIds());
+        }
+        if (!query.roleIds().isEmpty()) {
+            // EXISTS rather than a join, so a user with several matching roles is listed once
+            where.append(" AND EXISTS (SELECT 1 FROM roles_users r"
+                    + " WHERE r.users_gap_user_id = u.gap_user_id AND r.roles_id IN (:roleIds))");
+            parameters.addValue("roleIds", query.roleIds());
+        }
+        return where.toString();
+    }
+
+    private static List<RoleDto> roles(final ResultSet rs) throws SQLException {
+        final Object[] ids = array(rs.getArray("role_ids"));
+        final Object[] names = array(rs.getArray("role_names"));
+        final Object[] labels = array(rs.getArray("role_labels"));
+        final Object[] descriptions = array(rs.getArray("role_descriptions"));
+
+        final List<RoleDto> roles = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            roles.add(RoleDto.builder()
+                    .id(((Number) ids[i]).intValue())
+                    .name((String) names[i])
+                    .label((String) labels[i])
+                    .description((String) descriptions[i])
+                    .build());
+        }
+        return roles;
+    }
+
+    // array_agg with a FILTER gives NULL rather than an empty array for a user with no roles
+    private static Object[] array(final Array array) throws SQLException {
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+}
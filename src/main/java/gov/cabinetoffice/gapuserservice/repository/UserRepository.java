@@ -1,7 +1,6 @@
 package gov.cabinetoffice.gapuserservice.repository;
 
 import gov.cabinetoffice.gapuserservice.model.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -18,6 +17,51 @@ import java.util.UUID;
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
 
+    /*
+     * The dashboard pages select only ids, which UserDashboardRepository reads rows for, so a page doesn't load
+     * entities. Fuzzy email searches order by trigram distance (email <-> query), which is the same order as
+     * similarity(email, query) DESC but lets Postgres read the email trigram GiST index in order and stop after a
+     * page. Role filters use EXISTS so each user appears once without sorting the whole result to de-duplicate it.
+     */
+    String FUZZY_EMAIL_SEARCH = """
+            SELECT gap_user_id
+                FROM
+                    gap_users
+                ORDER BY
+                    email <-> :emailQuery
+            """;
+
+    String FUZZY_EMAIL_SEARCH_BY_DEPARTMENT = """
+            SELECT u.gap_user_id
+                FROM
+                    gap_users u
+                WHERE
+                    u.dept_id IN :departmentIds
+                ORDER BY
+                    u.email <-> :emailQuery
+            """;
+
+    String FUZZY_EMAIL_SEARCH_BY_ROLES = """
+            SELECT u.gap_user_id
+                FROM
+                    gap_users u
+                WHERE
+                    EXISTS (SELECT 1 FROM roles_users r WHERE r.users_gap_user_id = u.gap_user_id AND r.roles_id IN :roleIds)
+                ORDER BY
+                    u.email <-> :emailQuery
+            """;
+
+    String FUZZY_EMAIL_SEARCH_BY_DEPARTMENT_AND_ROLES = """
+            SELECT u.gap_user_id
+                FROM
+                    gap_users u
+                WHERE
+                    u.dept_id IN :departmentIds
+                    AND EXISTS (SELECT 1 FROM roles_users r WHERE r.users_gap_user_id = u.gap_user_id AND r.roles_id IN :roleIds)
+                ORDER BY
+                    u.email <-> :emailQuery
+            """;
+
     @EntityGraph(attributePaths = {"department", "roles"})
     Optional<User> findByEmailAddress(String email);
 
@@ -29,114 +73,80 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     List<User> findBySubIn(List<String> subs);
 
+    @EntityGraph(attributePaths = {"department", "roles"})
+    List<User> findAllBySubIn(Collection<String> subs);
+
+    @EntityGraph(attributePaths = {"department", "roles"})
+    List<User> findAllByEmailAddressIn(Collection<String> emails);
+
     @EntityGraph(attributePaths = {"department", "roles"})
     Optional<User> findByColaSub(UUID sub);
 
     List<User> findByColaSubIn(List<UUID> subs);
 
+    List<SubAndEmail> findSubAndEmailBySubIn(Collection<String> subs);
+
+    List<SubAndEmail> findSubAndEmailByColaSubIn(Collection<UUID> colaSubs);
+
     @EntityGraph(attributePaths = {"department", "roles"})
     Optional<User> findById(int id);
 
-    @Query("select u from User u order by u.emailAddress")
-    Page<User> findByOrderByEmail(Pageable pageable);
+    /**
+     * Sets Postgres' statement timeout for the rest of the current transaction. Outside a transaction it only lasts
+     * for this statement, so has no effect.
+     */
+    @Query(value = "SELECT set_config('statement_timeout', :timeoutMs, true)", nativeQuery = true)
+    String setLocalStatementTimeout(@Param("timeoutMs") String timeoutMs);
 
-    @Query(value = """
-            SELECT *
-                FROM
-                    gap_users
-                ORDER BY
-                    similarity(email, :emailQuery) DESC
-            """,
-            nativeQuery = true)
-    Page<User> findUsersByFuzzyEmail(
+    @Query("select u.gapUserId from User u order by u.emailAddress")
+    List<Integer> findUserIdsByOrderByEmail(Pageable pageable);
+
+    @Query(value = FUZZY_EMAIL_SEARCH, nativeQuery = true)
+    List<Integer> findUserIdsByFuzzyEmail(
             @Param("emailQuery") String emailQuery,
             Pageable pageable
     );
 
-    @Query(value = """
-            SELECT DISTINCT ON (gap_user_id, similarity) *
-            	FROM (
-            	   select *,
-            			  similarity(email, :emailQuery) as similarity
-            	   FROM gap_users
-            	) u
-            	JOIN
-                    roles_users r
-                        ON r.users_gap_user_id = u.gap_user_id
-                WHERE
-                    r.roles_id IN :roleIds
-                    AND u.dept_id IN :departmentIds
-            	ORDER BY
-            		similarity DESC
-            """,
-            nativeQuery = true)
-    Page<User> findUsersByDepartmentAndRolesAndFuzzyEmail(
+    @Query(value = FUZZY_EMAIL_SEARCH_BY_DEPARTMENT_AND_ROLES, nativeQuery = true)
+    List<Integer> findUserIdsByDepartmentAndRolesAndFuzzyEmail(
             @Param("roleIds") Collection<Integer> roleIds,
             @Param("departmentIds") Collection<Integer> departmentIds,
             @Param("emailQuery") String emailQuery,
             Pageable pageable
     );
 
-    @Query(value = """
-            SELECT *
-                FROM
-                    gap_users u
-                WHERE
-                    u.dept_id IN :departmentIds
-                ORDER BY
-                    similarity(email, :emailQuery) DESC
-            """,
-            nativeQuery = true)
-    Page<User> findUsersByDepartmentAndFuzzyEmail(
+    @Query(value = FUZZY_EMAIL_SEARCH_BY_DEPARTMENT, nativeQuery = true)
+    List<Integer> findUserIdsByDepartmentAndFuzzyEmail(
             @Param("departmentIds") Collection<Integer> departmentIds,
             @Param("emailQuery") String emailQuery,
             Pageable pageable
     );
 
-    @Query(value = """
-            SELECT DISTINCT ON (gap_user_id, similarity) *
-            	FROM (
-            	   select *,
-            			  similarity(email, :emailQuery) as similarity
-            	   FROM gap_users
-            	) u
-            	JOIN
-                    roles_users r
-                        ON r.users_gap_user_id = u.gap_user_id
-                WHERE
-                    r.roles_id IN :roleIds
-            	ORDER BY
-            		similarity DESC
-            """,
-            nativeQuery = true)
-    Page<User> findUsersByRolesAndFuzzyEmail(
+    @Query(value = FUZZY_EMAIL_SEARCH_BY_ROLES, nativeQuery = true)
+    List<Integer> findUserIdsByRolesAndFuzzyEmail(
             @Param("roleIds") Collection<Integer> roleIds,
             @Param("emailQuery") String emailQuery,
             Pageable pageable
     );
 
     @Query(value = """
-            SELECT DISTINCT ON(gap_user_id, email) *
+            SELECT u.gap_user_id
                 FROM
                     gap_users u
-                JOIN
-                    roles_users r
-                        ON r.users_gap_user_id = u.gap_user_id
                 WHERE
-                    r.roles_id IN :roleIds
-                AND
-                    u.dept_id in :departmentIds
+                    u.dept_id IN :departmentIds
+                    AND EXISTS (SELECT 1 FROM roles_users r WHERE r.users_gap_user_id = u.gap_user_id AND r.roles_id IN :roleIds)
                 ORDER BY
                     u.email ASC
             """, nativeQuery = true)
-    Page<User> findUsersByDepartmentAndRoles(
+    List<Integer> findUserIdsByDepartmentAndRoles(
             @Param("roleIds") Collection<Integer> roleIds,
             @Param("departmentIds") Collection<Integer> departmentIds,
             Pageable pageable
     );
 
     @Query("""
-            SELECT u
+            SELECT u.gapUserId
                 FROM
                     User u
                 WHERE
@@ -144,25 +154,31 @@ public interface UserRepository extends JpaRepository<User, Integer> {
                 ORDER BY
                     u.emailAddress ASC
             """)
-    Page<User> findUsersByDepartment(
+    List<Integer> findUserIdsByDepartment(
             @Param("departmentIds") Collection<Integer> departmentIds,
             Pageable pageable
     );
 
     @Query(value = """
-            SELECT DISTINCT ON(gap_user_id, email) *
+            SELECT u.gap_user_id
                 FROM
                     gap_users u
-                JOIN
-                    roles_users r
-                        ON r.users_gap_user_id = u.gap_user_id
                 WHERE
-                    r.roles_id IN :roleIds
+                    EXISTS (SELECT 1 FROM roles_users r WHERE r.users_gap_user_id = u.gap_user_id AND r.roles_id IN :roleIds)
                 ORDER BY
                     u.email ASC
             """, nativeQuery = true)
-    Page<User> findUsersByRoles(
+    List<Integer> findUserIdsByRoles(
             @Param("roleIds") Collection<Integer> roleIds,
             Pageable pageable
     );
+
+    /**
+     * Only the columns needed to address a user, so large lookups don't load whole entities
+     */
+    interface SubAndEmail {
+        String getSub();
+
+        String getEmailAddress();
+    }
 }
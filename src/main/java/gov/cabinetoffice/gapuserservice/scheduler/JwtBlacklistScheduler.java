@@ -24,4 +24,32 @@ public class JwtBlacklistScheduler {
         log.info("Number of expired JWTs deleted: " + deletedJwts);
         log.info("Finished job to delete expired tokens from the blacklist");
     }
+
+    // the jobs below keep each instance's in-memory blacklist up to date, so they run on every instance
+    @Scheduled(fixedDelayString = "${blacklist-scheduler.flush.fixedDelay:1000}")
+    public void flushPendingTokens() {
+        try {
+            final int flushed = jwtBlacklistService.flushPendingTokens();
+            if (flushed > 0) {
+                log.debug("Wrote {} blacklisted tokens to the database", flushed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to write blacklisted tokens to the database, will retry", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blacklist-scheduler.sync.fixedDelay:5000}")
+    public void syncBlacklist() {
+        try {
+            jwtBlacklistService.syncBlacklist();
+        } catch (RuntimeException e) {
+            log.error("Unable to sync the blacklist from the database", e);
+        }
+    }
+
+    @Scheduled(cron = "${blacklist-scheduler.rebuild.cronExpression:0 30 0 * * ?}", zone = "Europe/London")
+    public void rebuildBlacklist() {
+        log.info("Rebuilding the in-memory blacklist");
+        jwtBlacklistService.rebuildBlacklist();
+    }
 }
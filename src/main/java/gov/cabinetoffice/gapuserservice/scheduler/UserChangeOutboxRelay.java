@@ -0,0 +1,46 @@
+package gov.cabinetoffice.gapuserservice.scheduler;
+
+import gov.cabinetoffice.gapuserservice.service.UserChangeOutboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserChangeOutboxRelay {
+
+    private final UserChangeOutboxService userChangeOutboxService;
+
+    @Value("${user-change-outbox.delivered-retention-days:7}")
+    private int deliveredRetentionDays;
+
+    // only one instance relays at a time, which keeps each user's events in order across instances
+    @Scheduled(fixedDelayString = "${user-change-outbox.relay.fixedDelay:1000}")
+    @SchedulerLock(name = "user_change_outbox_relay",
+            lockAtMostFor = "${user-change-outbox.relay.lock.atMostFor:5m}")
+    public void relayPendingEvents() {
+        try {
+            final int relayed = userChangeOutboxService.relayPendingEvents();
+            if (relayed > 0) {
+                log.debug("Relayed {} user change events", relayed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to relay user change events, will retry", e);
+        }
+    }
+
+    @Scheduled(cron = "${user-change-outbox.cleanup.cronExpression:0 45 0 * * ?}", zone = "Europe/London")
+    @SchedulerLock(name = "user_change_outbox_cleanup",
+            lockAtMostFor = "${user-change-outbox.cleanup.lock.atMostFor:30m}",
+            lockAtLeastFor = "${user-change-outbox.cleanup.lock.atLeastFor:5m}")
+    public void deleteDeliveredEvents() {
+        final int deleted = userChangeOutboxService.deleteDeliveredEvents(Duration.ofDays(deliveredRetentionDays));
+        log.info("Number of delivered user change events deleted: " + deleted);
+    }
+}
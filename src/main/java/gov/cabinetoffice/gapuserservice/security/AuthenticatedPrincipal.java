@@ -0,0 +1,73 @@
+package gov.cabinetoffice.gapuserservice.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.base.Suppliers;
+import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import gov.cabinetoffice.gapuserservice.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The decoded form of a custom JWT. The JwtTokenFilter builds one per request once the token has been validated
+ * and stores it as a request attribute, so the rest of the request can read the payload, roles and user
+ * without decoding the cookie again.
+ */
+@Getter
+public class AuthenticatedPrincipal {
+
+    public static final String REQUEST_ATTRIBUTE = AuthenticatedPrincipal.class.getName();
+
+    private final String token;
+    private final DecodedJWT decodedJwt;
+    private final JwtPayload payload;
+    private final Set<String> roles;
+
+    @Getter(AccessLevel.NONE)
+    private final Supplier<Optional<User>> user;
+
+    public AuthenticatedPrincipal(final String token, final DecodedJWT decodedJwt, final JwtPayload payload,
+                                  final Function<String, Optional<User>> findUserBySub) {
+        this.token = token;
+        this.decodedJwt = decodedJwt;
+        this.payload = payload;
+        this.roles = parseRoles(payload.getRoles());
+        this.user = Suppliers.memoize(() -> findUserBySub.apply(payload.getSub()));
+    }
+
+    public static Optional<AuthenticatedPrincipal> fromRequest(final HttpServletRequest request) {
+        return Optional.ofNullable((AuthenticatedPrincipal) request.getAttribute(REQUEST_ATTRIBUTE));
+    }
+
+    /**
+     * @return the user the token was issued to, looked up by sub the first time it's needed
+     */
+    public Optional<User> getUser() {
+        return user.get();
+    }
+
+    public boolean hasRole(final RoleEnum role) {
+        return roles.contains(role.name());
+    }
+
+    /**
+     * Parses the roles claim, which is written as e.g. "[APPLICANT, FIND]"
+     */
+    static Set<String> parseRoles(final String roles) {
+        if (roles == null) {
+            return Set.of();
+        }
+        return Arrays.stream(roles.replace("[", "").replace("]", "").split(","))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -1,9 +1,7 @@
 package gov.cabinetoffice.gapuserservice.security;
 
-import com.auth0.jwt.interfaces.DecodedJWT;
 import gov.cabinetoffice.gapuserservice.config.DebugProperties;
 import gov.cabinetoffice.gapuserservice.config.JwtProperties;
-import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
 import gov.cabinetoffice.gapuserservice.exceptions.UnauthorizedException;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
 import jakarta.servlet.FilterChain;
@@ -61,24 +59,20 @@ public class JwtTokenFilter extends OncePerRequestFilter {
             return;
         }
 
-        final DecodedJWT decodedJwt = customJwtServiceImpl.decodedJwt(userServiceJwt.get().getValue());
-        final JwtPayload payload = customJwtServiceImpl.decodeTheTokenPayloadInAReadableFormat(decodedJwt);
-        final List<String> roles = List.of(payload.getRoles()
-                .replace("[", "")
-                .replace("]", "")
-                .replace(" ", "")
-                .split(","));
+        final AuthenticatedPrincipal principal = customJwtServiceImpl.createPrincipal(userServiceJwt.get().getValue());
 
-
-        if (!customJwtServiceImpl.isTokenValid(userServiceJwt.get().getValue())) {
+        if (!customJwtServiceImpl.isTokenValid(principal)) {
             throw new UnauthorizedException("Token not valid");
         }
 
+        // Keep the decoded token on the request, so it isn't decoded again by the rest of the app
+        request.setAttribute(AuthenticatedPrincipal.REQUEST_ATTRIBUTE, principal);
+
         //Set the Security context, so we can access user details in rest of app
         final UsernamePasswordAuthenticationToken userAuthentication = new UsernamePasswordAuthenticationToken(
                 "Placeholder",
                 null,
-                roles.stream().map(role -> new SimpleGrantedAuthority("ROLE_" + role)).toList());
+                principal.getRoles().stream().map(role -> new SimpleGrantedAuthority("ROLE_" + role)).toList());
 
         SecurityContextHolder.getContext().setAuthentication(userAuthentication);
         chain.doFilter(request, response);
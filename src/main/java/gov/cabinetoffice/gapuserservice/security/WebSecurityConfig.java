@@ -58,7 +58,10 @@ public class WebSecurityConfig {
                 "/error/**",
                 "/v2/validateSessionsRoles",
                 "/user",
-                "/users/emails"
+                "/users/emails",
+                "/.well-known/jwks.json",
+                "/token-revocations",
+                "/validate-tokens"
         );
     }
 
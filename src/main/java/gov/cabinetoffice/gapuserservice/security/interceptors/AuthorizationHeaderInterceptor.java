@@ -1,6 +1,11 @@
 package gov.cabinetoffice.gapuserservice.security.interceptors;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.RateLimiter;
 import gov.cabinetoffice.gapuserservice.annotations.ServiceToServiceHeaderValidation;
+import gov.cabinetoffice.gapuserservice.util.TokenDigest;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.log4j.Log4j2;
@@ -14,91 +19,138 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
 import java.util.Base64;
 
 //this is needed to "authenticate" all the call from other "internal" services
 @Log4j2
 public class AuthorizationHeaderInterceptor implements HandlerInterceptor {
 
+    private static final Duration DEFAULT_VERIFIED_HEADER_TTL = Duration.ofMinutes(5);
+    private static final long DEFAULT_VERIFIED_HEADER_CACHE_SIZE = 100;
+
     private final String expectedAuthorizationValue;
 
-    private final String privateKey;
+    private final PrivateKey privateKey;
+
+    // Cipher instances aren't thread safe, so each request thread keeps one initialised with the private key
+    private final ThreadLocal<Cipher> decryptCipher = new ThreadLocal<>();
+
+    // callers reuse the same encrypted header, so remember the outcome rather than repeating the RSA decryption
+    private final Cache<HashCode, Boolean> verifiedHeaders;
+
+    private final RateLimiter debugLogLimiter = RateLimiter.create(1.0);
 
     public AuthorizationHeaderInterceptor(String expectedAuthorizationValue, String privateKey) {
+        this(expectedAuthorizationValue, privateKey, DEFAULT_VERIFIED_HEADER_TTL, DEFAULT_VERIFIED_HEADER_CACHE_SIZE);
+    }
+
+    public AuthorizationHeaderInterceptor(String expectedAuthorizationValue, String privateKey,
+            Duration verifiedHeaderTtl, long verifiedHeaderCacheSize) {
         this.expectedAuthorizationValue = expectedAuthorizationValue;
-        this.privateKey = privateKey;
+        this.privateKey = parsePrivateKey(privateKey);
+        this.verifiedHeaders = CacheBuilder.newBuilder()
+                .expireAfterWrite(verifiedHeaderTtl)
+                .maximumSize(verifiedHeaderCacheSize)
+                .build();
     }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        log.info("Intercepting request: " + request.getRequestURI());
+        logDebug("Intercepting request: " + request.getRequestURI());
         if (handler instanceof HandlerMethod handlerMethod) {
             final Method method = handlerMethod.getMethod();
 
             final ServiceToServiceHeaderValidation annotation = method.getAnnotation(ServiceToServiceHeaderValidation.class);
 
             if (annotation != null) {
-                log.info("Request is coming from another internal service, validating authorization header");
+                logDebug("Request is coming from another internal service, validating authorization header");
 
                 final String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-                final boolean isAuthorizationHeaderCorrect = compareAuthorizationSecret(authorizationHeader,
-                        expectedAuthorizationValue, privateKey);
+                final boolean isAuthorizationHeaderCorrect = compareAuthorizationSecret(authorizationHeader);
                 if (authorizationHeader == null || !isAuthorizationHeaderCorrect) {
 
-                    log.info("Authorization Header Value: " + authorizationHeader
-                            + " does not match the expected value");
+                    logDebug("Authorization Header Value does not match the expected value");
 
                     response.setStatus(HttpServletResponse.SC_FORBIDDEN);
                     return false;
                 }
 
-                log.info("Authorization Header Value matches the expected value");
+                logDebug("Authorization Header Value matches the expected value");
             }
         }
 
         return true;
     }
 
-    private boolean compareAuthorizationSecret(String authorizationHeader, String expectedAuthorizationValue,
-            String privateKey) {
+    private boolean compareAuthorizationSecret(String authorizationHeader) {
 
         if (authorizationHeader == null || privateKey == null) {
             return false;
         }
 
-        return decrypt(authorizationHeader, privateKey).equals(expectedAuthorizationValue);
+        final HashCode headerDigest = TokenDigest.of(authorizationHeader);
+        final Boolean verified = verifiedHeaders.getIfPresent(headerDigest);
+        if (verified != null) {
+            return verified;
+        }
 
+        final boolean matches = decrypt(authorizationHeader).equals(expectedAuthorizationValue);
+        verifiedHeaders.put(headerDigest, matches);
+        return matches;
     }
 
-    private String decrypt(String encryptedText, String privateKeyString) {
+    private String decrypt(String encryptedText) {
 
         try {
-
-            final byte[] privateKeyBytes = Base64.getDecoder().decode(privateKeyString);
             final byte[] encryptedMessageBytes = Base64.getDecoder().decode(encryptedText);
-
-            final PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKeyBytes);
-            final KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            final PrivateKey rsaPrivateKey = keyFactory.generatePrivate(keySpec);
-
-            final Cipher decryptCipher = Cipher.getInstance("RSA");
-            decryptCipher.init(Cipher.DECRYPT_MODE, rsaPrivateKey);
-
-            final byte[] decryptedMessageBytes = decryptCipher.doFinal(encryptedMessageBytes);
+            final byte[] decryptedMessageBytes = getDecryptCipher().doFinal(encryptedMessageBytes);
 
             return new String(decryptedMessageBytes, StandardCharsets.UTF_8);
         }
-        catch (IllegalArgumentException | InvalidKeyException | NoSuchAlgorithmException | InvalidKeySpecException
+        catch (IllegalArgumentException | InvalidKeyException | NoSuchAlgorithmException
                 | BadPaddingException | IllegalBlockSizeException | NoSuchPaddingException e) {
-            log.info("Error decrypting authorization header from other internal service: " + e.getMessage());
+            // don't reuse a cipher left in an unknown state by a failed decryption
+            decryptCipher.remove();
+            logDebug("Error decrypting authorization header from other internal service: " + e.getMessage());
             return "";
         }
     }
 
+    private Cipher getDecryptCipher() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        Cipher cipher = decryptCipher.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance("RSA");
+            cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            decryptCipher.set(cipher);
+        }
+        return cipher;
+    }
+
+    private void logDebug(String message) {
+        if (log.isDebugEnabled() && debugLogLimiter.tryAcquire()) {
+            log.debug(message);
+        }
+    }
+
+    private static PrivateKey parsePrivateKey(String privateKeyString) {
+        if (privateKeyString == null) {
+            return null;
+        }
+        try {
+            final PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyString));
+            return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+        }
+        catch (IllegalArgumentException | GeneralSecurityException e) {
+            log.error("Unable to parse service-to-service private key, rejecting all internal service requests", e);
+            return null;
+        }
+    }
+
 }
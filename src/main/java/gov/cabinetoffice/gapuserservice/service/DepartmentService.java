@@ -3,7 +3,6 @@ package gov.cabinetoffice.gapuserservice.service;
 
 import gov.cabinetoffice.gapuserservice.dto.DepartmentDto;
 import gov.cabinetoffice.gapuserservice.exceptions.DepartmentNotFoundException;
-import gov.cabinetoffice.gapuserservice.mappers.DepartmentMapper;
 import gov.cabinetoffice.gapuserservice.model.Department;
 import gov.cabinetoffice.gapuserservice.repository.DepartmentRepository;
 import lombok.RequiredArgsConstructor;
@@ -16,12 +15,10 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class DepartmentService {
     private final DepartmentRepository departmentRepository;
-    private final DepartmentMapper departmentMapper;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     public List<DepartmentDto> getAllDepartments() {
-        return departmentRepository.findAll().stream()
-                .map(departmentMapper::departmentToDepartmentDto)
-                .toList();
+        return referenceDataRegistry.getAllDepartments();
     }
 
     public Optional<Department> getDepartmentById(int id) {
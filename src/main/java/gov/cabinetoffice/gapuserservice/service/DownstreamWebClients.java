@@ -0,0 +1,165 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.config.WebClientProperties;
+import gov.cabinetoffice.gapuserservice.dto.LatencyMetrics;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Prebuilt WebClients for the admin-backend and Find. Each downstream has its own bounded connection pool with
+ * connect and response timeouts, so a slow Apply or Find fails fast instead of holding every request thread.
+ * Idempotent calls that fail before a response arrives are retried with jittered backoff.
+ */
+@Component
+@Slf4j
+public class DownstreamWebClients {
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD,
+            HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS);
+
+    private final Map<DownstreamService, WebClient> webClients = new EnumMap<>(DownstreamService.class);
+    private final Map<DownstreamService, Duration> blockTimeouts = new EnumMap<>(DownstreamService.class);
+    private final Map<DownstreamService, ConnectionProvider> connectionProviders = new EnumMap<>(DownstreamService.class);
+    private final Map<DownstreamService, UpstreamLatency> latencies = new EnumMap<>(DownstreamService.class);
+    private final Map<String, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    public DownstreamWebClients(final WebClient.Builder webClientBuilder, final WebClientProperties properties) {
+        register(webClientBuilder, DownstreamService.ADMIN_BACKEND, properties.getAdminBackend());
+        register(webClientBuilder, DownstreamService.FIND, properties.getFind());
+    }
+
+    public WebClient get(final DownstreamService downstream) {
+        return webClients.get(downstream);
+    }
+
+    public Duration getBlockTimeout(final DownstreamService downstream) {
+        return blockTimeouts.get(downstream);
+    }
+
+    public Map<DownstreamService, LatencyMetrics> getLatencyMetrics() {
+        final Map<DownstreamService, LatencyMetrics> metrics = new EnumMap<>(DownstreamService.class);
+        latencies.forEach((downstream, latency) -> metrics.put(downstream, latency.snapshot()));
+        return metrics;
+    }
+
+    public Map<String, PoolMetrics> getPoolMetrics() {
+        final Map<String, PoolMetrics> metrics = new HashMap<>();
+        pools.forEach((pool, poolMetrics) -> metrics.put(pool, new PoolMetrics(poolMetrics.acquiredSize(),
+                poolMetrics.idleSize(), poolMetrics.pendingAcquireSize(), poolMetrics.maxAllocatedSize())));
+        return metrics;
+    }
+
+    @Scheduled(fixedDelayString = "${web-client.metrics-log-interval-ms:300000}")
+    public void logMetrics() {
+        getLatencyMetrics().forEach((downstream, metrics) -> {
+            if (metrics.requests() > 0) {
+                log.info("WebClient latency {} {} {} {} {}",
+                        keyValue("downstream", downstream),
+                        keyValue("requests", metrics.requests()),
+                        keyValue("failures", metrics.failures()),
+                        keyValue("meanLatencyMs", metrics.meanLatency().toMillis()),
+                        keyValue("maxLatencyMs", metrics.maxLatency().toMillis()));
+            }
+        });
+        getPoolMetrics().forEach((pool, metrics) -> log.info("WebClient pool {} {} {} {} {}",
+                keyValue("pool", pool),
+                keyValue("acquired", metrics.acquired()),
+                keyValue("idle", metrics.idle()),
+                keyValue("pending", metrics.pending()),
+                keyValue("maxConnections", metrics.maxConnections())));
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+
+    private void register(final WebClient.Builder webClientBuilder, final DownstreamService downstream,
+                          final WebClientProperties.Downstream config) {
+        final ConnectionProvider connectionProvider = ConnectionProvider.builder(downstream.getPoolName())
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(config.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(config.getMaxIdleTimeMs()))
+                .metrics(true, () -> new PoolMetricsRegistrar(pools))
+                .build();
+        final HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectTimeoutMs())
+                .responseTimeout(Duration.ofMillis(config.getResponseTimeoutMs()));
+
+        latencies.put(downstream, new UpstreamLatency());
+        connectionProviders.put(downstream, connectionProvider);
+        blockTimeouts.put(downstream, Duration.ofMillis(config.getBlockTimeoutMs()));
+        // Boot's builder comes with its configured codecs and customizers, and is mutable, so customise a copy per
+        // downstream
+        webClients.put(downstream, webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(latencyAndRetryFilter(latencies.get(downstream), config))
+                .build());
+    }
+
+    private static ExchangeFilterFunction latencyAndRetryFilter(final UpstreamLatency latency,
+                                                                final WebClientProperties.Downstream config) {
+        // only failures before a response (connect errors, resets, timeouts) are retried, never an error status
+        final Retry retry = Retry.backoff(config.getMaxRetries(), Duration.ofMillis(config.getRetryBackoffMs()))
+                .jitter(0.5)
+                .filter(WebClientRequestException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+        return (request, next) -> {
+            final Mono<ClientResponse> attempt = Mono.defer(() -> {
+                final long startNanos = System.nanoTime();
+                return next.exchange(request)
+                        .doOnNext(response -> latency.record(System.nanoTime() - startNanos,
+                                !response.statusCode().is5xxServerError()))
+                        .doOnError(e -> latency.record(System.nanoTime() - startNanos, false));
+            });
+            return config.getMaxRetries() > 0 && IDEMPOTENT_METHODS.contains(request.method())
+                    ? attempt.retryWhen(retry)
+                    : attempt;
+        };
+    }
+
+    public record PoolMetrics(int acquired, int idle, int pending, int maxConnections) {
+    }
+
+    private record PoolMetricsRegistrar(Map<String, ConnectionPoolMetrics> pools)
+            implements ConnectionProvider.MeterRegistrar {
+
+        @Override
+        public void registerMetrics(final String poolName, final String id, final SocketAddress remoteAddress,
+                                    final ConnectionPoolMetrics metrics) {
+            pools.put(poolName + " " + remoteAddress, metrics);
+        }
+
+        @Override
+        public void deRegisterMetrics(final String poolName, final String id, final SocketAddress remoteAddress) {
+            pools.remove(poolName + " " + remoteAddress);
+        }
+    }
+}
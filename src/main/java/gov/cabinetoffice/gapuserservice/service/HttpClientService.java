@@ -0,0 +1,177 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.config.HttpClientProperties;
+import gov.cabinetoffice.gapuserservice.dto.LatencyMetrics;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Makes requests to OneLogin and Spotlight over a shared pool of keep-alive connections, so repeated calls
+ * (e.g. /token then /userinfo on login) reuse a warm TLS connection. Each upstream has its own connect and read
+ * timeouts, and latency is recorded per upstream alongside the pool usage of each route.
+ */
+@Service
+@Slf4j
+public class HttpClientService {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Map<HttpUpstream, RequestConfig> requestConfigs = new EnumMap<>(HttpUpstream.class);
+    private final Map<HttpUpstream, UpstreamLatency> latencies = new EnumMap<>(HttpUpstream.class);
+
+    public HttpClientService(final HttpClientProperties properties) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+
+        final long maxKeepAliveMillis = TimeUnit.SECONDS.toMillis(properties.getKeepAliveSeconds());
+        // honour the server's Keep-Alive header, but never hold a connection longer than configured
+        final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, maxKeepAliveMillis) : maxKeepAliveMillis;
+        };
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleEvictionSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        requestConfigs.put(HttpUpstream.ONE_LOGIN, toRequestConfig(properties.getOneLogin()));
+        requestConfigs.put(HttpUpstream.SPOTLIGHT, toRequestConfig(properties.getSpotlight()));
+        for (final HttpUpstream upstream : HttpUpstream.values()) {
+            latencies.put(upstream, new UpstreamLatency());
+        }
+    }
+
+    public JSONObject postRequestWithBody(final HttpUpstream upstream, final String url, final String body,
+                                          final String contentType) throws IOException {
+        final HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(HttpHeaders.CONTENT_TYPE, contentType);
+        httpPost.setEntity(new StringEntity(body));
+        return execute(upstream, httpPost);
+    }
+
+    public JSONObject getRequestWithHeaders(final HttpUpstream upstream, final String url,
+                                            final Map<String, String> headers) throws IOException {
+        final HttpGet httpGet = new HttpGet(url);
+        headers.forEach(httpGet::setHeader);
+        return execute(upstream, httpGet);
+    }
+
+    /**
+     * Makes a GET request whose response, including its status and headers, is read by the handler. The connection
+     * is released once the handler returns.
+     */
+    public <T> T getRequest(final HttpUpstream upstream, final String url,
+                            final ResponseHandler<? extends T> responseHandler) throws IOException {
+        final HttpGet httpGet = new HttpGet(url);
+        httpGet.setConfig(requestConfigs.get(upstream));
+        final long startNanos = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            final T result = httpClient.execute(httpGet, responseHandler);
+            succeeded = true;
+            return result;
+        } finally {
+            latencies.get(upstream).record(System.nanoTime() - startNanos, succeeded);
+        }
+    }
+
+    public Map<HttpUpstream, LatencyMetrics> getLatencyMetrics() {
+        final Map<HttpUpstream, LatencyMetrics> metrics = new EnumMap<>(HttpUpstream.class);
+        latencies.forEach((upstream, latency) -> metrics.put(upstream, latency.snapshot()));
+        return metrics;
+    }
+
+    public Map<String, PoolStats> getPoolMetrics() {
+        final Map<String, PoolStats> metrics = new HashMap<>();
+        for (final HttpRoute route : connectionManager.getRoutes()) {
+            metrics.put(route.getTargetHost().toURI(), connectionManager.getStats(route));
+        }
+        return metrics;
+    }
+
+    @Scheduled(fixedDelayString = "${http-client.metrics-log-interval-ms:300000}")
+    public void logMetrics() {
+        getLatencyMetrics().forEach((upstream, metrics) -> {
+            if (metrics.requests() > 0) {
+                log.info("HTTP client latency {} {} {} {} {}",
+                        keyValue("upstream", upstream),
+                        keyValue("requests", metrics.requests()),
+                        keyValue("failures", metrics.failures()),
+                        keyValue("meanLatencyMs", metrics.meanLatency().toMillis()),
+                        keyValue("maxLatencyMs", metrics.maxLatency().toMillis()));
+            }
+        });
+        getPoolMetrics().forEach((route, stats) -> log.info("HTTP client pool {} {} {} {}",
+                keyValue("route", route),
+                keyValue("leased", stats.getLeased()),
+                keyValue("available", stats.getAvailable()),
+                keyValue("pending", stats.getPending())));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private JSONObject execute(final HttpUpstream upstream, final HttpRequestBase request) throws IOException {
+        request.setConfig(requestConfigs.get(upstream));
+        final long startNanos = System.nanoTime();
+        boolean succeeded = false;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            final HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new IOException("Empty response from " + request.getURI());
+            }
+            // parse straight off the socket, and closing the stream releases the connection back to the pool
+            try (InputStream content = entity.getContent()) {
+                final JSONObject json = new JSONObject(new JSONTokener(content));
+                succeeded = true;
+                return json;
+            }
+        } finally {
+            latencies.get(upstream).record(System.nanoTime() - startNanos, succeeded);
+        }
+    }
+
+    private static RequestConfig toRequestConfig(final HttpClientProperties.Timeouts timeouts) {
+        return RequestConfig.custom()
+                .setConnectTimeout(timeouts.getConnectTimeoutMs())
+                .setConnectionRequestTimeout(timeouts.getConnectTimeoutMs())
+                .setSocketTimeout(timeouts.getReadTimeoutMs())
+                .build();
+    }
+}
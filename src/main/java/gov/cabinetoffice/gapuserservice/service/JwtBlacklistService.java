@@ -2,41 +2,249 @@ package gov.cabinetoffice.gapuserservice.service;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashCode;
 import gov.cabinetoffice.gapuserservice.model.BlacklistedToken;
 import gov.cabinetoffice.gapuserservice.repository.JwtBlacklistRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import gov.cabinetoffice.gapuserservice.util.TokenDigest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-@RequiredArgsConstructor
+/**
+ * Keeps a Bloom filter of the digests of every blacklisted token, so most tokens can be confirmed as not
+ * blacklisted without a database lookup; only a hit in the filter is checked against the database. New entries
+ * are held in memory and written to the database in batches by {@link #flushPendingTokens()}, and rows written
+ * by other instances are picked up by {@link #syncBlacklist()}.
+ */
+@Slf4j
 @Service
 public class JwtBlacklistService {
+
     private final JwtBlacklistRepository jwtBlacklistRepository;
 
     private final Clock clock;
 
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+    private final int syncOverlap;
+    private final int purgeBatchSize;
+    private final int purgeMaxBatches;
+    private final int loadPageSize;
+
+    private final Map<HashCode, BlacklistedToken> pendingTokens = new ConcurrentHashMap<>();
+
+    // flushing, syncing and rebuilding all run in the background, so they're serialised to keep the filter and
+    // the pending tokens consistent with each other
+    private final Object syncLock = new Object();
+
+    // null until the blacklist has been loaded, in which case every lookup goes to the database
+    private volatile BloomFilter<byte[]> bloomFilter;
+    private int lastSyncedId;
+
+    public JwtBlacklistService(final JwtBlacklistRepository jwtBlacklistRepository,
+                               final Clock clock,
+                               final @Value("${blacklist.bloom-filter.expected-insertions:100000}") int expectedInsertions,
+                               final @Value("${blacklist.bloom-filter.false-positive-probability:0.001}") double falsePositiveProbability,
+                               final @Value("${blacklist.sync.overlap:100}") int syncOverlap,
+                               final @Value("${blacklist.purge.batch-size:5000}") int purgeBatchSize,
+                               final @Value("${blacklist.purge.max-batches:1000}") int purgeMaxBatches,
+                               final @Value("${blacklist.load.page-size:10000}") int loadPageSize) {
+        this.jwtBlacklistRepository = jwtBlacklistRepository;
+        this.clock = clock;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.syncOverlap = syncOverlap;
+        this.purgeBatchSize = purgeBatchSize;
+        this.purgeMaxBatches = purgeMaxBatches;
+        this.loadPageSize = loadPageSize;
+    }
+
+    // the deprecated jwt column is still written for instances on the previous release during a rolling deploy
+    @SuppressWarnings("deprecation")
     public void addJwtToBlacklist(final String jwt) {
         final DecodedJWT decodedToken = JWT.decode(jwt);
         final LocalDateTime expiry = decodedToken.getExpiresAt().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        final HashCode digest = TokenDigest.of(jwt);
         final BlacklistedToken blacklist = BlacklistedToken.builder()
+                .tokenDigest(digest.asBytes())
                 .jwt(jwt)
                 .expiryDate(expiry)
                 .build();
 
-        this.jwtBlacklistRepository.save(blacklist);
+        pendingTokens.put(digest, blacklist);
+        final BloomFilter<byte[]> filter = bloomFilter;
+        if (filter != null) {
+            filter.put(digest.asBytes());
+        }
     }
 
     public boolean isJwtInBlacklist(final String jwt) {
-        return jwtBlacklistRepository.existsByJwtIs(jwt);
+        final HashCode digest = TokenDigest.of(jwt);
+        if (pendingTokens.containsKey(digest)) {
+            return true;
+        }
+
+        final BloomFilter<byte[]> filter = bloomFilter;
+        if (filter != null && !filter.mightContain(digest.asBytes())) {
+            return false;
+        }
+        return jwtBlacklistRepository.existsByTokenDigest(digest.asBytes());
+    }
+
+    /**
+     * Returns the tokens in {@code jwts} that are blacklisted. Tokens the Bloom filter can't rule out are checked
+     * against the database in a single query.
+     */
+    public Set<String> findBlacklisted(final Collection<String> jwts) {
+        final Set<String> blacklisted = new HashSet<>();
+        final Map<HashCode, String> candidates = new HashMap<>();
+        final BloomFilter<byte[]> filter = bloomFilter;
+        for (String jwt : jwts) {
+            final HashCode digest = TokenDigest.of(jwt);
+            if (pendingTokens.containsKey(digest)) {
+                blacklisted.add(jwt);
+            } else if (filter == null || filter.mightContain(digest.asBytes())) {
+                candidates.put(digest, jwt);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            final List<byte[]> digests = candidates.keySet().stream().map(HashCode::asBytes).toList();
+            for (byte[] digest : jwtBlacklistRepository.findTokenDigestsIn(digests)) {
+                final String jwt = candidates.get(HashCode.fromBytes(digest));
+                if (jwt != null) {
+                    blacklisted.add(jwt);
+                }
+            }
+        }
+        return blacklisted;
+    }
+
+    /**
+     * Writes buffered blacklist entries to the database in a single batch. Entries stay buffered, and so
+     * blacklisted, until they've been saved.
+     */
+    public int flushPendingTokens() {
+        synchronized (syncLock) {
+            if (pendingTokens.isEmpty()) {
+                return 0;
+            }
+
+            final Map<HashCode, BlacklistedToken> batch = Map.copyOf(pendingTokens);
+            jwtBlacklistRepository.saveAll(new ArrayList<>(batch.values()));
+
+            final BloomFilter<byte[]> filter = bloomFilter;
+            batch.forEach((digest, token) -> {
+                if (filter != null) {
+                    filter.put(digest.asBytes());
+                }
+                pendingTokens.remove(digest, token);
+            });
+            return batch.size();
+        }
+    }
+
+    /**
+     * Adds rows written since the last sync, e.g. by other instances, to the Bloom filter. The last few ids are
+     * read again to catch rows whose transactions committed out of id order.
+     */
+    public int syncBlacklist() {
+        synchronized (syncLock) {
+            final BloomFilter<byte[]> filter = bloomFilter;
+            if (filter == null) {
+                rebuildBlacklist();
+                return 0;
+            }
+            return loadInto(filter, Math.max(0, lastSyncedId - syncOverlap));
+        }
     }
 
-    @Transactional
+    /**
+     * Replaces the Bloom filter with one built from the database, dropping expired tokens that have since been
+     * deleted from it.
+     */
+    public void rebuildBlacklist() {
+        synchronized (syncLock) {
+            final BloomFilter<byte[]> filter = BloomFilter.create(Funnels.byteArrayFunnel(), expectedInsertions,
+                    falsePositiveProbability);
+            lastSyncedId = 0;
+            final int loaded = loadInto(filter, 0);
+            pendingTokens.keySet().forEach(digest -> filter.put(digest.asBytes()));
+            bloomFilter = filter;
+            log.info("Loaded {} blacklisted tokens", loaded);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flushPendingTokens();
+        } catch (RuntimeException e) {
+            log.error("Unable to write {} blacklisted tokens to the database on shutdown", pendingTokens.size(), e);
+        }
+    }
+
+    /**
+     * Deletes expired tokens in batches, each in its own transaction, so the purge never holds one long-running
+     * transaction. Stops after the configured number of batches; anything left is picked up by the next run.
+     */
     public Long deleteExpiredJwts() {
-        return this.jwtBlacklistRepository.deleteByExpiryDateLessThan(ZonedDateTime.now(clock).toLocalDateTime());
+        final LocalDateTime now = ZonedDateTime.now(clock).toLocalDateTime();
+        long deleted = 0;
+        for (int batch = 1; batch <= purgeMaxBatches; batch++) {
+            final int deletedInBatch = jwtBlacklistRepository.deleteExpiredBatch(now, purgeBatchSize);
+            deleted += deletedInBatch;
+            if (deletedInBatch < purgeBatchSize) {
+                return deleted;
+            }
+            log.info("Deleted {} expired tokens from the blacklist after {} batches", deleted, batch);
+        }
+
+        log.warn("Stopped deleting expired tokens after {} batches, the rest will be deleted on the next run",
+                purgeMaxBatches);
+        return deleted;
+    }
+
+    /**
+     * Returns up to {@code limit} blacklisted tokens written after the given id, oldest first. Tokens still
+     * waiting to be flushed are not included until they have been written.
+     */
+    public List<BlacklistedToken> getBlacklistedTokensAfter(final int afterId, final int limit) {
+        return jwtBlacklistRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    // reads a page of digests at a time, so only one page is ever held in memory
+    private int loadInto(final BloomFilter<byte[]> filter, final int afterId) {
+        final PageRequest page = PageRequest.of(0, loadPageSize);
+        int cursor = afterId;
+        int loaded = 0;
+        List<JwtBlacklistRepository.IdAndDigest> tokens;
+        do {
+            tokens = jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(cursor, page);
+            for (JwtBlacklistRepository.IdAndDigest token : tokens) {
+                filter.put(token.getTokenDigest());
+                cursor = Math.max(cursor, token.getId());
+            }
+            loaded += tokens.size();
+        } while (tokens.size() == loadPageSize);
+        lastSyncedId = Math.max(lastSyncedId, cursor);
+        return loaded;
     }
 }
@@ -0,0 +1,91 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.exceptions.PrivateKeyParsingException;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Builds the RS256 private_key_jwt client assertion sent to the OneLogin token endpoint. The private key is
+ * parsed once at startup, so rotating {@code onelogin.private-key} requires a restart. Each assertion is assembled
+ * from a pre-serialised header and claim prefix.
+ */
+@Component
+@Slf4j
+public class OneLoginClientAssertionFactory {
+
+    private static final long EXPIRY_MILLIS = 300000L;
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+    private static final String HEADER = BASE64_URL.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+
+    // Signature instances aren't thread safe, so each request thread keeps its own
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA256withRSA is not available", e);
+        }
+    });
+
+    private final Clock clock;
+    private final String claimsPrefix;
+    private final PrivateKey privateKey;
+
+    public OneLoginClientAssertionFactory(final @Value("${onelogin.private-key}") String encodedPrivateKey,
+                                          final @Value("${onelogin.client-id}") String clientId,
+                                          final @Value("${onelogin.base-url}") String oneLoginBaseUrl,
+                                          final Clock clock) {
+        this.clock = clock;
+        this.claimsPrefix = "{\"aud\":" + JSONObject.quote(oneLoginBaseUrl + "/token")
+                + ",\"iss\":" + JSONObject.quote(clientId)
+                + ",\"sub\":" + JSONObject.quote(clientId);
+        this.privateKey = parsePrivateKey(encodedPrivateKey);
+    }
+
+    public String createAssertion() {
+        final PrivateKey key = privateKey;
+        if (key == null) {
+            throw new PrivateKeyParsingException("Unable to parse private key");
+        }
+
+        final long now = clock.millis();
+        final String claims = claimsPrefix
+                + ",\"exp\":" + (now + EXPIRY_MILLIS)
+                + ",\"jti\":\"" + UUID.randomUUID()
+                + "\",\"iat\":" + now + "}";
+        final String signingInput = HEADER + "." + BASE64_URL.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        try {
+            final Signature signature = SIGNATURE.get();
+            signature.initSign(key);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64_URL.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign OneLogin client assertion", e);
+        }
+    }
+
+    /**
+     * Returns null rather than failing startup, so an invalid key only fails OneLogin sign-in
+     */
+    private static PrivateKey parsePrivateKey(final String encodedPrivateKey) {
+        try {
+            final PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(encodedPrivateKey));
+            return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            log.error("Unable to parse OneLogin private key", e);
+            return null;
+        }
+    }
+}
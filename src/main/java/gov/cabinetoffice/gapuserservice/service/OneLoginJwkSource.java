@@ -0,0 +1,190 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import com.nimbusds.jose.Algorithm;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Keeps the OneLogin JWKS in memory with one precomputed {@link ECDSAVerifier} per key id, so login callbacks
+ * don't download the JWKS. Keys are refreshed in the background ahead of the expiry given by the response's
+ * Cache-Control header. A token signed with an unknown key id triggers a single shared refresh, at most once per
+ * interval. A failed refresh keeps the last known keys. The JWKS is fetched over the shared OneLogin connection
+ * pool, with its timeouts.
+ */
+@Component
+@Slf4j
+public class OneLoginJwkSource {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final String jwksUrl;
+    private final HttpClientService httpClientService;
+    private final Duration defaultTtl;
+    private final Duration minRefreshInterval;
+    private final Clock clock;
+
+    private final Object refreshLock = new Object();
+    private volatile LoadedKeys loadedKeys = new LoadedKeys(Map.of(), null);
+    private volatile Instant nextRefresh = Instant.EPOCH;
+    private volatile Instant lastRefreshAttempt = Instant.EPOCH;
+    private volatile Duration lastFetchLatency;
+
+    public OneLoginJwkSource(final @Value("${onelogin.base-url}") String oneLoginBaseUrl,
+                             final HttpClientService httpClientService,
+                             final @Value("${onelogin.jwks.default-ttl-seconds:300}") long defaultTtlSeconds,
+                             final @Value("${onelogin.jwks.min-refresh-interval-seconds:30}") long minRefreshIntervalSeconds,
+                             final Clock clock) {
+        this.jwksUrl = oneLoginBaseUrl.concat("/.well-known/jwks.json");
+        this.httpClientService = httpClientService;
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.minRefreshInterval = Duration.ofSeconds(minRefreshIntervalSeconds);
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${onelogin.jwks.refresh-check-interval-ms:5000}")
+    public void refreshIfDue() {
+        if (clock.instant().isBefore(nextRefresh)) {
+            return;
+        }
+        synchronized (refreshLock) {
+            if (!clock.instant().isBefore(nextRefresh)) {
+                refresh();
+            }
+        }
+    }
+
+    public Optional<VerificationKey> getKey(final String keyId) {
+        if (keyId == null) {
+            return Optional.empty();
+        }
+        final VerificationKey key = loadedKeys.byKeyId().get(keyId);
+        return key != null ? Optional.of(key) : Optional.ofNullable(refreshOnUnknownKeyId(keyId));
+    }
+
+    /**
+     * Time taken by the most recent JWKS fetch, whether or not it succeeded.
+     */
+    public Optional<Duration> getLastFetchLatency() {
+        return Optional.ofNullable(lastFetchLatency);
+    }
+
+    /**
+     * Age of the keys currently being served, empty until the JWKS has been loaded.
+     */
+    public Optional<Duration> getStaleness() {
+        return Optional.ofNullable(loadedKeys.fetchedAt())
+                .map(fetchedAt -> Duration.between(fetchedAt, clock.instant()));
+    }
+
+    private VerificationKey refreshOnUnknownKeyId(final String keyId) {
+        synchronized (refreshLock) {
+            // callers that queued behind an in-flight refresh pick up its result instead of fetching again
+            final VerificationKey key = loadedKeys.byKeyId().get(keyId);
+            if (key != null || lastRefreshAttempt.plus(minRefreshInterval).isAfter(clock.instant())) {
+                return key;
+            }
+            log.info("Unknown key id {} in OneLogin token header, refreshing OneLogin JWKS", keyId);
+            refresh();
+            return loadedKeys.byKeyId().get(keyId);
+        }
+    }
+
+    private void refresh() {
+        final Instant startedAt = clock.instant();
+        final long startNanos = System.nanoTime();
+        lastRefreshAttempt = startedAt;
+        try {
+            final FetchedJwks fetched = httpClientService.getRequest(HttpUpstream.ONE_LOGIN, jwksUrl, response -> {
+                final int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK) {
+                    throw new IOException("Unexpected status " + status + " from " + jwksUrl);
+                }
+                return new FetchedJwks(EntityUtils.toString(response.getEntity()),
+                        response.getFirstHeader(HttpHeaders.CACHE_CONTROL));
+            });
+            final Map<String, VerificationKey> keys = toVerificationKeys(JWKSet.parse(fetched.body()));
+            lastFetchLatency = Duration.ofNanos(System.nanoTime() - startNanos);
+            if (keys.isEmpty()) {
+                throw new IOException("No usable keys in OneLogin JWKS");
+            }
+
+            final Duration ttl = getTtl(fetched.cacheControl());
+            loadedKeys = new LoadedKeys(Map.copyOf(keys), startedAt);
+            // refresh ahead of expiry so login callbacks never wait on a download
+            nextRefresh = startedAt.plus(ttl.minus(ttl.dividedBy(10)));
+            log.info("Loaded OneLogin JWKS {} {} {}",
+                    keyValue("keyCount", keys.size()),
+                    keyValue("fetchLatencyMs", lastFetchLatency.toMillis()),
+                    keyValue("ttlSeconds", ttl.toSeconds()));
+        } catch (IOException | ParseException | IllegalArgumentException e) {
+            lastFetchLatency = Duration.ofNanos(System.nanoTime() - startNanos);
+            nextRefresh = startedAt.plus(minRefreshInterval);
+            log.warn("Unable to fetch OneLogin JWKS, keeping previous keys {} {}",
+                    keyValue("fetchLatencyMs", lastFetchLatency.toMillis()),
+                    keyValue("stalenessSeconds", getStaleness().map(Duration::toSeconds).orElse(null)), e);
+        }
+    }
+
+    private Map<String, VerificationKey> toVerificationKeys(final JWKSet jwkSet) {
+        final Map<String, VerificationKey> keys = new HashMap<>();
+        for (final JWK jwk : jwkSet.getKeys()) {
+            if (jwk.getKeyID() == null || !(jwk instanceof ECKey ecKey)) {
+                log.debug("Skipping OneLogin JWK {} which is not an identified EC key", jwk.getKeyID());
+                continue;
+            }
+            try {
+                keys.put(jwk.getKeyID(), new VerificationKey(jwk.getAlgorithm(), new ECDSAVerifier(ecKey)));
+            } catch (JOSEException e) {
+                log.warn("Skipping OneLogin JWK {} which cannot be used for verification", jwk.getKeyID(), e);
+            }
+        }
+        return keys;
+    }
+
+    private Duration getTtl(final Header cacheControl) {
+        if (cacheControl == null) {
+            return defaultTtl;
+        }
+        final Matcher maxAge = MAX_AGE.matcher(cacheControl.getValue());
+        if (!maxAge.find()) {
+            return defaultTtl;
+        }
+        final Duration ttl = Duration.ofSeconds(Long.parseLong(maxAge.group(1)));
+        return ttl.compareTo(minRefreshInterval) < 0 ? minRefreshInterval : ttl;
+    }
+
+    public record VerificationKey(Algorithm algorithm, JWSVerifier verifier) {
+    }
+
+    private record FetchedJwks(String body, Header cacheControl) {
+    }
+
+    private record LoadedKeys(Map<String, VerificationKey> byKeyId, Instant fetchedAt) {
+    }
+}
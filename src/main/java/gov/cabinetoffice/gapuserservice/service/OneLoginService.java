@@ -5,16 +5,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
-import com.nimbusds.jose.crypto.ECDSAVerifier;
-import com.nimbusds.jose.jwk.ECKey;
-import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jwt.SignedJWT;
 import gov.cabinetoffice.gapuserservice.config.ApplicationConfigProperties;
 import gov.cabinetoffice.gapuserservice.dto.IdTokenDto;
 import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
 import gov.cabinetoffice.gapuserservice.dto.OneLoginUserInfoDto;
 import gov.cabinetoffice.gapuserservice.dto.StateCookieDto;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
 import gov.cabinetoffice.gapuserservice.exceptions.*;
 import gov.cabinetoffice.gapuserservice.model.Nonce;
 import gov.cabinetoffice.gapuserservice.model.Role;
@@ -24,10 +21,7 @@ import gov.cabinetoffice.gapuserservice.service.encryption.Sha512Service;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
 import gov.cabinetoffice.gapuserservice.util.LoggingUtils;
-import gov.cabinetoffice.gapuserservice.util.RestUtils;
 import gov.cabinetoffice.gapuserservice.util.WebUtil;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -43,10 +37,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.view.RedirectView;
 
 import java.io.IOException;
-import java.net.URL;
-import java.security.KeyFactory;
-import java.security.PrivateKey;
-import java.security.spec.PKCS8EncodedKeySpec;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.*;
@@ -68,8 +58,6 @@ public class OneLoginService {
     private String clientAssertionType;
     @Value("${onelogin.service-redirect-url}")
     private String serviceRedirectUrl;
-    @Value("${onelogin.private-key}")
-    public String privateKey;
     @Value("${onelogin.logout-url}")
     private String oneLoginLogoutEndpoint;
     @Value("${onelogin.post-logout-redirect-uri}")
@@ -91,16 +79,9 @@ public class OneLoginService {
     private final OneLoginUserService oneLoginUserService;
     private final LoggingUtils loggingUtils;
     private final Sha512Service encryptionService;
-
-    public PrivateKey parsePrivateKey() {
-        try {
-            final byte[] pkcs8EncodedBytes = Base64.getDecoder().decode(privateKey);
-            final PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(pkcs8EncodedBytes);
-            return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
-        } catch (Exception e) {
-            throw new PrivateKeyParsingException("Unable to parse private key");
-        }
-    }
+    private final OneLoginJwkSource oneLoginJwkSource;
+    private final OneLoginClientAssertionFactory clientAssertionFactory;
+    private final HttpClientService httpClientService;
 
     public String generateNonce() {
         return Objects.equals(this.configProperties.getProfile(), "LOCAL") ? "aEwkamaos5C"
@@ -199,17 +180,7 @@ public class OneLoginService {
     }
 
     public String createOneLoginJwt() {
-        final PrivateKey jwtPrivateKey = parsePrivateKey();
-
-        return Jwts.builder()
-                .claim("aud", oneLoginBaseUrl + "/token")
-                .claim("iss", clientId)
-                .claim("sub", clientId)
-                .claim("exp", System.currentTimeMillis() + 300000L)
-                .claim("jti", UUID.randomUUID().toString())
-                .claim("iat", System.currentTimeMillis())
-                .signWith(jwtPrivateKey, SignatureAlgorithm.RS256)
-                .compact();
+        return clientAssertionFactory.createAssertion();
     }
 
     public OneLoginUserInfoDto getUserInfo(final String accessToken) {
@@ -217,7 +188,8 @@ public class OneLoginService {
             Map<String, String> headers = new HashMap<>();
             headers.put(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
 
-            final JSONObject userInfo = RestUtils.getRequestWithHeaders(oneLoginBaseUrl + "/userinfo", headers);
+            final JSONObject userInfo = httpClientService.getRequestWithHeaders(HttpUpstream.ONE_LOGIN,
+                    oneLoginBaseUrl + "/userinfo", headers);
             log.info(
                     loggingUtils.getLogMessage("one login userInfo response: ", 1),
                     entries(userInfo.toMap()));
@@ -238,7 +210,7 @@ public class OneLoginService {
                 "&client_assertion=" + jwt;
 
         try {
-            return RestUtils.postRequestWithBody(oneLoginBaseUrl + "/token", requestBody,
+            return httpClientService.postRequestWithBody(HttpUpstream.ONE_LOGIN, oneLoginBaseUrl + "/token", requestBody,
                     "application/x-www-form-urlencoded");
         } catch (IOException e) {
             throw new InvalidRequestException("invalid request");
@@ -312,24 +284,20 @@ public class OneLoginService {
             JWSAlgorithm jwtAlgorithm = JWSAlgorithm.parse(signedAuthToken.getHeader().getAlgorithm().getName());
             String keyId = signedAuthToken.getHeader().getKeyID();
 
-            JWKSet jwkSet = JWKSet.load(new URL(oneLoginBaseUrl.concat("/.well-known/jwks.json")));
-            Optional<JWK> optionalMatchingJwk = Optional.ofNullable(jwkSet.getKeyByKeyId(keyId));
-            JWK matchingJwk = optionalMatchingJwk
+            OneLoginJwkSource.VerificationKey matchingKey = oneLoginJwkSource.getKey(keyId)
                     .orElseThrow(() -> new UnauthorizedClientException("Matching JWK not found for key ID: " + keyId));
 
-            ECDSAVerifier verifier = new ECDSAVerifier((ECKey) matchingJwk);
-
-            if (!matchingJwk.getAlgorithm().equals(jwtAlgorithm)) {
+            if (!jwtAlgorithm.equals(matchingKey.algorithm())) {
                 log.error("Invalid alg property in ID token header: {}", jwtAlgorithm);
                 throw new UnauthorizedClientException("Invalid alg property in ID token header");
             }
 
-            if (!signedAuthToken.verify(verifier)) {
+            if (!signedAuthToken.verify(matchingKey.verifier())) {
                 log.error("Invalid signature in ID token: {}", signedAuthToken);
                 throw new UnauthorizedClientException("Invalid signature in ID token");
             }
 
-        } catch (IOException | ParseException | JOSEException e) {
+        } catch (ParseException | JOSEException e) {
             log.error("Unable to validate access token {}", authToken, e);
             throw new UnauthorizedClientException("Unable to validate access token");
         }
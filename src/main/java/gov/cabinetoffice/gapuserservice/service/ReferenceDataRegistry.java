@@ -0,0 +1,157 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.dto.DepartmentDto;
+import gov.cabinetoffice.gapuserservice.dto.RoleDto;
+import gov.cabinetoffice.gapuserservice.mappers.DepartmentMapper;
+import gov.cabinetoffice.gapuserservice.mappers.RoleMapper;
+import gov.cabinetoffice.gapuserservice.model.Role;
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import gov.cabinetoffice.gapuserservice.repository.DepartmentRepository;
+import gov.cabinetoffice.gapuserservice.repository.RoleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the roles and departments tables, loaded at startup. Roles only change through migrations, so
+ * they are loaded once. Departments are reloaded after {@link #invalidateDepartments()}, which anything that changes
+ * a department must call, and after a maximum age so changes made through another instance are picked up.
+ */
+@Service
+@Slf4j
+public class ReferenceDataRegistry {
+
+    private final RoleRepository roleRepository;
+    private final DepartmentRepository departmentRepository;
+    private final RoleMapper roleMapper;
+    private final DepartmentMapper departmentMapper;
+    private final Clock clock;
+    private final Duration departmentsMaxAge;
+
+    private volatile Roles roles;
+    private volatile Departments departments;
+
+    public ReferenceDataRegistry(final RoleRepository roleRepository,
+                                 final DepartmentRepository departmentRepository,
+                                 final RoleMapper roleMapper,
+                                 final DepartmentMapper departmentMapper,
+                                 final Clock clock,
+                                 final @Value("${reference-data.departments.max-age-seconds:300}") long departmentsMaxAgeSeconds) {
+        this.roleRepository = roleRepository;
+        this.departmentRepository = departmentRepository;
+        this.roleMapper = roleMapper;
+        this.departmentMapper = departmentMapper;
+        this.clock = clock;
+        this.departmentsMaxAge = Duration.ofSeconds(departmentsMaxAgeSeconds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        final Roles loadedRoles = roles();
+        final Departments loadedDepartments = departments();
+        log.info("Loaded {} roles and {} departments", loadedRoles.all().size(), loadedDepartments.all().size());
+    }
+
+    public List<RoleDto> getAllRoles() {
+        return roles().all();
+    }
+
+    /**
+     * Returns a new, detached copy of the role, to be associated with a user by its id
+     */
+    public Optional<Role> getRole(final RoleEnum name) {
+        return Optional.ofNullable(roles().byName().get(name)).map(ReferenceDataRegistry::copy);
+    }
+
+    /**
+     * Returns a new, detached copy of the role, to be associated with a user by its id
+     */
+    public Optional<Role> getRole(final int id) {
+        return Optional.ofNullable(roles().byId().get(id)).map(ReferenceDataRegistry::copy);
+    }
+
+    public List<DepartmentDto> getAllDepartments() {
+        return departments().all();
+    }
+
+    public Optional<DepartmentDto> getDepartment(final int id) {
+        return Optional.ofNullable(departments().byId().get(id));
+    }
+
+    public synchronized void invalidateDepartments() {
+        departments = null;
+    }
+
+    private Roles roles() {
+        Roles current = roles;
+        if (current == null) {
+            synchronized (this) {
+                current = roles;
+                if (current == null) {
+                    current = Roles.of(roleRepository.findAll(), roleMapper);
+                    roles = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Departments departments() {
+        Departments current = departments;
+        if (current == null || current.isOlderThan(departmentsMaxAge, clock.instant())) {
+            // synchronized with invalidateDepartments, so an invalidation can't be overwritten by a load it raced
+            synchronized (this) {
+                current = departments;
+                if (current == null || current.isOlderThan(departmentsMaxAge, clock.instant())) {
+                    current = new Departments(departmentRepository.findAll().stream()
+                            .map(departmentMapper::departmentToDepartmentDto)
+                            .toList(), clock.instant());
+                    departments = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Role copy(final Role role) {
+        return Role.builder()
+                .id(role.getId())
+                .name(role.getName())
+                .label(role.getLabel())
+                .description(role.getDescription())
+                .build();
+    }
+
+    private record Roles(List<RoleDto> all, Map<RoleEnum, Role> byName, Map<Integer, Role> byId) {
+        static Roles of(final List<Role> roles, final RoleMapper roleMapper) {
+            final List<Role> copies = roles.stream().map(ReferenceDataRegistry::copy).toList();
+            final Map<RoleEnum, Role> byName = new EnumMap<>(RoleEnum.class);
+            copies.forEach(role -> byName.put(role.getName(), role));
+            return new Roles(copies.stream().map(roleMapper::roleToRoleDto).toList(), byName,
+                    copies.stream().collect(Collectors.toUnmodifiableMap(Role::getId, Function.identity())));
+        }
+    }
+
+    private record Departments(List<DepartmentDto> all, Map<Integer, DepartmentDto> byId, Instant loadedAt) {
+        Departments(final List<DepartmentDto> all, final Instant loadedAt) {
+            this(all, all.stream().collect(Collectors.toUnmodifiableMap(DepartmentDto::getId, Function.identity())),
+                    loadedAt);
+        }
+
+        boolean isOlderThan(final Duration maxAge, final Instant now) {
+            return loadedAt.plus(maxAge).isBefore(now);
+        }
+    }
+}
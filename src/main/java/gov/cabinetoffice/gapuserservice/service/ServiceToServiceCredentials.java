@@ -0,0 +1,64 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.config.ServiceToServiceConfigProperties;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Cipher;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Authorization headers for calls this service makes to the admin-backend and Find on its own behalf, rather than
+ * with a user's token. Each header is the downstream's shared secret encrypted with its public key, the scheme
+ * {@link gov.cabinetoffice.gapuserservice.security.interceptors.AuthorizationHeaderInterceptor} checks on calls
+ * into this service, and is built once at startup. Credentials that are configured but unusable fail startup.
+ */
+@Component
+@Slf4j
+public class ServiceToServiceCredentials {
+
+    private final Map<DownstreamService, String> authorizationHeaders = new EnumMap<>(DownstreamService.class);
+
+    public ServiceToServiceCredentials(final ServiceToServiceConfigProperties properties) {
+        register(DownstreamService.ADMIN_BACKEND, properties.getAdminBackend());
+        register(DownstreamService.FIND, properties.getFind());
+    }
+
+    public Optional<String> getAuthorizationHeader(final DownstreamService downstream) {
+        return Optional.ofNullable(authorizationHeaders.get(downstream));
+    }
+
+    private void register(final DownstreamService downstream,
+                          final ServiceToServiceConfigProperties.Downstream credentials) {
+        final boolean hasSecret = credentials != null && StringUtils.hasText(credentials.getSecret());
+        final boolean hasPublicKey = credentials != null && StringUtils.hasText(credentials.getPublicKey());
+        if (!hasSecret && !hasPublicKey) {
+            log.info("No service-to-service credentials configured for {}", downstream);
+            return;
+        }
+        if (!hasSecret || !hasPublicKey) {
+            throw new IllegalStateException("Service-to-service credentials for " + downstream
+                    + " need both a secret and a public key");
+        }
+        try {
+            final PublicKey publicKey = KeyFactory.getInstance("RSA")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(credentials.getPublicKey())));
+            final Cipher cipher = Cipher.getInstance("RSA");
+            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+            authorizationHeaders.put(downstream, Base64.getEncoder()
+                    .encodeToString(cipher.doFinal(credentials.getSecret().getBytes(StandardCharsets.UTF_8))));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to build service-to-service credentials for " + downstream, e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package gov.cabinetoffice.gapuserservice.service;
 import com.nimbusds.jose.shaded.gson.JsonObject;
 import com.nimbusds.jose.shaded.gson.JsonParser;
 import gov.cabinetoffice.gapuserservice.config.SpotlightConfig;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
 import gov.cabinetoffice.gapuserservice.enums.SpotlightOAuthAuditStatus;
 import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
 import gov.cabinetoffice.gapuserservice.exceptions.SpotlightInvalidStateException;
@@ -10,7 +11,6 @@ import gov.cabinetoffice.gapuserservice.model.SpotlightOAuthAudit;
 import gov.cabinetoffice.gapuserservice.model.SpotlightOAuthState;
 import gov.cabinetoffice.gapuserservice.repository.SpotlightOAuthAuditRepository;
 import gov.cabinetoffice.gapuserservice.repository.SpotlightOAuthStateRepository;
-import gov.cabinetoffice.gapuserservice.util.RestUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -43,6 +43,7 @@ public class SpotlightService {
     private final SecureRandom secureRandom;
 
     private final SecretsManagerClient secretsManagerClient;
+    private final HttpClientService httpClientService;
 
     private String codeVerifier;
     private String codeChallenge;
@@ -123,7 +124,7 @@ public class SpotlightService {
 
         JSONObject responseJSON;
         try {
-            responseJSON = RestUtils.postRequestWithBody(tokenEndpoint, requestBody,
+            responseJSON = httpClientService.postRequestWithBody(HttpUpstream.SPOTLIGHT, tokenEndpoint, requestBody,
                     "application/x-www-form-urlencoded");
             log.debug("responseJSON: {}", responseJSON);
 
@@ -169,7 +170,7 @@ public class SpotlightService {
 
         JSONObject responseJSON;
         try {
-            responseJSON = RestUtils.postRequestWithBody(tokenEndpoint, requestBody,
+            responseJSON = httpClientService.postRequestWithBody(HttpUpstream.SPOTLIGHT, tokenEndpoint, requestBody,
                     "application/x-www-form-urlencoded");
             log.debug("responseJSON: {}", responseJSON);
 
@@ -0,0 +1,33 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.dto.LatencyMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free request count, failure count and latency totals for calls to a single upstream.
+ */
+class UpstreamLatency {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(final long nanos, final boolean succeeded) {
+        requests.increment();
+        if (!succeeded) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    LatencyMetrics snapshot() {
+        final long count = requests.sum();
+        return new LatencyMetrics(count, failures.sum(),
+                Duration.ofNanos(count == 0 ? 0 : totalNanos.sum() / count),
+                Duration.ofNanos(maxNanos.get()));
+    }
+}
@@ -0,0 +1,233 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
+import gov.cabinetoffice.gapuserservice.enums.OutboxEventStatus;
+import gov.cabinetoffice.gapuserservice.enums.UserChangeEventType;
+import gov.cabinetoffice.gapuserservice.exceptions.ConvertJsonToStringException;
+import gov.cabinetoffice.gapuserservice.model.UserChangeOutboxEvent;
+import gov.cabinetoffice.gapuserservice.repository.UserChangeOutboxRepository;
+import gov.cabinetoffice.gapuserservice.service.encryption.AwsEncryptionServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Transactional outbox for user changes that Apply and Find need to hear about. Events are recorded in the caller's
+ * transaction, so a super admin action is a single local transaction, and delivered afterwards by
+ * {@link #relayPendingEvents()} with retries. Events that keep failing are dead-lettered.
+ * <p>
+ * Deliveries are authenticated with the super admin's token, kept encrypted until the event is delivered, which is
+ * what the downstream endpoints accept today. Once they accept service-to-service credentials,
+ * user-change-outbox.service-to-service-auth.enabled switches to those and stops storing tokens.
+ */
+@Service
+@Slf4j
+public class UserChangeOutboxService {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String AUTHORIZATION_HEADER_NAME = "Authorization";
+    private static final String BEARER_HEADER_PREFIX = "Bearer ";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final UserChangeOutboxRepository outboxRepository;
+    private final DownstreamWebClients downstreamWebClients;
+    private final ServiceToServiceCredentials serviceToServiceCredentials;
+    private final AwsEncryptionServiceImpl awsEncryptionService;
+    private final boolean serviceToServiceAuth;
+    private final ExecutorService outboxRelayExecutor;
+    private final Clock clock;
+
+    @Value("${admin-backend}")
+    private String adminBackend;
+
+    @Value("${find-a-grant.url}")
+    private String findFrontend;
+
+    @Value("${user-change-outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${user-change-outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${user-change-outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${user-change-outbox.max-retry-backoff-ms:600000}")
+    private long maxRetryBackoffMs;
+
+    public UserChangeOutboxService(final UserChangeOutboxRepository outboxRepository,
+                                   final DownstreamWebClients downstreamWebClients,
+                                   final ServiceToServiceCredentials serviceToServiceCredentials,
+                                   final AwsEncryptionServiceImpl awsEncryptionService,
+                                   final @Value("${user-change-outbox.service-to-service-auth.enabled:false}") boolean serviceToServiceAuth,
+                                   final @Qualifier("outboxRelayExecutor") ExecutorService outboxRelayExecutor,
+                                   final Clock clock) {
+        if (serviceToServiceAuth) {
+            for (final DownstreamService downstream : DownstreamService.values()) {
+                if (serviceToServiceCredentials.getAuthorizationHeader(downstream).isEmpty()) {
+                    throw new IllegalStateException("No service-to-service credentials configured for " + downstream);
+                }
+            }
+        }
+        this.outboxRepository = outboxRepository;
+        this.downstreamWebClients = downstreamWebClients;
+        this.serviceToServiceCredentials = serviceToServiceCredentials;
+        this.awsEncryptionService = awsEncryptionService;
+        this.serviceToServiceAuth = serviceToServiceAuth;
+        this.outboxRelayExecutor = outboxRelayExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * Records an event in the current transaction; it is delivered only if the transaction commits
+     */
+    public UserChangeOutboxEvent record(final Integer userId, final UserChangeEventType eventType, final String path,
+                                        final Object body, final String jwt) {
+        final Instant now = clock.instant();
+        return outboxRepository.save(UserChangeOutboxEvent.builder()
+                .userId(userId)
+                .eventType(eventType)
+                .path(path)
+                .payload(body == null ? null : toJson(body))
+                .encryptedAuthToken(serviceToServiceAuth ? null : awsEncryptionService.encryptField(jwt))
+                .nextAttemptAt(now)
+                .created(now)
+                .build());
+    }
+
+    /**
+     * Delivers a batch of due events in parallel, at most one per user so each user's events stay in order
+     *
+     * @return the number of events attempted
+     */
+    public int relayPendingEvents() {
+        final List<UserChangeOutboxEvent> batch = outboxRepository.findDeliverableBatch(clock.instant(), batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        final CompletableFuture<?>[] deliveries = batch.stream()
+                .map(event -> CompletableFuture.runAsync(() -> deliver(event), outboxRelayExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(deliveries).join();
+        return batch.size();
+    }
+
+    public int deleteDeliveredEvents(final Duration retention) {
+        return outboxRepository.deleteDeliveredBefore(clock.instant().minus(retention));
+    }
+
+    void deliver(final UserChangeOutboxEvent event) {
+        final UserChangeEventType eventType = event.getEventType();
+        HttpStatusCode status = null;
+        String error;
+        try {
+            status = send(event);
+            error = status.is2xxSuccessful() ? null : "HTTP " + status.value();
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        event.setAttempts(event.getAttempts() + 1);
+        // a rejected token or credential is never treated as an ignorable client error
+        final boolean authenticationFailed = status != null && isAuthenticationFailure(status);
+        if (status != null && (status.is2xxSuccessful()
+                || (!authenticationFailed && eventType.getIgnoredStatus().test(status)))) {
+            if (!status.is2xxSuccessful()) {
+                log.warn("User change event {} {} was not applied downstream {}", keyValue("eventId", event.getId()),
+                        keyValue("eventType", eventType), keyValue("status", status.value()));
+            }
+            markDelivered(event);
+        } else if (authenticationFailed && !serviceToServiceAuth) {
+            // the super admin's token has expired or lost its role, and can't be refreshed, so retrying won't help
+            markDeadLetter(event, error + ": the super admin's token was rejected");
+        } else if ((status != null && status.is4xxClientError() && !authenticationFailed)
+                || event.getAttempts() >= maxAttempts) {
+            // a client error won't succeed on retry, and neither will an event that has used up its attempts. A
+            // rejected service-to-service credential is fixed by configuration, so that is retried until then
+            markDeadLetter(event, error);
+        } else {
+            scheduleRetry(event, error);
+        }
+        outboxRepository.save(event);
+    }
+
+    private HttpStatusCode send(final UserChangeOutboxEvent event) {
+        final UserChangeEventType eventType = event.getEventType();
+        final DownstreamService downstream = eventType.getDownstream();
+        final String baseUrl = downstream == DownstreamService.FIND ? findFrontend : adminBackend;
+        final String authorization = serviceToServiceAuth
+                ? serviceToServiceCredentials.getAuthorizationHeader(downstream).orElseThrow()
+                : BEARER_HEADER_PREFIX + awsEncryptionService.decryptField(event.getEncryptedAuthToken());
+
+        final WebClient.RequestBodySpec request = downstreamWebClients.get(downstream)
+                .method(eventType.getMethod())
+                .uri(baseUrl + event.getPath())
+                .header(AUTHORIZATION_HEADER_NAME, authorization);
+        if (event.getPayload() != null) {
+            request.contentType(MediaType.APPLICATION_JSON).bodyValue(event.getPayload());
+        }
+        return request
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                .block(downstreamWebClients.getBlockTimeout(downstream));
+    }
+
+    private void markDelivered(final UserChangeOutboxEvent event) {
+        event.setStatus(OutboxEventStatus.DELIVERED);
+        event.setDeliveredAt(clock.instant());
+        event.setLastError(null);
+        event.setEncryptedAuthToken(null);
+    }
+
+    private void markDeadLetter(final UserChangeOutboxEvent event, final String error) {
+        log.error("Dead-lettering user change event {} {} {} {} {}", keyValue("eventId", event.getId()),
+                keyValue("eventType", event.getEventType()), keyValue("userId", event.getUserId()),
+                keyValue("attempts", event.getAttempts()), keyValue("error", error));
+        event.setStatus(OutboxEventStatus.DEAD_LETTER);
+        event.setLastError(truncate(error));
+        event.setEncryptedAuthToken(null);
+    }
+
+    private void scheduleRetry(final UserChangeOutboxEvent event, final String error) {
+        // exponential backoff with full jitter, capped so a long outage is still retried regularly
+        final long maxDelay = Math.min(maxRetryBackoffMs, retryBackoffMs << Math.min(event.getAttempts() - 1, 20));
+        final long delay = ThreadLocalRandom.current().nextLong(maxDelay + 1);
+        log.warn("Failed to deliver user change event {} {} {} {}", keyValue("eventId", event.getId()),
+                keyValue("eventType", event.getEventType()), keyValue("attempts", event.getAttempts()),
+                keyValue("error", error));
+        event.setNextAttemptAt(clock.instant().plusMillis(delay));
+        event.setLastError(truncate(error));
+    }
+
+    private static boolean isAuthenticationFailure(final HttpStatusCode status) {
+        return status.value() == HttpStatus.UNAUTHORIZED.value() || status.value() == HttpStatus.FORBIDDEN.value();
+    }
+
+    private static String truncate(final String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static String toJson(final Object body) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new ConvertJsonToStringException("Unable to serialise user change event: " + e.getMessage());
+        }
+    }
+}
@@ -2,37 +2,73 @@ package gov.cabinetoffice.gapuserservice.service.encryption;
 
 import com.amazonaws.encryptionsdk.AwsCrypto;
 import com.amazonaws.encryptionsdk.CommitmentPolicy;
+import com.amazonaws.encryptionsdk.CryptoMaterialsManager;
 import com.amazonaws.encryptionsdk.CryptoResult;
-import com.amazonaws.encryptionsdk.kmssdkv2.KmsMasterKey;
+import com.amazonaws.encryptionsdk.MasterKeyProvider;
+import com.amazonaws.encryptionsdk.caching.CachingCryptoMaterialsManager;
+import com.amazonaws.encryptionsdk.caching.LocalCryptoMaterialsCache;
 import com.amazonaws.encryptionsdk.kmssdkv2.KmsMasterKeyProvider;
+import gov.cabinetoffice.gapuserservice.config.AwsEncryptionProperties;
 import gov.cabinetoffice.gapuserservice.exceptions.EncryptionFailureException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.regions.Region;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypts fields with KMS-backed envelope encryption. Data keys are cached within the limits in
+ * {@link AwsEncryptionProperties}, so most encryptions are local rather than a KMS round trip each.
+ */
 @Service
 public class AwsEncryptionServiceImpl {
 
     private final AwsCrypto crypto;
-    private final KmsMasterKeyProvider keyProvider;
+    private final MasterKeyProvider<?> keyProvider;
+    private final CryptoMaterialsManager materialsManager;
+    private final ExecutorService encryptionExecutor;
+    private final int batchChunkSize;
 
     final Map<String, String> encryptionContext = new HashMap<>();
 
-
+    @Autowired
     public AwsEncryptionServiceImpl(@Value("${aws.kms.key.arn}") String kmsKeyArn,
                                     @Value("${aws.kms.stage}") String stage,
-                                    @Value("${aws.kms.origin}") String origin) {
+                                    @Value("${aws.kms.origin}") String origin,
+                                    AwsEncryptionProperties properties,
+                                    @Qualifier("encryptionExecutor") ExecutorService encryptionExecutor) {
+        this(KmsMasterKeyProvider.builder()
+                        .defaultRegion(Region.EU_WEST_2)
+                        .buildStrict(kmsKeyArn),
+                stage, origin, properties, encryptionExecutor);
+    }
+
+    AwsEncryptionServiceImpl(MasterKeyProvider<?> keyProvider, String stage, String origin,
+                             AwsEncryptionProperties properties, ExecutorService encryptionExecutor) {
         this.crypto = AwsCrypto.builder()
                 .withCommitmentPolicy(CommitmentPolicy.RequireEncryptAllowDecrypt)
                 .build();
 
-        this.keyProvider = KmsMasterKeyProvider.builder()
-                .defaultRegion(Region.EU_WEST_2)
-                .buildStrict(kmsKeyArn);
+        this.keyProvider = keyProvider;
+        this.materialsManager = CachingCryptoMaterialsManager.newBuilder()
+                .withMasterKeyProvider(keyProvider)
+                .withCache(new LocalCryptoMaterialsCache(properties.getDataKeyCacheCapacity()))
+                .withMaxAge(properties.getDataKeyMaxAgeSeconds(), TimeUnit.SECONDS)
+                .withMessageUseLimit(properties.getDataKeyMaxMessages())
+                .withByteUseLimit(properties.getDataKeyMaxBytes())
+                .build();
+        this.encryptionExecutor = encryptionExecutor;
+        this.batchChunkSize = properties.getBatchChunkSize();
 
         this.encryptionContext.put("purpose", "Gov.UK Grant Application Finder");
         this.encryptionContext.put("stage", stage);
@@ -43,18 +79,44 @@ public class AwsEncryptionServiceImpl {
         byte[] plaintextBytes = field.getBytes(StandardCharsets.UTF_8);
 
         try {
-            final CryptoResult<byte[], KmsMasterKey> encryptResult = crypto.encryptData(keyProvider,
-                    plaintextBytes, encryptionContext);
-
-            return encryptResult.getResult();
+            return crypto.encryptData(materialsManager, plaintextBytes, encryptionContext).getResult();
         } catch (Exception e) {
             throw new EncryptionFailureException(e.getMessage());
         }
     }
 
+    /**
+     * Encrypts the fields in parallel, returning the ciphertexts in the same order
+     */
+    public List<byte[]> encryptFields(List<String> fields) {
+        if (fields.size() <= batchChunkSize) {
+            return fields.stream().map(this::encryptField).toList();
+        }
+
+        // encrypt the first field here so the data key is cached before the chunks start
+        final List<byte[]> encrypted = new ArrayList<>(fields.size());
+        encrypted.add(encryptField(fields.get(0)));
+
+        final List<CompletableFuture<List<byte[]>>> chunks = new ArrayList<>();
+        for (int from = 1; from < fields.size(); from += batchChunkSize) {
+            final List<String> chunk = fields.subList(from, Math.min(from + batchChunkSize, fields.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> chunk.stream().map(this::encryptField).toList(),
+                    encryptionExecutor));
+        }
+
+        try {
+            chunks.forEach(chunk -> encrypted.addAll(chunk.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof EncryptionFailureException encryptionFailure) {
+                throw encryptionFailure;
+            }
+            throw new EncryptionFailureException(e.getMessage());
+        }
+        return encrypted;
+    }
 
     public String decryptField(byte[] cipheredField) {
-        final CryptoResult<byte[], KmsMasterKey> decryptResult = crypto.decryptData(keyProvider, cipheredField);
+        final CryptoResult<byte[], ?> decryptResult = crypto.decryptData(keyProvider, cipheredField);
 
         if (!encryptionContext.entrySet().stream()
                 .allMatch(e -> e.getValue().equals(decryptResult.getEncryptionContext().get(e.getKey())))) {
@@ -0,0 +1,97 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.UrlJwkProvider;
+import com.auth0.jwt.algorithms.Algorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds an RS256 {@link Algorithm} per key id from the Cognito JWKS document used to sign COLA tokens. The keys
+ * are refreshed in the background, and at most once per interval when a token carries an unknown key id. A
+ * failed refresh keeps the last known keys, so COLA logins keep working through brief Cognito outages.
+ */
+@Component
+@Slf4j
+public class ColaJwkProvider {
+
+    private final UrlJwkProvider urlJwkProvider;
+    private final Duration minRefreshInterval;
+    private final Clock clock;
+
+    private final AtomicReference<Map<String, Algorithm>> algorithms = new AtomicReference<>(Map.of());
+    private final AtomicReference<Instant> lastRefreshAttempt = new AtomicReference<>(Instant.EPOCH);
+
+    public ColaJwkProvider(final UrlJwkProvider urlJwkProvider,
+                           final @Value("${cola.jwks.min-refresh-interval-seconds:30}") long minRefreshIntervalSeconds,
+                           final Clock clock) {
+        this.urlJwkProvider = urlJwkProvider;
+        this.minRefreshInterval = Duration.ofSeconds(minRefreshIntervalSeconds);
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${cola.jwks.refresh-interval-ms:900000}")
+    public void refreshKeys() {
+        lastRefreshAttempt.set(clock.instant());
+        final List<Jwk> jwks;
+        try {
+            jwks = urlJwkProvider.getAll();
+        } catch (JwkException e) {
+            log.warn("Unable to fetch COLA JWKS, keeping {} previously loaded keys", algorithms.get().size(), e);
+            return;
+        }
+
+        final Map<String, Algorithm> loaded = new HashMap<>();
+        for (final Jwk jwk : jwks) {
+            try {
+                loaded.put(jwk.getId(), Algorithm.RSA256((RSAPublicKey) jwk.getPublicKey(), null));
+            } catch (JwkException | ClassCastException e) {
+                log.warn("Skipping COLA JWK {} which is not a usable RSA key", jwk.getId(), e);
+            }
+        }
+
+        if (loaded.isEmpty()) {
+            log.warn("COLA JWKS contained no usable keys, keeping {} previously loaded keys", algorithms.get().size());
+            return;
+        }
+        algorithms.set(Map.copyOf(loaded));
+        log.info("Loaded {} COLA JWKs", loaded.size());
+    }
+
+    public Optional<Algorithm> getAlgorithm(final String keyId) {
+        if (keyId == null) {
+            return Optional.empty();
+        }
+        Algorithm algorithm = algorithms.get().get(keyId);
+        if (algorithm == null) {
+            refreshOnUnknownKeyId(keyId);
+            algorithm = algorithms.get().get(keyId);
+        }
+        return Optional.ofNullable(algorithm);
+    }
+
+    private void refreshOnUnknownKeyId(final String keyId) {
+        final Instant now = clock.instant();
+        final Instant previousAttempt = lastRefreshAttempt.get();
+        // only one thread refreshes, and at most once per interval, so forged key ids can't be used to hammer Cognito
+        if (previousAttempt.plus(minRefreshInterval).isAfter(now)
+                || !lastRefreshAttempt.compareAndSet(previousAttempt, now)) {
+            return;
+        }
+        log.info("Unknown key id {} in COLA token header, refreshing COLA JWKS", keyId);
+        refreshKeys();
+    }
+}
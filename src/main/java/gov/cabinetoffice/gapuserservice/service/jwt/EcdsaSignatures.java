@@ -0,0 +1,44 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * ECDSA on P-256 with SHA-256, as used by ephemeral signing keys. Signatures are the 64 byte r || s form JWS uses
+ * for ES256, rather than DER.
+ */
+final class EcdsaSignatures {
+
+    private static final String CURVE = "secp256r1";
+    private static final String JCA_ALGORITHM = "SHA256withECDSAinP1363Format";
+
+    private EcdsaSignatures() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static KeyPair generateKeyPair() throws GeneralSecurityException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec(CURVE));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    static byte[] sign(final PrivateKey privateKey, final byte[] message) throws GeneralSecurityException {
+        final Signature signer = Signature.getInstance(JCA_ALGORITHM);
+        signer.initSign(privateKey);
+        signer.update(message);
+        return signer.sign();
+    }
+
+    static boolean verify(final ECPublicKey publicKey, final byte[] message, final byte[] signature)
+            throws GeneralSecurityException {
+        final Signature verifier = Signature.getInstance(JCA_ALGORITHM);
+        verifier.initVerify(publicKey);
+        verifier.update(message);
+        return verifier.verify(signature);
+    }
+}
@@ -0,0 +1,46 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.time.Instant;
+
+/**
+ * An in-memory signing key together with its KMS-signed {@link KeyCertificate}. The private key never leaves
+ * the instance that generated it.
+ */
+public final class EphemeralSigningKey {
+
+    private final String keyId;
+    private final PrivateKey privateKey;
+    private final String certificate;
+    private final Instant signUntil;
+
+    EphemeralSigningKey(final String keyId, final PrivateKey privateKey, final String certificate,
+                        final Instant signUntil) {
+        this.keyId = keyId;
+        this.privateKey = privateKey;
+        this.certificate = certificate;
+        this.signUntil = signUntil;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public String getCertificate() {
+        return certificate;
+    }
+
+    public boolean canSignAt(final Instant instant) {
+        return instant.isBefore(signUntil);
+    }
+
+    public byte[] sign(final byte[] message) throws GeneralSecurityException {
+        return EcdsaSignatures.sign(privateKey, message);
+    }
+
+    @Override
+    public String toString() {
+        return "EphemeralSigningKey(keyId=" + keyId + ", signUntil=" + signUntil + ")";
+    }
+}
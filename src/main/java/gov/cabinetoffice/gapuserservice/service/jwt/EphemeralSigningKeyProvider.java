@@ -0,0 +1,140 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import gov.cabinetoffice.gapuserservice.config.JwtProperties;
+import gov.cabinetoffice.gapuserservice.enums.JwtSigningMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.MessageType;
+import software.amazon.awssdk.services.kms.model.SignRequest;
+import software.amazon.awssdk.services.kms.model.SigningAlgorithmSpec;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Provides the in-memory key used to sign tokens when {@link JwtSigningMode#EPHEMERAL} is enabled, so KMS is only
+ * called once per rotation period rather than on every login.
+ * <p>
+ * Each key signs tokens for one rotation period. Its certificate stays valid for the longest token lifetime plus
+ * the overlap after that, so tokens signed just before a rotation remain verifiable until they expire. A new key
+ * is generated the overlap ahead of the current one's signing period ending. If no key can be certified, tokens
+ * are signed by KMS directly.
+ */
+@Component
+@Slf4j
+public class EphemeralSigningKeyProvider {
+
+    private final KmsClient kmsClient;
+    private final String signingKeyArn;
+    private final JwtProperties jwtProperties;
+    private final Duration rotationPeriod;
+    private final Duration overlap;
+    private final Duration retryInterval;
+    private final Clock clock;
+
+    private final AtomicReference<EphemeralSigningKey> currentKey = new AtomicReference<>();
+    private final Object rotationLock = new Object();
+    private Instant lastFailedRotation = Instant.EPOCH;
+
+    public EphemeralSigningKeyProvider(final KmsClient kmsClient,
+                                       final @Value("${aws.kms.signing-key.arn}") String signingKeyArn,
+                                       final JwtProperties jwtProperties,
+                                       final @Value("${jwt.ephemeral-key.rotation-period-minutes:60}") long rotationPeriodMinutes,
+                                       final @Value("${jwt.ephemeral-key.overlap-minutes:5}") long overlapMinutes,
+                                       final @Value("${jwt.ephemeral-key.retry-interval-seconds:30}") long retryIntervalSeconds,
+                                       final Clock clock) {
+        this.kmsClient = kmsClient;
+        this.signingKeyArn = signingKeyArn;
+        this.jwtProperties = jwtProperties;
+        this.rotationPeriod = Duration.ofMinutes(rotationPeriodMinutes);
+        this.overlap = Duration.ofMinutes(overlapMinutes);
+        this.retryInterval = Duration.ofSeconds(retryIntervalSeconds);
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the key to sign tokens with, or empty if tokens should be signed by KMS.
+     */
+    public Optional<EphemeralSigningKey> getSigningKey() {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+
+        final Instant now = clock.instant();
+        final EphemeralSigningKey key = currentKey.get();
+        if (key != null && key.canSignAt(now)) {
+            return Optional.of(key);
+        }
+        return Optional.ofNullable(rotate(now)).filter(rotated -> rotated.canSignAt(now));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.ephemeral-key.rotation-check-interval-ms:60000}")
+    public void rotateIfDue() {
+        if (isEnabled()) {
+            rotate(clock.instant());
+        }
+    }
+
+    private EphemeralSigningKey rotate(final Instant now) {
+        synchronized (rotationLock) {
+            final EphemeralSigningKey current = currentKey.get();
+            if (current != null && current.canSignAt(now.plus(overlap))) {
+                return current;
+            }
+            if (lastFailedRotation.plus(retryInterval).isAfter(now)) {
+                return current;
+            }
+
+            try {
+                final EphemeralSigningKey rotated = generateKey(now);
+                currentKey.set(rotated);
+                log.info("Rotated ephemeral signing key, now signing with {}", rotated.getKeyId());
+                return rotated;
+            } catch (SdkException | GeneralSecurityException e) {
+                lastFailedRotation = now;
+                log.warn("Unable to certify a new ephemeral signing key, keeping {}", current, e);
+                return current;
+            }
+        }
+    }
+
+    private EphemeralSigningKey generateKey(final Instant now) throws GeneralSecurityException {
+        // P-256 rather than RSA, as every token carries the certified public key and is signed by it
+        final KeyPair keyPair = EcdsaSignatures.generateKeyPair();
+
+        final Instant signUntil = now.plus(rotationPeriod);
+        final KeyCertificate certificate = new KeyCertificate(signingKeyArn, "ephemeral-" + UUID.randomUUID(),
+                (ECPublicKey) keyPair.getPublic(), now, signUntil.plus(maxTokenLifetime()).plus(overlap));
+        final byte[] claims = certificate.toClaims();
+
+        final byte[] signature = kmsClient.sign(SignRequest.builder()
+                .signingAlgorithm(SigningAlgorithmSpec.RSASSA_PSS_SHA_256)
+                .message(SdkBytes.fromByteArray(KeyCertificate.signingInput(claims)))
+                .messageType(MessageType.RAW)
+                .keyId(signingKeyArn)
+                .build()).signature().asByteArray();
+
+        return new EphemeralSigningKey(certificate.keyId(), keyPair.getPrivate(),
+                KeyCertificate.encode(claims, signature), signUntil);
+    }
+
+    private Duration maxTokenLifetime() {
+        return Duration.ofMinutes(Math.max(jwtProperties.getExpiresAfter(), jwtProperties.getAdminExpiresAfter()));
+    }
+
+    private boolean isEnabled() {
+        return jwtProperties.getSigningMode() == JwtSigningMode.EPHEMERAL;
+    }
+}
@@ -0,0 +1,52 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Thread-safe HMAC-SHA256 signing and verification with a shared secret. {@link Mac} isn't thread-safe, so each
+ * thread gets its own instance initialised from the same key, and no locking is needed.
+ */
+public class HmacSha256Verifier {
+
+    private static final String ALGORITHM = HmacAlgorithms.HMAC_SHA_256.getName();
+
+    private final ThreadLocal<Mac> macs;
+
+    public HmacSha256Verifier(final byte[] secret) throws NoSuchAlgorithmException, InvalidKeyException {
+        final SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+        // fail on start-up rather than on the first request if the key can't be used
+        newMac(key);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                return newMac(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialise " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public byte[] sign(final byte[] message) {
+        // doFinal resets the Mac, so it's ready for the thread's next call
+        return macs.get().doFinal(message);
+    }
+
+    /**
+     * Compares the expected HMAC with the raw signature bytes in constant time.
+     */
+    public boolean verify(final byte[] message, final byte[] signature) {
+        return MessageDigest.isEqual(sign(message), signature);
+    }
+
+    private static Mac newMac(final SecretKeySpec key) throws NoSuchAlgorithmException, InvalidKeyException {
+        final Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(key);
+        return mac;
+    }
+}
@@ -0,0 +1,92 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import com.nimbusds.jose.util.JSONObjectUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Claims binding an ephemeral signing key to the KMS signing key. Encoded certificates are
+ * {@code base64url(claims JSON).base64url(signature)}, where the signature is made by the KMS key with
+ * RSASSA_PSS_SHA_256 over {@link #signingInput(byte[])}. The KMS key signs token payloads too, so certificates are
+ * kept distinct from them twice over: the signing input starts with a fixed context, which no JSON payload can, and
+ * the claims carry {@code "typ": "kcert"}, which token verification rejects.
+ *
+ * @param issuer    ARN of the KMS key that signed the certificate
+ * @param keyId     the ephemeral key's id, used as the kid of tokens it signs
+ * @param publicKey the ephemeral P-256 public key
+ * @param issuedAt  when the ephemeral key was created
+ * @param expiresAt after this, tokens signed by the ephemeral key are no longer accepted
+ */
+public record KeyCertificate(String issuer, String keyId, ECPublicKey publicKey, Instant issuedAt,
+                             Instant expiresAt) {
+
+    /**
+     * Name of the token header carrying the certificate
+     */
+    public static final String HEADER = "kcert";
+
+    /**
+     * typ claim every certificate carries, and no token may
+     */
+    public static final String TYPE = "kcert";
+
+    private static final byte[] SIGNING_CONTEXT = "gap-user-service key certificate v1\0"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public byte[] toClaims() {
+        final Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("typ", TYPE);
+        claims.put("iss", issuer);
+        claims.put("kid", keyId);
+        claims.put("key", ENCODER.encodeToString(publicKey.getEncoded()));
+        claims.put("iat", issuedAt.getEpochSecond());
+        claims.put("exp", expiresAt.getEpochSecond());
+        return JSONObjectUtils.toJSONString(claims).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static KeyCertificate fromClaims(final byte[] claims) throws ParseException, GeneralSecurityException {
+        final Map<String, Object> json = JSONObjectUtils.parse(new String(claims, StandardCharsets.UTF_8));
+        if (!TYPE.equals(JSONObjectUtils.getString(json, "typ"))) {
+            throw new ParseException("Claims are not a key certificate", 0);
+        }
+        final String encodedKey = JSONObjectUtils.getString(json, "key");
+        if (encodedKey == null) {
+            throw new ParseException("Key certificate has no key", 0);
+        }
+
+        final ECPublicKey publicKey = (ECPublicKey) KeyFactory.getInstance("EC")
+                .generatePublic(new X509EncodedKeySpec(DECODER.decode(encodedKey)));
+        return new KeyCertificate(
+                JSONObjectUtils.getString(json, "iss"),
+                JSONObjectUtils.getString(json, "kid"),
+                publicKey,
+                Instant.ofEpochSecond(JSONObjectUtils.getLong(json, "iat")),
+                Instant.ofEpochSecond(JSONObjectUtils.getLong(json, "exp")));
+    }
+
+    /**
+     * Returns the bytes the KMS key signs for the given certificate claims
+     */
+    public static byte[] signingInput(final byte[] claims) {
+        final byte[] signingInput = Arrays.copyOf(SIGNING_CONTEXT, SIGNING_CONTEXT.length + claims.length);
+        System.arraycopy(claims, 0, signingInput, SIGNING_CONTEXT.length, claims.length);
+        return signingInput;
+    }
+
+    public static String encode(final byte[] claims, final byte[] signature) {
+        return ENCODER.encodeToString(claims) + "." + ENCODER.encodeToString(signature);
+    }
+}
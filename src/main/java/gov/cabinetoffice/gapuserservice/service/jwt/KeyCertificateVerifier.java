@@ -0,0 +1,88 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.text.ParseException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Verifies tokens signed by an {@link EphemeralSigningKey}, on any instance: the certificate in the token header
+ * is checked against the KMS signing key, and the token against the certified key. Certificates that have been
+ * verified are remembered, so each is only checked once.
+ */
+@Component
+@Slf4j
+public class KeyCertificateVerifier {
+
+    private final KmsPublicKeyVerifier kmsPublicKeyVerifier;
+    private final Clock clock;
+
+    private final Cache<String, KeyCertificate> verifiedCertificates;
+
+    public KeyCertificateVerifier(final KmsPublicKeyVerifier kmsPublicKeyVerifier,
+                                  final @Value("${jwt.ephemeral-key.certificate-cache-size:100}") long cacheSize,
+                                  final Clock clock) {
+        this.kmsPublicKeyVerifier = kmsPublicKeyVerifier;
+        this.clock = clock;
+        this.verifiedCertificates = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public boolean verify(final String keyId, final String certificate, final byte[] message, final byte[] signature) {
+        final Optional<KeyCertificate> verifiedCertificate = verifyCertificate(certificate);
+        if (verifiedCertificate.isEmpty()) {
+            return false;
+        }
+
+        final KeyCertificate keyCertificate = verifiedCertificate.get();
+        if (!keyCertificate.keyId().equals(keyId) || !clock.instant().isBefore(keyCertificate.expiresAt())) {
+            log.info("Token was signed by ephemeral key {}, which is not valid for key id {} or has expired",
+                    keyCertificate.keyId(), keyId);
+            return false;
+        }
+
+        try {
+            return EcdsaSignatures.verify(keyCertificate.publicKey(), message, signature);
+        } catch (GeneralSecurityException e) {
+            log.error("Unable to verify signature with ephemeral key {}", keyId, e);
+            return false;
+        }
+    }
+
+    private Optional<KeyCertificate> verifyCertificate(final String certificate) {
+        final KeyCertificate cached = verifiedCertificates.getIfPresent(certificate);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        final String[] parts = certificate.split("\\.");
+        if (parts.length != 2) {
+            return Optional.empty();
+        }
+
+        try {
+            final byte[] claims = Base64.getUrlDecoder().decode(parts[0]);
+            final byte[] signature = Base64.getUrlDecoder().decode(parts[1]);
+            final KeyCertificate keyCertificate = KeyCertificate.fromClaims(claims);
+            if (keyCertificate.keyId() == null
+                    || !kmsPublicKeyVerifier.verify(keyCertificate.issuer(), KeyCertificate.signingInput(claims),
+                    signature)) {
+                return Optional.empty();
+            }
+
+            verifiedCertificates.put(certificate, keyCertificate);
+            return Optional.of(keyCertificate);
+        } catch (IllegalArgumentException | ParseException | GeneralSecurityException | ClassCastException e) {
+            log.info("Unable to parse key certificate", e);
+            return Optional.empty();
+        }
+    }
+}
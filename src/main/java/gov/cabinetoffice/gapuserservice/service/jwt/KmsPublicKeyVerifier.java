@@ -0,0 +1,125 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+import software.amazon.awssdk.services.kms.model.SigningAlgorithmSpec;
+import software.amazon.awssdk.services.kms.model.VerifyRequest;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verifies RSASSA_PSS_SHA_256 signatures produced by the KMS signing key in-process, using the public half of
+ * the key fetched once via GetPublicKey. Until a public key has been loaded, verification falls back to
+ * {@link KmsClient#verify(VerifyRequest)}.
+ */
+@Component
+@Slf4j
+public class KmsPublicKeyVerifier {
+
+    private final KmsClient kmsClient;
+    private final String signingKeyArn;
+    private final Duration minRefreshInterval;
+    private final Clock clock;
+
+    private final AtomicReference<LoadedKey> loadedKey = new AtomicReference<>();
+    private final AtomicReference<Instant> lastRefreshAttempt = new AtomicReference<>(Instant.EPOCH);
+
+    public KmsPublicKeyVerifier(final KmsClient kmsClient,
+                                final @Value("${aws.kms.signing-key.arn}") String signingKeyArn,
+                                final @Value("${jwt.public-key.min-refresh-interval-seconds:30}") long minRefreshIntervalSeconds,
+                                final Clock clock) {
+        this.kmsClient = kmsClient;
+        this.signingKeyArn = signingKeyArn;
+        this.minRefreshInterval = Duration.ofSeconds(minRefreshIntervalSeconds);
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.public-key.refresh-interval-ms:3600000}")
+    public void refreshPublicKey() {
+        lastRefreshAttempt.set(clock.instant());
+        try {
+            final GetPublicKeyResponse response = kmsClient.getPublicKey(GetPublicKeyRequest.builder()
+                    .keyId(signingKeyArn)
+                    .build());
+
+            if (!response.signingAlgorithms().contains(SigningAlgorithmSpec.RSASSA_PSS_SHA_256)) {
+                log.error("KMS key {} does not support RSASSA_PSS_SHA_256, keeping previous public key", signingKeyArn);
+                return;
+            }
+
+            final RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA")
+                    .generatePublic(new X509EncodedKeySpec(response.publicKey().asByteArray()));
+            loadedKey.set(new LoadedKey(response.keyId(), publicKey));
+            log.info("Loaded public key for KMS signing key {}", response.keyId());
+        } catch (SdkException | GeneralSecurityException | ClassCastException e) {
+            log.warn("Unable to load public key for KMS signing key {}, keeping previous public key", signingKeyArn, e);
+        }
+    }
+
+    public boolean verify(final String keyId, final byte[] message, final byte[] signature) {
+        LoadedKey key = loadedKey.get();
+        if (key != null && !key.matches(keyId, signingKeyArn)) {
+            refreshOnUnknownKeyId(keyId);
+            key = loadedKey.get();
+        }
+
+        if (key == null) {
+            return verifyRemotely(message, signature);
+        }
+        return verifyLocally(key.publicKey(), message, signature);
+    }
+
+    public Optional<RSAPublicKey> getPublicKey() {
+        return Optional.ofNullable(loadedKey.get()).map(LoadedKey::publicKey);
+    }
+
+    private void refreshOnUnknownKeyId(final String keyId) {
+        final Instant now = clock.instant();
+        final Instant previousAttempt = lastRefreshAttempt.get();
+        // only one thread refreshes, and at most once per interval, so forged key ids can't be used to hammer KMS
+        if (previousAttempt.plus(minRefreshInterval).isAfter(now)
+                || !lastRefreshAttempt.compareAndSet(previousAttempt, now)) {
+            return;
+        }
+        log.info("Unknown key id {} in token header, refreshing KMS public key", keyId);
+        refreshPublicKey();
+    }
+
+    private boolean verifyLocally(final RSAPublicKey publicKey, final byte[] message, final byte[] signature) {
+        try {
+            return RsaPssSignatures.verify(publicKey, message, signature);
+        } catch (GeneralSecurityException e) {
+            log.error("Unable to verify signature with KMS public key", e);
+            return false;
+        }
+    }
+
+    private boolean verifyRemotely(final byte[] message, final byte[] signature) {
+        return kmsClient.verify(VerifyRequest.builder()
+                .signature(SdkBytes.fromByteArray(signature))
+                .keyId(signingKeyArn)
+                .message(SdkBytes.fromByteArray(message))
+                .signingAlgorithm(SigningAlgorithmSpec.RSASSA_PSS_SHA_256).build()).signatureValid();
+    }
+
+    private record LoadedKey(String keyArn, RSAPublicKey publicKey) {
+        boolean matches(final String keyId, final String configuredKeyId) {
+            return keyId == null || keyId.equals(configuredKeyId) || keyId.equals(keyArn);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+
+/**
+ * RSASSA-PSS with SHA-256, using the same parameters as the KMS RSASSA_PSS_SHA_256 signing algorithm, so
+ * signatures made locally and by KMS are interchangeable.
+ */
+final class RsaPssSignatures {
+
+    private static final String JCA_ALGORITHM = "RSASSA-PSS";
+
+    // KMS uses a salt length equal to the digest length for its RSASSA_PSS_* algorithms
+    private static final PSSParameterSpec PSS_SHA_256 = new PSSParameterSpec("SHA-256", "MGF1",
+            MGF1ParameterSpec.SHA256, 32, 1);
+
+    private RsaPssSignatures() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static byte[] sign(final PrivateKey privateKey, final byte[] message) throws GeneralSecurityException {
+        final Signature signer = Signature.getInstance(JCA_ALGORITHM);
+        signer.setParameter(PSS_SHA_256);
+        signer.initSign(privateKey);
+        signer.update(message);
+        return signer.sign();
+    }
+
+    static boolean verify(final RSAPublicKey publicKey, final byte[] message, final byte[] signature)
+            throws GeneralSecurityException {
+        final Signature verifier = Signature.getInstance(JCA_ALGORITHM);
+        verifier.setParameter(PSS_SHA_256);
+        verifier.initVerify(publicKey);
+        verifier.update(message);
+        return verifier.verify(signature);
+    }
+}
@@ -0,0 +1,131 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashCode;
+import gov.cabinetoffice.gapuserservice.util.TokenDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Bounded cache of signature verification results, keyed by the SHA-256 digest of the token. Both valid and
+ * invalid results are cached, and each entry lives for the shorter of the configured expiry and the time left
+ * before the token itself expires.
+ */
+@Slf4j
+@Component
+public class TokenVerificationCache {
+
+    private final Cache<HashCode, CachedVerification> cache;
+    private final Duration expiry;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TokenVerificationCache(final @Value("${jwt.memoization-cache-expiry}") long expirySeconds,
+                                  final @Value("${jwt.memoization-cache-max-size:10000}") long maximumSize,
+                                  final Clock clock) {
+        this.expiry = Duration.ofSeconds(expirySeconds);
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expiry)
+                .maximumSize(maximumSize)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    /**
+     * Returns the cached verification result for the token, or runs the verifier and caches its result.
+     * Results of a verifier that throws are not cached.
+     *
+     * @param token          the encoded token
+     * @param tokenExpiresAt the token's exp claim, or null if it has none
+     * @param verifier       verifies the token's signature
+     * @return whether the token's signature is valid
+     * @throws ExecutionException if the verifier throws a checked exception
+     */
+    public boolean get(final String token, final Instant tokenExpiresAt, final Callable<Boolean> verifier)
+            throws ExecutionException {
+        final HashCode digest = TokenDigest.of(token);
+        final Instant now = clock.instant();
+
+        final CachedVerification cached = cache.getIfPresent(digest);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(now)) {
+                hits.increment();
+                return cached.valid();
+            }
+            cache.asMap().remove(digest, cached);
+        }
+
+        misses.increment();
+        final Instant expiresAt = tokenExpiresAt != null && tokenExpiresAt.isBefore(now.plus(expiry))
+                ? tokenExpiresAt
+                : now.plus(expiry);
+
+        // an already expired token is rejected further down, so there's no point keeping its result
+        if (!expiresAt.isAfter(now)) {
+            return call(verifier);
+        }
+
+        return cache.get(digest, () -> new CachedVerification(verifier.call(), expiresAt)).valid();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.memoization-cache-metrics-log-interval-ms:300000}")
+    public void logMetrics() {
+        log.info("Token verification cache {} {} {} {}",
+                keyValue("hits", getHitCount()),
+                keyValue("misses", getMissCount()),
+                keyValue("evictions", getEvictionCount()),
+                keyValue("size", size()));
+    }
+
+    private void onRemoval(final RemovalNotification<HashCode, CachedVerification> notification) {
+        if (notification.wasEvicted()) {
+            evictions.increment();
+        }
+    }
+
+    private static boolean call(final Callable<Boolean> verifier) throws ExecutionException {
+        try {
+            return verifier.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    private record CachedVerification(boolean valid, Instant expiresAt) {
+    }
+}
@@ -1,34 +1,31 @@
 package gov.cabinetoffice.gapuserservice.service.jwt.impl;
 
-import com.auth0.jwk.Jwk;
-import com.auth0.jwk.JwkException;
-import com.auth0.jwk.JwkProvider;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.SignatureVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import gov.cabinetoffice.gapuserservice.config.ThirdPartyAuthProviderProperties;
 import gov.cabinetoffice.gapuserservice.exceptions.JwkNotValidTokenException;
+import gov.cabinetoffice.gapuserservice.service.jwt.ColaJwkProvider;
+import gov.cabinetoffice.gapuserservice.service.jwt.HmacSha256Verifier;
 import gov.cabinetoffice.gapuserservice.service.jwt.JwtService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.interfaces.RSAPublicKey;
 import java.util.Base64;
 import java.util.Calendar;
+import java.util.Optional;
 
 @RequiredArgsConstructor
 @Service
 @Slf4j
 public class ColaJwtServiceImpl implements JwtService {
     private final ThirdPartyAuthProviderProperties thirdPartyAuthProviderProperties;
-    private final JwkProvider jwkProvider;
-    private final Mac sha256HMac;
+    private final ColaJwkProvider colaJwkProvider;
+    private final HmacSha256Verifier sha256HmacVerifier;
 
     @Override
     public boolean isTokenValid(final String colaJwt) {
@@ -70,11 +67,14 @@ public class ColaJwtServiceImpl implements JwtService {
     }
 
     private boolean isValidJwtSignature(final DecodedJWT decodedJWT) {
+        final Optional<Algorithm> algorithm = colaJwkProvider.getAlgorithm(decodedJWT.getKeyId());
+        if (algorithm.isEmpty()) {
+            log.error("No COLA JWK found for key id {}", decodedJWT.getKeyId());
+            return false;
+        }
         try {
-            final Jwk jwk = jwkProvider.get(decodedJWT.getKeyId());
-            final Algorithm algorithm = Algorithm.RSA256((RSAPublicKey) jwk.getPublicKey(), null);
-            algorithm.verify(decodedJWT);
-        } catch (JwkException | SignatureVerificationException e) {
+            algorithm.get().verify(decodedJWT);
+        } catch (SignatureVerificationException e) {
             log.error("An error occurred while verifying JWT signature", e);
             return false;
         }
@@ -83,13 +83,13 @@ public class ColaJwtServiceImpl implements JwtService {
 
     private boolean isValidColaSignature(final String jwt) {
         final String jwtWithoutSignature = jwt.substring(0, jwt.lastIndexOf('.'));
-        final String signature = jwt.substring(jwt.lastIndexOf('.') + 1);
-        final String hash = getBase64Sha256Hmac(jwtWithoutSignature).replace("=", "");
-        return MessageDigest.isEqual(signature.getBytes(), hash.getBytes());
-    }
-
-    private String getBase64Sha256Hmac(final String value) {
-        final byte[] hashBytes = sha256HMac.doFinal(value.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hashBytes);
+        final byte[] signature;
+        try {
+            // COLA signs with a standard base64 HMAC, with the padding stripped
+            signature = Base64.getDecoder().decode(jwt.substring(jwt.lastIndexOf('.') + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return sha256HmacVerifier.verify(jwtWithoutSignature.getBytes(StandardCharsets.UTF_8), signature);
     }
 }
@@ -3,28 +3,39 @@ package gov.cabinetoffice.gapuserservice.service.jwt.impl;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.nimbusds.jose.util.JSONObjectUtils;
 import com.nimbusds.jwt.JWTClaimsSet;
 import gov.cabinetoffice.gapuserservice.config.JwtProperties;
 import gov.cabinetoffice.gapuserservice.dto.JwtHeader;
 import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
-import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.dto.TokenValidationResultDto;
+import gov.cabinetoffice.gapuserservice.dto.UserAuthorizationSnapshot;
+import gov.cabinetoffice.gapuserservice.exceptions.GenerateTokenFailedException;
+import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
 import gov.cabinetoffice.gapuserservice.exceptions.UnauthorizedException;
-import gov.cabinetoffice.gapuserservice.model.Role;
+import gov.cabinetoffice.gapuserservice.exceptions.UserNotFoundException;
 import gov.cabinetoffice.gapuserservice.model.User;
-import gov.cabinetoffice.gapuserservice.repository.JwtBlacklistRepository;
 import gov.cabinetoffice.gapuserservice.repository.UserRepository;
+import gov.cabinetoffice.gapuserservice.security.AuthenticatedPrincipal;
+import gov.cabinetoffice.gapuserservice.service.JwtBlacklistService;
+import gov.cabinetoffice.gapuserservice.service.jwt.EphemeralSigningKey;
+import gov.cabinetoffice.gapuserservice.service.jwt.EphemeralSigningKeyProvider;
 import gov.cabinetoffice.gapuserservice.service.jwt.JwtService;
+import gov.cabinetoffice.gapuserservice.service.jwt.KeyCertificate;
+import gov.cabinetoffice.gapuserservice.service.jwt.KeyCertificateVerifier;
+import gov.cabinetoffice.gapuserservice.service.jwt.KmsPublicKeyVerifier;
+import gov.cabinetoffice.gapuserservice.service.jwt.TokenVerificationCache;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
+import gov.cabinetoffice.gapuserservice.service.user.UserAuthorizationCache;
 import gov.cabinetoffice.gapuserservice.util.HelperUtils;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tomcat.util.codec.binary.Base64;
 import org.apache.tomcat.util.codec.binary.StringUtils;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.WebUtils;
@@ -33,23 +44,40 @@ import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.model.*;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.Clock;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 @Slf4j
 public class CustomJwtServiceImpl implements JwtService {
 
     private final JwtProperties jwtProperties;
-    private final JwtBlacklistRepository jwtBlacklistRepository;
+    private final JwtBlacklistService jwtBlacklistService;
 
     private final UserRepository userRepository;
     private final OneLoginUserService oneLoginUserService;
 
     private final KmsClient kmsClient;
 
+    private final KmsPublicKeyVerifier kmsPublicKeyVerifier;
+
+    private final EphemeralSigningKeyProvider ephemeralSigningKeyProvider;
+
+    private final KeyCertificateVerifier keyCertificateVerifier;
+
+    private final TokenVerificationCache tokenVerificationCache;
+
+    private final UserAuthorizationCache userAuthorizationCache;
+
+    private final ExecutorService tokenVerificationExecutor;
+
     private final Clock clock;
 
     @Value("${jwt.cookie-name}")
@@ -64,82 +92,174 @@ public class CustomJwtServiceImpl implements JwtService {
     @Value("${aws.kms.signing-key.arn}")
     public String signingKeyArn;
 
-    @Value("${jwt.memoization-cache-expiry}")
-    long memoizationCacheExpiry;
+    @Value("${jwt.batch-validation.max-tokens:500}")
+    public int batchValidationMaxTokens;
 
     public CustomJwtServiceImpl(OneLoginUserService oneLoginUserService,
-            JwtProperties jwtProperties, JwtBlacklistRepository jwtBlacklistRepository,
-            UserRepository userRepository, Clock clock, KmsClient kmsClient) {
+            JwtProperties jwtProperties, JwtBlacklistService jwtBlacklistService,
+            UserRepository userRepository, Clock clock, KmsClient kmsClient,
+            KmsPublicKeyVerifier kmsPublicKeyVerifier, EphemeralSigningKeyProvider ephemeralSigningKeyProvider,
+            KeyCertificateVerifier keyCertificateVerifier, TokenVerificationCache tokenVerificationCache,
+            UserAuthorizationCache userAuthorizationCache,
+            @Qualifier("tokenVerificationExecutor") ExecutorService tokenVerificationExecutor) {
         this.oneLoginUserService = oneLoginUserService;
         this.jwtProperties = jwtProperties;
-        this.jwtBlacklistRepository = jwtBlacklistRepository;
+        this.jwtBlacklistService = jwtBlacklistService;
         this.userRepository = userRepository;
         this.clock = clock;
         this.kmsClient = kmsClient;
+        this.kmsPublicKeyVerifier = kmsPublicKeyVerifier;
+        this.ephemeralSigningKeyProvider = ephemeralSigningKeyProvider;
+        this.keyCertificateVerifier = keyCertificateVerifier;
+        this.tokenVerificationCache = tokenVerificationCache;
+        this.userAuthorizationCache = userAuthorizationCache;
+        this.tokenVerificationExecutor = tokenVerificationExecutor;
     }
 
-    private final Cache<String, Boolean> memoizationCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(memoizationCacheExpiry, TimeUnit.SECONDS)
-            .build();
-
     public boolean handleTokenVerification(String token) {
+        return handleTokenVerification(token, decodedJwt(token));
+    }
+
+    private boolean handleTokenVerification(String token, DecodedJWT decodedToken) {
         try {
-            return memoizationCache.get(token, () -> verifyToken(token));
+            final Date expiresAt = decodedToken.getExpiresAt();
+            return tokenVerificationCache.get(token, expiresAt == null ? null : expiresAt.toInstant(),
+                    () -> verifyToken(decodedToken));
         } catch (Exception e) {
             throw new JWTVerificationException("Unable to determine token validity: ".concat(e.getMessage()));
         }
     }
 
-    private boolean verifyToken(String customJwt) {
-        String[] tokenParts = customJwt.split("\\.");
-
-        SdkBytes signature = SdkBytes.fromByteArray(Base64.decodeBase64URLSafe(tokenParts[2]));
-        SdkBytes message = SdkBytes.fromByteArray(Base64.decodeBase64URLSafe(tokenParts[1]));
-
-        VerifyResponse verifyResponse = kmsClient.verify(VerifyRequest.builder()
-                .signature(signature)
-                .keyId(signingKeyArn)
-                .message(message)
-                .signingAlgorithm(SigningAlgorithmSpec.RSASSA_PSS_SHA_256).build());
+    private boolean verifyToken(DecodedJWT decodedToken) {
+        if (KeyCertificate.TYPE.equals(decodedToken.getClaim("typ").asString())) {
+            log.info("Rejecting key certificate presented as a token");
+            return false;
+        }
+        final byte[] signature = Base64.decodeBase64URLSafe(decodedToken.getSignature());
+        final byte[] message = Base64.decodeBase64URLSafe(decodedToken.getPayload());
 
-        return verifyResponse.signatureValid();
+        final String keyCertificate = decodedToken.getHeaderClaim(KeyCertificate.HEADER).asString();
+        if (keyCertificate != null) {
+            return keyCertificateVerifier.verify(decodedToken.getKeyId(), keyCertificate, message, signature);
+        }
+        return kmsPublicKeyVerifier.verify(decodedToken.getKeyId(), message, signature);
     }
 
     @Override
     public boolean isTokenValid(final String customJwt) {
         try {
-            boolean verifyResponse = handleTokenVerification(customJwt);
+            return isTokenValid(createPrincipal(customJwt));
+        } catch (JWTVerificationException | JSONException exception) {
+            log.error("JWT could not be decoded", exception);
+            return false;
+        }
+    }
+
+    public boolean isTokenValid(final AuthenticatedPrincipal principal) {
+        return isTokenValid(principal,
+                () -> handleTokenVerification(principal.getToken(), principal.getDecodedJwt()),
+                payload -> userAuthorizationCache.getBySub(payload.getSub())
+                        .or(() -> userAuthorizationCache.getByEmail(payload.getEmail())),
+                this::isTokenInBlacklist);
+    }
+
+    /**
+     * Validates each token with the same checks as {@link #isTokenValid(String)}, returning the results in the
+     * order given. Signatures are verified in parallel, and the blacklist and users are each looked up with a
+     * single query for the whole batch.
+     */
+    public List<TokenValidationResultDto> validateTokens(final List<String> customJwts) {
+        if (customJwts.size() > batchValidationMaxTokens) {
+            throw new InvalidRequestException("Cannot validate more than " + batchValidationMaxTokens
+                    + " tokens in one request");
+        }
+
+        final Map<String, AuthenticatedPrincipal> principals = new LinkedHashMap<>();
+        for (String customJwt : customJwts) {
+            if (customJwt == null || principals.containsKey(customJwt)) {
+                continue;
+            }
+            try {
+                principals.put(customJwt, createPrincipal(customJwt));
+            } catch (JWTVerificationException | JSONException exception) {
+                log.error("JWT could not be decoded", exception);
+            }
+        }
+
+        final Map<String, CompletableFuture<Boolean>> signatures = new HashMap<>();
+        principals.values().forEach(principal -> signatures.put(principal.getToken(), CompletableFuture
+                .supplyAsync(() -> handleTokenVerification(principal.getToken(), principal.getDecodedJwt()),
+                        tokenVerificationExecutor)
+                .exceptionally(exception -> {
+                    log.error("JWT verification failed", exception);
+                    return false;
+                })));
+
+        final Set<String> blacklisted = jwtBlacklistService.findBlacklisted(principals.keySet());
+        final Function<JwtPayload, Optional<UserAuthorizationSnapshot>> findUser = oneLoginEnabled
+                ? findUsers(principals.values())
+                : payload -> Optional.empty();
+
+        return customJwts.stream()
+                .map(customJwt -> {
+                    final AuthenticatedPrincipal principal = customJwt == null ? null : principals.get(customJwt);
+                    if (principal == null) {
+                        return new TokenValidationResultDto(false, null);
+                    }
+                    final boolean isValid = isTokenValid(principal, () -> signatures.get(customJwt).join(),
+                            findUser, blacklisted::contains);
+                    return new TokenValidationResultDto(isValid, isValid ? principal.getPayload().getRoles() : null);
+                })
+                .toList();
+    }
+
+    private Function<JwtPayload, Optional<UserAuthorizationSnapshot>> findUsers(
+            final Collection<AuthenticatedPrincipal> principals) {
+        final Map<String, UserAuthorizationSnapshot> usersBySub = userAuthorizationCache.getAllBySub(
+                principals.stream().map(principal -> principal.getPayload().getSub()).toList());
+        // users who haven't logged in with One Login since migrating only have an email address to go on
+        final Map<String, UserAuthorizationSnapshot> usersByEmail = userAuthorizationCache.getAllByEmail(
+                principals.stream()
+                        .map(AuthenticatedPrincipal::getPayload)
+                        .filter(payload -> !usersBySub.containsKey(payload.getSub()))
+                        .map(JwtPayload::getEmail)
+                        .toList());
+
+        return payload -> Optional.ofNullable(usersBySub.get(payload.getSub()))
+                .or(() -> Optional.ofNullable(usersByEmail.get(payload.getEmail())));
+    }
+
+    private boolean isTokenValid(final AuthenticatedPrincipal principal, final BooleanSupplier verifySignature,
+                                 final Function<JwtPayload, Optional<UserAuthorizationSnapshot>> findUser,
+                                 final Predicate<String> isBlacklisted) {
+        final String customJwt = principal.getToken();
+        try {
+            boolean verifyResponse = verifySignature.getAsBoolean();
 
             if (Boolean.FALSE.equals(verifyResponse)) {
                 throw new JWTVerificationException("Token could not be verified by KMS: ".concat(customJwt));
             }
 
-            final DecodedJWT decodedToken = decodedJwt(customJwt);
-            if (isJWTExpired(decodedToken))
+            if (isJWTExpired(principal.getDecodedJwt()))
                 return false;
             if (oneLoginEnabled) {
-                log.info("one login enabled.....");
-                final JwtPayload jwtPayload = decodeTheTokenPayloadInAReadableFormat(decodedToken);
-                log.info("Got jwtPayload.....");
-                Optional<User> user = userRepository.findBySub(jwtPayload.getSub());
-                log.info("Got user email....." + jwtPayload.getEmail());
-                if (user.isEmpty())
-                    user = userRepository.findByEmailAddress(jwtPayload.getEmail());
+                final JwtPayload jwtPayload = principal.getPayload();
+                final Optional<UserAuthorizationSnapshot> user = findUser.apply(jwtPayload);
                 if (user.isEmpty()) {
                     log.info("User is empty...");
                     return false;
                 }
                 if (validateUserRolesInMiddleware) {
-                    validateRolesInThePayload(jwtPayload);
+                    oneLoginUserService.validateRoleNames(user.get().roleNames(), jwtPayload.getRoles());
                 }
-                if (user.get().getLoginJourneyState().equals(LoginJourneyState.PRIVACY_POLICY_PENDING)) {
+                if (!user.get().hasAcceptedPrivacyPolicy()) {
                     log.info("Privacy policy pending. isTokenValidation is false...");
                     return false;
                 }
 
             }
 
-            return !isTokenInBlacklist(customJwt);
+            return !isBlacklisted.test(customJwt);
         } catch (JWTVerificationException exception) {
             log.error("JWT verification failed", exception);
             return false;
@@ -162,25 +282,41 @@ public class CustomJwtServiceImpl implements JwtService {
                 .audience(jwtProperties.getAudience());
 
         String payload = JSONObjectUtils.toJSONString(jwtClaimsSet.build().toJSONObject());
+        final byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
 
-        SdkBytes message = SdkBytes.fromString(payload, StandardCharsets.UTF_8);
-
-        SignRequest signRequest = SignRequest.builder().signingAlgorithm(SigningAlgorithmSpec.RSASSA_PSS_SHA_256)
-                .message(message).messageType(MessageType.RAW).keyId(signingKeyArn).build();
-        SignResponse signedResponse = kmsClient.sign(signRequest);
-
-        JwtHeader jwtHeader = JwtHeader.builder()
+        final JwtHeader.JwtHeaderBuilder jwtHeader = JwtHeader.builder()
                 .alg(String.valueOf(SigningAlgorithmSpec.RSASSA_PSS_SHA_256))
-                .typ("JWT")
-                .kid(signingKeyArn)
-                .build();
+                .typ("JWT");
+        final byte[] signature;
+
+        final Optional<EphemeralSigningKey> ephemeralSigningKey = ephemeralSigningKeyProvider.getSigningKey();
+        if (ephemeralSigningKey.isPresent()) {
+            signature = signLocally(ephemeralSigningKey.get(), payloadBytes);
+            jwtHeader.alg(String.valueOf(SigningAlgorithmSpec.ECDSA_SHA_256))
+                    .kid(ephemeralSigningKey.get().getKeyId())
+                    .kcert(ephemeralSigningKey.get().getCertificate());
+        } else {
+            SignRequest signRequest = SignRequest.builder().signingAlgorithm(SigningAlgorithmSpec.RSASSA_PSS_SHA_256)
+                    .message(SdkBytes.fromByteArray(payloadBytes)).messageType(MessageType.RAW).keyId(signingKeyArn).build();
+            SignResponse signedResponse = kmsClient.sign(signRequest);
+            signature = signedResponse.signature().asByteArray();
+            jwtHeader.kid(signingKeyArn);
+        }
 
-        String header = HelperUtils.asJsonString(jwtHeader);
+        String header = HelperUtils.asJsonString(jwtHeader.build());
 
         return String.format("%s.%s.%s",
                 Base64.encodeBase64URLSafeString(header.getBytes(StandardCharsets.UTF_8)),
-                Base64.encodeBase64URLSafeString(payload.getBytes(StandardCharsets.UTF_8)),
-                Base64.encodeBase64URLSafeString(signedResponse.signature().asByteArray()));
+                Base64.encodeBase64URLSafeString(payloadBytes),
+                Base64.encodeBase64URLSafeString(signature));
+    }
+
+    private byte[] signLocally(final EphemeralSigningKey signingKey, final byte[] payload) {
+        try {
+            return signingKey.sign(payload);
+        } catch (GeneralSecurityException e) {
+            throw new GenerateTokenFailedException("Unable to sign token with ephemeral key: " + e.getMessage());
+        }
     }
 
     private Date generateExpiryDate(final boolean isAdmin) {
@@ -191,7 +327,7 @@ public class CustomJwtServiceImpl implements JwtService {
     }
 
     private boolean isTokenInBlacklist(final String customJwt) {
-        return jwtBlacklistRepository.existsByJwtIs(customJwt);
+        return jwtBlacklistService.isJwtInBlacklist(customJwt);
     }
 
     private boolean isJWTExpired(DecodedJWT decodedJWT) {
@@ -230,20 +366,38 @@ public class CustomJwtServiceImpl implements JwtService {
                 .build();
     }
 
-    public Optional<User> getUserFromJwt(final HttpServletRequest request) {
+    public AuthenticatedPrincipal createPrincipal(final String customJwt) {
+        final DecodedJWT decodedJwt = decodedJwt(customJwt);
+        return new AuthenticatedPrincipal(customJwt, decodedJwt, decodeTheTokenPayloadInAReadableFormat(decodedJwt),
+                userRepository::findBySub);
+    }
+
+    /**
+     * Returns the principal the JwtTokenFilter stored on the request, or decodes the cookie if the filter
+     * didn't run for this request. Tokens decoded from the cookie here have not been validated.
+     */
+    public AuthenticatedPrincipal getAuthenticatedPrincipal(final HttpServletRequest request) {
+        final Optional<AuthenticatedPrincipal> authenticatedPrincipal = AuthenticatedPrincipal.fromRequest(request);
+        if (authenticatedPrincipal.isPresent()) {
+            return authenticatedPrincipal.get();
+        }
+
         final Cookie customJWTCookie = WebUtils.getCookie(request, userServiceCookieName);
         if (customJWTCookie == null || customJWTCookie.getValue() == null) {
             throw new UnauthorizedException("No JWT token provided");
         }
-        final DecodedJWT decodedJwt = decodedJwt(customJWTCookie.getValue());
-        final JwtPayload payload = decodeTheTokenPayloadInAReadableFormat(decodedJwt);
-        return userRepository.findBySub(payload.getSub());
+        return createPrincipal(customJWTCookie.getValue());
+    }
+
+    public Optional<User> getUserFromJwt(final HttpServletRequest request) {
+        return getAuthenticatedPrincipal(request).getUser();
     }
 
     public JwtPayload validateRolesInThePayload(JwtPayload payload) {
-        final List<Role> userRoles = oneLoginUserService.getUserBySub(payload.getSub()).getRoles();
+        final UserAuthorizationSnapshot user = userAuthorizationCache.getBySub(payload.getSub())
+                .orElseThrow(() -> new UserNotFoundException("user with sub: " + payload.getSub() + " not found"));
         final String payloadRoles = payload.getRoles();
-        oneLoginUserService.validateRoles(userRoles, payloadRoles);
+        oneLoginUserService.validateRoleNames(user.roleNames(), payloadRoles);
         return payload;
     }
 }
@@ -3,8 +3,10 @@ package gov.cabinetoffice.gapuserservice.service.user;
 import gov.cabinetoffice.gapuserservice.config.ApplicationConfigProperties;
 import gov.cabinetoffice.gapuserservice.config.ThirdPartyAuthProviderProperties;
 import gov.cabinetoffice.gapuserservice.dto.*;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
 import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
 import gov.cabinetoffice.gapuserservice.enums.MigrationStatus;
+import gov.cabinetoffice.gapuserservice.enums.UserChangeEventType;
 import gov.cabinetoffice.gapuserservice.exceptions.*;
 import gov.cabinetoffice.gapuserservice.mappers.RoleMapper;
 import gov.cabinetoffice.gapuserservice.model.Department;
@@ -12,9 +14,12 @@ import gov.cabinetoffice.gapuserservice.model.Role;
 import gov.cabinetoffice.gapuserservice.model.RoleEnum;
 import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.repository.DepartmentRepository;
-import gov.cabinetoffice.gapuserservice.repository.RoleRepository;
+import gov.cabinetoffice.gapuserservice.repository.UserDashboardRepository;
 import gov.cabinetoffice.gapuserservice.repository.UserRepository;
+import gov.cabinetoffice.gapuserservice.service.DownstreamWebClients;
 import gov.cabinetoffice.gapuserservice.service.JwtBlacklistService;
+import gov.cabinetoffice.gapuserservice.service.ReferenceDataRegistry;
+import gov.cabinetoffice.gapuserservice.service.UserChangeOutboxService;
 import gov.cabinetoffice.gapuserservice.service.encryption.AwsEncryptionServiceImpl;
 import gov.cabinetoffice.gapuserservice.util.UserQueryCondition;
 import gov.cabinetoffice.gapuserservice.util.WebUtil;
@@ -26,16 +31,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -45,12 +49,16 @@ public class OneLoginUserService {
 
     private final UserRepository userRepository;
     private final DepartmentRepository departmentRepository;
-    private final RoleRepository roleRepository;
     private final JwtBlacklistService jwtBlacklistService;
     private final ApplicationConfigProperties configProperties;
     private final ThirdPartyAuthProviderProperties authenticationProvider;
-    private final WebClient.Builder webClientBuilder;
+    private final DownstreamWebClients downstreamWebClients;
+    private final UserChangeOutboxService userChangeOutboxService;
     private final RoleMapper roleMapper;
+    private final UserAuthorizationCache userAuthorizationCache;
+    private final UserDashboardRepository userDashboardRepository;
+    private final UserCountCache userCountCache;
+    private final ReferenceDataRegistry referenceDataRegistry;
     private static final String NOT_FOUND = "not found";
     private static final String AUTHORIZATION_HEADER_NAME = "Authorization";
     private static final String BEARER_HEADER_PREFIX = "Bearer ";
@@ -70,23 +78,67 @@ public class OneLoginUserService {
     @Value("${find-a-grant.url}")
     private String findFrontend;
 
-    public Page<User> getPaginatedUsers(Pageable pageable, UserQueryDto userQueryDto) {
-        final Map<UserQueryCondition, BiFunction<UserQueryDto, Pageable, Page<User>>> conditionMap = createUserQueryConditionMap();
+    // keeps each IN list well under Postgres' bind parameter limit
+    @Value("${user-emails.chunk-size:1000}")
+    private int userEmailsChunkSize;
+
+    // the dashboard searches on every keystroke, so a slow search is abandoned rather than left to pile up
+    @Value("${super-admin-dashboard.fuzzy-email-search.timeout-ms:5000}")
+    private long fuzzyEmailSearchTimeoutMs;
+
+    /**
+     * Returns the ids of a page of users, in the order the query's condition lists them
+     */
+    public List<Integer> getPaginatedUserIds(Pageable pageable, UserQueryDto userQueryDto) {
+        final Map<UserQueryCondition, BiFunction<UserQueryDto, Pageable, List<Integer>>> conditionMap = createUserQueryConditionMap();
         final UserQueryCondition condition = userQueryDto.getCondition();
-        final BiFunction<UserQueryDto, Pageable, Page<User>> action = conditionMap.get(condition);
+        final BiFunction<UserQueryDto, Pageable, List<Integer>> action = conditionMap.get(condition);
         return action.apply(userQueryDto, pageable);
     }
 
-    private Map<UserQueryCondition, BiFunction<UserQueryDto, Pageable, Page<User>>> createUserQueryConditionMap() {
+    /**
+     * Returns the dashboard rows for a page of users. The page's ids are found as in {@link #getPaginatedUserIds},
+     * then its rows, roles and departments are read in one query, and the total comes from the count cache. An email
+     * search is cut off after the fuzzy email search timeout.
+     */
+    @Transactional
+    public Page<UserDashboardRowDto> getPaginatedDashboardRows(Pageable pageable, UserQueryDto userQueryDto) {
+        if (userQueryDto.getCondition().hasEmail()) {
+            userRepository.setLocalStatementTimeout(String.valueOf(fuzzyEmailSearchTimeoutMs));
+        }
+        final List<UserDashboardRowDto> rows = userDashboardRepository.findRowsByIds(
+                getPaginatedUserIds(pageable, userQueryDto));
+        return new PageImpl<>(rows, pageable, userCountCache.getCount(userQueryDto));
+    }
+
+    /**
+     * Returns the page of users after the cursor, in (email, gapUserId) order. Doesn't support email search, whose
+     * results are ordered by similarity instead.
+     */
+    public UserKeysetPage getUsersAfter(UserQueryDto userQueryDto, UserCursor after, int pageSize) {
+        // one extra row shows whether there's a next page without a separate query
+        final List<UserDashboardRowDto> rows = userDashboardRepository.findRowsAfter(userQueryDto, after,
+                pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new UserKeysetPage(rows, null, userCountCache.getCount(userQueryDto));
+        }
+
+        final List<UserDashboardRowDto> page = rows.subList(0, pageSize);
+        final UserDashboardRowDto last = page.get(pageSize - 1);
+        final UserCursor nextCursor = new UserCursor(last.getEmailAddress(), Integer.valueOf(last.getGapUserId()));
+        return new UserKeysetPage(page, nextCursor, userCountCache.getCount(userQueryDto));
+    }
+
+    private Map<UserQueryCondition, BiFunction<UserQueryDto, Pageable, List<Integer>>> createUserQueryConditionMap() {
         return Map.of(
-                new UserQueryCondition(false, false, false), (dto, pageable) -> userRepository.findByOrderByEmail(pageable),
-                new UserQueryCondition(true, false, false), (dto, pageable) -> userRepository.findUsersByDepartment(dto.departmentIds(), pageable),
-                new UserQueryCondition(false, true, false), (dto, pageable) -> userRepository.findUsersByRoles(dto.roleIds(), pageable),
-                new UserQueryCondition(false, false, true), (dto, pageable) -> userRepository.findUsersByFuzzyEmail(dto.email(), pageable),
-                new UserQueryCondition(true, true, false), (dto, pageable) -> userRepository.findUsersByDepartmentAndRoles(dto.roleIds(), dto.departmentIds(), pageable),
-                new UserQueryCondition(true, false, true), (dto, pageable) -> userRepository.findUsersByDepartmentAndFuzzyEmail(dto.departmentIds(), dto.email(), pageable),
-                new UserQueryCondition(false, true, true), (dto, pageable) -> userRepository.findUsersByRolesAndFuzzyEmail(dto.roleIds(), dto.email(), pageable),
-                new UserQueryCondition(true, true, true), (dto, pageable) -> userRepository.findUsersByDepartmentAndRolesAndFuzzyEmail(dto.roleIds(), dto.departmentIds(), dto.email(), pageable)
+                new UserQueryCondition(false, false, false), (dto, pageable) -> userRepository.findUserIdsByOrderByEmail(pageable),
+                new UserQueryCondition(true, false, false), (dto, pageable) -> userRepository.findUserIdsByDepartment(dto.departmentIds(), pageable),
+                new UserQueryCondition(false, true, false), (dto, pageable) -> userRepository.findUserIdsByRoles(dto.roleIds(), pageable),
+                new UserQueryCondition(false, false, true), (dto, pageable) -> userRepository.findUserIdsByFuzzyEmail(dto.email(), pageable),
+                new UserQueryCondition(true, true, false), (dto, pageable) -> userRepository.findUserIdsByDepartmentAndRoles(dto.roleIds(), dto.departmentIds(), pageable),
+                new UserQueryCondition(true, false, true), (dto, pageable) -> userRepository.findUserIdsByDepartmentAndFuzzyEmail(dto.departmentIds(), dto.email(), pageable),
+                new UserQueryCondition(false, true, true), (dto, pageable) -> userRepository.findUserIdsByRolesAndFuzzyEmail(dto.roleIds(), dto.email(), pageable),
+                new UserQueryCondition(true, true, true), (dto, pageable) -> userRepository.findUserIdsByDepartmentAndRolesAndFuzzyEmail(dto.roleIds(), dto.departmentIds(), dto.email(), pageable)
         );
     }
 
@@ -123,7 +175,7 @@ public class OneLoginUserService {
                 .build();
         final List<RoleEnum> newUserRoles = getNewUserRoles();
         for (RoleEnum roleEnum : newUserRoles) {
-            final Role role = roleRepository.findByName(roleEnum)
+            final Role role = referenceDataRegistry.getRole(roleEnum)
                     .orElseThrow(() -> new RoleNotFoundException("Could not create user: '" + roleEnum + "' role not found"));
             user.addRole(role);
         }
@@ -136,6 +188,7 @@ public class OneLoginUserService {
             final User user = userOptional.get();
             if (!user.hasSub()) {
                 user.setSub(userInfo.getSub());
+                userAuthorizationCache.invalidate(user);
                 return userRepository.save(user);
             }
             return user;
@@ -161,6 +214,7 @@ public class OneLoginUserService {
         return user.get();
     }
 
+    @Transactional
     public User updateDepartment(Integer id, Integer departmentId, String jwt) {
         Optional<User> optionalUser = userRepository.findById(id);
 
@@ -173,31 +227,25 @@ public class OneLoginUserService {
             throw new DepartmentNotFoundException("Department not found");
         }
 
-        webClientBuilder.build()
-                .patch()
-                .uri(adminBackend + "/users/funding-organisation")
-                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                .bodyValue(UpdateFundingOrgDto.builder()
+        userChangeOutboxService.record(id, UserChangeEventType.UPDATE_APPLY_FUNDING_ORGANISATION,
+                "/users/funding-organisation",
+                UpdateFundingOrgDto.builder()
                         .email(optionalUser.get().getEmailAddress())
                         .sub(optionalUser.get().getSub())
                         .departmentName(optionalDepartment.get().getName())
-                        .build())
-                .retrieve()
-                .onStatus(httpStatus -> httpStatus.equals(HttpStatus.NOT_FOUND), clientResponse -> {
-                    log.error("User with sub {} does not exist as an admin in the Apply database",
-                            optionalUser.get().getSub());
-                    return Mono.empty();
-                })
-                .bodyToMono(Void.class)
-                .block();
+                        .build(),
+                jwt);
 
         User user = optionalUser.get();
         Department department = optionalDepartment.get();
 
         user.setDepartment(department);
-        return userRepository.save(user);
+        final User savedUser = userRepository.save(user);
+        userAuthorizationCache.invalidate(user);
+        return savedUser;
     }
 
+    @Transactional
     public User updateRoles(Integer id, UpdateUserRolesRequestDto updateUserRolesRequestDto, String jwt) {
         User user = userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -208,11 +256,12 @@ public class OneLoginUserService {
 
         if (updateUserRolesRequestDto.newUserRoles().isEmpty()) {
             userRepository.save(user);
+            userAuthorizationCache.invalidate(user);
             return user;
         }
 
         for (Integer roleId : updateUserRolesRequestDto.newUserRoles()) {
-            Role role = roleRepository.findById(roleId).orElseThrow();
+            Role role = referenceDataRegistry.getRole(roleId).orElseThrow();
             user.addRole(role);
         }
 
@@ -220,6 +269,7 @@ public class OneLoginUserService {
         addRoleIfNotPresent(user, RoleEnum.APPLICANT);
         deleteDepartmentIfPresentAndUserIsOnlyApplicantOrFind(user);
         userRepository.save(user);
+        userAuthorizationCache.invalidate(user);
 
         return user;
     }
@@ -230,7 +280,7 @@ public class OneLoginUserService {
 
     private void handleAdminRoleChange(User user, UpdateUserRolesRequestDto updateUserRolesRequestDto, String jwt) {
         if (!updateUserRolesRequestDto.newUserRoles().contains(RoleEnum.ADMIN.getRoleId()) && user.isAdmin()) {
-            removeAdminReferenceApply(getSubOrColaSub(user), jwt);
+            removeAdminReferenceApply(user, jwt);
         }
     }
 
@@ -241,21 +291,21 @@ public class OneLoginUserService {
             Integer departmentId = updateUserRolesRequestDto.departmentId() == null
                     ? user.getDepartment().getId() : updateUserRolesRequestDto.departmentId();
 
-            Department department = departmentRepository.findById(departmentId)
+            DepartmentDto department = referenceDataRegistry.getDepartment(departmentId)
                     .orElseThrow(() -> new DepartmentNotFoundException
                             ("Department not found with id: " + updateUserRolesRequestDto.departmentId()));
             addTechSupportUserToApply(user, department.getName(), jwt);
         } else {
             if (user.isTechnicalSupport() && !updateUserRolesRequestDto.newUserRoles()
                     .contains(RoleEnum.TECHNICAL_SUPPORT.getRoleId())) {
-                deleteTechSupportUserFromApply(getSubOrColaSub(user), jwt);
+                deleteTechSupportUserFromApply(user, jwt);
             }
         }
     }
 
     private void addRoleIfNotPresent(User user, RoleEnum roleName) {
         if (user.getRoles().stream().noneMatch(role -> role.getName().equals(roleName))) {
-            Role role = roleRepository.findByName(roleName).orElseThrow(() -> new RoleNotFoundException(
+            Role role = referenceDataRegistry.getRole(roleName).orElseThrow(() -> new RoleNotFoundException(
                     "Update Roles failed: ".concat(roleName.name()).concat(" role not found")));
             user.addRole(role);
         }
@@ -285,83 +335,40 @@ public class OneLoginUserService {
         deleteUserFromFind(jwt, user);
         deleteUserFromApply(jwt, user);
         userRepository.deleteById(id);
+        userAuthorizationCache.invalidate(user);
     }
 
     public void addTechSupportUserToApply(User user, String departmentName, String jwt) {
-        webClientBuilder.build()
-                .post()
-                .uri(adminBackend.concat("/users/tech-support-user"))
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(CreateTechSupportUserDto.builder()
-                        .userSub(getSubOrColaSub(user)).departmentName(departmentName).build()))
-                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                .retrieve()
-                .bodyToMono(Void.class)
-                .block();
+        userChangeOutboxService.record(user.getGapUserId(), UserChangeEventType.ADD_APPLY_TECH_SUPPORT_USER,
+                "/users/tech-support-user",
+                CreateTechSupportUserDto.builder().userSub(getSubOrColaSub(user)).departmentName(departmentName).build(),
+                jwt);
     }
 
-    public void removeAdminReferenceApply(String sub, String jwt) {
-        webClientBuilder.build()
-                .delete()
-                .uri(adminBackend.concat("/users/admin-user/".concat(sub)))
-                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                .retrieve()
-                .onStatus(httpStatus -> !httpStatus.equals(HttpStatus.OK), clientResponse -> {
-                    log.error("Unable to delete admin user with sub {}, HTTP status code {}", sub, clientResponse.statusCode());
-                    return Mono.empty();
-                })
-                .bodyToMono(Void.class)
-                .block();
+    public void removeAdminReferenceApply(User user, String jwt) {
+        userChangeOutboxService.record(user.getGapUserId(), UserChangeEventType.REMOVE_APPLY_ADMIN_USER,
+                "/users/admin-user/".concat(getSubOrColaSub(user)), null, jwt);
     }
 
-    public void deleteTechSupportUserFromApply(String sub, String jwt) {
-        webClientBuilder.build()
-                .delete()
-                .uri(adminBackend.concat("/users/tech-support-user/".concat(sub)))
-                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                .retrieve()
-                .onStatus(httpStatus -> !httpStatus.equals(HttpStatus.OK), clientResponse -> {
-                    log.error("Unable to delete tech support user with sub {}, HTTP status code {}", sub, clientResponse.statusCode());
-                    return Mono.empty();
-                })
-                .bodyToMono(Void.class)
-                .block();
+    public void deleteTechSupportUserFromApply(User user, String jwt) {
+        userChangeOutboxService.record(user.getGapUserId(), UserChangeEventType.REMOVE_APPLY_TECH_SUPPORT_USER,
+                "/users/tech-support-user/".concat(getSubOrColaSub(user)), null, jwt);
     }
 
     private void deleteUserFromApply(String jwt, User user) {
         String sub = getSubOrColaSub(user);
         String query = (user.hasSub() ? "?oneLoginSub=" : "?colaSub=") + sub;
-        String uri = adminBackend + "/users/delete" + query;
 
-        webClientBuilder.build()
-                .delete()
-                .uri(uri)
-                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                .retrieve()
-                .onStatus(httpStatus -> httpStatus.equals(HttpStatus.NOT_FOUND), clientResponse -> {
-                    log.error("User with sub {} does not exist the Apply database", sub);
-                    return Mono.empty();
-                })
-                .bodyToMono(Void.class)
-                .block();
+        userChangeOutboxService.record(user.getGapUserId(), UserChangeEventType.DELETE_APPLY_USER,
+                "/users/delete" + query, null, jwt);
     }
 
     private void deleteUserFromFind(String jwt, User user) {
         String query = !StringUtils.isEmpty(user.getSub())
                 ? "?sub=".concat(user.getSub()) : "?email=".concat(user.getEmailAddress());
 
-        webClientBuilder.build()
-                .delete()
-                .uri(findFrontend.concat("/api/user/delete").concat(query))
-                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                .retrieve()
-                .onStatus(httpStatus -> httpStatus.equals(HttpStatus.NOT_FOUND), clientResponse -> {
-                    log.error("User with ID".concat(user.getGapUserId().toString())
-                            .concat("cannot be found in the Find database"));
-                    return Mono.empty();
-                })
-                .bodyToMono(Void.class)
-                .block();
+        userChangeOutboxService.record(user.getGapUserId(), UserChangeEventType.DELETE_FIND_USER,
+                "/api/user/delete".concat(query), null, jwt);
     }
 
     public void invalidateUserJwt(final Cookie customJWTCookie, final HttpServletResponse response) {
@@ -382,6 +389,10 @@ public class OneLoginUserService {
         final Set<String> formattedUserRoles = userRoles.stream()
                 .map(role -> roleMapper.roleToRoleDto(role).getName())
                 .collect(Collectors.toSet());
+        validateRoleNames(formattedUserRoles, payloadRoles);
+    }
+
+    public void validateRoleNames(Set<String> formattedUserRoles, String payloadRoles) {
         boolean userHasBeenUnblocked = payloadRoles.equals("[]") && !formattedUserRoles.isEmpty();
 
         if (formattedUserRoles.isEmpty()) {
@@ -393,59 +404,105 @@ public class OneLoginUserService {
     }
 
     public void validateSessionsRoles(String emailAddress, String roles) {
-        List<Role> userRoles = userRepository.findByEmailAddress(emailAddress).orElseThrow(() -> new InvalidRequestException("Could not get user from emailAddress")).getRoles();
-        validateRoles(userRoles, roles);
+        final UserAuthorizationSnapshot user = userAuthorizationCache.getByEmail(emailAddress)
+                .orElseThrow(() -> new InvalidRequestException("Could not get user from emailAddress"));
+        validateRoleNames(user.roleNames(), roles);
     }
 
     public void migrateFindUser(final User user, final String jwt) {
         byte[] encryptedEmail = awsEncryptionService.encryptField(user.getEmailAddress());
         try {
-            final MigrateFindUserDto requestBody = new MigrateFindUserDto(encryptedEmail, user.getSub());
-            MigrateFindResponseDto response = webClientBuilder.build()
-                    .patch()
-                    .uri(findFrontend + "/api/user/migrate")
-                    .cookie("user-service-token", jwt)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(MigrateFindResponseDto.class)
-                    .block();
-            if (Objects.requireNonNull(response).isNewUser()) {
-                log.info("Successfully created new find user: " + user.getSub());
-                setUsersFindMigrationState(user, MigrationStatus.NEW_USER);
-            } else {
-                log.info("Successfully migrated find user: " + user.getSub());
-                setUsersFindMigrationState(user, MigrationStatus.SUCCEEDED);
-            }
+            setUsersFindMigrationState(user, requestFindMigration(user, encryptedEmail, jwt));
         } catch (Exception e) {
             log.error("Failed to migrate user: " + user.getSub(), e);
             setUsersFindMigrationState(user, MigrationStatus.FAILED);
         }
     }
 
+    public MigrationStatus requestFindMigration(final User user, final String jwt) {
+        return requestFindMigration(user, awsEncryptionService.encryptField(user.getEmailAddress()), jwt);
+    }
+
+    private MigrationStatus requestFindMigration(final User user, final byte[] encryptedEmail, final String jwt) {
+        final MigrateFindUserDto requestBody = new MigrateFindUserDto(encryptedEmail, user.getSub());
+        MigrateFindResponseDto response = downstreamWebClients.get(DownstreamService.FIND)
+                .patch()
+                .uri(findFrontend + "/api/user/migrate")
+                .cookie("user-service-token", jwt)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(MigrateFindResponseDto.class)
+                .block(downstreamWebClients.getBlockTimeout(DownstreamService.FIND));
+        if (Objects.requireNonNull(response).isNewUser()) {
+            log.info("Successfully created new find user: " + user.getSub());
+            return MigrationStatus.NEW_USER;
+        }
+        log.info("Successfully migrated find user: " + user.getSub());
+        return MigrationStatus.SUCCEEDED;
+    }
+
     public void migrateApplyUser(final User user, final String jwt) {
         try {
-            final MigrateUserDto requestBody = MigrateUserDto.builder()
-                    .oneLoginSub(user.getSub())
-                    .colaSub(user.getColaSub())
-                    .build();
-            webClientBuilder.build()
-                    .patch()
-                    .uri(adminBackend + "/users/migrate")
-                    .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .block();
-            log.info("Successfully migrated apply user: " + user.getSub());
-            setUsersApplyMigrationState(user, MigrationStatus.SUCCEEDED);
+            setUsersApplyMigrationState(user, requestApplyMigration(user, jwt));
         } catch (Exception e) {
             log.error("Failed to migrate user: " + user.getSub(), e);
             setUsersApplyMigrationState(user, MigrationStatus.FAILED);
         }
     }
 
+    public MigrationStatus requestApplyMigration(final User user, final String jwt) {
+        final MigrateUserDto requestBody = MigrateUserDto.builder()
+                .oneLoginSub(user.getSub())
+                .colaSub(user.getColaSub())
+                .build();
+        downstreamWebClients.get(DownstreamService.ADMIN_BACKEND)
+                .patch()
+                .uri(adminBackend + "/users/migrate")
+                .header(AUTHORIZATION_HEADER_NAME, BEARER_HEADER_PREFIX + jwt)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .block(downstreamWebClients.getBlockTimeout(DownstreamService.ADMIN_BACKEND));
+        log.info("Successfully migrated apply user: " + user.getSub());
+        return MigrationStatus.SUCCEEDED;
+    }
+
+    /**
+     * As {@link #setUsersMigrationStates(User, MigrationStatus, MigrationStatus, LoginJourneyState)}, on a copy of
+     * the user loaded in the same transaction, for the migration threads, which never share a request's user.
+     */
+    @Transactional
+    public void setUsersMigrationStates(final int gapUserId, final MigrationStatus findMigrationStatus,
+                                        final MigrationStatus applyMigrationStatus,
+                                        final LoginJourneyState loginJourneyState) {
+        setUsersMigrationStates(getUserById(gapUserId), findMigrationStatus, applyMigrationStatus, loginJourneyState);
+    }
+
+    /**
+     * Sets the given migration states and login journey state in a single save. A null argument leaves that
+     * state unchanged. Marking a migration IN_PROGRESS records when it started.
+     */
+    public void setUsersMigrationStates(final User user, final MigrationStatus findMigrationStatus,
+                                        final MigrationStatus applyMigrationStatus,
+                                        final LoginJourneyState loginJourneyState) {
+        if (findMigrationStatus != null) {
+            user.setFindAccountMigrated(findMigrationStatus);
+        }
+        if (applyMigrationStatus != null) {
+            user.setApplyAccountMigrated(applyMigrationStatus);
+        }
+        if (findMigrationStatus == MigrationStatus.IN_PROGRESS || applyMigrationStatus == MigrationStatus.IN_PROGRESS) {
+            user.setMigrationStarted(Instant.now());
+        }
+        if (loginJourneyState != null) {
+            user.setLoginJourneyState(loginJourneyState);
+        }
+        userRepository.save(user);
+        userAuthorizationCache.invalidate(user);
+    }
+
     public void setUsersApplyMigrationState(final User user, final MigrationStatus migrationStatus) {
         user.setApplyAccountMigrated(migrationStatus);
         userRepository.save(user);
@@ -457,13 +514,16 @@ public class OneLoginUserService {
     }
 
     public void setUsersEmail(final User user, final String newEmail) {
+        userAuthorizationCache.invalidate(user);
         user.setEmailAddress(newEmail);
         userRepository.save(user);
+        userAuthorizationCache.invalidate(user);
     }
 
     public void setUsersLoginJourneyState(final User user, final LoginJourneyState newState) {
         user.setLoginJourneyState(newState);
         userRepository.save(user);
+        userAuthorizationCache.invalidate(user);
     }
 
     public boolean hasEmailChanged(final User user, final OneLoginUserInfoDto userInfo) {
@@ -471,34 +531,46 @@ public class OneLoginUserService {
     }
 
     public List<UserEmailDto> getUserEmailsBySubs(List<String> subs) {
+        final List<UserEmailDto> userEmails = new ArrayList<>();
+        forEachUserEmailBySubs(subs, userEmails::add);
+        return userEmails;
+    }
+
+    /**
+     * Looks up and encrypts the users' emails a chunk of subs at a time, passing each to the consumer as it's ready,
+     * so memory use doesn't grow with the number of subs
+     */
+    public void forEachUserEmailBySubs(List<String> subs, Consumer<UserEmailDto> consumer) {
         final List<String> oneLoginSubs = subs.stream()
                 .filter(sub -> sub.contains(ONE_LOGIN_PREFIX))
                 .toList();
 
-        final List<String> colaSubs = subs.stream()
+        final List<UUID> colaSubs = subs.stream()
                 .filter(sub -> !sub.contains(ONE_LOGIN_PREFIX))
+                .map(UUID::fromString)
                 .toList();
 
-        final List<User> users = new ArrayList<>();
-        if (!oneLoginSubs.isEmpty()) {
-            users.addAll(userRepository.findBySubIn(oneLoginSubs));
+        forEachChunk(oneLoginSubs, chunk -> encryptAndAccept(userRepository.findSubAndEmailBySubIn(chunk), consumer));
+        forEachChunk(colaSubs, chunk -> encryptAndAccept(userRepository.findSubAndEmailByColaSubIn(chunk), consumer));
+    }
+
+    private <T> void forEachChunk(List<T> items, Consumer<List<T>> chunkConsumer) {
+        for (int from = 0; from < items.size(); from += userEmailsChunkSize) {
+            chunkConsumer.accept(items.subList(from, Math.min(from + userEmailsChunkSize, items.size())));
         }
+    }
 
-        if (!colaSubs.isEmpty()) {
-            final List<UUID> colaSubUuids = colaSubs.stream()
-                    .map(UUID::fromString)
-                    .toList();
+    private void encryptAndAccept(List<UserRepository.SubAndEmail> users, Consumer<UserEmailDto> consumer) {
+        final List<byte[]> encryptedEmails = awsEncryptionService.encryptFields(users.stream()
+                .map(UserRepository.SubAndEmail::getEmailAddress)
+                .toList());
 
-            users.addAll(userRepository.findByColaSubIn(colaSubUuids));
+        for (int i = 0; i < users.size(); i++) {
+            consumer.accept(UserEmailDto.builder()
+                    .emailAddress(encryptedEmails.get(i))
+                    .sub(users.get(i).getSub())
+                    .build());
         }
-
-        return users.stream()
-                .map(user -> UserEmailDto.builder()
-                                .emailAddress(awsEncryptionService.encryptField(user.getEmailAddress()))
-                                .sub(user.getSub())
-                                .build()
-                )
-                .toList();
     }
 
     public User getUserByEmail(String email) {
@@ -507,7 +579,7 @@ public class OneLoginUserService {
 
     public User getUserByEmailAndRole(String email, String roleName) {
         final RoleEnum roleEnum = RoleEnum.valueOf(roleName);
-        final Role role = roleRepository.findByName(roleEnum).orElseThrow(() -> new RoleNotFoundException("Could not find user: '" + roleEnum + "' role not found"));
+        final Role role = referenceDataRegistry.getRole(roleEnum).orElseThrow(() -> new RoleNotFoundException("Could not find user: '" + roleEnum + "' role not found"));
         return userRepository.findByEmailAddressAndRole(email, role.getId()).orElseThrow(() -> new UserNotFoundException("user with email: " + email + " and role: " + roleName + " " + NOT_FOUND));
     }
 }
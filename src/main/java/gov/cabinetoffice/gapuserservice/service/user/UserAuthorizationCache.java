@@ -0,0 +1,156 @@
+package gov.cabinetoffice.gapuserservice.service.user;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import gov.cabinetoffice.gapuserservice.dto.UserAuthorizationSnapshot;
+import gov.cabinetoffice.gapuserservice.model.User;
+import gov.cabinetoffice.gapuserservice.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of {@link UserAuthorizationSnapshot}s by sub and by email address, so authenticating a request
+ * doesn't need to load the user from the database. Concurrent misses for the same key share a single query, and
+ * users that don't exist aren't cached. Misses in bulk lookups are loaded with a single query. Anything that changes a user's roles, department, login journey state or
+ * email address must call {@link #invalidate(User)}.
+ */
+@Service
+public class UserAuthorizationCache {
+
+    private final LoadingCache<String, Optional<UserAuthorizationSnapshot>> bySub;
+    private final LoadingCache<String, Optional<UserAuthorizationSnapshot>> byEmail;
+
+    public UserAuthorizationCache(final UserRepository userRepository,
+                                  final @Value("${user.authorization-cache.expiry-seconds:30}") long expirySeconds,
+                                  final @Value("${user.authorization-cache.max-size:10000}") long maximumSize) {
+        this.bySub = build(expirySeconds, maximumSize, userRepository::findBySub, userRepository::findAllBySubIn,
+                User::getSub);
+        this.byEmail = build(expirySeconds, maximumSize, userRepository::findByEmailAddress,
+                userRepository::findAllByEmailAddressIn, User::getEmailAddress);
+    }
+
+    public Optional<UserAuthorizationSnapshot> getBySub(final String sub) {
+        return get(bySub, sub);
+    }
+
+    public Optional<UserAuthorizationSnapshot> getByEmail(final String email) {
+        return get(byEmail, email);
+    }
+
+    /**
+     * Returns the snapshots of the users that exist, keyed by sub.
+     */
+    public Map<String, UserAuthorizationSnapshot> getAllBySub(final Collection<String> subs) {
+        return getAll(bySub, subs);
+    }
+
+    /**
+     * Returns the snapshots of the users that exist, keyed by email address.
+     */
+    public Map<String, UserAuthorizationSnapshot> getAllByEmail(final Collection<String> emails) {
+        return getAll(byEmail, emails);
+    }
+
+    /**
+     * Evicts the user now and again once the current transaction commits, so a snapshot loaded before the change
+     * is visible to other transactions can't outlive it.
+     */
+    public void invalidate(final User user) {
+        invalidate(user.getSub(), user.getEmailAddress());
+    }
+
+    public void invalidate(final String sub, final String email) {
+        evict(sub, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(sub, email);
+                }
+            });
+        }
+    }
+
+    private void evict(final String sub, final String email) {
+        if (sub != null) {
+            bySub.invalidate(sub);
+        }
+        if (email != null) {
+            byEmail.invalidate(email);
+        }
+    }
+
+    private static Optional<UserAuthorizationSnapshot> get(
+            final LoadingCache<String, Optional<UserAuthorizationSnapshot>> cache, final String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        final Optional<UserAuthorizationSnapshot> snapshot = cache.getUnchecked(key);
+        if (snapshot.isEmpty()) {
+            // the user may be created at any time, so don't remember that they're missing
+            cache.asMap().remove(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    private static Map<String, UserAuthorizationSnapshot> getAll(
+            final LoadingCache<String, Optional<UserAuthorizationSnapshot>> cache, final Collection<String> keys) {
+        final List<String> nonNullKeys = keys.stream().filter(Objects::nonNull).distinct().toList();
+        final Map<String, Optional<UserAuthorizationSnapshot>> snapshots;
+        try {
+            snapshots = cache.getAll(nonNullKeys);
+        } catch (ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause());
+        }
+
+        final Map<String, UserAuthorizationSnapshot> found = new HashMap<>();
+        snapshots.forEach((key, snapshot) -> {
+            if (snapshot.isPresent()) {
+                found.put(key, snapshot.get());
+            } else {
+                cache.asMap().remove(key, snapshot);
+            }
+        });
+        return found;
+    }
+
+    private static LoadingCache<String, Optional<UserAuthorizationSnapshot>> build(
+            final long expirySeconds, final long maximumSize, final Function<String, Optional<User>> findUser,
+            final Function<Collection<String>, List<User>> findUsers, final Function<User, String> keyOf) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(expirySeconds))
+                .maximumSize(maximumSize)
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Optional<UserAuthorizationSnapshot> load(final String key) {
+                        return findUser.apply(key).map(UserAuthorizationSnapshot::from);
+                    }
+
+                    @Override
+                    public Map<String, Optional<UserAuthorizationSnapshot>> loadAll(final Iterable<? extends String> keys) {
+                        final List<String> keyList = ImmutableList.copyOf(keys);
+                        final Map<String, Optional<UserAuthorizationSnapshot>> loaded = new HashMap<>();
+                        keyList.forEach(key -> loaded.put(key, Optional.empty()));
+                        findUsers.apply(keyList).forEach(user ->
+                                loaded.put(keyOf.apply(user), Optional.of(UserAuthorizationSnapshot.from(user))));
+                        return loaded;
+                    }
+                });
+    }
+}
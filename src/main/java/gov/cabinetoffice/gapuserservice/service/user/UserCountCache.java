@@ -0,0 +1,34 @@
+package gov.cabinetoffice.gapuserservice.service.user;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import gov.cabinetoffice.gapuserservice.dto.UserQueryDto;
+import gov.cabinetoffice.gapuserservice.repository.UserDashboardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Short-lived cache of super admin user list totals by filter, so paging through a list doesn't recount it for every
+ * page. A total can miss users added or changed within the expiry time.
+ */
+@Service
+public class UserCountCache {
+
+    private final LoadingCache<UserQueryDto, Long> counts;
+
+    public UserCountCache(final UserDashboardRepository userDashboardRepository,
+                          final @Value("${super-admin-dashboard.count-cache.expiry-seconds:60}") long expirySeconds,
+                          final @Value("${super-admin-dashboard.count-cache.max-size:1000}") long maximumSize) {
+        this.counts = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(expirySeconds))
+                .maximumSize(maximumSize)
+                .build(CacheLoader.from(userDashboardRepository::count));
+    }
+
+    public long getCount(final UserQueryDto query) {
+        return counts.getUnchecked(query);
+    }
+}
@@ -0,0 +1,143 @@
+package gov.cabinetoffice.gapuserservice.service.user;
+
+import gov.cabinetoffice.gapuserservice.dto.UserMigrationStatusDto;
+import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.enums.MigrationStatus;
+import gov.cabinetoffice.gapuserservice.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the Find and Apply account migrations off the login request, which marks them IN_PROGRESS before the user
+ * is redirected. Both migrations run concurrently with retries, and the final states and login journey state are
+ * saved together once both have finished. The migration threads are only given the user's id, and load their own
+ * copy of the user. If the service stops mid-migration, or the executor is full, the login journey state is left
+ * unchanged, so the migration runs again on the user's next login, and its status is reported as FAILED once it
+ * has been IN_PROGRESS for longer than any migration can take.
+ */
+@Service
+@Slf4j
+public class UserMigrationService {
+
+    private final OneLoginUserService oneLoginUserService;
+    private final ExecutorService userMigrationExecutor;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final Duration staleAfter;
+    private final Clock clock;
+
+    private final Set<Integer> migrationsInFlight = ConcurrentHashMap.newKeySet();
+
+    public UserMigrationService(final OneLoginUserService oneLoginUserService,
+                                final @Qualifier("userMigrationExecutor") ExecutorService userMigrationExecutor,
+                                final @Value("${user-migration.async.max-attempts:3}") int maxAttempts,
+                                final @Value("${user-migration.async.retry-backoff-ms:500}") long retryBackoffMs,
+                                final @Value("${user-migration.async.stale-after-seconds:300}") long staleAfterSeconds,
+                                final Clock clock) {
+        this.oneLoginUserService = oneLoginUserService;
+        this.userMigrationExecutor = userMigrationExecutor;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.staleAfter = Duration.ofSeconds(staleAfterSeconds);
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the user's migration states, with a migration that has been IN_PROGRESS for longer than the stale
+     * time reported as FAILED, as the instance running it must have stopped.
+     */
+    public UserMigrationStatusDto getMigrationStatus(final User user) {
+        final Instant started = user.getMigrationStarted();
+        final boolean stale = started == null || !clock.instant().isBefore(started.plus(staleAfter));
+        return new UserMigrationStatusDto(reportedStatus(user.getApplyAccountMigrated(), stale),
+                reportedStatus(user.getFindAccountMigrated(), stale));
+    }
+
+    public CompletableFuture<Void> migrateAsync(final int gapUserId, final String sub, final String jwt,
+                                                final boolean migrateFind, final boolean migrateApply,
+                                                final LoginJourneyState completedState) {
+        if (!migrationsInFlight.add(gapUserId)) {
+            log.info("Migration already in progress for user: " + sub);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final AtomicBoolean deferred = new AtomicBoolean();
+        final CompletableFuture<MigrationStatus> findMigration = migrateFind
+                ? migrate("Find", sub, deferred, () -> oneLoginUserService.requestFindMigration(
+                        oneLoginUserService.getUserById(gapUserId), jwt), 1)
+                : CompletableFuture.completedFuture(null);
+        final CompletableFuture<MigrationStatus> applyMigration = migrateApply
+                ? migrate("Apply", sub, deferred, () -> oneLoginUserService.requestApplyMigration(
+                        oneLoginUserService.getUserById(gapUserId), jwt), 1)
+                : CompletableFuture.completedFuture(null);
+
+        return findMigration
+                .thenAcceptBoth(applyMigration, (findStatus, applyStatus) ->
+                        oneLoginUserService.setUsersMigrationStates(gapUserId, findStatus, applyStatus,
+                                deferred.get() ? null : completedState))
+                .whenComplete((result, e) -> {
+                    migrationsInFlight.remove(gapUserId);
+                    if (e != null) {
+                        log.error("Failed to save migration result for user: " + sub, e);
+                    }
+                });
+    }
+
+    private CompletableFuture<MigrationStatus> migrate(final String service, final String sub,
+                                                       final AtomicBoolean deferred,
+                                                       final Supplier<MigrationStatus> migration, final int attempt) {
+        final CompletableFuture<MigrationStatus> result;
+        try {
+            result = CompletableFuture.supplyAsync(migration, userMigrationExecutor);
+        } catch (RejectedExecutionException e) {
+            // never run on the caller, which may be a login request, so leave it for the user's next login
+            log.warn("User migration executor is full, deferring " + service + " migration for user: " + sub);
+            deferred.set(true);
+            return CompletableFuture.completedFuture(MigrationStatus.FAILED);
+        }
+
+        return result.handle((status, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(status);
+            }
+            if (attempt >= maxAttempts) {
+                log.error("Failed to migrate " + service + " user: " + sub + " after " + attempt + " attempts", e);
+                return CompletableFuture.completedFuture(MigrationStatus.FAILED);
+            }
+            log.warn("Failed to migrate " + service + " user: " + sub + " on attempt " + attempt + ", retrying", e);
+            return retryAfterBackoff(service, sub, deferred, migration, attempt);
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<MigrationStatus> retryAfterBackoff(final String service, final String sub,
+                                                                 final AtomicBoolean deferred,
+                                                                 final Supplier<MigrationStatus> migration,
+                                                                 final int attempt) {
+        // exponential backoff with full jitter, so retries from many logins don't arrive together. The retry is
+        // scheduled rather than slept for, so no migration thread is held while waiting
+        final long maxDelay = retryBackoffMs << (attempt - 1);
+        final long delay = ThreadLocalRandom.current().nextLong(maxDelay + 1);
+        return CompletableFuture.supplyAsync(() -> attempt + 1, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                .thenCompose(nextAttempt -> migrate(service, sub, deferred, migration, nextAttempt));
+    }
+
+    private static MigrationStatus reportedStatus(final MigrationStatus status, final boolean stale) {
+        return status == MigrationStatus.IN_PROGRESS && stale ? MigrationStatus.FAILED : status;
+    }
+}
@@ -0,0 +1,24 @@
+package gov.cabinetoffice.gapuserservice.util;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+public class TokenDigest {
+
+    private TokenDigest() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Fixed-size (32 byte) SHA-256 digest of a token, used instead of the full token string wherever a token
+     * needs to be stored or used as a key, since custom JWTs embed the OneLogin id token and can be several KB.
+     *
+     * @param token the encoded token
+     * @return the SHA-256 digest of the token's UTF-8 bytes
+     */
+    public static HashCode of(final String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+}
@@ -7,6 +7,7 @@ import gov.cabinetoffice.gapuserservice.exceptions.ForbiddenException;
 import gov.cabinetoffice.gapuserservice.mappers.DepartmentMapper;
 import gov.cabinetoffice.gapuserservice.model.Department;
 import gov.cabinetoffice.gapuserservice.service.DepartmentService;
+import gov.cabinetoffice.gapuserservice.service.ReferenceDataRegistry;
 import gov.cabinetoffice.gapuserservice.service.RoleService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +23,7 @@ import java.util.Optional;
 public class DepartmentController {
     private final RoleService roleService;
     private final DepartmentService departmentService;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     private final DepartmentMapper mapper;
 
@@ -59,6 +61,7 @@ public class DepartmentController {
             throw new DepartmentNotFoundException("Could not update department with id: " + id + " department not found");
         }
         departmentService.updateDepartment(department.get(), body.getName(), body.getGgisID());
+        referenceDataRegistry.invalidateDepartments();
         return ResponseEntity.ok("Department updated");
     }
 
@@ -70,6 +73,7 @@ public class DepartmentController {
         }
 
         departmentService.deleteDepartment(id);
+        referenceDataRegistry.invalidateDepartments();
 
         return ResponseEntity.ok("Department deleted");
     }
@@ -82,6 +86,7 @@ public class DepartmentController {
         }
 
         departmentService.createDepartment(department.getName(), department.getGgisID());
+        referenceDataRegistry.invalidateDepartments();
         return ResponseEntity.ok("Department created");
     }
 }
@@ -0,0 +1,97 @@
+package gov.cabinetoffice.gapuserservice.web;
+
+import com.google.common.hash.HashCode;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import gov.cabinetoffice.gapuserservice.annotations.ServiceToServiceHeaderValidation;
+import gov.cabinetoffice.gapuserservice.dto.TokenRevocationDto;
+import gov.cabinetoffice.gapuserservice.dto.TokenRevocationFeedDto;
+import gov.cabinetoffice.gapuserservice.model.BlacklistedToken;
+import gov.cabinetoffice.gapuserservice.service.JwtBlacklistService;
+import gov.cabinetoffice.gapuserservice.service.jwt.KmsPublicKeyVerifier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lets other GAP services validate user-service tokens without calling this service on every request.
+ * <p>
+ * Note that tokens are not standard JWS: the RSASSA_PSS_SHA_256 (PS256) signature covers the base64url-decoded
+ * payload bytes only, not {@code header.payload}. Tokens with a {@code kcert} header are signed by an ephemeral
+ * key instead, certified by this key (see {@link gov.cabinetoffice.gapuserservice.service.jwt.KeyCertificate}).
+ * Revoked tokens are identified by the SHA-256 digest of the whole token string, since the jti claim isn't
+ * guaranteed to be unique.
+ */
+@RequiredArgsConstructor
+@RestController
+public class JwksController {
+
+    private final KmsPublicKeyVerifier kmsPublicKeyVerifier;
+    private final JwtBlacklistService jwtBlacklistService;
+
+    @Value("${aws.kms.signing-key.arn}")
+    private String signingKeyArn;
+
+    @Value("${jwks.cache-max-age-seconds:3600}")
+    private long cacheMaxAgeSeconds;
+
+    @Value("${blacklist.revocation-feed.max-limit:1000}")
+    private int revocationFeedMaxLimit;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        final Optional<RSAPublicKey> publicKey = kmsPublicKeyVerifier.getPublicKey();
+        if (publicKey.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .cacheControl(CacheControl.noStore())
+                    .build();
+        }
+
+        final RSAKey jwk = new RSAKey.Builder(publicKey.get())
+                .keyID(signingKeyArn)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.PS256)
+                .build();
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePublic())
+                .body(new JWKSet(jwk).toJSONObject());
+    }
+
+    /**
+     * Consumers should keep polling from the returned cursor, and occasionally re-read a short way behind it,
+     * since rows written by concurrent transactions can become visible out of id order.
+     */
+    @GetMapping("/token-revocations")
+    @ServiceToServiceHeaderValidation        // authenticate request from other services
+    public ResponseEntity<TokenRevocationFeedDto> getTokenRevocations(
+            @RequestParam(defaultValue = "0") int cursor,
+            @RequestParam(required = false) Integer limit) {
+        final int pageSize = limit == null || limit <= 0 ? revocationFeedMaxLimit
+                : Math.min(limit, revocationFeedMaxLimit);
+        final List<BlacklistedToken> tokens = jwtBlacklistService.getBlacklistedTokensAfter(Math.max(0, cursor), pageSize);
+
+        final List<TokenRevocationDto> revocations = tokens.stream()
+                .map(token -> new TokenRevocationDto(HashCode.fromBytes(token.getTokenDigest()).toString(),
+                        token.getExpiryDate()))
+                .toList();
+        final int nextCursor = tokens.isEmpty() ? cursor : tokens.get(tokens.size() - 1).getId();
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(new TokenRevocationFeedDto(revocations, nextCursor));
+    }
+}
@@ -3,8 +3,10 @@ package gov.cabinetoffice.gapuserservice.web;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import gov.cabinetoffice.gapuserservice.annotations.ServiceToServiceHeaderValidation;
 import gov.cabinetoffice.gapuserservice.config.ApplicationConfigProperties;
 import gov.cabinetoffice.gapuserservice.config.ThirdPartyAuthProviderProperties;
+import gov.cabinetoffice.gapuserservice.dto.TokenValidationResultDto;
 import gov.cabinetoffice.gapuserservice.exceptions.TokenNotValidException;
 import gov.cabinetoffice.gapuserservice.exceptions.UserNotFoundException;
 import gov.cabinetoffice.gapuserservice.model.User;
@@ -28,6 +30,7 @@ import org.springframework.beans.factory.annotation.Value;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -186,4 +189,10 @@ public class LoginController {
         return ResponseEntity.ok(isJwtValid);
     }
 
-}
\ No newline at end of file
+    @PostMapping("/validate-tokens")
+    @ServiceToServiceHeaderValidation        // authenticate request from other services
+    public ResponseEntity<List<TokenValidationResultDto>> validateTokens(@RequestBody final List<String> jwts) {
+        return ResponseEntity.ok(customJwtService.validateTokens(jwts));
+    }
+
+}
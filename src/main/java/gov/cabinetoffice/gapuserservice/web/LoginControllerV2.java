@@ -14,6 +14,7 @@ import gov.cabinetoffice.gapuserservice.service.OneLoginService;
 import gov.cabinetoffice.gapuserservice.service.encryption.Sha512Service;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
+import gov.cabinetoffice.gapuserservice.service.user.UserMigrationService;
 import gov.cabinetoffice.gapuserservice.util.HelperUtils;
 import gov.cabinetoffice.gapuserservice.util.LoggingUtils;
 import gov.cabinetoffice.gapuserservice.util.WebUtil;
@@ -53,6 +54,7 @@ public class LoginControllerV2 {
     private final OneLoginUserService oneLoginUserService;
     private final FindAGrantConfigProperties findProperties;
     private final LoggingUtils loggingUtils;
+    private final UserMigrationService userMigrationService;
 
     public static final String PRIVACY_POLICY_PAGE_VIEW = "privacy-policy";
 
@@ -83,6 +85,9 @@ public class LoginControllerV2 {
     @Value("${feature.find-accounts.migration.enabled}")
     private String findAccountsMigrationEnabled;
 
+    @Value("${feature.user-migration.async.enabled:false}")
+    private boolean asyncUserMigrationEnabled;
+
     @Value("${onelogin.post-logout-redirect-uri}")
     private String postLogoutRedirectUri;
 
@@ -249,6 +254,14 @@ public class LoginControllerV2 {
                         customJWTCookie.getValue(), true, null));
     }
 
+    @GetMapping("/migration-status")
+    public ResponseEntity<UserMigrationStatusDto> getMigrationStatus(final HttpServletRequest request) {
+        final Cookie customJWTCookie = HelperUtils.getCustomJwtCookieFromRequest(request, userServiceCookieName);
+        final User user = getUserFromCookie(customJWTCookie)
+                .orElseThrow(() -> new UserNotFoundException("Migration status: Could not fetch user from jwt"));
+        return ResponseEntity.ok(userMigrationService.getMigrationStatus(user));
+    }
+
     @GetMapping("/logout")
     public RedirectView logout(final HttpServletRequest request, final HttpServletResponse response) {
         final Cookie customJWTCookie = WebUtils.getCookie(request, userServiceCookieName);
@@ -288,7 +301,7 @@ public class LoginControllerV2 {
 
         String redirectUrl = user.getLoginJourneyState()
                 .nextState(new NextStateArgs(oneLoginUserService, user, jwt, log, hasAcceptedPrivacyPolicy, userInfo,
-                        findAccountsMigrationEnabled))
+                        findAccountsMigrationEnabled, asyncUserMigrationEnabled ? userMigrationService : null))
                 .getLoginJourneyRedirect(user.getHighestRole().getName(), redirectUrlCookie)
                 .getRedirectUrl(new GetRedirectUrlArgs(adminBaseUrl, applicantBaseUrl, techSupportAppBaseUrl,
                         redirectUrlCookie, user));
@@ -1,23 +1,19 @@
 package gov.cabinetoffice.gapuserservice.web;
 
-import com.auth0.jwt.interfaces.DecodedJWT;
 import gov.cabinetoffice.gapuserservice.dto.RoleDto;
+import gov.cabinetoffice.gapuserservice.dto.UserAuthorizationSnapshot;
 import gov.cabinetoffice.gapuserservice.dto.UserRolesJwtResponse;
 import gov.cabinetoffice.gapuserservice.exceptions.ForbiddenException;
-import gov.cabinetoffice.gapuserservice.exceptions.UnauthorizedException;
 import gov.cabinetoffice.gapuserservice.exceptions.UserNotFoundException;
-import gov.cabinetoffice.gapuserservice.model.User;
+import gov.cabinetoffice.gapuserservice.security.AuthenticatedPrincipal;
 import gov.cabinetoffice.gapuserservice.service.RoleService;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
-import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
-import jakarta.servlet.http.Cookie;
+import gov.cabinetoffice.gapuserservice.service.user.UserAuthorizationCache;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.util.WebUtils;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,11 +22,8 @@ import java.util.Optional;
 @RestController
 public class RoleController {
     private final RoleService roleService;
-    private final OneLoginUserService oneLoginUserService;
     private final CustomJwtServiceImpl jwtService;
-
-    @Value("${jwt.cookie-name}")
-    public String userServiceCookieName;
+    private final UserAuthorizationCache userAuthorizationCache;
 
     @GetMapping("/role")
     public ResponseEntity<List<RoleDto>> getAll(final HttpServletRequest httpRequest) {
@@ -43,19 +36,14 @@ public class RoleController {
 
     @GetMapping("/user/roles")
     public ResponseEntity<UserRolesJwtResponse> getUserRolesFromJwt(final HttpServletRequest request) {
-        final Cookie customJWTCookie = WebUtils.getCookie(request, userServiceCookieName);
-        if (customJWTCookie == null || customJWTCookie.getValue() == null) {
-            throw new UnauthorizedException("No JWT token provided");
-        }
-
-        final boolean isValid = jwtService.isTokenValid(customJWTCookie.getValue());
-        final DecodedJWT decodedJwt = jwtService.decodedJwt(customJWTCookie.getValue());
-
-        final Optional<User> optionalUser = oneLoginUserService.getUserFromSub(decodedJwt.getSubject());
-        if (optionalUser.isEmpty()) {
-            throw new UserNotFoundException("User not found");
-        }
-        final User user = optionalUser.get();
+        // a principal on the request has already been validated by the JwtTokenFilter
+        final Optional<AuthenticatedPrincipal> authenticatedPrincipal = AuthenticatedPrincipal.fromRequest(request);
+        final AuthenticatedPrincipal principal = authenticatedPrincipal
+                .orElseGet(() -> jwtService.getAuthenticatedPrincipal(request));
+        final boolean isValid = authenticatedPrincipal.isPresent() || jwtService.isTokenValid(principal);
+
+        final UserAuthorizationSnapshot user = userAuthorizationCache.getBySub(principal.getPayload().getSub())
+                .orElseThrow(() -> new UserNotFoundException("User not found"));
 
         final UserRolesJwtResponse response = UserRolesJwtResponse.builder()
                 .isValid(isValid)
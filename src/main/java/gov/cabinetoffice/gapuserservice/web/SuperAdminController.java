@@ -2,7 +2,6 @@ package gov.cabinetoffice.gapuserservice.web;
 
 import gov.cabinetoffice.gapuserservice.dto.*;
 import gov.cabinetoffice.gapuserservice.exceptions.ForbiddenException;
-import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.service.DepartmentService;
 import gov.cabinetoffice.gapuserservice.service.RoleService;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
@@ -36,19 +35,34 @@ public class SuperAdminController {
             final Pageable pagination,
             @RequestParam(value = "departments", name = "departments") Integer[] departmentIds,
             @RequestParam(value = "roles", name = "roles") Integer[] roleIds,
-            @RequestParam(value = "searchTerm") @Size(max = 255) String searchTerm) {
+            @RequestParam(value = "searchTerm") @Size(max = 255) String searchTerm,
+            @RequestParam(value = "cursor", required = false) String cursor) {
         if (!roleService.isSuperAdmin(httpRequest)) throw new ForbiddenException();
 
         final UserQueryDto userRequestDto = new UserQueryDto(List.of(departmentIds), List.of(roleIds), searchTerm);
 
         final List<DepartmentDto> allDepartments = departmentService.getAllDepartments();
         final List<RoleDto> allRoles = roleService.getAllRoles();
-        final Page<User> users = oneLoginUserService.getPaginatedUsers(pagination, userRequestDto);
+
+        // a cursor (blank for the first page) asks for keyset paging; searches are ranked, so always use offsets
+        if (cursor != null && !userRequestDto.getCondition().hasEmail()) {
+            final UserKeysetPage page = oneLoginUserService.getUsersAfter(userRequestDto, UserCursor.decode(cursor),
+                    pagination.getPageSize());
+            return ResponseEntity.ok(SuperAdminDashboardPageDto.builder()
+                    .departments(allDepartments)
+                    .roles(allRoles)
+                    .users(page.users())
+                    .userCount(page.totalCount())
+                    .nextCursor(page.nextCursor() == null ? null : page.nextCursor().encode())
+                    .build());
+        }
+
+        final Page<UserDashboardRowDto> users = oneLoginUserService.getPaginatedDashboardRows(pagination, userRequestDto);
 
         return ResponseEntity.ok(SuperAdminDashboardPageDto.builder()
                 .departments(allDepartments)
                 .roles(allRoles)
-                .users(users.stream().map(UserAndRelationsDto::new).toList())
+                .users(users.getContent())
                 .userCount(users.getTotalElements())
                 .build());
     }
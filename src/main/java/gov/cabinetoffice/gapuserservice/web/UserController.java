@@ -1,5 +1,7 @@
 package gov.cabinetoffice.gapuserservice.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import gov.cabinetoffice.gapuserservice.annotations.ServiceToServiceHeaderValidation;
 import gov.cabinetoffice.gapuserservice.dto.*;
 import gov.cabinetoffice.gapuserservice.exceptions.ForbiddenException;
@@ -14,14 +16,19 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static gov.cabinetoffice.gapuserservice.util.HelperUtils.getCustomJwtCookieFromRequest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +39,9 @@ import java.util.Optional;
 public class UserController {
 
     private static final String NO_USER = "Could not get user from jwt";
+    // the servlet container owns the response stream, so the generator mustn't close it
+    private static final ObjectMapper STREAMING_MAPPER = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     private final OneLoginUserService oneLoginUserService;
     private final DepartmentService departmentService;
     private final RoleService roleService;
@@ -161,6 +171,19 @@ public class UserController {
         return ResponseEntity.ok(oneLoginUserService.getUserEmailsBySubs(subs));
     }
 
+    /**
+     * Streams the emails as they're looked up, as NDJSON if that's what the client accepts or otherwise a JSON array,
+     * so the response isn't held in memory. The request's subs are still read in full before streaming starts.
+     */
+    @PostMapping(value = "/users/emails", params = "stream=true",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ServiceToServiceHeaderValidation        // authenticate request from other services
+    public ResponseEntity<StreamingResponseBody> streamUserEmailsBySubs(
+            @RequestBody() List<String> subs,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return streamUserEmails(subs, accept);
+    }
+
     @PostMapping("/user-emails-from-subs")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<UserEmailDto>> getUserEmailsFromSubs(
@@ -168,6 +191,46 @@ public class UserController {
         return ResponseEntity.ok(oneLoginUserService.getUserEmailsBySubs(req.userSubs()));
     }
 
+    @PostMapping(value = "/user-emails-from-subs", params = "stream=true",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamUserEmailsFromSubs(
+            @RequestBody UserSubsRequestDto req,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return streamUserEmails(req.userSubs(), accept);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamUserEmails(List<String> subs, String accept) {
+        final boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+
+        final StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = STREAMING_MAPPER.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                oneLoginUserService.forEachUserEmailBySubs(subs, userEmail -> {
+                    try {
+                        generator.writeObject(userEmail);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
 
     @GetMapping("/user/email/{email}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
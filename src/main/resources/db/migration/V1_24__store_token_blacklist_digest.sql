@@ -0,0 +1,25 @@
+-- Blacklisted tokens are looked up by the SHA-256 digest of the token rather than the token itself, which can be
+-- several KB once the OneLogin id token is embedded in it.
+--
+-- This is the expand step: jwt is kept, and still written, so instances on the previous release keep working during
+-- a rolling deploy. Rows they insert without a digest get one from the trigger below. The contract step, in the
+-- following release, drops the trigger and the jwt column and its index, and makes token_digest NOT NULL.
+ALTER TABLE token_blacklist ADD COLUMN IF NOT EXISTS token_digest bytea;
+
+CREATE OR REPLACE FUNCTION token_blacklist_set_digest() RETURNS trigger AS $$
+BEGIN
+    IF NEW.token_digest IS NULL AND NEW.jwt IS NOT NULL THEN
+        NEW.token_digest := sha256(convert_to(NEW.jwt, 'UTF8'));
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS token_blacklist_set_digest ON token_blacklist;
+CREATE TRIGGER token_blacklist_set_digest
+    BEFORE INSERT OR UPDATE OF jwt ON token_blacklist
+    FOR EACH ROW EXECUTE FUNCTION token_blacklist_set_digest();
+
+UPDATE token_blacklist SET token_digest = sha256(convert_to(jwt, 'UTF8')) WHERE token_digest IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_token_blacklist_token_digest ON token_blacklist (token_digest);
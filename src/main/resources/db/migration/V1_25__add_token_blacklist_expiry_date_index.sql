@@ -0,0 +1,2 @@
+-- Expired tokens are deleted in batches by expiry date
+CREATE INDEX IF NOT EXISTS idx_token_blacklist_expiry_date ON token_blacklist (expiry_date);
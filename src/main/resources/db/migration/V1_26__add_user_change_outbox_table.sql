@@ -0,0 +1,20 @@
+-- Changes to a user that Apply and Find need to hear about are written here in the same transaction as the change
+-- itself, then delivered by UserChangeOutboxRelay. user_id is not a foreign key as deleted users still have events
+CREATE TABLE user_change_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    user_id integer NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    path TEXT NOT NULL,
+    payload TEXT,
+    encrypted_auth_token BYTEA,
+    status VARCHAR(32) NOT NULL,
+    attempts integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamp without time zone NOT NULL,
+    last_error TEXT,
+    created timestamp without time zone NOT NULL,
+    delivered_at timestamp without time zone
+);
+
+-- the relay only ever reads pending events, oldest first, and checks for earlier pending events of the same user
+CREATE INDEX idx_user_change_outbox_pending ON user_change_outbox (next_attempt_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_user_change_outbox_pending_user ON user_change_outbox (user_id, id) WHERE status = 'PENDING';
@@ -0,0 +1,3 @@
+-- GiST rather than GIN so fuzzy email search can walk the index in distance order (email <-> query) and stop
+-- after a page, instead of scoring and sorting every user
+CREATE INDEX IF NOT EXISTS idx_gap_users_email_trgm ON gap_users USING gist (email gist_trgm_ops);
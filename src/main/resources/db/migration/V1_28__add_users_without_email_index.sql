@@ -0,0 +1,2 @@
+-- the super admin dashboard lists users without an email after everyone else, seeking through them by id
+CREATE INDEX IF NOT EXISTS idx_gap_users_without_email ON gap_users (gap_user_id) WHERE email IS NULL;
@@ -0,0 +1,2 @@
+ALTER TABLE gap_users
+ADD COLUMN IF NOT EXISTS migration_started timestamp without time zone;
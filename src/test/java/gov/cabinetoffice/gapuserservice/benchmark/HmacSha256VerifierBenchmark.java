@@ -0,0 +1,76 @@
+package gov.cabinetoffice.gapuserservice.benchmark;
+
+import gov.cabinetoffice.gapuserservice.service.jwt.HmacSha256Verifier;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares COLA token HMAC verification through a single shared {@link Mac}, which has to be locked to be used from
+ * request threads, with {@link HmacSha256Verifier}. Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HmacSha256VerifierBenchmark {
+
+    private static final String ALGORITHM = HmacAlgorithms.HMAC_SHA_256.getName();
+    private static final byte[] SECRET = "benchmark-cola-shared-secret".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE = ("eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9."
+            + "eyJzdWIiOiJiZW5jaG1hcmsiLCJlbWFpbCI6InVzZXJAdGVzdC5jb20iLCJpYXQiOjE3MDAwMDAwMDB9")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private Mac sharedMac;
+    private HmacSha256Verifier verifier;
+    private String encodedSignature;
+    private byte[] signature;
+
+    @Setup
+    public void setup() throws Exception {
+        sharedMac = Mac.getInstance(ALGORITHM);
+        sharedMac.init(new SecretKeySpec(SECRET, ALGORITHM));
+        verifier = new HmacSha256Verifier(SECRET);
+        signature = verifier.sign(MESSAGE);
+        encodedSignature = Base64.getEncoder().encodeToString(signature).replace("=", "");
+    }
+
+    @Benchmark
+    public boolean sharedMac() {
+        final byte[] expected;
+        synchronized (sharedMac) {
+            expected = sharedMac.doFinal(MESSAGE);
+        }
+        return Base64.getEncoder().encodeToString(expected).replace("=", "").equals(encodedSignature);
+    }
+
+    @Benchmark
+    public boolean threadLocalVerifier() {
+        return verifier.verify(MESSAGE, signature);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HmacSha256VerifierBenchmark.class.getSimpleName()).build()).run();
+    }
+}
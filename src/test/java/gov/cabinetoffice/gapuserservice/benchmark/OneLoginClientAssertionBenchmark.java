@@ -0,0 +1,82 @@
+package gov.cabinetoffice.gapuserservice.benchmark;
+
+import gov.cabinetoffice.gapuserservice.service.OneLoginClientAssertionFactory;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the OneLogin client assertion by parsing the private key and using the jjwt builder on every
+ * call with {@link OneLoginClientAssertionFactory}. Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OneLoginClientAssertionBenchmark {
+
+    private static final String CLIENT_ID = "benchmark-client-id";
+    private static final String BASE_URL = "https://oidc.test.account.gov.uk";
+
+    private String encodedPrivateKey;
+    private OneLoginClientAssertionFactory factory;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        encodedPrivateKey = Base64.getEncoder().encodeToString(keyPairGenerator.generateKeyPair().getPrivate().getEncoded());
+        factory = new OneLoginClientAssertionFactory(encodedPrivateKey, CLIENT_ID, BASE_URL, Clock.systemUTC());
+    }
+
+    @Benchmark
+    public String parseKeyPerCall() throws GeneralSecurityException {
+        final PrivateKey privateKey = KeyFactory.getInstance("RSA")
+                .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(encodedPrivateKey)));
+        final long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .claim("aud", BASE_URL + "/token")
+                .claim("iss", CLIENT_ID)
+                .claim("sub", CLIENT_ID)
+                .claim("exp", now + 300000L)
+                .claim("jti", UUID.randomUUID().toString())
+                .claim("iat", now)
+                .signWith(privateKey, SignatureAlgorithm.RS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String cachedKeyFactory() {
+        return factory.createAssertion();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OneLoginClientAssertionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -1,14 +1,16 @@
 package gov.cabinetoffice.gapuserservice.config;
 
 import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -24,26 +26,26 @@ class BeanConfigTest {
     private BeanConfig configUnderTest;
 
     @Test
-    void getSha256Hmac_throwsError_EmptySecretCookieKey() {
+    void getSha256HmacVerifier_throwsError_EmptySecretCookieKey() {
         final ThirdPartyAuthProviderProperties thirdPartyAuthProviderProperties = ThirdPartyAuthProviderProperties.builder()
                 .secretCookieKey("")
                 .build();
         configUnderTest = new BeanConfig(thirdPartyAuthProviderProperties);
 
-        final IllegalArgumentException response = assertThrows(IllegalArgumentException.class, () -> configUnderTest.getSha256Hmac());
+        final IllegalArgumentException response = assertThrows(IllegalArgumentException.class, () -> configUnderTest.getSha256HmacVerifier());
         assertThat(response.getMessage()).isEqualTo("Empty key");
     }
 
     @Test
-    void getSha256Hmac_throwsError_NullSecretCookieKey() {
+    void getSha256HmacVerifier_throwsError_NullSecretCookieKey() {
         final ThirdPartyAuthProviderProperties thirdPartyAuthProviderProperties = ThirdPartyAuthProviderProperties.builder().build();
         configUnderTest = new BeanConfig(thirdPartyAuthProviderProperties);
 
-        assertThrows(NullPointerException.class, () -> configUnderTest.getSha256Hmac());
+        assertThrows(NullPointerException.class, () -> configUnderTest.getSha256HmacVerifier());
     }
 
     @Test
-    void getSha256Hmac_throwsError_InvalidAlgorithm() {
+    void getSha256HmacVerifier_throwsError_InvalidAlgorithm() {
         final ThirdPartyAuthProviderProperties thirdPartyAuthProviderProperties = ThirdPartyAuthProviderProperties.builder()
                 .domain("domain")
                 .secretCookieKey("secretCookieKey")
@@ -53,32 +55,38 @@ class BeanConfigTest {
         try (MockedStatic<Mac> mac = Mockito.mockStatic(Mac.class)) {
             mac.when(() -> getInstance(anyString())).thenThrow(new NoSuchAlgorithmException());
 
-            assertThrows(NoSuchAlgorithmException.class, () -> configUnderTest.getSha256Hmac());
+            assertThrows(NoSuchAlgorithmException.class, () -> configUnderTest.getSha256HmacVerifier());
         }
     }
 
     @Test
-    void getSha256Hmac_returnsSha256MacWithSecret() throws NoSuchAlgorithmException, InvalidKeyException {
+    void getSha256HmacVerifier_returnsVerifierUsingSecret() throws NoSuchAlgorithmException, InvalidKeyException {
         final String secretCookieKey = "validSecretCookieKey";
-        final String algorithm = HmacAlgorithms.HMAC_SHA_256.getName();
         final ThirdPartyAuthProviderProperties thirdPartyAuthProviderProperties = ThirdPartyAuthProviderProperties.builder()
                 .secretCookieKey(secretCookieKey)
                 .build();
 
         configUnderTest = new BeanConfig(thirdPartyAuthProviderProperties);
 
-        try (MockedStatic<Mac> mac = Mockito.mockStatic(Mac.class)) {
-            final Mac macMock = mock(Mac.class);
-            mac.when(() -> getInstance(anyString())).thenReturn(macMock);
+        final byte[] message = "a-message".getBytes(StandardCharsets.UTF_8);
+        final byte[] expected = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, secretCookieKey).hmac(message);
 
-            configUnderTest.getSha256Hmac();
+        assertThat(configUnderTest.getSha256HmacVerifier().sign(message)).isEqualTo(expected);
+    }
 
-            final SecretKeySpec secret_key = new SecretKeySpec(
-                    secretCookieKey.getBytes(StandardCharsets.UTF_8),
-                    algorithm
-            );
-            mac.verify(() -> getInstance(algorithm), times(1));
-            verify(macMock, times(1)).init(secret_key);
+    @Test
+    void applicationTaskExecutor_IsBoundedByTheBuildersSettings() {
+        configUnderTest = new BeanConfig(ThirdPartyAuthProviderProperties.builder().build());
+
+        final ThreadPoolTaskExecutor executor = configUnderTest.applicationTaskExecutor(new TaskExecutorBuilder()
+                .corePoolSize(2).maxPoolSize(2).queueCapacity(10).threadNamePrefix("mvc-async-"));
+        executor.initialize();
+        try {
+            assertThat(executor.getMaxPoolSize()).isEqualTo(2);
+            assertThat(executor.getThreadPoolExecutor().getQueue().remainingCapacity()).isEqualTo(10);
+            assertThat(executor.getThreadNamePrefix()).isEqualTo("mvc-async-");
+        } finally {
+            executor.shutdown();
         }
     }
 }
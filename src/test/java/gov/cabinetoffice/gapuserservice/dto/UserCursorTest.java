@@ -0,0 +1,35 @@
+package gov.cabinetoffice.gapuserservice.dto;
+
+import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserCursorTest {
+
+    @Test
+    void encode_RoundTrips() {
+        final UserCursor cursor = new UserCursor("first:last@test.com", 42);
+
+        assertThat(UserCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encode_RoundTrips_WithoutEmail() {
+        final UserCursor cursor = new UserCursor(null, 42);
+
+        assertThat(UserCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void decode_ReturnsNull_ForBlankCursor() {
+        assertThat(UserCursor.decode("")).isNull();
+        assertThat(UserCursor.decode(null)).isNull();
+    }
+
+    @Test
+    void decode_Throws_ForInvalidCursor() {
+        assertThrows(InvalidRequestException.class, () -> UserCursor.decode("not-a-cursor"));
+    }
+}
@@ -5,6 +5,7 @@ import gov.cabinetoffice.gapuserservice.model.Role;
 import gov.cabinetoffice.gapuserservice.model.RoleEnum;
 import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
+import gov.cabinetoffice.gapuserservice.service.user.UserMigrationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -132,6 +133,60 @@ class LoginJourneyStateTest {
             assertEquals(LoginJourneyState.MIGRATING_USER, nextState);
         }
 
+        @Test
+        void asyncMigration_HasColaSub_NotUserReady() {
+            final UserMigrationService userMigrationService = mock(UserMigrationService.class);
+            final NextStateArgs nextStateArgs = NextStateArgs.builder()
+                    .oneLoginUserService(oneLoginUserService)
+                    .user(user)
+                    .jwt("jwt")
+                    .logger(logger)
+                    .hasAcceptedPrivacyPolicy(true)
+                    .userInfo(oneLoginUserInfoDto)
+                    .findAccountsMigrationEnabled("true")
+                    .userMigrationService(userMigrationService)
+                    .build();
+
+            when(user.hasColaSub()).thenReturn(true);
+            when(user.getLoginJourneyState()).thenReturn(LoginJourneyState.MIGRATING_USER);
+            when(user.getGapUserId()).thenReturn(1);
+            when(user.getSub()).thenReturn("sub");
+
+            final LoginJourneyState nextState = state.nextState(nextStateArgs);
+
+            verify(oneLoginUserService, times(1)).setUsersMigrationStates(user, MigrationStatus.IN_PROGRESS,
+                    MigrationStatus.IN_PROGRESS, null);
+            verify(userMigrationService, times(1)).migrateAsync(1, "sub", "jwt", true, true,
+                    LoginJourneyState.USER_MIGRATED_AND_READY);
+            verify(oneLoginUserService, never()).migrateFindUser(any(), any());
+            verify(oneLoginUserService, never()).migrateApplyUser(any(), any());
+            verify(oneLoginUserService, never()).setUsersLoginJourneyState(any(), any());
+            assertEquals(LoginJourneyState.MIGRATING_USER, nextState);
+        }
+
+        @Test
+        void asyncMigration_FlagOff_UserReady() {
+            final UserMigrationService userMigrationService = mock(UserMigrationService.class);
+            final NextStateArgs nextStateArgs = NextStateArgs.builder()
+                    .oneLoginUserService(oneLoginUserService)
+                    .user(user)
+                    .jwt("jwt")
+                    .logger(logger)
+                    .hasAcceptedPrivacyPolicy(true)
+                    .userInfo(oneLoginUserInfoDto)
+                    .findAccountsMigrationEnabled("false")
+                    .userMigrationService(userMigrationService)
+                    .build();
+
+            when(user.hasColaSub()).thenReturn(true);
+            when(user.getLoginJourneyState()).thenReturn(LoginJourneyState.USER_READY);
+
+            state.nextState(nextStateArgs);
+
+            verify(userMigrationService, never()).migrateAsync(anyInt(), any(), any(), anyBoolean(), anyBoolean(), any());
+            verify(oneLoginUserService, times(1)).setUsersLoginJourneyState(user, LoginJourneyState.USER_READY);
+        }
+
         @Test
         void flagOn_HasColaSub_UserReady() {
             final NextStateArgs nextStateArgs = NextStateArgs.builder()
@@ -0,0 +1,235 @@
+package gov.cabinetoffice.gapuserservice.repository;
+
+import gov.cabinetoffice.gapuserservice.dto.DepartmentDto;
+import gov.cabinetoffice.gapuserservice.dto.RoleDto;
+import gov.cabinetoffice.gapuserservice.dto.UserCursor;
+import gov.cabinetoffice.gapuserservice.dto.UserDashboardRowDto;
+import gov.cabinetoffice.gapuserservice.dto.UserQueryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserDashboardRepositoryTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private UserDashboardRepository userDashboardRepository;
+
+    private final ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    private final ArgumentCaptor<MapSqlParameterSource> parameters = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+
+    @BeforeEach
+    void setup() {
+        userDashboardRepository = new UserDashboardRepository(jdbcTemplate);
+    }
+
+    @Test
+    void findRowsAfter_FirstPage_ListsUsersWithAnEmail_ThenUsersWithout() {
+        userDashboardRepository.findRowsAfter(new UserQueryDto(List.of(), List.of(), ""), null, 11);
+
+        verify(jdbcTemplate, times(2)).query(sql.capture(), parameters.capture(), anyRowMapper());
+        assertThat(sql.getAllValues().get(0))
+                .contains("FROM (SELECT * FROM gap_users u WHERE TRUE AND u.email IS NOT NULL"
+                        + " ORDER BY u.email ASC LIMIT :limit) u")
+                .endsWith("ORDER BY u.email ASC");
+        assertThat(sql.getAllValues().get(1))
+                .contains("FROM (SELECT * FROM gap_users u WHERE TRUE AND u.email IS NULL"
+                        + " ORDER BY u.gap_user_id ASC LIMIT :limit) u")
+                .endsWith("ORDER BY u.gap_user_id ASC");
+        assertThat(parameters.getAllValues()).extracting(p -> p.getValue("limit")).containsExactly(11, 11);
+    }
+
+    @Test
+    void findRowsAfter_SeeksPastCursorEmail_WithASingleRangeCondition() {
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), anyRowMapper()))
+                .thenReturn(Collections.nCopies(11, UserDashboardRowDto.builder().build()));
+
+        userDashboardRepository.findRowsAfter(new UserQueryDto(List.of(1), List.of(2, 3), ""),
+                new UserCursor("a@test.com", 7), 11);
+
+        verify(jdbcTemplate).query(sql.capture(), parameters.capture(), anyRowMapper());
+        assertThat(sql.getValue())
+                .contains("u.dept_id IN (:departmentIds)")
+                .contains("EXISTS (SELECT 1 FROM roles_users r WHERE r.users_gap_user_id = u.gap_user_id"
+                        + " AND r.roles_id IN (:roleIds))")
+                .contains(" AND u.email > :afterEmail ORDER BY u.email ASC LIMIT :limit")
+                .doesNotContain(" OR ");
+        assertThat(parameters.getValue().getValue("departmentIds")).isEqualTo(List.of(1));
+        assertThat(parameters.getValue().getValue("roleIds")).isEqualTo(List.of(2, 3));
+        assertThat(parameters.getValue().getValue("afterEmail")).isEqualTo("a@test.com");
+    }
+
+    @Test
+    void findRowsAfter_FillsThePageFromUsersWithoutEmail_WhenEmailsRunOut() {
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), anyRowMapper()))
+                .thenReturn(Collections.nCopies(4, UserDashboardRowDto.builder().gapUserId("1").build()))
+                .thenReturn(Collections.nCopies(7, UserDashboardRowDto.builder().gapUserId("2").build()));
+
+        final List<UserDashboardRowDto> rows = userDashboardRepository.findRowsAfter(
+                new UserQueryDto(List.of(), List.of(), ""), new UserCursor("a@test.com", 7), 11);
+
+        verify(jdbcTemplate, times(2)).query(sql.capture(), parameters.capture(), anyRowMapper());
+        assertThat(rows).hasSize(11);
+        assertThat(sql.getAllValues().get(1)).contains(" AND u.email IS NULL ORDER BY u.gap_user_id ASC LIMIT :limit");
+        assertThat(parameters.getAllValues().get(1).getValue("limit")).isEqualTo(7);
+        assertThat(parameters.getAllValues().get(1).hasValue("afterId")).isFalse();
+    }
+
+    @Test
+    void findRowsAfter_OnlySeeksThroughUsersWithoutEmail_WhenCursorHasNoEmail() {
+        userDashboardRepository.findRowsAfter(new UserQueryDto(List.of(), List.of(), ""),
+                new UserCursor(null, 7), 11);
+
+        verify(jdbcTemplate).query(sql.capture(), parameters.capture(), anyRowMapper());
+        assertThat(sql.getValue()).contains("AND u.email IS NULL AND u.gap_user_id > :afterId ORDER BY u.gap_user_id");
+        assertThat(parameters.getValue().getValue("afterId")).isEqualTo(7);
+    }
+
+    @Test
+    void findRowsByIds_ReturnsRowsInTheOrderOfTheIds() {
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), anyRowMapper()))
+                .thenReturn(List.of(UserDashboardRowDto.builder().gapUserId("1").build(),
+                        UserDashboardRowDto.builder().gapUserId("2").build()));
+
+        final List<UserDashboardRowDto> rows = userDashboardRepository.findRowsByIds(List.of(2, 1));
+
+        verify(jdbcTemplate).query(sql.capture(), parameters.capture(), anyRowMapper());
+        assertThat(rows).extracting(UserDashboardRowDto::getGapUserId).containsExactly("2", "1");
+        assertThat(sql.getValue()).contains("WHERE u.gap_user_id IN (:gapUserIds)");
+        assertThat(parameters.getValue().getValue("gapUserIds")).isEqualTo(List.of(2, 1));
+    }
+
+    @Test
+    void findRowsByIds_DoesNotQuery_WhenThereAreNoIds() {
+        assertThat(userDashboardRepository.findRowsByIds(List.of())).isEmpty();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void count_CountsFilteredUsers() {
+        when(jdbcTemplate.queryForObject(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(42L);
+
+        final long count = userDashboardRepository.count(new UserQueryDto(List.of(1), List.of(), ""));
+
+        verify(jdbcTemplate).queryForObject(sql.capture(), parameters.capture(), eq(Long.class));
+        assertThat(count).isEqualTo(42L);
+        assertThat(sql.getValue()).isEqualTo("SELECT count(*) FROM gap_users u WHERE TRUE AND u.dept_id IN (:departmentIds)");
+    }
+
+    private static RowMapper<UserDashboardRowDto> anyRowMapper() {
+        return ArgumentMatchers.<RowMapper<UserDashboardRowDto>>any();
+    }
+
+    @Nested
+    class AgainstAConnection {
+
+        private static final int PAGE_SIZE = 50;
+
+        private final Connection connection = mock(Connection.class);
+        private final PreparedStatement statement = mock(PreparedStatement.class);
+        private final ResultSet resultSet = mock(ResultSet.class);
+
+        @BeforeEach
+        void setup() throws SQLException {
+            final DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(connection);
+            when(connection.prepareStatement(anyString())).thenReturn(statement);
+            when(statement.executeQuery()).thenReturn(resultSet);
+            userDashboardRepository = new UserDashboardRepository(new NamedParameterJdbcTemplate(dataSource));
+        }
+
+        @Test
+        void findRowsAfter_ReadsAPageOfUsersWithTheirRolesAndDepartments_InOneStatement() throws SQLException {
+            final AtomicInteger gapUserId = new AtomicInteger();
+            when(resultSet.next()).thenAnswer(invocation -> gapUserId.get() < PAGE_SIZE);
+            when(resultSet.getInt("gap_user_id")).thenAnswer(invocation -> gapUserId.incrementAndGet());
+            when(resultSet.getString("email")).thenReturn("user@test.com");
+            when(resultSet.getObject("cola_sub")).thenReturn(null);
+            when(resultSet.getTimestamp("created")).thenReturn(Timestamp.from(Instant.parse("2024-01-01T00:00:00Z")));
+            when(resultSet.getObject("department_id")).thenReturn(4);
+            when(resultSet.getString("department_name")).thenReturn("Cabinet Office");
+            when(resultSet.getString("department_ggis_id")).thenReturn("GGIS");
+            final Array roleIds = sqlArray(new Integer[]{1, 3});
+            final Array roleNames = sqlArray(new String[]{"APPLICANT", "ADMIN"});
+            final Array roleLabels = sqlArray(new String[]{"Applicant", "Administrator"});
+            when(resultSet.getArray("role_ids")).thenReturn(roleIds);
+            when(resultSet.getArray("role_names")).thenReturn(roleNames);
+            final Array roleDescriptions = sqlArray(new String[]{null, null});
+            when(resultSet.getArray("role_labels")).thenReturn(roleLabels);
+            when(resultSet.getArray("role_descriptions")).thenReturn(roleDescriptions);
+
+            final List<UserDashboardRowDto> rows = userDashboardRepository.findRowsAfter(
+                    new UserQueryDto(List.of(), List.of(), ""), null, PAGE_SIZE);
+
+            verify(connection, times(1)).prepareStatement(anyString());
+            verify(statement, times(1)).executeQuery();
+            assertThat(rows).hasSize(PAGE_SIZE);
+            assertThat(rows.get(0)).isEqualTo(UserDashboardRowDto.builder()
+                    .gapUserId("1")
+                    .emailAddress("user@test.com")
+                    .colaSub("null")
+                    .roles(List.of(
+                            RoleDto.builder().id(1).name("APPLICANT").label("Applicant").build(),
+                            RoleDto.builder().id(3).name("ADMIN").label("Administrator").build()))
+                    .role(RoleDto.builder().id(3).name("ADMIN").label("Administrator").build())
+                    .department(DepartmentDto.builder().id(4).name("Cabinet Office").ggisID("GGIS").build())
+                    .created(Instant.parse("2024-01-01T00:00:00Z"))
+                    .build());
+        }
+
+        @Test
+        void findRowsAfter_MapsUserWithoutRolesOrDepartment() throws SQLException {
+            when(resultSet.next()).thenReturn(true, false);
+            when(resultSet.getInt("gap_user_id")).thenReturn(1);
+
+            final List<UserDashboardRowDto> rows = userDashboardRepository.findRowsAfter(
+                    new UserQueryDto(List.of(), List.of(), ""), null, PAGE_SIZE);
+
+            assertThat(rows).singleElement().satisfies(row -> {
+                assertThat(row.getRoles()).isEmpty();
+                assertThat(row.getRole()).isNull();
+                assertThat(row.getDepartment()).isNull();
+                assertThat(row.getCreated()).isNull();
+            });
+        }
+
+        private static Array sqlArray(final Object[] values) throws SQLException {
+            final Array array = mock(Array.class);
+            when(array.getArray()).thenReturn(values);
+            return array;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package gov.cabinetoffice.gapuserservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the fuzzy email searches are planned as an ordered scan of the trigram index rather than a full scan and
+ * sort. Needs a Postgres database that Flyway can migrate, e.g.
+ * USER_SEARCH_PLAN_TEST_DB_URL=jdbc:postgresql://localhost:5432/gapuserplantest. Its existing rows are left alone, and
+ * the users added for the test are rolled back afterwards.
+ */
+@EnabledIfEnvironmentVariable(named = "USER_SEARCH_PLAN_TEST_DB_URL", matches = ".+")
+class UserRepositoryFuzzySearchPlanTest {
+
+    private static final String TRIGRAM_INDEX = "idx_gap_users_email_trgm";
+    private static final int USERS = 20000;
+
+    private static SingleConnectionDataSource dataSource;
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void setup() {
+        final String url = System.getenv("USER_SEARCH_PLAN_TEST_DB_URL");
+        final String username = System.getenv().getOrDefault("USER_SEARCH_PLAN_TEST_DB_USERNAME", "postgres");
+        final String password = System.getenv().getOrDefault("USER_SEARCH_PLAN_TEST_DB_PASSWORD", "mysecretpassword");
+        Flyway.configure().dataSource(new DriverManagerDataSource(url, username, password)).load().migrate();
+
+        // the test users and their statistics are only seen by this connection's transaction, which is rolled back
+        dataSource = new SingleConnectionDataSource(url, username, password, true);
+        dataSource.setAutoCommit(false);
+        final JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("""
+                INSERT INTO gap_users (email, sub, dept_id)
+                    SELECT 'plan-test-user' || i || '@' || (ARRAY['gov.uk', 'example.com', 'test.org'])[i % 3 + 1],
+                           'urn:fdc:gov.uk:2022:plan-test-' || i,
+                           (SELECT min(id) FROM departments)
+                    FROM generate_series(1, ?) AS i
+                """, USERS);
+        // nearly everyone is an applicant, as in production
+        template.update("""
+                INSERT INTO roles_users (roles_id, users_gap_user_id)
+                    SELECT (SELECT id FROM roles WHERE name = 'APPLICANT'), gap_user_id FROM gap_users
+                    WHERE sub LIKE 'urn:fdc:gov.uk:2022:plan-test-%'
+                """);
+        template.execute("ANALYZE gap_users");
+        template.execute("ANALYZE roles_users");
+        jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    @AfterAll
+    static void rollback() throws SQLException {
+        if (dataSource != null) {
+            dataSource.getConnection().rollback();
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void fuzzyEmailSearch_UsesTrigramIndexOrdering() {
+        assertThat(explain(UserRepository.FUZZY_EMAIL_SEARCH)).contains(TRIGRAM_INDEX).doesNotContain("Sort");
+    }
+
+    @Test
+    void fuzzyEmailSearchByDepartment_UsesTrigramIndexOrdering() {
+        assertThat(explain(UserRepository.FUZZY_EMAIL_SEARCH_BY_DEPARTMENT))
+                .contains(TRIGRAM_INDEX)
+                .doesNotContain("Sort");
+    }
+
+    @Test
+    void fuzzyEmailSearchByRoles_UsesTrigramIndexOrdering() {
+        assertThat(explain(UserRepository.FUZZY_EMAIL_SEARCH_BY_ROLES))
+                .contains(TRIGRAM_INDEX)
+                .doesNotContain("Seq Scan on gap_users");
+    }
+
+    @Test
+    void fuzzyEmailSearchByDepartmentAndRoles_UsesTrigramIndexOrdering() {
+        assertThat(explain(UserRepository.FUZZY_EMAIL_SEARCH_BY_DEPARTMENT_AND_ROLES))
+                .contains(TRIGRAM_INDEX)
+                .doesNotContain("Seq Scan on gap_users");
+    }
+
+    private static String explain(final String query) {
+        final Integer departmentId = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT min(id) FROM departments", Integer.class);
+        final Integer applicantRoleId = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT id FROM roles WHERE name = 'APPLICANT'", Integer.class);
+        final MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("emailQuery", "user123@gov")
+                .addValue("departmentIds", List.of(departmentId))
+                .addValue("roleIds", List.of(applicantRoleId));
+
+        // the dashboard pages through results, so plan the query as Spring Data runs it, with a limit
+        final List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + query + " LIMIT 10", parameters,
+                String.class);
+        return String.join("\n", plan);
+    }
+}
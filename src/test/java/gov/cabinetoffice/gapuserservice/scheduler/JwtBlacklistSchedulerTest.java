@@ -7,7 +7,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class JwtBlacklistSchedulerTest {
@@ -27,4 +29,23 @@ class JwtBlacklistSchedulerTest {
         jwtBlacklistScheduler.deleteExpiredJwts();
         verify(jwtBlacklistService).deleteExpiredJwts();
     }
+
+    @Test
+    void flushPendingTokens_Flush() {
+        jwtBlacklistScheduler.flushPendingTokens();
+        verify(jwtBlacklistService).flushPendingTokens();
+    }
+
+    @Test
+    void flushPendingTokens_DoesNotThrow_WhenFlushFails() {
+        when(jwtBlacklistService.flushPendingTokens()).thenThrow(new RuntimeException("database unavailable"));
+
+        assertDoesNotThrow(() -> jwtBlacklistScheduler.flushPendingTokens());
+    }
+
+    @Test
+    void syncBlacklist_Sync() {
+        jwtBlacklistScheduler.syncBlacklist();
+        verify(jwtBlacklistService).syncBlacklist();
+    }
 }
@@ -0,0 +1,49 @@
+package gov.cabinetoffice.gapuserservice.scheduler;
+
+import gov.cabinetoffice.gapuserservice.service.UserChangeOutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangeOutboxRelayTest {
+
+    @Mock
+    private UserChangeOutboxService userChangeOutboxService;
+
+    private UserChangeOutboxRelay userChangeOutboxRelay;
+
+    @BeforeEach
+    void setup() {
+        userChangeOutboxRelay = new UserChangeOutboxRelay(userChangeOutboxService);
+        ReflectionTestUtils.setField(userChangeOutboxRelay, "deliveredRetentionDays", 7);
+    }
+
+    @Test
+    void relayPendingEvents_Relay() {
+        userChangeOutboxRelay.relayPendingEvents();
+        verify(userChangeOutboxService).relayPendingEvents();
+    }
+
+    @Test
+    void relayPendingEvents_DoesNotThrow_WhenRelayFails() {
+        when(userChangeOutboxService.relayPendingEvents()).thenThrow(new RuntimeException("database unavailable"));
+
+        assertDoesNotThrow(() -> userChangeOutboxRelay.relayPendingEvents());
+    }
+
+    @Test
+    void deleteDeliveredEvents_Delete() {
+        userChangeOutboxRelay.deleteDeliveredEvents();
+        verify(userChangeOutboxService).deleteDeliveredEvents(Duration.ofDays(7));
+    }
+}
@@ -0,0 +1,69 @@
+package gov.cabinetoffice.gapuserservice.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import gov.cabinetoffice.gapuserservice.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AuthenticatedPrincipalTest {
+
+    @Test
+    void parseRoles_ParsesRolesClaim() {
+        assertThat(AuthenticatedPrincipal.parseRoles("[APPLICANT, FIND, SUPER_ADMIN]"))
+                .containsExactlyInAnyOrder("APPLICANT", "FIND", "SUPER_ADMIN");
+    }
+
+    @Test
+    void parseRoles_ReturnsEmptySet_ForEmptyOrMissingRoles() {
+        assertThat(AuthenticatedPrincipal.parseRoles("")).isEmpty();
+        assertThat(AuthenticatedPrincipal.parseRoles("[]")).isEmpty();
+        assertThat(AuthenticatedPrincipal.parseRoles(null)).isEmpty();
+    }
+
+    @Test
+    void hasRole_MatchesWholeRoleNames() {
+        final AuthenticatedPrincipal principal = principal("[ADMIN]", sub -> Optional.empty());
+
+        assertThat(principal.hasRole(RoleEnum.ADMIN)).isTrue();
+        assertThat(principal.hasRole(RoleEnum.SUPER_ADMIN)).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getUser_OnlyLooksUpUserOnce() {
+        final Function<String, Optional<User>> findUserBySub = mock(Function.class);
+        final User user = User.builder().sub("sub").build();
+        when(findUserBySub.apply("sub")).thenReturn(Optional.of(user));
+        final AuthenticatedPrincipal principal = principal("[FIND]", findUserBySub);
+
+        assertThat(principal.getUser()).contains(user);
+        assertThat(principal.getUser()).contains(user);
+
+        verify(findUserBySub, times(1)).apply("sub");
+    }
+
+    @Test
+    void fromRequest_ReturnsPrincipalStoredOnRequest() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        assertThat(AuthenticatedPrincipal.fromRequest(request)).isEmpty();
+
+        final AuthenticatedPrincipal principal = principal("[FIND]", sub -> Optional.empty());
+        request.setAttribute(AuthenticatedPrincipal.REQUEST_ATTRIBUTE, principal);
+
+        assertThat(AuthenticatedPrincipal.fromRequest(request)).contains(principal);
+    }
+
+    private static AuthenticatedPrincipal principal(final String roles,
+                                                    final Function<String, Optional<User>> findUserBySub) {
+        return new AuthenticatedPrincipal("token", mock(DecodedJWT.class),
+                JwtPayload.builder().sub("sub").roles(roles).build(), findUserBySub);
+    }
+}
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -58,12 +59,9 @@ class JwtTokenFilterTest {
 
         when(jwtProperties.getCookieName()).thenReturn("customJwt");
         when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("customJwt", "value")});
-        when(customJwtServiceImpl.isTokenValid("value")).thenReturn(true);
-        final DecodedJWT decodedJwt = mock(DecodedJWT.class);
-        final JwtPayload payload = mock(JwtPayload.class);
-        when(customJwtServiceImpl.decodedJwt("value")).thenReturn(decodedJwt);
-        when(customJwtServiceImpl.decodeTheTokenPayloadInAReadableFormat(decodedJwt)).thenReturn(payload);
-        when(payload.getRoles()).thenReturn("[ADMIN]");
+        final AuthenticatedPrincipal principal = principalWithRoles("[ADMIN]");
+        when(customJwtServiceImpl.createPrincipal("value")).thenReturn(principal);
+        when(customJwtServiceImpl.isTokenValid(principal)).thenReturn(true);
 
         try (MockedStatic<SecurityContextHolder> staticSecurityContextHolder = Mockito.mockStatic(SecurityContextHolder.class)) {
             staticSecurityContextHolder.when(SecurityContextHolder::getContext).thenReturn(securityContext);
@@ -72,6 +70,7 @@ class JwtTokenFilterTest {
 
             verify(chain, times(1)).doFilter(request, response);
             verify(securityContext, times(1)).setAuthentication(authentication);
+            verify(request).setAttribute(AuthenticatedPrincipal.REQUEST_ATTRIBUTE, principal);
         }
     }
 
@@ -164,13 +163,9 @@ class JwtTokenFilterTest {
 
         when(jwtProperties.getCookieName()).thenReturn("customJwt");
         when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("customJwt", "value")});
-        when(customJwtServiceImpl.isTokenValid("value")).thenReturn(false);
-
-        final DecodedJWT decodedJwt = mock(DecodedJWT.class);
-        final JwtPayload payload = mock(JwtPayload.class);
-        when(customJwtServiceImpl.decodedJwt("value")).thenReturn(decodedJwt);
-        when(customJwtServiceImpl.decodeTheTokenPayloadInAReadableFormat(decodedJwt)).thenReturn(payload);
-        when(payload.getRoles()).thenReturn("[USER]");
+        final AuthenticatedPrincipal principal = principalWithRoles("[USER]");
+        when(customJwtServiceImpl.createPrincipal("value")).thenReturn(principal);
+        when(customJwtServiceImpl.isTokenValid(principal)).thenReturn(false);
 
         try (MockedStatic<SecurityContextHolder> staticSecurityContextHolder = Mockito.mockStatic(SecurityContextHolder.class)) {
             staticSecurityContextHolder.when(SecurityContextHolder::getContext).thenReturn(securityContext);
@@ -178,6 +173,12 @@ class JwtTokenFilterTest {
             final UnauthorizedException error = assertThrows(UnauthorizedException.class, () -> jwtTokenFilter.doFilterInternal(request, response, chain));
             assertThat(error.getMessage()).isEqualTo("Token not valid");
             verify(securityContext, times(0)).setAuthentication(any());
+            verify(request, never()).setAttribute(any(), any());
         }
     }
+
+    private static AuthenticatedPrincipal principalWithRoles(final String roles) {
+        return new AuthenticatedPrincipal("value", mock(DecodedJWT.class),
+                JwtPayload.builder().sub("sub").roles(roles).build(), sub -> Optional.empty());
+    }
 }
@@ -5,16 +5,23 @@ import gov.cabinetoffice.gapuserservice.annotations.ServiceToServiceHeaderValida
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.springframework.web.method.HandlerMethod;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -36,8 +43,8 @@ class AuthorizationHeaderInterceptorTest {
     @Mock
     private HandlerMethod handlerMethod;
 
-    @InjectMocks
-    private AuthorizationHeaderInterceptor authorizationHeaderInterceptor;
+    private AuthorizationHeaderInterceptor authorizationHeaderInterceptor =
+            new AuthorizationHeaderInterceptor(EXPECTED_AUTHORIZATION_VALUE, PRIVATE_KEY);
 
     @Test
     void preHandleValidAuthorization() throws Exception {
@@ -86,6 +93,59 @@ class AuthorizationHeaderInterceptorTest {
         assertTrue(result);
     }
 
+    @Test
+    void preHandleRepeatedAuthorizationHeader() throws Exception {
+        when(handlerMethod.getMethod()).thenReturn(getClass().getMethod("annotatedTestMethod"));
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(ENCRYPTED_EXPECTED_AUTHORIZATION_VALUE);
+
+        assertTrue(authorizationHeaderInterceptor.preHandle(request, response, handlerMethod));
+        assertTrue(authorizationHeaderInterceptor.preHandle(request, response, handlerMethod));
+    }
+
+    @Test
+    void preHandleRepeatedInvalidAuthorizationHeader() throws Exception {
+        when(handlerMethod.getMethod()).thenReturn(getClass().getMethod("annotatedTestMethod"));
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn("invalidToken");
+
+        assertFalse(authorizationHeaderInterceptor.preHandle(request, response, handlerMethod));
+        assertFalse(authorizationHeaderInterceptor.preHandle(request, response, handlerMethod));
+        verify(response, times(2)).setStatus(HttpServletResponse.SC_FORBIDDEN);
+    }
+
+    @Test
+    void preHandleRejectsAllHeadersWhenPrivateKeyIsInvalid() throws Exception {
+        authorizationHeaderInterceptor = new AuthorizationHeaderInterceptor(EXPECTED_AUTHORIZATION_VALUE, "invalidKey");
+        when(handlerMethod.getMethod()).thenReturn(getClass().getMethod("annotatedTestMethod"));
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(ENCRYPTED_EXPECTED_AUTHORIZATION_VALUE);
+
+        boolean result = authorizationHeaderInterceptor.preHandle(request, response, handlerMethod);
+
+        verify(response).setStatus(HttpServletResponse.SC_FORBIDDEN);
+        assertFalse(result);
+    }
+
+    @Test
+    void preHandleDecryptsConcurrentlyWithoutCache() throws Exception {
+        // no cache, so every call decrypts with its thread's cipher
+        authorizationHeaderInterceptor = new AuthorizationHeaderInterceptor(EXPECTED_AUTHORIZATION_VALUE, PRIVATE_KEY,
+                Duration.ZERO, 0);
+        when(handlerMethod.getMethod()).thenReturn(getClass().getMethod("annotatedTestMethod"));
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(ENCRYPTED_EXPECTED_AUTHORIZATION_VALUE);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(executor.submit(() -> authorizationHeaderInterceptor.preHandle(request, response, handlerMethod)));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     // Test method to provide a valid HandlerMethod for testing
     @ServiceToServiceHeaderValidation
     public void annotatedTestMethod() {
@@ -1,7 +1,6 @@
 package gov.cabinetoffice.gapuserservice.service;
 
 import gov.cabinetoffice.gapuserservice.dto.DepartmentDto;
-import gov.cabinetoffice.gapuserservice.mappers.DepartmentMapper;
 import gov.cabinetoffice.gapuserservice.model.Department;
 import gov.cabinetoffice.gapuserservice.repository.DepartmentRepository;
 import org.junit.jupiter.api.Test;
@@ -24,23 +23,18 @@ class DepartmentServiceTest {
     private DepartmentRepository departmentRepository;
 
     @Mock
-    private DepartmentMapper departmentMapper;
+    private ReferenceDataRegistry referenceDataRegistry;
 
     @InjectMocks
     private DepartmentService departmentService;
 
     @Test
     void testGetAllDepartments() {
-        Department department1 = Department.builder().id(1).build();
-        Department department2 = Department.builder().id(2).build();
-        List<Department> departments = List.of(department1, department2);
         DepartmentDto departmentDto1 = DepartmentDto.builder().id(1).build();
         DepartmentDto departmentDto2 = DepartmentDto.builder().id(2).build();
         List<DepartmentDto> expectedDepartments = List.of(departmentDto1, departmentDto2);
 
-        when(departmentRepository.findAll()).thenReturn(departments);
-        when(departmentMapper.departmentToDepartmentDto(department1)).thenReturn(departmentDto1);
-        when(departmentMapper.departmentToDepartmentDto(department2)).thenReturn(departmentDto2);
+        when(referenceDataRegistry.getAllDepartments()).thenReturn(expectedDepartments);
 
         List<DepartmentDto> result = departmentService.getAllDepartments();
 
@@ -0,0 +1,156 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gov.cabinetoffice.gapuserservice.config.WebClientProperties;
+import gov.cabinetoffice.gapuserservice.dto.LatencyMetrics;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DownstreamWebClientsTest {
+
+    private static final Duration BLOCK_TIMEOUT = Duration.ofSeconds(5);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private final AtomicInteger flakyRequests = new AtomicInteger();
+
+    private DownstreamWebClients clientsUnderTest;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/users", exchange -> respond(exchange, "{}"));
+        server.createContext("/flaky", exchange -> {
+            // drop the first connection before responding, as a restarting admin-backend would
+            if (flakyRequests.incrementAndGet() == 1) {
+                exchange.close();
+                return;
+            }
+            respond(exchange, "{}");
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "{}");
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        clientsUnderTest = new DownstreamWebClients(WebClient.builder(), WebClientProperties.builder()
+                .adminBackend(WebClientProperties.Downstream.builder()
+                        .maxConnections(5)
+                        .retryBackoffMs(10)
+                        .build())
+                .find(WebClientProperties.Downstream.builder()
+                        .responseTimeoutMs(200)
+                        .maxRetries(0)
+                        .build())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        clientsUnderTest.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void get_ReturnsAPooledClientPerDownstream() {
+        call(DownstreamService.ADMIN_BACKEND, "/users");
+        call(DownstreamService.ADMIN_BACKEND, "/users");
+
+        final LatencyMetrics adminBackend = clientsUnderTest.getLatencyMetrics().get(DownstreamService.ADMIN_BACKEND);
+        assertThat(adminBackend.requests()).isEqualTo(2);
+        assertThat(adminBackend.failures()).isZero();
+        assertThat(clientsUnderTest.getLatencyMetrics().get(DownstreamService.FIND).requests()).isZero();
+
+        final Map<String, DownstreamWebClients.PoolMetrics> pools = clientsUnderTest.getPoolMetrics();
+        assertThat(pools).hasSize(1);
+        final Map.Entry<String, DownstreamWebClients.PoolMetrics> pool = pools.entrySet().iterator().next();
+        assertThat(pool.getKey()).startsWith("admin-backend");
+        assertThat(pool.getValue().acquired()).isZero();
+        assertThat(pool.getValue().maxConnections()).isEqualTo(5);
+    }
+
+    @Test
+    void getBlockTimeout_ReturnsConfiguredTimeout() {
+        assertThat(clientsUnderTest.getBlockTimeout(DownstreamService.FIND)).isEqualTo(Duration.ofSeconds(15));
+    }
+
+    @Test
+    void idempotentRequests_AreRetried_WhenConnectionDropsBeforeAResponse() {
+        clientsUnderTest.get(DownstreamService.ADMIN_BACKEND)
+                .delete()
+                .uri(baseUrl + "/flaky")
+                .retrieve()
+                .bodyToMono(Void.class)
+                .block(BLOCK_TIMEOUT);
+
+        assertThat(flakyRequests.get()).isEqualTo(2);
+        assertThat(clientsUnderTest.getLatencyMetrics().get(DownstreamService.ADMIN_BACKEND).failures()).isEqualTo(1);
+    }
+
+    @Test
+    void nonIdempotentRequests_AreNotRetried() {
+        final WebClient.RequestHeadersSpec<?> request = clientsUnderTest.get(DownstreamService.ADMIN_BACKEND)
+                .patch()
+                .uri(baseUrl + "/flaky")
+                .bodyValue("{}");
+
+        assertThrows(WebClientRequestException.class, () -> request.retrieve().bodyToMono(Void.class).block(BLOCK_TIMEOUT));
+        assertThat(flakyRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void requests_FailFast_WhenResponseTimeoutIsExceeded() {
+        final long startNanos = System.nanoTime();
+
+        assertThrows(WebClientRequestException.class, () -> call(DownstreamService.FIND, "/slow"));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isLessThan(Duration.ofMillis(900));
+        assertThat(clientsUnderTest.getLatencyMetrics().get(DownstreamService.FIND).failures()).isEqualTo(1);
+    }
+
+    private void call(final DownstreamService downstream, final String path) {
+        clientsUnderTest.get(downstream)
+                .get()
+                .uri(baseUrl + path)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .block(BLOCK_TIMEOUT);
+    }
+
+    private static void respond(final HttpExchange exchange, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gov.cabinetoffice.gapuserservice.config.HttpClientProperties;
+import gov.cabinetoffice.gapuserservice.dto.LatencyMetrics;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
+import org.apache.http.pool.PoolStats;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpClientServiceTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+    private final Map<String, String> lastRequestHeaders = new ConcurrentHashMap<>();
+
+    private HttpClientService serviceUnderTest;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/token", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            lastRequestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            recordHeader(exchange, "Content-Type");
+            respond(exchange, "{\"access_token\":\"an-access-token\",\"expires_in\":180}");
+        });
+        server.createContext("/userinfo", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            recordHeader(exchange, "Authorization");
+            respond(exchange, "{\"sub\":\"a-sub\",\"email\":\"test.user@email.com\"}");
+        });
+        server.createContext("/not-json", exchange -> respond(exchange, "<html>Bad Gateway</html>"));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "{}");
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        serviceUnderTest = new HttpClientService(HttpClientProperties.builder()
+                .oneLogin(new HttpClientProperties.Timeouts(1000, 2000))
+                .spotlight(new HttpClientProperties.Timeouts(1000, 200))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        serviceUnderTest.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void postRequestWithBody_SendsBodyAndParsesJsonResponse() throws IOException {
+        final JSONObject response = serviceUnderTest.postRequestWithBody(HttpUpstream.ONE_LOGIN, baseUrl + "/token",
+                "grant_type=authorization_code", "application/x-www-form-urlencoded");
+
+        assertThat(response.getString("access_token")).isEqualTo("an-access-token");
+        assertThat(response.getInt("expires_in")).isEqualTo(180);
+        assertThat(lastRequestBody.get()).isEqualTo("grant_type=authorization_code");
+        assertThat(lastRequestHeaders).containsEntry("Content-Type", "application/x-www-form-urlencoded");
+    }
+
+    @Test
+    void getRequestWithHeaders_SendsHeadersAndParsesJsonResponse() throws IOException {
+        final JSONObject response = serviceUnderTest.getRequestWithHeaders(HttpUpstream.ONE_LOGIN,
+                baseUrl + "/userinfo", Map.of("Authorization", "Bearer accessToken"));
+
+        assertThat(response.getString("email")).isEqualTo("test.user@email.com");
+        assertThat(lastRequestHeaders).containsEntry("Authorization", "Bearer accessToken");
+    }
+
+    @Test
+    void getRequest_PassesTheResponseToTheHandler() throws IOException {
+        final int status = serviceUnderTest.getRequest(HttpUpstream.ONE_LOGIN, baseUrl + "/userinfo",
+                response -> response.getStatusLine().getStatusCode());
+
+        assertThat(status).isEqualTo(200);
+        assertThat(serviceUnderTest.getLatencyMetrics().get(HttpUpstream.ONE_LOGIN).requests()).isEqualTo(1);
+        assertThat(serviceUnderTest.getPoolMetrics().get(baseUrl).getLeased()).isZero();
+    }
+
+    @Test
+    void requests_ReuseTheSameKeepAliveConnection() throws IOException {
+        serviceUnderTest.postRequestWithBody(HttpUpstream.ONE_LOGIN, baseUrl + "/token", "code=1",
+                "application/x-www-form-urlencoded");
+        serviceUnderTest.getRequestWithHeaders(HttpUpstream.ONE_LOGIN, baseUrl + "/userinfo", Map.of());
+        serviceUnderTest.postRequestWithBody(HttpUpstream.ONE_LOGIN, baseUrl + "/token", "code=2",
+                "application/x-www-form-urlencoded");
+
+        assertThat(new HashSet<>(clientPorts)).hasSize(1);
+        final PoolStats poolStats = serviceUnderTest.getPoolMetrics().get(baseUrl);
+        assertThat(poolStats.getLeased()).isZero();
+        assertThat(poolStats.getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void requests_TimeOutUsingTheUpstreamReadTimeout() {
+        assertThrows(SocketTimeoutException.class, () -> serviceUnderTest.getRequestWithHeaders(HttpUpstream.SPOTLIGHT,
+                baseUrl + "/slow", Map.of()));
+
+        assertThat(serviceUnderTest.getLatencyMetrics().get(HttpUpstream.SPOTLIGHT).failures()).isEqualTo(1);
+    }
+
+    @Test
+    void requests_ThrowJsonException_WhenResponseIsNotJson() {
+        assertThrows(JSONException.class, () -> serviceUnderTest.getRequestWithHeaders(HttpUpstream.ONE_LOGIN,
+                baseUrl + "/not-json", Map.of()));
+    }
+
+    @Test
+    void getLatencyMetrics_RecordsRequestsPerUpstream() throws IOException {
+        serviceUnderTest.postRequestWithBody(HttpUpstream.ONE_LOGIN, baseUrl + "/token", "code=1",
+                "application/x-www-form-urlencoded");
+        serviceUnderTest.getRequestWithHeaders(HttpUpstream.ONE_LOGIN, baseUrl + "/userinfo", Map.of());
+
+        final LatencyMetrics oneLogin = serviceUnderTest.getLatencyMetrics().get(HttpUpstream.ONE_LOGIN);
+        assertThat(oneLogin.requests()).isEqualTo(2);
+        assertThat(oneLogin.failures()).isZero();
+        assertThat(oneLogin.maxLatency()).isGreaterThanOrEqualTo(oneLogin.meanLatency());
+        assertThat(serviceUnderTest.getLatencyMetrics().get(HttpUpstream.SPOTLIGHT).requests()).isZero();
+    }
+
+    private void recordHeader(final HttpExchange exchange, final String name) {
+        final String value = exchange.getRequestHeaders().getFirst(name);
+        if (value != null) {
+            lastRequestHeaders.put(name, value);
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.exceptions.PrivateKeyParsingException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OneLoginClientAssertionFactoryTest {
+
+    private static final String DUMMY_CLIENT_ID = "asdhjlsadfbfds";
+    private static final String DUMMY_BASE_URL = "https://test.url.gov";
+    private static final Instant NOW = Instant.parse("2023-06-23T12:00:00.00z");
+
+    private KeyPair keyPair;
+    private OneLoginClientAssertionFactory factoryUnderTest;
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        keyPair = generateKeyPair();
+        factoryUnderTest = new OneLoginClientAssertionFactory(encode(keyPair), DUMMY_CLIENT_ID, DUMMY_BASE_URL,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void createAssertion_ReturnsSignedClientAssertion() {
+        final Claims claims = getClaims(factoryUnderTest.createAssertion(), keyPair.getPublic());
+
+        assertThat(claims.getAudience()).isEqualTo(DUMMY_BASE_URL + "/token");
+        assertThat(claims.getIssuer()).isEqualTo(DUMMY_CLIENT_ID);
+        assertThat(claims.getSubject()).isEqualTo(DUMMY_CLIENT_ID);
+        assertThat(claims.get("iat", Long.class)).isEqualTo(NOW.toEpochMilli());
+        assertThat(claims.get("exp", Long.class)).isEqualTo(NOW.toEpochMilli() + 300000L);
+        assertThat(claims.getId()).isNotBlank();
+    }
+
+    @Test
+    void createAssertion_UsesUniqueJti() {
+        final String firstJti = getClaims(factoryUnderTest.createAssertion(), keyPair.getPublic()).getId();
+        final String secondJti = getClaims(factoryUnderTest.createAssertion(), keyPair.getPublic()).getId();
+
+        assertThat(firstJti).isNotEqualTo(secondJti);
+    }
+
+    @Test
+    void createAssertion_ThrowsPrivateKeyParsingException_WhenKeyIsInvalid() {
+        final OneLoginClientAssertionFactory factory = new OneLoginClientAssertionFactory("invalidKey", DUMMY_CLIENT_ID,
+                DUMMY_BASE_URL, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThrows(PrivateKeyParsingException.class, factory::createAssertion);
+    }
+
+    private Claims getClaims(final String jwt, final PublicKey publicKey) {
+        return Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(jwt).getBody();
+    }
+
+    private static KeyPair generateKeyPair() throws GeneralSecurityException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private static String encode(final KeyPair keyPair) {
+        return Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+    }
+}
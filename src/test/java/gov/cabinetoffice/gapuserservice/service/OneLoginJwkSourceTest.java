@@ -0,0 +1,213 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import gov.cabinetoffice.gapuserservice.config.HttpClientProperties;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OneLoginJwkSourceTest {
+
+    // the same stub the local WireMock stand-in serves for GET /.well-known/jwks.json
+    private static final Path MOCK_ONE_LOGIN = Path.of("mockOneLogin", "wiremock");
+    private static final String JWKS_MAPPING = "770d3e32-d098-4169-a20c-554c3b123460.json";
+    private static final String MOCK_KEY_ID = "mock-onelogin-signing-key";
+
+    private static final Instant NOW = Instant.parse("2023-06-23T12:00:00.00z");
+
+    @Mock
+    private Clock clock;
+
+    private HttpServer server;
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private final AtomicReference<String> jwksBody = new AtomicReference<>();
+    private final AtomicReference<String> cacheControl = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    private HttpClientService httpClientService;
+    private OneLoginJwkSource sourceUnderTest;
+
+    @BeforeEach
+    void setup() throws IOException {
+        final JsonNode mapping = new ObjectMapper().readTree(MOCK_ONE_LOGIN.resolve("mappings").resolve(JWKS_MAPPING).toFile());
+        final JsonNode response = mapping.get("response");
+        jwksBody.set(Files.readString(MOCK_ONE_LOGIN.resolve("__files").resolve(response.get("bodyFileName").asText())));
+        cacheControl.set(response.get("headers").get("Cache-Control").asText());
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(mapping.get("request").get("url").asText(), exchange -> {
+            jwksRequests.incrementAndGet();
+            final byte[] body = jwksBody.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (cacheControl.get() != null) {
+                exchange.getResponseHeaders().add("Cache-Control", cacheControl.get());
+            }
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.start();
+
+        lenient().when(clock.instant()).thenReturn(NOW);
+        httpClientService = new HttpClientService(HttpClientProperties.builder().build());
+        sourceUnderTest = new OneLoginJwkSource("http://localhost:" + server.getAddress().getPort(), httpClientService,
+                300, 30, clock);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        httpClientService.close();
+    }
+
+    @Test
+    void refreshIfDue_LoadsKeysFromMockOneLogin() {
+        sourceUnderTest.refreshIfDue();
+
+        final OneLoginJwkSource.VerificationKey key = sourceUnderTest.getKey(MOCK_KEY_ID).orElseThrow();
+        assertThat(key.algorithm()).isEqualTo(JWSAlgorithm.ES256);
+        assertThat(sourceUnderTest.getLastFetchLatency()).isPresent();
+        assertThat(sourceUnderTest.getStaleness()).contains(Duration.ZERO);
+        assertThat(jwksRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshIfDue_FetchesOverTheSharedOneLoginPool() {
+        sourceUnderTest.refreshIfDue();
+
+        assertThat(httpClientService.getLatencyMetrics().get(HttpUpstream.ONE_LOGIN).requests()).isEqualTo(1);
+        assertThat(httpClientService.getPoolMetrics().get("http://localhost:" + server.getAddress().getPort())
+                .getLeased()).isZero();
+    }
+
+    @Test
+    void refreshIfDue_HonoursCacheControlMaxAge() {
+        sourceUnderTest.refreshIfDue();
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(50)));
+        sourceUnderTest.refreshIfDue();
+        assertThat(jwksRequests.get()).isEqualTo(1);
+
+        // mock max-age is an hour, refreshed a tenth ahead of expiry
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(54)));
+        sourceUnderTest.refreshIfDue();
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void refreshIfDue_UsesDefaultTtl_WhenNoCacheControlHeader() {
+        cacheControl.set(null);
+        sourceUnderTest.refreshIfDue();
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(271)));
+        sourceUnderTest.refreshIfDue();
+
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void refreshIfDue_KeepsPreviousKeys_WhenOneLoginIsDown() {
+        sourceUnderTest.refreshIfDue();
+        status.set(503);
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(2)));
+        sourceUnderTest.refreshIfDue();
+
+        assertThat(jwksRequests.get()).isEqualTo(2);
+        assertThat(sourceUnderTest.getKey(MOCK_KEY_ID)).isPresent();
+        assertThat(sourceUnderTest.getStaleness()).contains(Duration.ofHours(2));
+    }
+
+    @Test
+    void getKey_RefreshesOnce_WhenKeyIsRotated() throws Exception {
+        sourceUnderTest.refreshIfDue();
+        final ECKey rotatedKey = new ECKeyGenerator(Curve.P_256).keyID("rotated-key").algorithm(JWSAlgorithm.ES256).generate();
+        jwksBody.set(new JWKSet(rotatedKey.toPublicJWK()).toString());
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+
+        final OneLoginJwkSource.VerificationKey key = sourceUnderTest.getKey("rotated-key").orElseThrow();
+        sourceUnderTest.getKey("another-unknown-key");
+
+        assertThat(sign(rotatedKey).verify(key.verifier())).isTrue();
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void getKey_DoesNotRefresh_WhenKeyIdIsUnknownRightAfterALoad() {
+        sourceUnderTest.refreshIfDue();
+
+        assertThat(sourceUnderTest.getKey("unknown-key")).isEmpty();
+        assertThat(jwksRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void getKey_SharesOneFetch_BetweenConcurrentCallersWithUnknownKeyId() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final Future<?>[] results = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                results[i] = executor.submit(() -> {
+                    start.await();
+                    return sourceUnderTest.getKey(MOCK_KEY_ID);
+                });
+            }
+            start.countDown();
+            for (final Future<?> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isNotEqualTo(Optional.empty());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jwksRequests.get()).isEqualTo(1);
+    }
+
+    private SignedJWT sign(final ECKey key) throws Exception {
+        final SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder().subject("urn:fdc:gov.uk:2022:a-sub").build());
+        jwt.sign(new ECDSASigner(key));
+        return jwt;
+    }
+}
@@ -1,36 +1,38 @@
 package gov.cabinetoffice.gapuserservice.service;
 
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import gov.cabinetoffice.gapuserservice.dto.IdTokenDto;
 import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
 import gov.cabinetoffice.gapuserservice.dto.OneLoginUserInfoDto;
 import gov.cabinetoffice.gapuserservice.dto.StateCookieDto;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
 import gov.cabinetoffice.gapuserservice.exceptions.*;
 import gov.cabinetoffice.gapuserservice.model.*;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
 import gov.cabinetoffice.gapuserservice.util.LoggingUtils;
-import gov.cabinetoffice.gapuserservice.util.RestUtils;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.http.HttpHeaders;
-import org.apache.http.HttpResponse;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
-import java.security.*;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -38,7 +40,6 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
-import static io.jsonwebtoken.impl.crypto.RsaProvider.generateKeyPair;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -60,9 +61,14 @@ class OneLoginServiceTest {
     @Mock
     private OneLoginUserService oneLoginUserService;
 
-    private static MockedStatic<RestUtils> mockedStatic;
+    @Mock
+    private OneLoginJwkSource oneLoginJwkSource;
+
+    @Mock
+    private OneLoginClientAssertionFactory clientAssertionFactory;
 
-    private Map<String, String> testKeyPair;
+    @Mock
+    private HttpClientService httpClientService;
 
     private static final String DUMMY_CLIENT_ID = "asdhjlsadfbfds";
 
@@ -72,9 +78,6 @@ class OneLoginServiceTest {
 
     @BeforeEach
     void setUp() {
-        mockedStatic = mockStatic(RestUtils.class);
-        testKeyPair = generateTestKeys();
-        ReflectionTestUtils.setField(oneLoginService, "privateKey", testKeyPair.get("private"));
         ReflectionTestUtils.setField(oneLoginService, "oneLoginBaseUrl", DUMMY_BASE_URL);
         ReflectionTestUtils.setField(oneLoginService, "clientAssertionType", "assertion_type");
         ReflectionTestUtils.setField(oneLoginService, "clientId", DUMMY_CLIENT_ID);
@@ -82,35 +85,16 @@ class OneLoginServiceTest {
         ReflectionTestUtils.setField(oneLoginService, "mfaEnabled", true);
     }
 
-    @AfterEach
-    public void close() {
-        mockedStatic.close();
-    }
-
 
     @Test
-    void shouldReturnValidJwtToken() throws NoSuchAlgorithmException, InvalidKeySpecException {
-        String result = oneLoginService.createOneLoginJwt();
+    void shouldCreateJwtWithClientAssertionFactory() {
+        when(clientAssertionFactory.createAssertion()).thenReturn("clientAssertion");
 
-        Claims claims = getClaims(result);
-
-        Assertions.assertEquals(DUMMY_BASE_URL + "/token", claims.getAudience());
-        Assertions.assertEquals(DUMMY_CLIENT_ID, claims.getIssuer());
-        Assertions.assertEquals(DUMMY_CLIENT_ID, claims.getSubject());
-        Assertions.assertNotNull(claims.getExpiration());
-        Assertions.assertNotNull(claims.get("exp"));
-        Assertions.assertNotNull(claims.get("jti"));
-        Assertions.assertNotNull(claims.get("iat"));
-    }
-
-    @Test
-    void shouldThrowPrivateKeyParsingExceptionWhenKeyIsInvalid() {
-        ReflectionTestUtils.setField(oneLoginService, "privateKey", "invalidKey");
+        String result = oneLoginService.createOneLoginJwt();
 
-        assertThrows(PrivateKeyParsingException.class, () -> oneLoginService.createOneLoginJwt());
+        assertEquals("clientAssertion", result);
     }
 
-
     @Test
     void shouldReturnValidAuthToken() throws IOException, JSONException {
         String requestBody = "grant_type=" + GRANT_TYPE +
@@ -122,7 +106,7 @@ class OneLoginServiceTest {
         JSONObject expected = new JSONObject("{\"access_token\":\"dummyToken\"" +
                 ",\"token_type\":\"Bearer\",\"expires_in\":180}");
 
-        when(RestUtils.postRequestWithBody(DUMMY_BASE_URL + "/token",
+        when(httpClientService.postRequestWithBody(HttpUpstream.ONE_LOGIN, DUMMY_BASE_URL + "/token",
                 requestBody, "application/x-www-form-urlencoded"))
                 .thenReturn(expected);
 
@@ -143,7 +127,7 @@ class OneLoginServiceTest {
         Map<String, String> headers = new HashMap<>();
         headers.put(HttpHeaders.AUTHORIZATION, "Bearer " + "accessToken");
 
-        when(RestUtils.getRequestWithHeaders(DUMMY_BASE_URL + "/userinfo", headers))
+        when(httpClientService.getRequestWithHeaders(HttpUpstream.ONE_LOGIN, DUMMY_BASE_URL + "/userinfo", headers))
                 .thenReturn(new JSONObject(jsonResponse));
 
         OneLoginUserInfoDto result = oneLoginService.getUserInfo("accessToken");
@@ -156,7 +140,7 @@ class OneLoginServiceTest {
         Map<String, String> headers = new HashMap<>();
         headers.put(HttpHeaders.AUTHORIZATION, "Bearer " + "accessToken");
 
-        when(RestUtils.getRequestWithHeaders(DUMMY_BASE_URL + "/userinfo", headers))
+        when(httpClientService.getRequestWithHeaders(HttpUpstream.ONE_LOGIN, DUMMY_BASE_URL + "/userinfo", headers))
                 .thenThrow(new IOException());
 
 
@@ -176,7 +160,7 @@ class OneLoginServiceTest {
                 "&client_assertion_type=" + "assertion_type" +
                 "&client_assertion=" + "dummyJwt";
 
-        when(RestUtils.postRequestWithBody(DUMMY_BASE_URL + "/token",
+        when(httpClientService.postRequestWithBody(HttpUpstream.ONE_LOGIN, DUMMY_BASE_URL + "/token",
                 requestBody, "application/x-www-form-urlencoded"))
                 .thenReturn(new JSONObject(expectedResponse));
 
@@ -196,7 +180,7 @@ class OneLoginServiceTest {
                 "&client_assertion_type=" + "assertion_type" +
                 "&client_assertion=" + "dummyJwt";
 
-        when(RestUtils.postRequestWithBody(DUMMY_BASE_URL + "/token",
+        when(httpClientService.postRequestWithBody(HttpUpstream.ONE_LOGIN, DUMMY_BASE_URL + "/token",
                 requestBody, "application/x-www-form-urlencoded"))
                 .thenThrow(new IOException());
 
@@ -271,14 +255,12 @@ class OneLoginServiceTest {
     void testLogoutUser() throws IOException, JSONException {
         String tokenValue = "token.in.threeParts";
         HttpServletResponse response = mock(HttpServletResponse.class);
-        HttpResponse httpResponse = mock(HttpResponse.class);
         DecodedJWT decodedJWT = mock(DecodedJWT.class);
         JwtPayload payload = new JwtPayload();
         payload.setIdToken(tokenValue);
 
         when(customJwtService.decodedJwt(tokenValue)).thenReturn(decodedJWT);
         when(customJwtService.decodeTheTokenPayloadInAReadableFormat(decodedJWT)).thenReturn(payload);
-        when(RestUtils.getRequest(any())).thenReturn(httpResponse);
         Cookie customJWTCookie = new Cookie("customJWT", tokenValue);
 
         oneLoginService.logoutUser(customJWTCookie, response);
@@ -452,33 +434,63 @@ class OneLoginServiceTest {
         }
     }
 
-    private Claims getClaims(String jwtToken) throws NoSuchAlgorithmException, InvalidKeySpecException {
+    @Nested
+    class ValidateAuthTokenSignatureAndAlgorithmTest {
 
-        byte[] publicKeyBytes = Base64.getDecoder().decode(testKeyPair.get("public"));
-        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(publicKeyBytes));
+        private ECKey signingKey;
 
-        return Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(jwtToken).getBody();
+        @BeforeEach
+        void setUp() throws Exception {
+            signingKey = new ECKeyGenerator(Curve.P_256).keyID("a-key-id").generate();
+        }
 
-    }
+        @Test
+        void acceptsTokenSignedWithCachedKey() throws Exception {
+            when(oneLoginJwkSource.getKey("a-key-id")).thenReturn(Optional.of(
+                    new OneLoginJwkSource.VerificationKey(JWSAlgorithm.ES256, new ECDSAVerifier(signingKey.toECPublicKey()))));
 
-    private Map<String, String> generateTestKeys() {
-        KeyPair keyPair = generateKeyPair();
+            assertDoesNotThrow(() -> oneLoginService.validateAuthTokenSignatureAndAlgorithm(signedToken(signingKey)));
+        }
 
-        Map<String, String> keyPairMap = new HashMap<>();
+        @Test
+        void rejectsTokenSignedWithAnotherKey() throws Exception {
+            final ECKey otherKey = new ECKeyGenerator(Curve.P_256).keyID("a-key-id").generate();
+            when(oneLoginJwkSource.getKey("a-key-id")).thenReturn(Optional.of(
+                    new OneLoginJwkSource.VerificationKey(JWSAlgorithm.ES256, new ECDSAVerifier(otherKey.toECPublicKey()))));
+            final String token = signedToken(signingKey);
+
+            final UnauthorizedClientException exception = assertThrows(UnauthorizedClientException.class,
+                    () -> oneLoginService.validateAuthTokenSignatureAndAlgorithm(token));
+            assertThat(exception.getMessage()).isEqualTo("Invalid signature in ID token");
+        }
 
-        // Get the private key
-        PrivateKey privateKey = keyPair.getPrivate();
-        byte[] privateKeyBytes = privateKey.getEncoded();
-        String privateKeyString = Base64.getEncoder().encodeToString(privateKeyBytes);
-        keyPairMap.put("private", privateKeyString);
+        @Test
+        void rejectsTokenWhoseAlgorithmDoesNotMatchKey() throws Exception {
+            when(oneLoginJwkSource.getKey("a-key-id")).thenReturn(Optional.of(
+                    new OneLoginJwkSource.VerificationKey(JWSAlgorithm.ES384, new ECDSAVerifier(signingKey.toECPublicKey()))));
+            final String token = signedToken(signingKey);
+
+            final UnauthorizedClientException exception = assertThrows(UnauthorizedClientException.class,
+                    () -> oneLoginService.validateAuthTokenSignatureAndAlgorithm(token));
+            assertThat(exception.getMessage()).isEqualTo("Invalid alg property in ID token header");
+        }
+
+        @Test
+        void rejectsTokenWithUnknownKeyId() throws Exception {
+            when(oneLoginJwkSource.getKey("a-key-id")).thenReturn(Optional.empty());
+            final String token = signedToken(signingKey);
 
-        // Get the public key
-        PublicKey publicKey = keyPair.getPublic();
-        byte[] publicKeyBytes = publicKey.getEncoded();
-        String publicKeyString = Base64.getEncoder().encodeToString(publicKeyBytes);
-        keyPairMap.put("public", publicKeyString);
+            final UnauthorizedClientException exception = assertThrows(UnauthorizedClientException.class,
+                    () -> oneLoginService.validateAuthTokenSignatureAndAlgorithm(token));
+            assertThat(exception.getMessage()).isEqualTo("Matching JWK not found for key ID: a-key-id");
+        }
 
-        return keyPairMap;
+        private String signedToken(final ECKey key) throws Exception {
+            final SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(),
+                    new JWTClaimsSet.Builder().subject("urn:fdc:gov.uk:2022:a-sub").build());
+            jwt.sign(new ECDSASigner(key));
+            return jwt.serialize();
+        }
     }
 
 }
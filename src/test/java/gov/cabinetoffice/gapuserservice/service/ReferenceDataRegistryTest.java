@@ -0,0 +1,144 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.dto.DepartmentDto;
+import gov.cabinetoffice.gapuserservice.dto.RoleDto;
+import gov.cabinetoffice.gapuserservice.mappers.DepartmentMapper;
+import gov.cabinetoffice.gapuserservice.mappers.RoleMapper;
+import gov.cabinetoffice.gapuserservice.model.Department;
+import gov.cabinetoffice.gapuserservice.model.Role;
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import gov.cabinetoffice.gapuserservice.repository.DepartmentRepository;
+import gov.cabinetoffice.gapuserservice.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataRegistryTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private DepartmentRepository departmentRepository;
+
+    @Mock
+    private RoleMapper roleMapper;
+
+    @Mock
+    private DepartmentMapper departmentMapper;
+
+    @Mock
+    private Clock clock;
+
+    private ReferenceDataRegistry referenceDataRegistry;
+
+    private final Role applicant = Role.builder().id(1).name(RoleEnum.APPLICANT).label("Applicant").build();
+    private final Role admin = Role.builder().id(3).name(RoleEnum.ADMIN).label("Administrator").build();
+
+    @BeforeEach
+    void setup() {
+        referenceDataRegistry = new ReferenceDataRegistry(roleRepository, departmentRepository, roleMapper,
+                departmentMapper, clock, 300);
+    }
+
+    @Test
+    void getRole_LooksUpRolesByNameAndId_FromASingleLoad() {
+        when(roleRepository.findAll()).thenReturn(List.of(applicant, admin));
+
+        assertThat(referenceDataRegistry.getRole(RoleEnum.ADMIN)).hasValueSatisfying(role -> {
+            assertThat(role.getId()).isEqualTo(3);
+            assertThat(role.getLabel()).isEqualTo("Administrator");
+        });
+        assertThat(referenceDataRegistry.getRole(1)).hasValueSatisfying(role ->
+                assertThat(role.getName()).isEqualTo(RoleEnum.APPLICANT));
+        assertThat(referenceDataRegistry.getRole(RoleEnum.SUPER_ADMIN)).isEmpty();
+        assertThat(referenceDataRegistry.getRole(99)).isEmpty();
+        verify(roleRepository, times(1)).findAll();
+    }
+
+    @Test
+    void getRole_ReturnsANewCopyEachTime() {
+        when(roleRepository.findAll()).thenReturn(List.of(applicant));
+
+        final Role first = referenceDataRegistry.getRole(RoleEnum.APPLICANT).orElseThrow();
+        first.setLabel("changed");
+
+        assertThat(referenceDataRegistry.getRole(RoleEnum.APPLICANT).orElseThrow())
+                .isNotSameAs(first)
+                .extracting(Role::getLabel)
+                .isEqualTo("Applicant");
+    }
+
+    @Test
+    void getAllRoles_MapsRolesOnce() {
+        final RoleDto applicantDto = RoleDto.builder().id(1).name("APPLICANT").build();
+        when(roleRepository.findAll()).thenReturn(List.of(applicant));
+        when(roleMapper.roleToRoleDto(any(Role.class))).thenReturn(applicantDto);
+
+        referenceDataRegistry.getAllRoles();
+
+        assertThat(referenceDataRegistry.getAllRoles()).containsExactly(applicantDto);
+        verify(roleMapper, times(1)).roleToRoleDto(any(Role.class));
+    }
+
+    @Test
+    void getDepartment_IsReloaded_OnlyAfterInvalidation() {
+        final Department department = Department.builder().id(1).name("Cabinet Office").build();
+        final DepartmentDto departmentDto = DepartmentDto.builder().id(1).name("Cabinet Office").build();
+        when(clock.instant()).thenReturn(NOW);
+        when(departmentRepository.findAll()).thenReturn(List.of(department));
+        when(departmentMapper.departmentToDepartmentDto(department)).thenReturn(departmentDto);
+
+        assertThat(referenceDataRegistry.getDepartment(1)).contains(departmentDto);
+        assertThat(referenceDataRegistry.getAllDepartments()).containsExactly(departmentDto);
+        verify(departmentRepository, times(1)).findAll();
+
+        referenceDataRegistry.invalidateDepartments();
+        assertThat(referenceDataRegistry.getDepartment(2)).isEmpty();
+        verify(departmentRepository, times(2)).findAll();
+    }
+
+    @Test
+    void getAllDepartments_IsReloaded_AfterMaxAge() {
+        final AtomicReference<Instant> now = new AtomicReference<>(NOW);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+        when(departmentRepository.findAll()).thenReturn(List.of());
+
+        referenceDataRegistry.getAllDepartments();
+        now.set(NOW.plusSeconds(299));
+        referenceDataRegistry.getAllDepartments();
+        verify(departmentRepository, times(1)).findAll();
+
+        now.set(NOW.plusSeconds(301));
+        referenceDataRegistry.getAllDepartments();
+        verify(departmentRepository, times(2)).findAll();
+    }
+
+    @Test
+    void warm_LoadsRolesAndDepartments() {
+        when(clock.instant()).thenReturn(NOW);
+        when(roleRepository.findAll()).thenReturn(List.of(applicant));
+        when(departmentRepository.findAll()).thenReturn(List.of());
+
+        referenceDataRegistry.warm();
+        referenceDataRegistry.getRole(RoleEnum.APPLICANT);
+        referenceDataRegistry.getAllDepartments();
+
+        verify(roleRepository, times(1)).findAll();
+        verify(departmentRepository, times(1)).findAll();
+    }
+}
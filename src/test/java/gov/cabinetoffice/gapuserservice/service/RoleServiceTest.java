@@ -1,10 +1,6 @@
 package gov.cabinetoffice.gapuserservice.service;
 
 import gov.cabinetoffice.gapuserservice.dto.RoleDto;
-import gov.cabinetoffice.gapuserservice.mappers.RoleMapper;
-import gov.cabinetoffice.gapuserservice.model.Role;
-import gov.cabinetoffice.gapuserservice.model.RoleEnum;
-import gov.cabinetoffice.gapuserservice.repository.RoleRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -21,22 +17,15 @@ class RoleServiceTest {
     @InjectMocks
     private RoleService roleService;
     @Mock
-    private RoleRepository roleRepository;
-    @Mock
-    RoleMapper roleMapper;
+    private ReferenceDataRegistry referenceDataRegistry;
 
     @Test
     void getAllRoles() {
-        Role role1 = Role.builder().id(1).name(RoleEnum.FIND).description("a desc").build();
-        Role role2 = Role.builder().id(2).name(RoleEnum.APPLICANT).description("a desc2").build();
-        List<Role> mockRoles = List.of(role1, role2);
         RoleDto roleDto1 = RoleDto.builder().id(1).name("FIND").description("a desc").build();
         RoleDto roleDto2 = RoleDto.builder().id(2).name("APPLICANT").description("a desc2").build();
         List<RoleDto> expectedRoleDtos = List.of(roleDto1, roleDto2);
 
-        when(roleRepository.findAll()).thenReturn(mockRoles);
-        when(roleMapper.roleToRoleDto(role1)).thenReturn(roleDto1);
-        when(roleMapper.roleToRoleDto(role2)).thenReturn(roleDto2);
+        when(referenceDataRegistry.getAllRoles()).thenReturn(expectedRoleDtos);
 
         List<RoleDto> actualRoleDtos = roleService.getAllRoles();
 
@@ -0,0 +1,85 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import gov.cabinetoffice.gapuserservice.config.ServiceToServiceConfigProperties;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ServiceToServiceCredentialsTest {
+
+    private static KeyPair keyPair;
+
+    @BeforeAll
+    static void generateKeyPair() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @Test
+    void getAuthorizationHeader_ReturnsTheSecretEncryptedForTheDownstream() throws Exception {
+        final ServiceToServiceCredentials credentials = new ServiceToServiceCredentials(
+                ServiceToServiceConfigProperties.builder()
+                        .adminBackend(downstream("admin-backend-secret",
+                                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())))
+                        .build());
+
+        final String header = credentials.getAuthorizationHeader(DownstreamService.ADMIN_BACKEND).orElseThrow();
+
+        final Cipher cipher = Cipher.getInstance("RSA");
+        cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
+        assertThat(new String(cipher.doFinal(Base64.getDecoder().decode(header)), StandardCharsets.UTF_8))
+                .isEqualTo("admin-backend-secret");
+    }
+
+    @Test
+    void getAuthorizationHeader_ReturnsEmpty_WhenDownstreamHasNoCredentials() {
+        final ServiceToServiceCredentials credentials = new ServiceToServiceCredentials(
+                ServiceToServiceConfigProperties.builder().build());
+
+        assertThat(credentials.getAuthorizationHeader(DownstreamService.FIND)).isEmpty();
+    }
+
+    @Test
+    void getAuthorizationHeader_ReturnsEmpty_WhenDownstreamCredentialsAreBlank() {
+        final ServiceToServiceCredentials credentials = new ServiceToServiceCredentials(
+                ServiceToServiceConfigProperties.builder().find(downstream("", "")).build());
+
+        assertThat(credentials.getAuthorizationHeader(DownstreamService.FIND)).isEmpty();
+    }
+
+    @Test
+    void constructor_FailsStartup_WhenPublicKeyIsInvalid() {
+        final ServiceToServiceConfigProperties properties = ServiceToServiceConfigProperties.builder()
+                .find(downstream("find-secret", "findServiceToServicePublicKey"))
+                .build();
+
+        assertThatThrownBy(() -> new ServiceToServiceCredentials(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Unable to build service-to-service credentials for FIND");
+    }
+
+    @Test
+    void constructor_FailsStartup_WhenOnlyTheSecretIsConfigured() {
+        final ServiceToServiceConfigProperties properties = ServiceToServiceConfigProperties.builder()
+                .adminBackend(downstream("admin-backend-secret", null))
+                .build();
+
+        assertThatThrownBy(() -> new ServiceToServiceCredentials(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Service-to-service credentials for ADMIN_BACKEND need both a secret and a public key");
+    }
+
+    private static ServiceToServiceConfigProperties.Downstream downstream(final String secret, final String publicKey) {
+        return ServiceToServiceConfigProperties.Downstream.builder().secret(secret).publicKey(publicKey).build();
+    }
+}
@@ -1,15 +1,13 @@
 package gov.cabinetoffice.gapuserservice.service;
 
 import gov.cabinetoffice.gapuserservice.config.SpotlightConfig;
+import gov.cabinetoffice.gapuserservice.enums.HttpUpstream;
 import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
 import gov.cabinetoffice.gapuserservice.exceptions.SpotlightInvalidStateException;
 import gov.cabinetoffice.gapuserservice.model.SpotlightOAuthState;
 import gov.cabinetoffice.gapuserservice.repository.SpotlightOAuthAuditRepository;
 import gov.cabinetoffice.gapuserservice.repository.SpotlightOAuthStateRepository;
-import gov.cabinetoffice.gapuserservice.util.RestUtils;
-import org.apache.http.impl.client.HttpClients;
 import org.json.JSONObject;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -49,17 +47,14 @@ class SpotlightServiceTest {
     @Mock
     private SecureRandom secureRandom;
 
-    private static MockedStatic<HttpClients> httpClientsMockedStatic;
-    private static MockedStatic<RestUtils> restUtilsMockedStatic;
+    @Mock
+    private HttpClientService httpClientService;
 
     @Captor
     private ArgumentCaptor<UpdateSecretRequest> argumentCaptor;
 
     @BeforeEach
     public void before() {
-        httpClientsMockedStatic = mockStatic(HttpClients.class);
-        restUtilsMockedStatic = mockStatic(RestUtils.class);
-
         MockitoAnnotations.openMocks(this);
         spotlightConfig = SpotlightConfig.builder()
                 .spotlightUrl("https://spotlight.com")
@@ -72,16 +67,11 @@ class SpotlightServiceTest {
                 spotlightOAuthAuditRepository,
                 spotlightOAuthStateRepository,
                 secureRandom,
-                secretsManagerClient
+                secretsManagerClient,
+                httpClientService
         );
     }
 
-    @AfterEach
-    public void close() {
-        httpClientsMockedStatic.close();
-        restUtilsMockedStatic.close();
-    }
-
     @Test
     void getAuthorizeUrlTest() throws Exception {
         when(spotlightOAuthStateRepository.findFirstBy())
@@ -110,7 +100,7 @@ class SpotlightServiceTest {
         String expectedRefreshTokenSecret = "{\"secret_string\":\"1234\",\"refresh_token\":\"5678\"}";
         String expectedResponse = "{\"access_token\":\"1234\", \"refresh_token\":\"5678\"}";
 
-        when(RestUtils.postRequestWithBody(anyString(), anyString(), anyString()))
+        when(httpClientService.postRequestWithBody(eq(HttpUpstream.SPOTLIGHT), anyString(), anyString(), anyString()))
                 .thenReturn(new JSONObject(expectedResponse));
 
         when(secretsManagerClient.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(getSecretValueResponse);
@@ -138,7 +128,7 @@ class SpotlightServiceTest {
 
         String secretJson = "{\"secret_string\":\"1234\"}";
 
-        when(RestUtils.postRequestWithBody(anyString(), anyString(), anyString()))
+        when(httpClientService.postRequestWithBody(eq(HttpUpstream.SPOTLIGHT), anyString(), anyString(), anyString()))
                 .thenThrow(new IOException());
 
         when(secretsManagerClient.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(getSecretValueResponse);
@@ -177,7 +167,7 @@ class SpotlightServiceTest {
         String expectedAccessTokenSecret = "{\"refresh_token\":\"5678\",\"access_token\":\"1234\"}";
         String expectedResponse = "{\"access_token\":\"1234\"}";
 
-        when(RestUtils.postRequestWithBody(anyString(), anyString(), anyString()))
+        when(httpClientService.postRequestWithBody(eq(HttpUpstream.SPOTLIGHT), anyString(), anyString(), anyString()))
                 .thenReturn(new JSONObject(expectedResponse));
 
         when(secretsManagerClient.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(getSecretValueResponse);
@@ -196,7 +186,7 @@ class SpotlightServiceTest {
 
         String secretJson = "{\"refresh_token\":\"5678\"}";
 
-        when(RestUtils.postRequestWithBody(anyString(), anyString(), anyString()))
+        when(httpClientService.postRequestWithBody(eq(HttpUpstream.SPOTLIGHT), anyString(), anyString(), anyString()))
                 .thenThrow(new IOException());
 
         when(secretsManagerClient.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(getSecretValueResponse);
@@ -0,0 +1,319 @@
+package gov.cabinetoffice.gapuserservice.service;
+
+import com.sun.net.httpserver.HttpServer;
+import gov.cabinetoffice.gapuserservice.config.WebClientProperties;
+import gov.cabinetoffice.gapuserservice.dto.UpdateFundingOrgDto;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
+import gov.cabinetoffice.gapuserservice.enums.OutboxEventStatus;
+import gov.cabinetoffice.gapuserservice.enums.UserChangeEventType;
+import gov.cabinetoffice.gapuserservice.model.UserChangeOutboxEvent;
+import gov.cabinetoffice.gapuserservice.repository.UserChangeOutboxRepository;
+import gov.cabinetoffice.gapuserservice.service.encryption.AwsEncryptionServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangeOutboxServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+    private static final String JWT = "jwt";
+    private static final byte[] ENCRYPTED_JWT = "encrypted-jwt".getBytes(StandardCharsets.UTF_8);
+    private static final String ADMIN_BACKEND_AUTHORIZATION = "admin-backend-credentials";
+    private static final String FIND_AUTHORIZATION = "find-credentials";
+
+    @Mock
+    private UserChangeOutboxRepository outboxRepository;
+
+    @Mock
+    private ServiceToServiceCredentials serviceToServiceCredentials;
+
+    @Mock
+    private AwsEncryptionServiceImpl awsEncryptionService;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService relayExecutor;
+    private DownstreamWebClients downstreamWebClients;
+    private final Queue<String> receivedRequests = new ConcurrentLinkedQueue<>();
+    private String baseUrl;
+
+    private UserChangeOutboxService serviceUnderTest;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // responds with the status code at the end of the path, e.g. /admin/status/503
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            final String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            receivedRequests.add(exchange.getRequestMethod() + " " + path + " "
+                    + exchange.getRequestHeaders().getFirst("Authorization") + " " + body);
+            exchange.sendResponseHeaders(Integer.parseInt(path.substring(path.lastIndexOf('/') + 1)), -1);
+            exchange.close();
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        downstreamWebClients = new DownstreamWebClients(WebClient.builder(), WebClientProperties.builder()
+                .adminBackend(WebClientProperties.Downstream.builder().maxRetries(0).build())
+                .find(WebClientProperties.Downstream.builder().maxRetries(0).build())
+                .build());
+        relayExecutor = Executors.newFixedThreadPool(2);
+        lenient().when(awsEncryptionService.encryptField(JWT)).thenReturn(ENCRYPTED_JWT);
+        lenient().when(awsEncryptionService.decryptField(ENCRYPTED_JWT)).thenReturn(JWT);
+        serviceUnderTest = createService(false);
+    }
+
+    private UserChangeOutboxService createService(final boolean serviceToServiceAuth) {
+        final UserChangeOutboxService serviceUnderTest = new UserChangeOutboxService(outboxRepository,
+                downstreamWebClients, serviceToServiceCredentials, awsEncryptionService, serviceToServiceAuth,
+                relayExecutor, Clock.fixed(NOW, ZoneOffset.UTC));
+        ReflectionTestUtils.setField(serviceUnderTest, "adminBackend", baseUrl + "/admin");
+        ReflectionTestUtils.setField(serviceUnderTest, "findFrontend", baseUrl + "/find");
+        ReflectionTestUtils.setField(serviceUnderTest, "batchSize", 50);
+        ReflectionTestUtils.setField(serviceUnderTest, "maxAttempts", 3);
+        ReflectionTestUtils.setField(serviceUnderTest, "retryBackoffMs", 1000L);
+        ReflectionTestUtils.setField(serviceUnderTest, "maxRetryBackoffMs", 60000L);
+        return serviceUnderTest;
+    }
+
+    @AfterEach
+    void tearDown() {
+        downstreamWebClients.close();
+        relayExecutor.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void record_SavesAPendingEvent_DueNow_WithTheEncryptedToken() {
+        when(outboxRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final UserChangeOutboxEvent event = serviceUnderTest.record(1,
+                UserChangeEventType.UPDATE_APPLY_FUNDING_ORGANISATION, "/users/funding-organisation",
+                new UpdateFundingOrgDto("sub", "email@test.com", "Cabinet Office"), JWT);
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.PENDING);
+        assertThat(event.getUserId()).isEqualTo(1);
+        assertThat(event.getAttempts()).isZero();
+        assertThat(event.getNextAttemptAt()).isEqualTo(NOW);
+        assertThat(event.getEncryptedAuthToken()).isEqualTo(ENCRYPTED_JWT);
+        assertThat(event.getPayload())
+                .contains("\"sub\":\"sub\"")
+                .contains("\"departmentName\":\"Cabinet Office\"");
+    }
+
+    @Test
+    void deliver_MarksEventDelivered_AndClearsToken_WhenDownstreamSucceeds() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.UPDATE_APPLY_FUNDING_ORGANISATION,
+                "/status/200", "{\"sub\":\"sub\"}");
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(receivedRequests).containsExactly("PATCH /admin/status/200 Bearer jwt {\"sub\":\"sub\"}");
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.DELIVERED);
+        assertThat(event.getDeliveredAt()).isEqualTo(NOW);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getEncryptedAuthToken()).isNull();
+        verify(outboxRepository).save(event);
+    }
+
+    @Test
+    void deliver_SendsFindEventsToFind() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.DELETE_FIND_USER, "/status/200", null);
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(receivedRequests).containsExactly("DELETE /find/status/200 Bearer jwt ");
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.DELIVERED);
+    }
+
+    @Test
+    void deliver_MarksEventDelivered_WhenStatusIsIgnoredForItsType() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.DELETE_APPLY_USER, "/status/404", null);
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.DELIVERED);
+        assertThat(event.getEncryptedAuthToken()).isNull();
+    }
+
+    @Test
+    void deliver_DeadLettersEvent_AndClearsToken_OnClientError() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.ADD_APPLY_TECH_SUPPORT_USER,
+                "/status/400", "{}");
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.DEAD_LETTER);
+        assertThat(event.getLastError()).isEqualTo("HTTP 400");
+        assertThat(event.getEncryptedAuthToken()).isNull();
+        verify(outboxRepository).save(event);
+    }
+
+    @Test
+    void deliver_DeadLettersEvent_WhenTheSuperAdminsTokenIsRejected_EvenIfItsTypeIgnoresClientErrors() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.REMOVE_APPLY_ADMIN_USER, "/status/401", null);
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.DEAD_LETTER);
+        assertThat(event.getLastError()).isEqualTo("HTTP 401: the super admin's token was rejected");
+        verify(serviceToServiceCredentials, never()).getAuthorizationHeader(any());
+    }
+
+    @Test
+    void deliver_SchedulesRetry_OnServerError() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.DELETE_APPLY_USER, "/status/503", null);
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).isEqualTo("HTTP 503");
+        assertThat(event.getNextAttemptAt()).isBetween(NOW, NOW.plusMillis(1000));
+        verify(outboxRepository).save(event);
+    }
+
+    @Test
+    void deliver_DeadLettersEvent_WhenAttemptsAreExhausted() {
+        final UserChangeOutboxEvent event = event(UserChangeEventType.DELETE_APPLY_USER, "/status/503", null);
+        event.setAttempts(2);
+
+        serviceUnderTest.deliver(event);
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.DEAD_LETTER);
+        assertThat(event.getAttempts()).isEqualTo(3);
+    }
+
+    @Test
+    void relayPendingEvents_DeliversEveryEventInTheBatch() {
+        final UserChangeOutboxEvent first = event(UserChangeEventType.DELETE_FIND_USER, "/status/200", null);
+        final UserChangeOutboxEvent second = event(UserChangeEventType.DELETE_APPLY_USER, "/status/204", null);
+        when(outboxRepository.findDeliverableBatch(NOW, 50)).thenReturn(List.of(first, second));
+
+        final int relayed = serviceUnderTest.relayPendingEvents();
+
+        assertThat(relayed).isEqualTo(2);
+        assertThat(receivedRequests).hasSize(2);
+        final ArgumentCaptor<UserChangeOutboxEvent> saved = ArgumentCaptor.forClass(UserChangeOutboxEvent.class);
+        verify(outboxRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues())
+                .extracting(UserChangeOutboxEvent::getStatus)
+                .containsOnly(OutboxEventStatus.DELIVERED);
+    }
+
+    @Test
+    void relayPendingEvents_DoesNothing_WhenNoEventsAreDue() {
+        when(outboxRepository.findDeliverableBatch(NOW, 50)).thenReturn(List.of());
+
+        assertThat(serviceUnderTest.relayPendingEvents()).isZero();
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    void deleteDeliveredEvents_DeletesEventsOlderThanRetention() {
+        when(outboxRepository.deleteDeliveredBefore(NOW.minus(Duration.ofDays(7)))).thenReturn(3);
+
+        assertThat(serviceUnderTest.deleteDeliveredEvents(Duration.ofDays(7))).isEqualTo(3);
+    }
+
+    @Nested
+    class WithServiceToServiceAuth {
+
+        @BeforeEach
+        void setup() {
+            lenient().when(serviceToServiceCredentials.getAuthorizationHeader(DownstreamService.ADMIN_BACKEND))
+                    .thenReturn(Optional.of(ADMIN_BACKEND_AUTHORIZATION));
+            lenient().when(serviceToServiceCredentials.getAuthorizationHeader(DownstreamService.FIND))
+                    .thenReturn(Optional.of(FIND_AUTHORIZATION));
+            serviceUnderTest = createService(true);
+        }
+
+        @Test
+        void record_DoesNotStoreTheToken() {
+            when(outboxRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            final UserChangeOutboxEvent event = serviceUnderTest.record(1, UserChangeEventType.DELETE_FIND_USER,
+                    "/api/user/delete?sub=sub", null, JWT);
+
+            assertThat(event.getEncryptedAuthToken()).isNull();
+            verifyNoInteractions(awsEncryptionService);
+        }
+
+        @Test
+        void deliver_SendsTheDownstreamsCredentials() {
+            serviceUnderTest.deliver(event(UserChangeEventType.UPDATE_APPLY_FUNDING_ORGANISATION, "/status/200",
+                    "{}"));
+            serviceUnderTest.deliver(event(UserChangeEventType.DELETE_FIND_USER, "/status/200", null));
+
+            assertThat(receivedRequests).containsExactly("PATCH /admin/status/200 admin-backend-credentials {}",
+                    "DELETE /find/status/200 find-credentials ");
+        }
+
+        @Test
+        void deliver_SchedulesRetry_WhenDownstreamRejectsTheCredentials() {
+            final UserChangeOutboxEvent event = event(UserChangeEventType.REMOVE_APPLY_ADMIN_USER, "/status/401",
+                    null);
+
+            serviceUnderTest.deliver(event);
+
+            assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.PENDING);
+            assertThat(event.getLastError()).isEqualTo("HTTP 401");
+            assertThat(event.getNextAttemptAt()).isBetween(NOW, NOW.plusMillis(1000));
+        }
+
+        @Test
+        void constructor_FailsStartup_WhenADownstreamHasNoCredentials() {
+            when(serviceToServiceCredentials.getAuthorizationHeader(DownstreamService.FIND))
+                    .thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> createService(true))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("No service-to-service credentials configured for FIND");
+        }
+    }
+
+    private static UserChangeOutboxEvent event(final UserChangeEventType eventType, final String path,
+                                               final String payload) {
+        return UserChangeOutboxEvent.builder()
+                .id(1L)
+                .userId(1)
+                .eventType(eventType)
+                .path(path)
+                .payload(payload)
+                .encryptedAuthToken(ENCRYPTED_JWT)
+                .nextAttemptAt(NOW)
+                .created(NOW)
+                .build();
+    }
+}
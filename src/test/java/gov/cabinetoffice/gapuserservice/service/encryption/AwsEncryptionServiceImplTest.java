@@ -0,0 +1,103 @@
+package gov.cabinetoffice.gapuserservice.service.encryption;
+
+import com.amazonaws.encryptionsdk.ParsedCiphertext;
+import com.amazonaws.encryptionsdk.jce.JceMasterKey;
+import gov.cabinetoffice.gapuserservice.config.AwsEncryptionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AwsEncryptionServiceImplTest {
+
+    // a local AES key stands in for the KMS key; caching and batching behave the same either way
+    private final JceMasterKey masterKey = JceMasterKey.getInstance(
+            new SecretKeySpec(randomBytes(32), "AES"), "test", "test-key", "AES/GCM/NoPadding");
+
+    private ExecutorService encryptionExecutor;
+
+    @BeforeEach
+    void setup() {
+        encryptionExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        encryptionExecutor.shutdownNow();
+    }
+
+    @Test
+    void encryptField_RoundTrips() {
+        final AwsEncryptionServiceImpl service = service(AwsEncryptionProperties.builder().build());
+
+        assertThat(service.decryptField(service.encryptField("test@email.com"))).isEqualTo("test@email.com");
+    }
+
+    @Test
+    void encryptFields_ReturnsCiphertextsInOrder_WhenSplitIntoChunks() {
+        final AwsEncryptionServiceImpl service = service(AwsEncryptionProperties.builder()
+                .batchChunkSize(7)
+                .build());
+        final List<String> emails = IntStream.range(0, 50).mapToObj(i -> "user" + i + "@email.com").toList();
+
+        final List<byte[]> encrypted = service.encryptFields(emails);
+
+        assertThat(encrypted.stream().map(service::decryptField).toList()).isEqualTo(emails);
+    }
+
+    @Test
+    void encryptFields_ReusesTheCachedDataKey() {
+        final AwsEncryptionServiceImpl service = service(AwsEncryptionProperties.builder()
+                .batchChunkSize(10)
+                .build());
+
+        final List<byte[]> encrypted = service.encryptFields(
+                IntStream.range(0, 100).mapToObj(i -> "user" + i + "@email.com").toList());
+
+        assertThat(distinctDataKeys(encrypted)).isEqualTo(1);
+    }
+
+    @Test
+    void encryptFields_GeneratesANewDataKey_WhenMessageLimitIsReached() {
+        final AwsEncryptionServiceImpl service = service(AwsEncryptionProperties.builder()
+                .dataKeyMaxMessages(10)
+                .build());
+
+        final List<byte[]> encrypted = service.encryptFields(
+                IntStream.range(0, 30).mapToObj(i -> "user" + i + "@email.com").toList());
+
+        assertThat(distinctDataKeys(encrypted)).isEqualTo(3);
+    }
+
+    @Test
+    void encryptFields_ReturnsEmptyList_WhenNoFields() {
+        assertThat(service(AwsEncryptionProperties.builder().build()).encryptFields(List.of())).isEmpty();
+    }
+
+    private AwsEncryptionServiceImpl service(final AwsEncryptionProperties properties) {
+        return new AwsEncryptionServiceImpl(masterKey, "test", "eu-west-2", properties, encryptionExecutor);
+    }
+
+    private static long distinctDataKeys(final List<byte[]> ciphertexts) {
+        final Set<String> dataKeys = new HashSet<>();
+        ciphertexts.forEach(ciphertext -> dataKeys.add(new String(
+                new ParsedCiphertext(ciphertext).getEncryptedKeyBlobs().get(0).getEncryptedDataKey())));
+        return dataKeys.size();
+    }
+
+    private static byte[] randomBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+}
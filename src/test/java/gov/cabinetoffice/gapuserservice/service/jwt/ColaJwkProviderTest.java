@@ -0,0 +1,223 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwk.UrlJwkProvider;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.sun.net.httpserver.HttpServer;
+import gov.cabinetoffice.gapuserservice.config.BeanConfig;
+import gov.cabinetoffice.gapuserservice.config.ThirdPartyAuthProviderProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ColaJwkProviderTest {
+
+    private static final Instant NOW = Instant.parse("2022-12-25T12:00:00.00z");
+
+    @Mock
+    private UrlJwkProvider urlJwkProvider;
+
+    @Mock
+    private Clock clock;
+
+    private ColaJwkProvider providerUnderTest;
+
+    private KeyPair keyPair;
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        keyPair = keyPairGenerator.generateKeyPair();
+        lenient().when(clock.instant()).thenReturn(NOW);
+        providerUnderTest = new ColaJwkProvider(urlJwkProvider, 30, clock);
+    }
+
+    @Nested
+    class WithKeysLoaded {
+
+        @BeforeEach
+        void loadKeys() throws Exception {
+            final List<Jwk> jwks = List.of(jwk("signingKey"));
+            when(urlJwkProvider.getAll()).thenReturn(jwks);
+            providerUnderTest.refreshKeys();
+        }
+
+        @Test
+        void getAlgorithm_ReturnsAlgorithmThatVerifiesTokensSignedWithTheKey() {
+            final String token = JWT.create()
+                    .withKeyId("signingKey")
+                    .sign(Algorithm.RSA256(null, (RSAPrivateKey) keyPair.getPrivate()));
+
+            final Algorithm algorithm = providerUnderTest.getAlgorithm("signingKey").orElseThrow();
+
+            algorithm.verify(JWT.decode(token));
+        }
+
+        @Test
+        void getAlgorithm_ReusesTheSameAlgorithmInstance() {
+            assertThat(providerUnderTest.getAlgorithm("signingKey"))
+                    .containsSame(providerUnderTest.getAlgorithm("signingKey").orElseThrow());
+        }
+
+        @Test
+        void getAlgorithm_DoesNotRefresh_WhenKeyIdIsUnknownRightAfterALoad() throws Exception {
+            assertThat(providerUnderTest.getAlgorithm("unknownKey")).isEmpty();
+
+            verify(urlJwkProvider, times(1)).getAll();
+        }
+
+        @Test
+        void getAlgorithm_RefreshesOnce_WhenKeyIdIsUnknown() throws Exception {
+            when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+            final List<Jwk> rotatedJwks = List.of(jwk("signingKey"), jwk("rotatedKey"));
+            when(urlJwkProvider.getAll()).thenReturn(rotatedJwks);
+
+            assertThat(providerUnderTest.getAlgorithm("rotatedKey")).isPresent();
+            providerUnderTest.getAlgorithm("anotherUnknownKey");
+
+            verify(urlJwkProvider, times(2)).getAll();
+        }
+
+        @Test
+        void refreshKeys_KeepsPreviousKeys_WhenJwksEndpointFails() throws Exception {
+            when(urlJwkProvider.getAll()).thenThrow(new SigningKeyNotFoundException("timed out", null));
+
+            providerUnderTest.refreshKeys();
+
+            assertThat(providerUnderTest.getAlgorithm("signingKey")).isPresent();
+        }
+
+        @Test
+        void refreshKeys_KeepsPreviousKeys_WhenJwksIsEmpty() throws Exception {
+            when(urlJwkProvider.getAll()).thenReturn(List.of());
+
+            providerUnderTest.refreshKeys();
+
+            assertThat(providerUnderTest.getAlgorithm("signingKey")).isPresent();
+        }
+    }
+
+    @Nested
+    class AgainstAJwksEndpoint {
+
+        private static final int TIMEOUT_MS = 200;
+
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private HttpServer server;
+
+        @BeforeEach
+        void startServer() throws Exception {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/.well-known/jwks.json", exchange -> {
+                if (stalled.get()) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                final byte[] body = jwksJson("signingKey").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(body);
+                } catch (IOException e) {
+                    // the client has already timed out and gone away
+                }
+            });
+            server.start();
+
+            final ThirdPartyAuthProviderProperties properties = ThirdPartyAuthProviderProperties.builder()
+                    .domain("http://localhost:" + server.getAddress().getPort())
+                    .build();
+            providerUnderTest = new ColaJwkProvider(new BeanConfig(properties).getJwkProvide(TIMEOUT_MS, TIMEOUT_MS),
+                    30, clock);
+        }
+
+        @AfterEach
+        void stopServer() {
+            release.countDown();
+            server.stop(0);
+        }
+
+        @Test
+        void refreshKeys_TimesOutAndKeepsPreviousKeys_WhenJwksEndpointStalls() {
+            providerUnderTest.refreshKeys();
+            assertThat(providerUnderTest.getAlgorithm("signingKey")).isPresent();
+            stalled.set(true);
+
+            final long start = System.nanoTime();
+            providerUnderTest.refreshKeys();
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(providerUnderTest.getAlgorithm("signingKey")).isPresent();
+        }
+
+        private String jwksJson(final String keyId) {
+            final RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+            return "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + keyId + "\",\"alg\":\"RS256\",\"use\":\"sig\","
+                    + "\"n\":\"" + base64Url(publicKey.getModulus()) + "\",\"e\":\"" + base64Url(publicKey.getPublicExponent()) + "\"}]}";
+        }
+
+        private static String base64Url(final BigInteger value) {
+            final byte[] bytes = value.toByteArray();
+            // JWK integers are unsigned, so drop the sign byte BigInteger adds to keep them positive
+            final byte[] unsigned = bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+        }
+    }
+
+    @Test
+    void getAlgorithm_LoadsKeys_WhenNoneHaveBeenLoaded() throws Exception {
+        final List<Jwk> jwks = List.of(jwk("signingKey"));
+        when(urlJwkProvider.getAll()).thenReturn(jwks);
+
+        assertThat(providerUnderTest.getAlgorithm("signingKey")).isPresent();
+    }
+
+    @Test
+    void getAlgorithm_ReturnsEmpty_ForMissingKeyId() {
+        assertThat(providerUnderTest.getAlgorithm(null)).isEmpty();
+
+        verifyNoInteractions(urlJwkProvider);
+    }
+
+    private Jwk jwk(final String keyId) throws Exception {
+        final Jwk jwk = mock(Jwk.class);
+        lenient().when(jwk.getId()).thenReturn(keyId);
+        lenient().when(jwk.getPublicKey()).thenReturn((RSAPublicKey) keyPair.getPublic());
+        return jwk;
+    }
+}
@@ -4,9 +4,6 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
-import com.auth0.jwk.Jwk;
-import com.auth0.jwk.JwkException;
-import com.auth0.jwk.JwkProvider;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTDecodeException;
@@ -29,15 +26,14 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
 import java.nio.charset.StandardCharsets;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 import static com.auth0.jwt.JWT.decode;
-import static com.auth0.jwt.algorithms.Algorithm.RSA256;
 import static java.time.Instant.now;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -48,15 +44,14 @@ import static org.mockito.Mockito.*;
 class ColaJwtServiceImplTest {
 
     @Mock
-    private JwkProvider jwkProvider;
+    private ColaJwkProvider colaJwkProvider;
 
     @Mock
-    private Mac mac;
+    private HmacSha256Verifier sha256HmacVerifier;
 
     private ColaJwtServiceImpl serviceUnderTest;
 
     private final String VALID_COLA_SIGNATURE = "colaSignature";
-    private final String INVALID_COLA_SIGNATURE = "invalidColaSignature";
 
     @BeforeEach
     void setup() {
@@ -71,7 +66,7 @@ class ColaJwtServiceImplTest {
                 .secretCookieKey("secretCookieKey")
                 .build();
 
-        serviceUnderTest = new ColaJwtServiceImpl(thirdPartyAuthProviderProperties, jwkProvider, mac);
+        serviceUnderTest = new ColaJwtServiceImpl(thirdPartyAuthProviderProperties, colaJwkProvider, sha256HmacVerifier);
     }
 
     private String generateJwt(final JwtBuilder jwtBuilder) {
@@ -79,30 +74,24 @@ class ColaJwtServiceImplTest {
     }
 
     @Test
-    void verifyToken_expiredToken() throws JwkException {
+    void verifyToken_expiredToken() {
         final Date expiresAt = Date.from(now().minus(1, ChronoUnit.DAYS));
         final String jwt = generateJwt(Jwts.builder()
                 .setExpiration(expiresAt));
 
-        when(mac.doFinal(any())).thenReturn(VALID_COLA_SIGNATURE.getBytes());
-        final Jwk jwk = mock(Jwk.class);
-        when(jwkProvider.get(anyString())).thenReturn(jwk);
-        when(jwk.getPublicKey()).thenReturn(null);
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(true);
+        final Algorithm algorithm = mock(Algorithm.class);
+        when(colaJwkProvider.getAlgorithm("signingKey")).thenReturn(Optional.of(algorithm));
 
         try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
-            try (MockedStatic<Algorithm> staticAlgorithm = Mockito.mockStatic(Algorithm.class)) {
-                final Algorithm algorithm = mock(Algorithm.class);
-                staticAlgorithm.when(() -> RSA256(any(), eq(null))).thenReturn(algorithm);
+            final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder().keyId("signingKey").expiresAt(expiresAt).build());
 
-                final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder().keyId("signingKey").expiresAt(expiresAt).build());
+            staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
 
-                staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
+            final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
 
-                final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
-
-                verify(testDecodedJwt, times(1)).getExpiresAt();
-                assertThat(methodResponse).isFalse();
-            }
+            verify(testDecodedJwt, times(1)).getExpiresAt();
+            assertThat(methodResponse).isFalse();
         }
     }
 
@@ -124,29 +113,23 @@ class ColaJwtServiceImplTest {
 
     @ParameterizedTest
     @MethodSource("provideDecodedJwtArgs")
-    void verifyToken_ThrowErrorWhenNotExpectedIssuerOrAudience(final DecodedJWT decodedJWT) throws JwkException {
+    void verifyToken_ThrowErrorWhenNotExpectedIssuerOrAudience(final DecodedJWT decodedJWT) {
         final Date expiresAt = Date.from(now().plus(1, ChronoUnit.DAYS));
         final String jwt = generateJwt(Jwts.builder()
                 .setExpiration(expiresAt));
 
-        when(mac.doFinal(any())).thenReturn(VALID_COLA_SIGNATURE.getBytes());
-        final Jwk jwk = mock(Jwk.class);
-        when(jwkProvider.get(anyString())).thenReturn(jwk);
-        when(jwk.getPublicKey()).thenReturn(null);
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(true);
+        final Algorithm algorithm = mock(Algorithm.class);
+        when(colaJwkProvider.getAlgorithm("signingKey")).thenReturn(Optional.of(algorithm));
 
         try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
-            try (MockedStatic<Algorithm> staticAlgorithm = Mockito.mockStatic(Algorithm.class)) {
-                final Algorithm algorithm = mock(Algorithm.class);
-                staticAlgorithm.when(() -> RSA256(any(), eq(null))).thenReturn(algorithm);
-
-                final DecodedJWT testDecodedJwt = Mockito.spy(decodedJWT);
+            final DecodedJWT testDecodedJwt = Mockito.spy(decodedJWT);
 
-                staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
+            staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
 
-                final JwkNotValidTokenException response = assertThrows(JwkNotValidTokenException.class,
-                        () -> serviceUnderTest.isTokenValid(jwt));
-                assertThat(response.getMessage()).isEqualTo("Third party token is not valid");
-            }
+            final JwkNotValidTokenException response = assertThrows(JwkNotValidTokenException.class,
+                    () -> serviceUnderTest.isTokenValid(jwt));
+            assertThat(response.getMessage()).isEqualTo("Third party token is not valid");
         }
     }
 
@@ -160,11 +143,12 @@ class ColaJwtServiceImplTest {
         final JwtBuilder jwtBuilder = Jwts.builder().setExpiration(Date.from(now()));
         final String jwt = generateJwt(jwtBuilder);
 
-        when(mac.doFinal(any())).thenReturn(INVALID_COLA_SIGNATURE.getBytes());
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(false);
 
         final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
 
-        verify(mac, times(1)).doFinal(jwtBuilder.compact().getBytes(StandardCharsets.UTF_8));
+        verify(sha256HmacVerifier, times(1)).verify(jwtBuilder.compact().getBytes(StandardCharsets.UTF_8),
+                VALID_COLA_SIGNATURE.getBytes(StandardCharsets.UTF_8));
         assertThat(methodResponse).isFalse();
         assertEquals("COLAs JWT signature is invalid", logsList.get(0)
                 .getMessage());
@@ -179,7 +163,7 @@ class ColaJwtServiceImplTest {
         final String jwt = generateJwt(Jwts.builder()
                 .setExpiration(expiresAt));
 
-        when(mac.doFinal(any())).thenReturn(VALID_COLA_SIGNATURE.getBytes());
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(true);
 
         try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
             staticJwt.when(() -> decode(any())).thenThrow(JWTDecodeException.class);
@@ -190,65 +174,72 @@ class ColaJwtServiceImplTest {
     }
 
     @Test
-    void verifyToken_ReturnsFalse_IfJwtSignatureIsInvalid() throws JwkException {
+    void verifyToken_ReturnsFalse_IfJwtSignatureIsInvalid() {
         final Date expiresAt = Date.from(now().minus(1, ChronoUnit.DAYS));
         final String jwt = generateJwt(Jwts.builder()
                 .setExpiration(expiresAt));
 
-        when(mac.doFinal(any())).thenReturn(VALID_COLA_SIGNATURE.getBytes());
-        final Jwk jwk = mock(Jwk.class);
-
-        when(jwkProvider.get(anyString())).thenReturn(jwk);
-        when(jwk.getPublicKey()).thenReturn(null);
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(true);
+        final Algorithm algorithm = mock(Algorithm.class);
+        when(colaJwkProvider.getAlgorithm("signingKey")).thenReturn(Optional.of(algorithm));
 
         try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
-            try (MockedStatic<Algorithm> staticAlgorithm = Mockito.mockStatic(Algorithm.class)) {
-                final Algorithm algorithm = mock(Algorithm.class);
-                staticAlgorithm.when(() -> RSA256(any(), eq(null))).thenReturn(algorithm);
+            final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder().keyId("signingKey").expiresAt(expiresAt).build());
+            staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
+
+            doThrow(SignatureVerificationException.class).when(algorithm).verify(testDecodedJwt);
+
+            final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
+
+            verify(algorithm).verify(testDecodedJwt);
+            assertThat(methodResponse).isFalse();
+        }
+    }
+
+    @Test
+    void verifyToken_ReturnsFalse_IfNoJwkMatchesKeyId() {
+        final Date expiresAt = Date.from(now().plus(1, ChronoUnit.DAYS));
+        final String jwt = generateJwt(Jwts.builder()
+                .setExpiration(expiresAt));
 
-                final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder().keyId("signingKey").expiresAt(expiresAt).build());
-                staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(true);
+        when(colaJwkProvider.getAlgorithm("unknownKey")).thenReturn(Optional.empty());
 
-                doThrow(SignatureVerificationException.class).when(algorithm).verify(testDecodedJwt);
+        try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
+            final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder().keyId("unknownKey").expiresAt(expiresAt).build());
+            staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
 
-                final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
+            final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
 
-                verify(algorithm).verify(testDecodedJwt);
-                assertThat(methodResponse).isFalse();
-            }
+            assertThat(methodResponse).isFalse();
+            verify(testDecodedJwt, never()).getExpiresAt();
         }
     }
 
     @Test
-    void verifyToken_ReturnsTrue_IfTokenIsValid() throws JwkException {
+    void verifyToken_ReturnsTrue_IfTokenIsValid() {
         final Date expiresAt = Date.from(now().plus(1, ChronoUnit.DAYS));
         final String jwt = generateJwt(Jwts.builder()
                 .setIssuer("domain")
                 .setExpiration(expiresAt));
 
-        when(mac.doFinal(any())).thenReturn(VALID_COLA_SIGNATURE.getBytes());
-        final Jwk jwk = mock(Jwk.class);
-        when(jwkProvider.get(anyString())).thenReturn(jwk);
-        when(jwk.getPublicKey()).thenReturn(null);
+        when(sha256HmacVerifier.verify(any(), any())).thenReturn(true);
+        final Algorithm algorithm = mock(Algorithm.class);
+        when(colaJwkProvider.getAlgorithm("signingKey")).thenReturn(Optional.of(algorithm));
 
         try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
-            try (MockedStatic<Algorithm> staticAlgorithm = Mockito.mockStatic(Algorithm.class)) {
-                final Algorithm algorithm = mock(Algorithm.class);
-                staticAlgorithm.when(() -> RSA256(any(), eq(null))).thenReturn(algorithm);
-
-                final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder()
-                        .keyId("signingKey")
-                        .expiresAt(expiresAt)
-                        .issuer("domain")
-                        .audience(List.of("appClientId"))
-                        .build());
+            final DecodedJWT testDecodedJwt = Mockito.spy(TestDecodedJwt.builder()
+                    .keyId("signingKey")
+                    .expiresAt(expiresAt)
+                    .issuer("domain")
+                    .audience(List.of("appClientId"))
+                    .build());
 
-                staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
+            staticJwt.when(() -> decode(anyString())).thenReturn(testDecodedJwt);
 
-                final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
+            final boolean methodResponse = serviceUnderTest.isTokenValid(jwt);
 
-                assertThat(methodResponse).isTrue();
-            }
+            assertThat(methodResponse).isTrue();
         }
     }
 }
@@ -1,20 +1,29 @@
 package gov.cabinetoffice.gapuserservice.service.jwt;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.cache.Cache;
+import com.google.common.util.concurrent.MoreExecutors;
 import gov.cabinetoffice.gapuserservice.config.JwtProperties;
 import gov.cabinetoffice.gapuserservice.dto.JwtPayload;
+import gov.cabinetoffice.gapuserservice.dto.TokenValidationResultDto;
+import gov.cabinetoffice.gapuserservice.enums.JwtSigningMode;
 import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
 import gov.cabinetoffice.gapuserservice.exceptions.UnauthorizedException;
 import gov.cabinetoffice.gapuserservice.model.Role;
 import gov.cabinetoffice.gapuserservice.model.RoleEnum;
 import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.repository.JwtBlacklistRepository;
 import gov.cabinetoffice.gapuserservice.repository.UserRepository;
+import gov.cabinetoffice.gapuserservice.security.AuthenticatedPrincipal;
+import gov.cabinetoffice.gapuserservice.service.JwtBlacklistService;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
+import gov.cabinetoffice.gapuserservice.service.user.UserAuthorizationCache;
+import gov.cabinetoffice.gapuserservice.util.TokenDigest;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.AfterEach;
@@ -35,13 +44,17 @@ import software.amazon.awssdk.services.kms.model.VerifyRequest;
 import software.amazon.awssdk.services.kms.model.VerifyResponse;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -84,10 +97,20 @@ public class CustomJwtServiceImplTest {
                 .expiresAfter(60)
                 .adminExpiresAfter(360)
                 .build();
+        final KmsPublicKeyVerifier kmsPublicKeyVerifier = new KmsPublicKeyVerifier(kmsClient, "test-signing-key-arn",
+                30, clock);
         serviceUnderTest = spy(new CustomJwtServiceImpl(
-                oneLoginUserService, jwtProperties, jwtBlacklistRepository, userRepository, clock, kmsClient));
+                oneLoginUserService, jwtProperties,
+                new JwtBlacklistService(jwtBlacklistRepository, clock, 1000, 0.001, 100, 2, 3, 2), userRepository, clock, kmsClient,
+                kmsPublicKeyVerifier,
+                new EphemeralSigningKeyProvider(kmsClient, "test-signing-key-arn", jwtProperties, 60, 5, 30, clock),
+                new KeyCertificateVerifier(kmsPublicKeyVerifier, 10, clock),
+                new TokenVerificationCache(20, 100, clock),
+                new UserAuthorizationCache(userRepository, 30, 100),
+                MoreExecutors.newDirectExecutorService()));
         ReflectionTestUtils.setField(serviceUnderTest, "userServiceCookieName", "userServiceCookieName");
         ReflectionTestUtils.setField(serviceUnderTest, "validateUserRolesInMiddleware", true);
+        ReflectionTestUtils.setField(serviceUnderTest, "batchValidationMaxTokens", 10);
     }
 
     @AfterEach
@@ -130,31 +153,31 @@ public class CustomJwtServiceImplTest {
         void ReturnsFalse_IfBlacklisted() {
             ReflectionTestUtils.setField(serviceUnderTest, "oneLoginEnabled", true);
 
-            when(jwtBlacklistRepository.existsByJwtIs(jwt)).thenReturn(true);
+            when(jwtBlacklistRepository.existsByTokenDigest(TokenDigest.of(jwt).asBytes())).thenReturn(true);
             User testUser = User.builder().roles(List.of(Role.builder().name(RoleEnum.FIND).id(1).build(),
                             Role.builder().name(RoleEnum.SUPER_ADMIN).id(4).build(),
                             Role.builder().name(RoleEnum.ADMIN).id(3).build(),
                             Role.builder().name(RoleEnum.APPLICANT).id(2).build()))
                     .loginJourneyState(LoginJourneyState.USER_READY).build();
             when(userRepository.findBySub(any())).thenReturn(Optional.of(testUser));
-            when(oneLoginUserService.getUserBySub(any())).thenReturn(testUser);
             when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
                     .build());
 
             final boolean response = serviceUnderTest.isTokenValid(jwt);
 
             assertThat(response).isFalse();
-            verify(jwtBlacklistRepository, atLeastOnce()).existsByJwtIs(jwt);
+            verify(jwtBlacklistRepository, atLeastOnce()).existsByTokenDigest(TokenDigest.of(jwt).asBytes());
         }
 
         @Test
         void ReturnsFalse_IfMemoizationFails() throws ExecutionException {
             ReflectionTestUtils.setField(serviceUnderTest, "oneLoginEnabled", true);
 
-            Cache<String, Boolean> memoizationCache = mock(Cache.class);
-            ReflectionTestUtils.setField(serviceUnderTest, "memoizationCache", memoizationCache);
+            TokenVerificationCache tokenVerificationCache = mock(TokenVerificationCache.class);
+            ReflectionTestUtils.setField(serviceUnderTest, "tokenVerificationCache", tokenVerificationCache);
 
-            when(memoizationCache.get(any(), any())).thenThrow(new RuntimeException("Test execution exception"));
+            when(tokenVerificationCache.get(any(), any(), any()))
+                    .thenThrow(new RuntimeException("Test execution exception"));
 
             final boolean response = serviceUnderTest.isTokenValid(jwt);
 
@@ -174,15 +197,135 @@ public class CustomJwtServiceImplTest {
             when(userRepository.findBySub(any())).thenReturn(Optional.of(
                     User.builder().loginJourneyState(LoginJourneyState.USER_READY).build()));
             when(userRepository.findBySub(any())).thenReturn(Optional.of(testUser));
-            when(oneLoginUserService.getUserBySub(any())).thenReturn(testUser);
 
             when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
                     .build());
             boolean response = serviceUnderTest.isTokenValid(jwt);
 
             verify(kmsClient, times(1)).verify(any(VerifyRequest.class));
+            verify(oneLoginUserService).validateRoleNames(Set.of("FIND", "SUPER_ADMIN", "ADMIN", "APPLICANT"),
+                    "[APPLICANT, FIND, ADMIN, SUPER_ADMIN]");
             assertTrue(response);
         }
+
+        @Test
+        void OnlyLoadsUserOnce_ForRepeatedValidation() {
+            ReflectionTestUtils.setField(serviceUnderTest, "oneLoginEnabled", true);
+            User testUser = User.builder().roles(List.of(Role.builder().name(RoleEnum.FIND).id(1).build()))
+                    .loginJourneyState(LoginJourneyState.USER_READY).build();
+            when(userRepository.findBySub(any())).thenReturn(Optional.of(testUser));
+            when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
+                    .build());
+
+            assertTrue(serviceUnderTest.isTokenValid(jwt));
+            assertTrue(serviceUnderTest.isTokenValid(jwt));
+
+            verify(userRepository, times(1)).findBySub(any());
+        }
+
+        @Test
+        void ReturnsFalse_IfPrivacyPolicyPending() {
+            ReflectionTestUtils.setField(serviceUnderTest, "oneLoginEnabled", true);
+            User testUser = User.builder().roles(List.of(Role.builder().name(RoleEnum.FIND).id(1).build()))
+                    .loginJourneyState(LoginJourneyState.PRIVACY_POLICY_PENDING).build();
+            when(userRepository.findBySub(any())).thenReturn(Optional.of(testUser));
+            when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
+                    .build());
+
+            assertThat(serviceUnderTest.isTokenValid(jwt)).isFalse();
+        }
+
+        @Test
+        void OnlyVerifiesSignatureOnce_ForRepeatedToken() {
+            when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder()
+                    .signatureValid(false)
+                    .build());
+
+            assertThat(serviceUnderTest.isTokenValid(jwt)).isFalse();
+            assertThat(serviceUnderTest.isTokenValid(jwt)).isFalse();
+
+            verify(kmsClient, times(1)).verify(any(VerifyRequest.class));
+        }
+
+        @Test
+        void validateTokens_ReturnsResultPerToken_InRequestOrder() {
+            ReflectionTestUtils.setField(serviceUnderTest, "oneLoginEnabled", true);
+            User testUser = User.builder().sub("urn:fdc:gov.uk:2022:ibd2rz2CgyidndXyq2zyfcnQwyYI57h34vMlSr87CDf")
+                    .roles(List.of(Role.builder().name(RoleEnum.FIND).id(1).build()))
+                    .loginJourneyState(LoginJourneyState.USER_READY).build();
+            when(userRepository.findAllBySubIn(any())).thenReturn(List.of(testUser));
+            when(jwtBlacklistRepository.findTokenDigestsIn(any())).thenReturn(List.of());
+            when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
+                    .build());
+
+            final List<TokenValidationResultDto> results = serviceUnderTest.validateTokens(
+                    Arrays.asList("not-a-jwt", jwt, null, jwt));
+
+            assertThat(results).containsExactly(
+                    new TokenValidationResultDto(false, null),
+                    new TokenValidationResultDto(true, "[APPLICANT, FIND, ADMIN, SUPER_ADMIN]"),
+                    new TokenValidationResultDto(false, null),
+                    new TokenValidationResultDto(true, "[APPLICANT, FIND, ADMIN, SUPER_ADMIN]"));
+            verify(kmsClient, times(1)).verify(any(VerifyRequest.class));
+            verify(userRepository, times(1)).findAllBySubIn(any());
+            verify(userRepository, never()).findAllByEmailAddressIn(any());
+            verify(jwtBlacklistRepository, times(1)).findTokenDigestsIn(any());
+        }
+
+        @Test
+        void validateTokens_ReturnsFalse_ForBlacklistedToken() {
+            when(jwtBlacklistRepository.findTokenDigestsIn(any())).thenReturn(List.of(TokenDigest.of(jwt).asBytes()));
+            when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
+                    .build());
+
+            final List<TokenValidationResultDto> results = serviceUnderTest.validateTokens(List.of(jwt));
+
+            assertThat(results).containsExactly(new TokenValidationResultDto(false, null));
+        }
+
+        @Test
+        void validateTokens_LooksUpUsersByEmail_WhenSubIsUnknown() {
+            ReflectionTestUtils.setField(serviceUnderTest, "oneLoginEnabled", true);
+            User testUser = User.builder().emailAddress("test.user@gov.uk")
+                    .roles(List.of(Role.builder().name(RoleEnum.FIND).id(1).build()))
+                    .loginJourneyState(LoginJourneyState.USER_READY).build();
+            when(userRepository.findAllBySubIn(any())).thenReturn(List.of());
+            when(userRepository.findAllByEmailAddressIn(List.of("test.user@gov.uk"))).thenReturn(List.of(testUser));
+            when(jwtBlacklistRepository.findTokenDigestsIn(any())).thenReturn(List.of());
+            when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder().signatureValid(true)
+                    .build());
+
+            final List<TokenValidationResultDto> results = serviceUnderTest.validateTokens(List.of(jwt));
+
+            assertThat(results).extracting(TokenValidationResultDto::isValid).containsExactly(true);
+        }
+
+        @Test
+        void ReturnsFalse_ForKeyCertificatePresentedAsToken() {
+            final java.util.Base64.Encoder encoder = java.util.Base64.getUrlEncoder().withoutPadding();
+            final String certificateAsToken = encoder.encodeToString(
+                    "{\"alg\":\"RSASSA_PSS_SHA_256\",\"typ\":\"JWT\",\"kid\":\"test-signing-key-arn\"}"
+                            .getBytes(StandardCharsets.UTF_8))
+                    + "." + encoder.encodeToString(("{\"typ\":\"kcert\",\"iss\":\"test-signing-key-arn\","
+                    + "\"aud\":\"test-audience\",\"sub\":\"a-sub\",\"email\":\"test.user@gov.uk\",\"iat\":1671969600,\"exp\":1900000000}")
+                    .getBytes(StandardCharsets.UTF_8))
+                    + "." + encoder.encodeToString("signature".getBytes(StandardCharsets.UTF_8));
+
+            lenient().when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder()
+                    .signatureValid(true)
+                    .build());
+
+            assertThat(serviceUnderTest.isTokenValid(certificateAsToken)).isFalse();
+            verify(kmsClient, never()).verify(any(VerifyRequest.class));
+        }
+
+        @Test
+        void validateTokens_ThrowsInvalidRequest_WhenTooManyTokens() {
+            final List<String> tokens = Collections.nCopies(11, jwt);
+
+            assertThrows(InvalidRequestException.class, () -> serviceUnderTest.validateTokens(tokens));
+            verifyNoInteractions(kmsClient);
+        }
     }
 
     @Nested
@@ -244,15 +387,49 @@ public class CustomJwtServiceImplTest {
             assertNotNull(jsonObject.get("iat").asText());
         }
 
+        @Test
+        void shouldSignWithCertifiedEphemeralKey_WhenEphemeralSigningIsEnabled() throws GeneralSecurityException {
+            new LocalKms().stub(kmsClient);
+            ((JwtProperties) ReflectionTestUtils.getField(serviceUnderTest, "jwtProperties"))
+                    .setSigningMode(JwtSigningMode.EPHEMERAL);
+            final Map<String, String> claims = Map.of("sub", "a-sub", "email", "test@gov.uk");
+
+            final String token = serviceUnderTest.generateToken(claims, false);
+            final String anotherToken = serviceUnderTest.generateToken(claims, true);
+
+            final DecodedJWT decodedToken = JWT.decode(token);
+            assertThat(decodedToken.getKeyId()).startsWith("ephemeral-");
+            assertThat(decodedToken.getHeaderClaim("kcert").asString()).isNotBlank();
+            assertThat(decodedToken.getAlgorithm()).isEqualTo("ECDSA_SHA_256");
+            assertThat(java.util.Base64.getUrlDecoder().decode(decodedToken.getSignature())).hasSize(64);
+            assertThat(JWT.decode(anotherToken).getKeyId()).isEqualTo(decodedToken.getKeyId());
+            assertTrue(serviceUnderTest.handleTokenVerification(token));
+            assertTrue(serviceUnderTest.handleTokenVerification(anotherToken));
+            verify(kmsClient, times(1)).sign(any(SignRequest.class));
+        }
+
+        @Test
+        void shouldNotAddKeyCertificateHeader_WhenSigningWithKms() {
+            ReflectionTestUtils.setField(serviceUnderTest, "signingKeyArn", "test-signing-key-arn");
+            when(kmsClient.sign(any(SignRequest.class))).thenReturn(SignResponse.builder()
+                    .signature(SdkBytes.fromString("abc", StandardCharsets.UTF_8)).build());
+
+            final DecodedJWT decodedToken = JWT.decode(serviceUnderTest.generateToken(Map.of(), false));
+
+            assertEquals("test-signing-key-arn", decodedToken.getKeyId());
+            assertNull(decodedToken.getHeaderClaim("kcert").asString());
+        }
+
         @Nested
         class ValidateRolesInTheyPayload {
             @Test
             void testValidateRolesInThePayloadWithValidPayload() {
                 User testUser = User.builder().gapUserId(1).sub("sub").build();
                 JwtPayload payload = new JwtPayload();
+                payload.setSub("sub");
                 payload.setRoles("[FIND, APPLY]");
-                when(oneLoginUserService.getUserBySub(any())).thenReturn(testUser);
-                doNothing().when(oneLoginUserService).validateRoles(testUser.getRoles(), "[FIND, APPLY]");
+                when(userRepository.findBySub("sub")).thenReturn(Optional.of(testUser));
+                doNothing().when(oneLoginUserService).validateRoleNames(Set.of(), "[FIND, APPLY]");
                 JwtPayload response = serviceUnderTest.validateRolesInThePayload(payload);
 
                 assertThat(response).isSameAs(payload);
@@ -261,11 +438,12 @@ public class CustomJwtServiceImplTest {
             @Test
             void testValidateRolesInThePayloadWithInvalidPayload() {
                 User testUser = User.builder().gapUserId(1).sub("sub").build();
-                when(oneLoginUserService.getUserBySub(any())).thenReturn(testUser);
+                when(userRepository.findBySub("sub")).thenReturn(Optional.of(testUser));
                 JwtPayload payload = new JwtPayload();
+                payload.setSub("sub");
                 payload.setRoles("[FIND, APPLY]");
                 doThrow(UnauthorizedException.class).when(oneLoginUserService)
-                        .validateRoles(testUser.getRoles(), "[FIND, APPLY]");
+                        .validateRoleNames(Set.of(), "[FIND, APPLY]");
 
                 assertThrows(UnauthorizedException.class, () -> serviceUnderTest.validateRolesInThePayload(payload));
             }
@@ -287,6 +465,21 @@ public class CustomJwtServiceImplTest {
                 assertThat(response).isEqualTo(Optional.of(testUser));
             }
 
+            @Test
+            void testGetUserFromJwtUsesPrincipalFromRequest() {
+                final MockHttpServletRequest request = new MockHttpServletRequest();
+                final User testUser = User.builder().gapUserId(1).sub("sub").build();
+                final AuthenticatedPrincipal principal = new AuthenticatedPrincipal("jwt", mock(DecodedJWT.class),
+                        JwtPayload.builder().sub("sub").roles("[FIND]").build(), sub -> Optional.of(testUser));
+                request.setAttribute(AuthenticatedPrincipal.REQUEST_ATTRIBUTE, principal);
+
+                final Optional<User> response = serviceUnderTest.getUserFromJwt(request);
+
+                assertThat(response).contains(testUser);
+                mockedWebUtils.verifyNoInteractions();
+                verify(serviceUnderTest, never()).decodedJwt(any());
+            }
+
             @Test
             void testGetUserFromJwtThrowsUnauthorizedWithNullJwt() {
                 HttpServletRequest mockRequest = mock(HttpServletRequest.class);
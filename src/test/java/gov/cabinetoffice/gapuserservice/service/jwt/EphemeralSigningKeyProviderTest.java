@@ -0,0 +1,134 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import gov.cabinetoffice.gapuserservice.config.JwtProperties;
+import gov.cabinetoffice.gapuserservice.enums.JwtSigningMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.KmsException;
+import software.amazon.awssdk.services.kms.model.SignRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EphemeralSigningKeyProviderTest {
+
+    private static final Instant NOW = Instant.parse("2022-12-25T12:00:00.00z");
+
+    @Mock
+    private KmsClient kmsClient;
+
+    @Mock
+    private Clock clock;
+
+    private LocalKms localKms;
+
+    private JwtProperties jwtProperties;
+
+    private EphemeralSigningKeyProvider providerUnderTest;
+
+    private final byte[] message = "{\"sub\":\"a-sub\"}".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        localKms = new LocalKms();
+        localKms.stub(kmsClient);
+        lenient().when(clock.instant()).thenReturn(NOW);
+        jwtProperties = JwtProperties.builder()
+                .expiresAfter(60)
+                .adminExpiresAfter(360)
+                .signingMode(JwtSigningMode.EPHEMERAL)
+                .build();
+        providerUnderTest = new EphemeralSigningKeyProvider(kmsClient, LocalKms.SIGNING_KEY_ARN, jwtProperties,
+                60, 5, 30, clock);
+    }
+
+    @Test
+    void getSigningKey_ReturnsEmpty_WhenSigningWithKms() {
+        jwtProperties.setSigningMode(JwtSigningMode.KMS);
+
+        assertThat(providerUnderTest.getSigningKey()).isEmpty();
+        providerUnderTest.rotateIfDue();
+
+        verifyNoInteractions(kmsClient);
+    }
+
+    @Test
+    void getSigningKey_CertifiesKeyWithKmsOnce() {
+        final Optional<EphemeralSigningKey> first = providerUnderTest.getSigningKey();
+        final Optional<EphemeralSigningKey> second = providerUnderTest.getSigningKey();
+
+        assertThat(first).isPresent();
+        assertThat(second).containsSame(first.get());
+        assertThat(first.get().getKeyId()).startsWith("ephemeral-");
+        verify(kmsClient, times(1)).sign(any(SignRequest.class));
+    }
+
+    @Test
+    void signingKey_ProducesSignaturesVerifiableThroughItsCertificate() throws GeneralSecurityException {
+        final EphemeralSigningKey signingKey = providerUnderTest.getSigningKey().orElseThrow();
+        final KmsPublicKeyVerifier kmsPublicKeyVerifier = new KmsPublicKeyVerifier(kmsClient,
+                LocalKms.SIGNING_KEY_ARN, 30, clock);
+        kmsPublicKeyVerifier.refreshPublicKey();
+        final KeyCertificateVerifier certificateVerifier = new KeyCertificateVerifier(kmsPublicKeyVerifier, 10, clock);
+
+        final boolean result = certificateVerifier.verify(signingKey.getKeyId(), signingKey.getCertificate(), message,
+                signingKey.sign(message));
+
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void rotateIfDue_RotatesOnlyWithinOverlapOfSigningPeriodEnding() {
+        final EphemeralSigningKey original = providerUnderTest.getSigningKey().orElseThrow();
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(50)));
+        providerUnderTest.rotateIfDue();
+        assertThat(providerUnderTest.getSigningKey()).containsSame(original);
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(56)));
+        providerUnderTest.rotateIfDue();
+        final EphemeralSigningKey rotated = providerUnderTest.getSigningKey().orElseThrow();
+
+        assertThat(rotated.getKeyId()).isNotEqualTo(original.getKeyId());
+        assertThat(original.canSignAt(NOW.plus(Duration.ofMinutes(59)))).isTrue();
+        assertThat(original.canSignAt(NOW.plus(Duration.ofMinutes(60)))).isFalse();
+        verify(kmsClient, times(2)).sign(any(SignRequest.class));
+    }
+
+    @Test
+    void getSigningKey_ReturnsEmptyAndBacksOff_WhenKmsIsUnavailable() {
+        when(kmsClient.sign(any(SignRequest.class))).thenThrow(KmsException.builder().message("throttled").build());
+
+        assertThat(providerUnderTest.getSigningKey()).isEmpty();
+        assertThat(providerUnderTest.getSigningKey()).isEmpty();
+        verify(kmsClient, times(1)).sign(any(SignRequest.class));
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(31)));
+        assertThat(providerUnderTest.getSigningKey()).isEmpty();
+        verify(kmsClient, times(2)).sign(any(SignRequest.class));
+    }
+
+    @Test
+    void getSigningKey_KeepsCurrentKey_WhenRotationFails() {
+        final EphemeralSigningKey original = providerUnderTest.getSigningKey().orElseThrow();
+        when(kmsClient.sign(any(SignRequest.class))).thenThrow(KmsException.builder().message("throttled").build());
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(57)));
+
+        providerUnderTest.rotateIfDue();
+
+        assertThat(providerUnderTest.getSigningKey()).containsSame(original);
+    }
+}
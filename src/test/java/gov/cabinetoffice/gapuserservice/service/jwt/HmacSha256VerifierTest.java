@@ -0,0 +1,86 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HmacSha256VerifierTest {
+
+    private static final String SECRET = "secretCookieKey";
+
+    private final HmacUtils reference = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, SECRET);
+
+    private HmacSha256Verifier verifierUnderTest;
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        verifierUnderTest = new HmacSha256Verifier(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void verify_ReturnsTrue_ForMatchingSignature() {
+        final byte[] message = "a-message".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(verifierUnderTest.verify(message, reference.hmac(message))).isTrue();
+    }
+
+    @Test
+    void verify_ReturnsFalse_ForWrongOrTruncatedSignature() {
+        final byte[] message = "a-message".getBytes(StandardCharsets.UTF_8);
+        final byte[] signature = reference.hmac(message);
+        final byte[] tampered = signature.clone();
+        tampered[0] ^= 1;
+
+        assertThat(verifierUnderTest.verify(message, tampered)).isFalse();
+        assertThat(verifierUnderTest.verify(message, Arrays.copyOf(signature, 16))).isFalse();
+        assertThat(verifierUnderTest.verify(message, new byte[0])).isFalse();
+    }
+
+    @Test
+    void sign_IsCorrect_UnderConcurrentUse() throws Exception {
+        final int threads = 8;
+        final int iterations = 2000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<Integer>> mismatches = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                final int threadId = thread;
+                mismatches.add(executor.submit(() -> {
+                    // HmacUtils wraps a single Mac, so each thread needs its own to compute expected values
+                    final HmacUtils threadReference = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, SECRET);
+                    start.await();
+                    int failures = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        final byte[] message = ("message-" + threadId + "-" + i).getBytes(StandardCharsets.UTF_8);
+                        if (!verifierUnderTest.verify(message, threadReference.hmac(message))) {
+                            failures++;
+                        }
+                    }
+                    return failures;
+                }));
+            }
+            start.countDown();
+
+            for (Future<Integer> threadMismatches : mismatches) {
+                assertThat(threadMismatches.get(30, TimeUnit.SECONDS)).isZero();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
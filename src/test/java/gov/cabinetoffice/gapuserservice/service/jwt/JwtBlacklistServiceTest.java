@@ -4,6 +4,7 @@ import com.auth0.jwt.JWT;
 import gov.cabinetoffice.gapuserservice.model.BlacklistedToken;
 import gov.cabinetoffice.gapuserservice.repository.JwtBlacklistRepository;
 import gov.cabinetoffice.gapuserservice.service.JwtBlacklistService;
+import gov.cabinetoffice.gapuserservice.util.TokenDigest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,15 +13,20 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.*;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 import static com.auth0.jwt.JWT.decode;
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class JwtBlacklistServiceTest {
@@ -30,6 +36,8 @@ class JwtBlacklistServiceTest {
 
     private JwtBlacklistService serviceUnderTest;
 
+    private static final PageRequest LOAD_PAGE = PageRequest.of(0, 2);
+
     private final String jwt = "a-jwt";
 
     private final String CHRISTMAS_2022_MIDDAY = "2022-12-25T12:00:00.00z";
@@ -39,9 +47,11 @@ class JwtBlacklistServiceTest {
 
     @BeforeEach
     void setup() {
-        serviceUnderTest = new JwtBlacklistService(jwtBlacklistRepository, clock);
+        serviceUnderTest = new JwtBlacklistService(jwtBlacklistRepository, clock, 1000, 0.001, 100, 2, 3, 2);
     }
 
+    // checks the deprecated jwt column is still written for instances on the previous release
+    @SuppressWarnings("deprecation")
     @Test
     void addJwtToBlacklist_Save() {
         final long now = ZonedDateTime.now(clock).toInstant().toEpochMilli();
@@ -53,35 +63,187 @@ class JwtBlacklistServiceTest {
             staticJwt.when(() -> decode(jwt))
                     .thenReturn(decodedToken);
 
-            final ArgumentCaptor<BlacklistedToken> blacklistCaptor = ArgumentCaptor.forClass(BlacklistedToken.class);
+            @SuppressWarnings("unchecked")
+            final ArgumentCaptor<List<BlacklistedToken>> blacklistCaptor = ArgumentCaptor.forClass(List.class);
 
             serviceUnderTest.addJwtToBlacklist(jwt);
-            verify(jwtBlacklistRepository).save(blacklistCaptor.capture());
+            verifyNoInteractions(jwtBlacklistRepository);
+
+            serviceUnderTest.flushPendingTokens();
+            verify(jwtBlacklistRepository).saveAll(blacklistCaptor.capture());
 
-            final BlacklistedToken capturedBlacklist = blacklistCaptor.getValue();
-            assertThat(capturedBlacklist.getJwt()).isEqualTo(jwt);
+            final List<BlacklistedToken> capturedBlacklist = blacklistCaptor.getValue();
+            assertThat(capturedBlacklist).hasSize(1);
+            assertThat(capturedBlacklist.get(0).getTokenDigest()).isEqualTo(TokenDigest.of(jwt).asBytes());
+            assertThat(capturedBlacklist.get(0).getJwt()).isEqualTo(jwt);
         }
     }
 
+    @Test
+    void addJwtToBlacklist_IsBlacklistedBeforeBeingFlushed() {
+        withDecodedToken(() -> serviceUnderTest.addJwtToBlacklist(jwt));
+
+        assertTrue(serviceUnderTest.isJwtInBlacklist(jwt));
+        verify(jwtBlacklistRepository, never()).existsByTokenDigest(any());
+    }
+
+    @Test
+    void flushPendingTokens_KeepsTokensBlacklisted_WhenSaveFails() {
+        withDecodedToken(() -> serviceUnderTest.addJwtToBlacklist(jwt));
+        when(jwtBlacklistRepository.saveAll(any())).thenThrow(new RuntimeException("database unavailable"));
+
+        assertThrows(RuntimeException.class, () -> serviceUnderTest.flushPendingTokens());
+
+        assertTrue(serviceUnderTest.isJwtInBlacklist(jwt));
+    }
+
+    @Test
+    void isJwtInBlacklist_DoesNotQueryDatabase_WhenTokenIsNotInFilter() {
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(0, LOAD_PAGE)).thenReturn(List.of(row(1, "another-jwt")));
+        serviceUnderTest.rebuildBlacklist();
+
+        assertFalse(serviceUnderTest.isJwtInBlacklist(jwt));
+        verify(jwtBlacklistRepository, never()).existsByTokenDigest(any());
+    }
+
+    @Test
+    void isJwtInBlacklist_ConfirmsWithDatabase_WhenTokenIsInFilter() {
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(0, LOAD_PAGE)).thenReturn(List.of(row(1, jwt)));
+        when(jwtBlacklistRepository.existsByTokenDigest(TokenDigest.of(jwt).asBytes())).thenReturn(true);
+        serviceUnderTest.rebuildBlacklist();
+
+        assertTrue(serviceUnderTest.isJwtInBlacklist(jwt));
+        verify(jwtBlacklistRepository).existsByTokenDigest(TokenDigest.of(jwt).asBytes());
+    }
+
+    @Test
+    void rebuildBlacklist_PagesThroughTheTable() {
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(0, LOAD_PAGE))
+                .thenReturn(List.of(row(1, "first-jwt"), row(2, "second-jwt")));
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(2, LOAD_PAGE))
+                .thenReturn(List.of(row(3, jwt)));
+        when(jwtBlacklistRepository.existsByTokenDigest(TokenDigest.of(jwt).asBytes())).thenReturn(true);
+
+        serviceUnderTest.rebuildBlacklist();
+
+        assertTrue(serviceUnderTest.isJwtInBlacklist(jwt));
+        verify(jwtBlacklistRepository, times(2)).findIdAndDigestByIdGreaterThanOrderByIdAsc(anyInt(), eq(LOAD_PAGE));
+    }
+
+    @Test
+    void syncBlacklist_AddsTokensBlacklistedByOtherInstances() {
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(0, LOAD_PAGE))
+                .thenReturn(List.of(row(150, "another-jwt")));
+        serviceUnderTest.rebuildBlacklist();
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(50, LOAD_PAGE))
+                .thenReturn(List.of(row(151, jwt)));
+        when(jwtBlacklistRepository.existsByTokenDigest(TokenDigest.of(jwt).asBytes())).thenReturn(true);
+
+        serviceUnderTest.syncBlacklist();
+
+        assertTrue(serviceUnderTest.isJwtInBlacklist(jwt));
+    }
+
     @Test
     void deleteExpiredJwts_DeletesJwt() {
         final LocalDateTime date = ZonedDateTime.now(clock).toLocalDateTime();
-        when(jwtBlacklistRepository.deleteByExpiryDateLessThan(date))
-                .thenReturn(Long.valueOf(1));
-
-        when(serviceUnderTest.deleteExpiredJwts())
-                .thenReturn(Long.valueOf(1));
+        when(jwtBlacklistRepository.deleteExpiredBatch(date, 2))
+                .thenReturn(1);
 
         final Long numberOfDeletedJwts = serviceUnderTest.deleteExpiredJwts();
 
-        verify(jwtBlacklistRepository).deleteByExpiryDateLessThan(date);
+        verify(jwtBlacklistRepository).deleteExpiredBatch(date, 2);
         assertThat(numberOfDeletedJwts).isEqualTo(Long.valueOf(1));
     }
 
+    @Test
+    void deleteExpiredJwts_DeletesInBatches_UntilABatchIsNotFull() {
+        final LocalDateTime date = ZonedDateTime.now(clock).toLocalDateTime();
+        when(jwtBlacklistRepository.deleteExpiredBatch(date, 2))
+                .thenReturn(2, 2, 0);
+
+        final Long numberOfDeletedJwts = serviceUnderTest.deleteExpiredJwts();
+
+        verify(jwtBlacklistRepository, times(3)).deleteExpiredBatch(date, 2);
+        assertThat(numberOfDeletedJwts).isEqualTo(Long.valueOf(4));
+    }
+
+    @Test
+    void deleteExpiredJwts_StopsAfterMaxBatches() {
+        final LocalDateTime date = ZonedDateTime.now(clock).toLocalDateTime();
+        when(jwtBlacklistRepository.deleteExpiredBatch(date, 2))
+                .thenReturn(2);
+
+        final Long numberOfDeletedJwts = serviceUnderTest.deleteExpiredJwts();
+
+        verify(jwtBlacklistRepository, times(3)).deleteExpiredBatch(date, 2);
+        assertThat(numberOfDeletedJwts).isEqualTo(Long.valueOf(6));
+    }
+
     @Test
     void isJwtInBlacklist_ReturnsTrue() {
-        when(jwtBlacklistRepository.existsByJwtIs(jwt)).thenReturn(true);
+        when(jwtBlacklistRepository.existsByTokenDigest(TokenDigest.of(jwt).asBytes())).thenReturn(true);
         boolean result = serviceUnderTest.isJwtInBlacklist(jwt);
         assertTrue(result);
     }
+
+    @Test
+    void getBlacklistedTokensAfter_ReadsAPageOfTokensAfterTheCursor() {
+        final BlacklistedToken token = BlacklistedToken.builder().id(11).tokenDigest(TokenDigest.of(jwt).asBytes()).build();
+        when(jwtBlacklistRepository.findByIdGreaterThanOrderByIdAsc(10, PageRequest.of(0, 50)))
+                .thenReturn(List.of(token));
+
+        final List<BlacklistedToken> result = serviceUnderTest.getBlacklistedTokensAfter(10, 50);
+
+        assertThat(result).containsExactly(token);
+    }
+
+    @Test
+    void findBlacklisted_ChecksTokensTheFilterCannotRuleOutInOneQuery() {
+        when(jwtBlacklistRepository.findIdAndDigestByIdGreaterThanOrderByIdAsc(0, LOAD_PAGE)).thenReturn(List.of(row(1, jwt)));
+        serviceUnderTest.rebuildBlacklist();
+        when(jwtBlacklistRepository.findTokenDigestsIn(any())).thenReturn(List.of(TokenDigest.of(jwt).asBytes()));
+
+        final Set<String> result = serviceUnderTest.findBlacklisted(List.of(jwt, "another-jwt"));
+
+        assertThat(result).containsExactly(jwt);
+        verify(jwtBlacklistRepository, times(1)).findTokenDigestsIn(any());
+    }
+
+    @Test
+    void findBlacklisted_DoesNotQueryDatabase_ForPendingTokens() {
+        withDecodedToken(() -> serviceUnderTest.addJwtToBlacklist(jwt));
+
+        final Set<String> result = serviceUnderTest.findBlacklisted(List.of(jwt));
+
+        assertThat(result).containsExactly(jwt);
+        verify(jwtBlacklistRepository, never()).findTokenDigestsIn(any());
+    }
+
+    private void withDecodedToken(final Runnable runnable) {
+        final long now = ZonedDateTime.now(clock).toInstant().toEpochMilli();
+        final TestDecodedJwt decodedToken = TestDecodedJwt.builder()
+                .expiresAt(new Date(now))
+                .build();
+
+        try (MockedStatic<JWT> staticJwt = Mockito.mockStatic(JWT.class)) {
+            staticJwt.when(() -> decode(jwt))
+                    .thenReturn(decodedToken);
+            runnable.run();
+        }
+    }
+
+    private static JwtBlacklistRepository.IdAndDigest row(final int id, final String token) {
+        return new JwtBlacklistRepository.IdAndDigest() {
+            @Override
+            public int getId() {
+                return id;
+            }
+
+            @Override
+            public byte[] getTokenDigest() {
+                return TokenDigest.of(token).asBytes();
+            }
+        };
+    }
 }
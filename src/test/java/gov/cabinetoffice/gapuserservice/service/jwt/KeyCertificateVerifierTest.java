@@ -0,0 +1,149 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.kms.KmsClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KeyCertificateVerifierTest {
+
+    private static final Instant NOW = Instant.parse("2022-12-25T12:00:00.00z");
+    private static final String KEY_ID = "ephemeral-key-id";
+
+    @Mock
+    private KmsClient kmsClient;
+
+    @Mock
+    private Clock clock;
+
+    private LocalKms localKms;
+
+    private KeyPair ephemeralKeyPair;
+
+    private KeyCertificateVerifier verifierUnderTest;
+
+    private final byte[] message = "{\"sub\":\"a-sub\"}".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        localKms = new LocalKms();
+        localKms.stub(kmsClient);
+        lenient().when(clock.instant()).thenReturn(NOW);
+        final KmsPublicKeyVerifier kmsPublicKeyVerifier = new KmsPublicKeyVerifier(kmsClient,
+                LocalKms.SIGNING_KEY_ARN, 30, clock);
+        kmsPublicKeyVerifier.refreshPublicKey();
+        verifierUnderTest = new KeyCertificateVerifier(kmsPublicKeyVerifier, 10, clock);
+
+        ephemeralKeyPair = EcdsaSignatures.generateKeyPair();
+    }
+
+    @Test
+    void verify_ReturnsTrue_ForTokenSignedByCertifiedKey() throws GeneralSecurityException {
+        final String certificate = certify(localKms::sign, NOW.plus(Duration.ofHours(1)));
+
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, message, signWithEphemeralKey())).isTrue();
+    }
+
+    @Test
+    void verify_ReturnsFalse_ForTamperedMessage() throws GeneralSecurityException {
+        final String certificate = certify(localKms::sign, NOW.plus(Duration.ofHours(1)));
+        final byte[] tampered = "{\"sub\":\"another-sub\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, tampered, signWithEphemeralKey())).isFalse();
+    }
+
+    @Test
+    void verify_ReturnsFalse_WhenCertificateIsNotSignedByKmsKey() throws GeneralSecurityException {
+        final LocalKms otherKms = new LocalKms();
+        final String certificate = certify(otherKms::sign, NOW.plus(Duration.ofHours(1)));
+
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, message, signWithEphemeralKey())).isFalse();
+    }
+
+    @Test
+    void verify_ReturnsFalse_WhenKeyIdDoesNotMatchCertificate() throws GeneralSecurityException {
+        final String certificate = certify(localKms::sign, NOW.plus(Duration.ofHours(1)));
+
+        assertThat(verifierUnderTest.verify("another-key-id", certificate, message, signWithEphemeralKey())).isFalse();
+    }
+
+    @Test
+    void verify_ReturnsFalse_OnceCertificateHasExpired() throws GeneralSecurityException {
+        final String certificate = certify(localKms::sign, NOW.plus(Duration.ofHours(1)));
+        final byte[] signature = signWithEphemeralKey();
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, message, signature)).isTrue();
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(1)));
+
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, message, signature)).isFalse();
+    }
+
+    @Test
+    void verify_ReturnsFalse_ForMalformedCertificate() throws GeneralSecurityException {
+        assertThat(verifierUnderTest.verify(KEY_ID, "not-a-certificate", message, signWithEphemeralKey())).isFalse();
+        assertThat(verifierUnderTest.verify(KEY_ID, "e30.c2ln", message, signWithEphemeralKey())).isFalse();
+    }
+
+    @Test
+    void verify_OnlyChecksCertificateOnce() throws GeneralSecurityException {
+        final KmsPublicKeyVerifier kmsPublicKeyVerifier = mock(KmsPublicKeyVerifier.class);
+        when(kmsPublicKeyVerifier.verify(any(), any(), any())).thenReturn(true);
+        final KeyCertificateVerifier verifier = new KeyCertificateVerifier(kmsPublicKeyVerifier, 10, clock);
+        final String certificate = certify(localKms::sign, NOW.plus(Duration.ofHours(1)));
+
+        verifier.verify(KEY_ID, certificate, message, signWithEphemeralKey());
+        verifier.verify(KEY_ID, certificate, message, signWithEphemeralKey());
+
+        verify(kmsPublicKeyVerifier, times(1)).verify(any(), any(), any());
+    }
+
+    @Test
+    void verify_ReturnsFalse_WhenCertificateClaimsAreSignedWithoutContext() throws GeneralSecurityException {
+        final byte[] claims = new KeyCertificate(LocalKms.SIGNING_KEY_ARN, KEY_ID,
+                (ECPublicKey) ephemeralKeyPair.getPublic(), NOW, NOW.plus(Duration.ofHours(1))).toClaims();
+        final String certificate = KeyCertificate.encode(claims, localKms.sign(claims));
+
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, message, signWithEphemeralKey())).isFalse();
+    }
+
+    @Test
+    void verify_ReturnsFalse_WhenClaimsAreNotTypedAsCertificate() throws GeneralSecurityException {
+        final String untyped = new String(new KeyCertificate(LocalKms.SIGNING_KEY_ARN, KEY_ID,
+                (ECPublicKey) ephemeralKeyPair.getPublic(), NOW, NOW.plus(Duration.ofHours(1))).toClaims(),
+                StandardCharsets.UTF_8).replace("\"typ\":\"kcert\",", "");
+        final byte[] claims = untyped.getBytes(StandardCharsets.UTF_8);
+        final String certificate = KeyCertificate.encode(claims, localKms.sign(KeyCertificate.signingInput(claims)));
+
+        assertThat(verifierUnderTest.verify(KEY_ID, certificate, message, signWithEphemeralKey())).isFalse();
+    }
+
+    private byte[] signWithEphemeralKey() throws GeneralSecurityException {
+        return EcdsaSignatures.sign(ephemeralKeyPair.getPrivate(), message);
+    }
+
+    private String certify(final Signer signer, final Instant expiresAt) throws GeneralSecurityException {
+        final byte[] claims = new KeyCertificate(LocalKms.SIGNING_KEY_ARN, KEY_ID,
+                (ECPublicKey) ephemeralKeyPair.getPublic(), NOW, expiresAt).toClaims();
+        return KeyCertificate.encode(claims, signer.sign(KeyCertificate.signingInput(claims)));
+    }
+
+    @FunctionalInterface
+    private interface Signer {
+        byte[] sign(byte[] message) throws GeneralSecurityException;
+    }
+}
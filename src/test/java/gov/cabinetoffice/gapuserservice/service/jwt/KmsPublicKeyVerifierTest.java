@@ -0,0 +1,165 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+import software.amazon.awssdk.services.kms.model.KmsException;
+import software.amazon.awssdk.services.kms.model.SigningAlgorithmSpec;
+import software.amazon.awssdk.services.kms.model.VerifyRequest;
+import software.amazon.awssdk.services.kms.model.VerifyResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KmsPublicKeyVerifierTest {
+
+    private static final String SIGNING_KEY_ARN = "arn:aws:kms:eu-west-2:000000000000:key/signing-key";
+
+    @Mock
+    private KmsClient kmsClient;
+
+    private static final Instant NOW = Instant.parse("2022-12-25T12:00:00.00z");
+
+    @Mock
+    private Clock clock;
+
+    private KmsPublicKeyVerifier verifierUnderTest;
+
+    // a local key pair stands in for the asymmetric KMS signing key
+    private KeyPair kmsKeyPair;
+
+    private final byte[] message = "{\"sub\":\"a-sub\"}".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setup() throws GeneralSecurityException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        kmsKeyPair = keyPairGenerator.generateKeyPair();
+        lenient().when(clock.instant()).thenReturn(NOW);
+        verifierUnderTest = new KmsPublicKeyVerifier(kmsClient, SIGNING_KEY_ARN, 30, clock);
+    }
+
+    @Nested
+    class WithPublicKeyLoaded {
+
+        @BeforeEach
+        void loadPublicKey() {
+            when(kmsClient.getPublicKey(any(GetPublicKeyRequest.class))).thenReturn(getPublicKeyResponse());
+            verifierUnderTest.refreshPublicKey();
+        }
+
+        @Test
+        void verify_ReturnsTrue_ForSignatureFromKmsKey() throws GeneralSecurityException {
+            final boolean result = verifierUnderTest.verify(SIGNING_KEY_ARN, message, sign(message));
+
+            assertThat(result).isTrue();
+            verify(kmsClient, never()).verify(any(VerifyRequest.class));
+        }
+
+        @Test
+        void verify_ReturnsFalse_WhenMessageHasBeenTamperedWith() throws GeneralSecurityException {
+            final byte[] signature = sign(message);
+            final byte[] tamperedMessage = "{\"sub\":\"another-sub\"}".getBytes(StandardCharsets.UTF_8);
+
+            final boolean result = verifierUnderTest.verify(SIGNING_KEY_ARN, tamperedMessage, signature);
+
+            assertThat(result).isFalse();
+            verify(kmsClient, never()).verify(any(VerifyRequest.class));
+        }
+
+        @Test
+        void verify_ReturnsFalse_ForMalformedSignature() {
+            final boolean result = verifierUnderTest.verify(SIGNING_KEY_ARN, message, new byte[]{1, 2, 3});
+
+            assertThat(result).isFalse();
+        }
+
+        @Test
+        void verify_DoesNotRefreshPublicKey_WhenKeyIdIsUnknownRightAfterALoad() throws GeneralSecurityException {
+            verifierUnderTest.verify("unknown-key-id", message, sign(message));
+
+            verify(kmsClient, times(1)).getPublicKey(any(GetPublicKeyRequest.class));
+        }
+
+        @Test
+        void verify_RefreshesPublicKeyOnce_WhenKeyIdIsUnknown() throws GeneralSecurityException {
+            when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+
+            final boolean result = verifierUnderTest.verify("unknown-key-id", message, sign(message));
+            verifierUnderTest.verify("unknown-key-id", message, sign(message));
+
+            assertThat(result).isTrue();
+            verify(kmsClient, times(2)).getPublicKey(any(GetPublicKeyRequest.class));
+        }
+
+        @Test
+        void getPublicKey_ReturnsLoadedKey() {
+            assertThat(verifierUnderTest.getPublicKey()).contains((RSAPublicKey) kmsKeyPair.getPublic());
+        }
+    }
+
+    @Test
+    void verify_FallsBackToKms_WhenNoPublicKeyHasBeenLoaded() {
+        when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder()
+                .signatureValid(true)
+                .build());
+
+        final boolean result = verifierUnderTest.verify(SIGNING_KEY_ARN, message, new byte[]{1, 2, 3});
+
+        assertThat(result).isTrue();
+        verify(kmsClient).verify(any(VerifyRequest.class));
+    }
+
+    @Test
+    void refreshPublicKey_KeepsFallingBackToKms_WhenGetPublicKeyFails() {
+        when(kmsClient.getPublicKey(any(GetPublicKeyRequest.class)))
+                .thenThrow(KmsException.builder().message("throttled").build());
+        when(kmsClient.verify(any(VerifyRequest.class))).thenReturn(VerifyResponse.builder()
+                .signatureValid(false)
+                .build());
+
+        verifierUnderTest.refreshPublicKey();
+        final boolean result = verifierUnderTest.verify(SIGNING_KEY_ARN, message, new byte[]{1, 2, 3});
+
+        assertThat(result).isFalse();
+        assertThat(verifierUnderTest.getPublicKey()).isEmpty();
+        verify(kmsClient).verify(any(VerifyRequest.class));
+    }
+
+    private GetPublicKeyResponse getPublicKeyResponse() {
+        return GetPublicKeyResponse.builder()
+                .keyId(SIGNING_KEY_ARN)
+                .publicKey(SdkBytes.fromByteArray(kmsKeyPair.getPublic().getEncoded()))
+                .signingAlgorithms(SigningAlgorithmSpec.RSASSA_PSS_SHA_256, SigningAlgorithmSpec.RSASSA_PSS_SHA_384)
+                .build();
+    }
+
+    private byte[] sign(final byte[] content) throws GeneralSecurityException {
+        final Signature signer = Signature.getInstance("RSASSA-PSS");
+        signer.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        signer.initSign(kmsKeyPair.getPrivate());
+        signer.update(content);
+        return signer.sign();
+    }
+}
@@ -0,0 +1,68 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+import software.amazon.awssdk.services.kms.model.SignRequest;
+import software.amazon.awssdk.services.kms.model.SignResponse;
+import software.amazon.awssdk.services.kms.model.SigningAlgorithmSpec;
+import software.amazon.awssdk.services.kms.model.VerifyRequest;
+import software.amazon.awssdk.services.kms.model.VerifyResponse;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * Local stand-in for the asymmetric KMS signing key: answers Sign, Verify and GetPublicKey on a mocked {@link KmsClient}
+ * using a key pair held in memory.
+ */
+class LocalKms {
+
+    static final String SIGNING_KEY_ARN = "arn:aws:kms:eu-west-2:000000000000:key/signing-key";
+
+    private final KeyPair keyPair;
+
+    LocalKms() throws GeneralSecurityException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        this.keyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    KeyPair getKeyPair() {
+        return keyPair;
+    }
+
+    void stub(final KmsClient kmsClient) {
+        lenient().when(kmsClient.sign(any(SignRequest.class))).thenAnswer(invocation -> {
+            final SignRequest request = invocation.getArgument(0);
+            return SignResponse.builder()
+                    .keyId(SIGNING_KEY_ARN)
+                    .signingAlgorithm(request.signingAlgorithm())
+                    .signature(SdkBytes.fromByteArray(sign(request.message().asByteArray())))
+                    .build();
+        });
+        lenient().when(kmsClient.verify(any(VerifyRequest.class))).thenAnswer(invocation -> {
+            final VerifyRequest request = invocation.getArgument(0);
+            return VerifyResponse.builder()
+                    .keyId(SIGNING_KEY_ARN)
+                    .signatureValid(RsaPssSignatures.verify((RSAPublicKey) keyPair.getPublic(),
+                            request.message().asByteArray(), request.signature().asByteArray()))
+                    .build();
+        });
+        lenient().when(kmsClient.getPublicKey(any(GetPublicKeyRequest.class))).thenReturn(GetPublicKeyResponse.builder()
+                .keyId(SIGNING_KEY_ARN)
+                .publicKey(SdkBytes.fromByteArray(keyPair.getPublic().getEncoded()))
+                .signingAlgorithms(SigningAlgorithmSpec.RSASSA_PSS_SHA_256)
+                .build());
+    }
+
+    byte[] sign(final byte[] message) throws GeneralSecurityException {
+        return RsaPssSignatures.sign(keyPair.getPrivate(), message);
+    }
+}
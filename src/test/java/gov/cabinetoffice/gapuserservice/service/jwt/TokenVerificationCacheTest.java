@@ -0,0 +1,113 @@
+package gov.cabinetoffice.gapuserservice.service.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVerificationCacheTest {
+
+    private static final Instant NOW = Instant.parse("2022-12-25T12:00:00.00z");
+    private static final Instant TOKEN_EXPIRY = NOW.plus(Duration.ofHours(1));
+
+    @Mock
+    private Clock clock;
+
+    @Mock
+    private Callable<Boolean> verifier;
+
+    private TokenVerificationCache cacheUnderTest;
+
+    @BeforeEach
+    void setup() {
+        when(clock.instant()).thenReturn(NOW);
+        cacheUnderTest = new TokenVerificationCache(20, 2, clock);
+    }
+
+    @Test
+    void get_OnlyCallsVerifierOnce_ForRepeatedToken() throws Exception {
+        when(verifier.call()).thenReturn(true);
+
+        assertThat(cacheUnderTest.get("a.token.sig", TOKEN_EXPIRY, verifier)).isTrue();
+        assertThat(cacheUnderTest.get("a.token.sig", TOKEN_EXPIRY, verifier)).isTrue();
+
+        verify(verifier, times(1)).call();
+        assertThat(cacheUnderTest.getMissCount()).isEqualTo(1);
+        assertThat(cacheUnderTest.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_CachesInvalidSignatures() throws Exception {
+        when(verifier.call()).thenReturn(false);
+
+        assertThat(cacheUnderTest.get("a.token.bad-sig", TOKEN_EXPIRY, verifier)).isFalse();
+        assertThat(cacheUnderTest.get("a.token.bad-sig", TOKEN_EXPIRY, verifier)).isFalse();
+
+        verify(verifier, times(1)).call();
+    }
+
+    @Test
+    void get_VerifiesAgain_OnceConfiguredExpiryHasPassed() throws Exception {
+        when(verifier.call()).thenReturn(true);
+
+        cacheUnderTest.get("a.token.sig", TOKEN_EXPIRY, verifier);
+        when(clock.instant()).thenReturn(NOW.plusSeconds(21));
+        cacheUnderTest.get("a.token.sig", TOKEN_EXPIRY, verifier);
+
+        verify(verifier, times(2)).call();
+    }
+
+    @Test
+    void get_VerifiesAgain_OnceTokenHasExpired() throws Exception {
+        when(verifier.call()).thenReturn(true);
+        final Instant tokenExpiry = NOW.plusSeconds(5);
+
+        cacheUnderTest.get("a.token.sig", tokenExpiry, verifier);
+        when(clock.instant()).thenReturn(NOW.plusSeconds(6));
+        cacheUnderTest.get("a.token.sig", tokenExpiry, verifier);
+
+        verify(verifier, times(2)).call();
+    }
+
+    @Test
+    void get_DoesNotCacheAlreadyExpiredTokens() throws Exception {
+        when(verifier.call()).thenReturn(true);
+
+        cacheUnderTest.get("a.token.sig", NOW.minusSeconds(1), verifier);
+
+        assertThat(cacheUnderTest.size()).isZero();
+    }
+
+    @Test
+    void get_DoesNotCacheVerifierFailures() throws Exception {
+        when(verifier.call()).thenThrow(new IllegalStateException("KMS unavailable")).thenReturn(true);
+
+        assertThatThrownBy(() -> cacheUnderTest.get("a.token.sig", TOKEN_EXPIRY, verifier))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(cacheUnderTest.get("a.token.sig", TOKEN_EXPIRY, verifier)).isTrue();
+
+        verify(verifier, times(2)).call();
+    }
+
+    @Test
+    void get_EvictsEntries_WhenMaximumSizeIsReached() throws ExecutionException {
+        for (int i = 0; i < 5; i++) {
+            cacheUnderTest.get("a.token.sig" + i, TOKEN_EXPIRY, () -> true);
+        }
+
+        assertThat(cacheUnderTest.size()).isLessThanOrEqualTo(2);
+        assertThat(cacheUnderTest.getEvictionCount()).isGreaterThanOrEqualTo(3);
+    }
+}
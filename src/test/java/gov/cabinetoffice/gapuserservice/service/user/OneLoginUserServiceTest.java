@@ -1,7 +1,10 @@
 package gov.cabinetoffice.gapuserservice.service.user;
 
 import gov.cabinetoffice.gapuserservice.dto.*;
+import gov.cabinetoffice.gapuserservice.enums.DownstreamService;
 import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.enums.MigrationStatus;
+import gov.cabinetoffice.gapuserservice.enums.UserChangeEventType;
 import gov.cabinetoffice.gapuserservice.exceptions.*;
 import gov.cabinetoffice.gapuserservice.mappers.RoleMapper;
 import gov.cabinetoffice.gapuserservice.model.Department;
@@ -9,8 +12,11 @@ import gov.cabinetoffice.gapuserservice.model.Role;
 import gov.cabinetoffice.gapuserservice.model.RoleEnum;
 import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.repository.DepartmentRepository;
-import gov.cabinetoffice.gapuserservice.repository.RoleRepository;
+import gov.cabinetoffice.gapuserservice.repository.UserDashboardRepository;
 import gov.cabinetoffice.gapuserservice.repository.UserRepository;
+import gov.cabinetoffice.gapuserservice.service.DownstreamWebClients;
+import gov.cabinetoffice.gapuserservice.service.ReferenceDataRegistry;
+import gov.cabinetoffice.gapuserservice.service.UserChangeOutboxService;
 import gov.cabinetoffice.gapuserservice.service.encryption.AwsEncryptionServiceImpl;
 import org.assertj.core.api.AssertionsForClassTypes;
 import org.junit.jupiter.api.Assertions;
@@ -19,18 +25,26 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -53,19 +67,34 @@ class OneLoginUserServiceTest {
     private RoleMapper roleMapper;
 
     @Mock
-    private RoleRepository roleRepository;
+    private ReferenceDataRegistry referenceDataRegistry;
 
     @Mock
-    private WebClient.Builder webClientBuilder;
+    private DownstreamWebClients downstreamWebClients;
+
+    @Mock
+    private UserChangeOutboxService userChangeOutboxService;
 
     @Mock
     private AwsEncryptionServiceImpl awsEncryptionService;
 
+    @Mock
+    private UserAuthorizationCache userAuthorizationCache;
+
+    @Mock
+    private UserDashboardRepository userDashboardRepository;
+
+    @Mock
+    private UserCountCache userCountCache;
+
     @BeforeEach
     void setUp() {
 
         ReflectionTestUtils.setField(oneLoginUserService, "adminBackend", "adminBackend");
         ReflectionTestUtils.setField(oneLoginUserService, "findFrontend", "findfrontend");
+        ReflectionTestUtils.setField(oneLoginUserService, "userEmailsChunkSize", 1000);
+        ReflectionTestUtils.setField(oneLoginUserService, "fuzzyEmailSearchTimeoutMs", 5000L);
+        lenient().when(downstreamWebClients.getBlockTimeout(any())).thenReturn(Duration.ofSeconds(5));
     }
 
     @Test
@@ -83,14 +112,14 @@ class OneLoginUserServiceTest {
         doNothing().when(user).addRole(role1);
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findById(1)).thenReturn(Optional.of(role1));
-        when(roleRepository.findById(2)).thenReturn(Optional.of(role2));
-        when(roleRepository.findByName(RoleEnum.APPLICANT)).thenReturn(Optional.of(role2));
+        when(referenceDataRegistry.getRole(1)).thenReturn(Optional.of(role1));
+        when(referenceDataRegistry.getRole(2)).thenReturn(Optional.of(role2));
+        when(referenceDataRegistry.getRole(RoleEnum.APPLICANT)).thenReturn(Optional.of(role2));
 
         User updatedUser = oneLoginUserService.updateRoles(1, updateUserRolesRequestDto, "jwt");
 
-        Mockito.verify(roleRepository, times(2)).findById(anyInt());
-        Mockito.verify(roleRepository, times(1)).findByName(any(RoleEnum.class));
+        Mockito.verify(referenceDataRegistry, times(2)).getRole(anyInt());
+        Mockito.verify(referenceDataRegistry, times(1)).getRole(any(RoleEnum.class));
         Mockito.verify(userRepository, times(1)).save(user);
         assertThat(user).isEqualTo(updatedUser);
     }
@@ -172,184 +201,254 @@ class OneLoginUserServiceTest {
     }
 
     @Nested
-    class getPaginatedUsers {
+    class getUsersAfter {
+        private final UserQueryDto userQueryDto = new UserQueryDto(List.of(1), Collections.emptyList(), "");
+
+        @Test
+        void returnsRowsInKeyOrder_WithCursorForNextPage() {
+            final UserCursor after = new UserCursor("a@test.com", 5);
+            final UserDashboardRowDto row1 = UserDashboardRowDto.builder().gapUserId("1").emailAddress("b@test.com").build();
+            final UserDashboardRowDto row2 = UserDashboardRowDto.builder().gapUserId("2").emailAddress("c@test.com").build();
+            final UserDashboardRowDto row3 = UserDashboardRowDto.builder().gapUserId("3").emailAddress("d@test.com").build();
+            when(userDashboardRepository.findRowsAfter(userQueryDto, after, 3)).thenReturn(List.of(row1, row2, row3));
+            when(userCountCache.getCount(userQueryDto)).thenReturn(10L);
+
+            final UserKeysetPage page = oneLoginUserService.getUsersAfter(userQueryDto, after, 2);
+
+            assertThat(page.users()).containsExactly(row1, row2);
+            assertThat(page.nextCursor()).isEqualTo(new UserCursor("c@test.com", 2));
+            assertThat(page.totalCount()).isEqualTo(10L);
+            verifyNoInteractions(userRepository);
+        }
+
+        @Test
+        void hasNoNextCursor_OnLastPage() {
+            final UserDashboardRowDto row1 = UserDashboardRowDto.builder().gapUserId("1").emailAddress("b@test.com").build();
+            when(userDashboardRepository.findRowsAfter(userQueryDto, null, 3)).thenReturn(List.of(row1));
+            when(userCountCache.getCount(userQueryDto)).thenReturn(1L);
+
+            final UserKeysetPage page = oneLoginUserService.getUsersAfter(userQueryDto, null, 2);
+
+            assertThat(page.users()).containsExactly(row1);
+            assertThat(page.nextCursor()).isNull();
+        }
+    }
+
+    @Test
+    void getPaginatedDashboardRows_ReadsRowsForThePageOfUserIds() {
+        final Pageable pageable = PageRequest.of(1, 2);
+        final UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), "");
+        final List<UserDashboardRowDto> rows = List.of(UserDashboardRowDto.builder().gapUserId("3").build(),
+                UserDashboardRowDto.builder().gapUserId("4").build());
+        when(userRepository.findUserIdsByOrderByEmail(pageable)).thenReturn(List.of(3, 4));
+        when(userDashboardRepository.findRowsByIds(List.of(3, 4))).thenReturn(rows);
+        when(userCountCache.getCount(userQueryDto)).thenReturn(10L);
+
+        final Page<UserDashboardRowDto> page = oneLoginUserService.getPaginatedDashboardRows(pageable, userQueryDto);
+
+        assertThat(page.getContent()).isEqualTo(rows);
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(page.getPageable()).isEqualTo(pageable);
+    }
+
+    @Test
+    void getPaginatedDashboardRows_LimitsTheStatementTimeout_ForAnEmailSearch() {
+        final Pageable pageable = PageRequest.of(0, 2);
+        final UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), "test");
+        when(userRepository.findUserIdsByFuzzyEmail("test", pageable)).thenReturn(List.of(3));
+
+        oneLoginUserService.getPaginatedDashboardRows(pageable, userQueryDto);
+
+        final InOrder inOrder = inOrder(userRepository);
+        inOrder.verify(userRepository).setLocalStatementTimeout("5000");
+        inOrder.verify(userRepository).findUserIdsByFuzzyEmail("test", pageable);
+    }
+
+    @Test
+    void getPaginatedDashboardRows_LeavesTheStatementTimeout_WithoutAnEmailSearch() {
+        final Pageable pageable = PageRequest.of(0, 2);
+        final UserQueryDto userQueryDto = new UserQueryDto(List.of(1), Collections.emptyList(), "");
+        when(userRepository.findUserIdsByDepartment(List.of(1), pageable)).thenReturn(List.of(3));
+
+        oneLoginUserService.getPaginatedDashboardRows(pageable, userQueryDto);
+
+        verify(userRepository, never()).setLocalStatementTimeout(any());
+    }
+
+    @Nested
+    class getPaginatedDashboardRowsAgainstAConnection {
+
+        private final Connection connection = mock(Connection.class);
+        private final List<String> statements = new ArrayList<>();
+        private OneLoginUserService serviceUnderTest;
+
+        @BeforeEach
+        void setup() throws SQLException {
+            final DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(connection);
+            when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+                final String sql = invocation.getArgument(0);
+                statements.add(sql);
+                final PreparedStatement statement = mock(PreparedStatement.class);
+                final ResultSet resultSet = sql.startsWith("SELECT count(*)") ? countResultSet() : rowsResultSet();
+                when(statement.executeQuery()).thenReturn(resultSet);
+                return statement;
+            });
+            final UserDashboardRepository dashboardRepository =
+                    new UserDashboardRepository(new NamedParameterJdbcTemplate(dataSource));
+            serviceUnderTest = new OneLoginUserService(userRepository, null, null, null, null, null, null, null,
+                    null, dashboardRepository, new UserCountCache(dashboardRepository, 60, 1000), null, null);
+        }
+
+        @Test
+        void readsThePageOfIds_ThenTheirRows_ThenTheTotal() throws SQLException {
+            final Pageable pageable = PageRequest.of(1, 2);
+            final UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), "");
+            when(userRepository.findUserIdsByOrderByEmail(pageable)).thenReturn(List.of(3, 4));
+
+            final Page<UserDashboardRowDto> page = serviceUnderTest.getPaginatedDashboardRows(pageable, userQueryDto);
+
+            final InOrder inOrder = inOrder(userRepository, connection);
+            inOrder.verify(userRepository).findUserIdsByOrderByEmail(pageable);
+            inOrder.verify(connection, times(2)).prepareStatement(anyString());
+            assertThat(statements).hasSize(2);
+            assertThat(statements.get(0)).contains("WHERE u.gap_user_id IN (?, ?)");
+            assertThat(statements.get(1)).startsWith("SELECT count(*) FROM gap_users u");
+            assertThat(page.getContent()).extracting(UserDashboardRowDto::getGapUserId).containsExactly("3", "4");
+            assertThat(page.getTotalElements()).isEqualTo(10);
+        }
+
+        @Test
+        void readsOnlyTheIdsAndRows_ForTheNextPage() {
+            final UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), "");
+            when(userRepository.findUserIdsByOrderByEmail(any())).thenReturn(List.of(3, 4));
+
+            serviceUnderTest.getPaginatedDashboardRows(PageRequest.of(0, 2), userQueryDto);
+            serviceUnderTest.getPaginatedDashboardRows(PageRequest.of(1, 2), userQueryDto);
+
+            verify(userRepository, times(2)).findUserIdsByOrderByEmail(any());
+            assertThat(statements).hasSize(3);
+            assertThat(statements).filteredOn(sql -> sql.startsWith("SELECT count(*)")).hasSize(1);
+        }
+
+        private static ResultSet rowsResultSet() throws SQLException {
+            final ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.next()).thenReturn(true, true, false);
+            when(resultSet.getInt("gap_user_id")).thenReturn(3, 4);
+            return resultSet;
+        }
+
+        private static ResultSet countResultSet() throws SQLException {
+            final ResultSet resultSet = mock(ResultSet.class);
+            final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+            when(resultSet.next()).thenReturn(true, false);
+            when(resultSet.getMetaData()).thenReturn(metaData);
+            when(metaData.getColumnCount()).thenReturn(1);
+            when(resultSet.getLong(1)).thenReturn(10L);
+            return resultSet;
+        }
+    }
+
+    @Nested
+    class getPaginatedUserIds {
+        private final List<Integer> departmentIds = Arrays.asList(1, 2);
+        private final List<Integer> roleIds = Arrays.asList(3, 4);
+        private final Pageable pageable = PageRequest.of(0, 10);
+
         @Test
         void noEmailDepartmentsOrRole() {
-            User user1 = User.builder().gapUserId(1).build();
-            User user2 = User.builder().gapUserId(2).build();
-            List<User> users = Arrays.asList(user1, user2);
-            Pageable pageable = mock(Pageable.class);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
             UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), "");
 
-            when(userRepository.findByOrderByEmail(pageable)).thenReturn(userPage);
+            when(userRepository.findUserIdsByOrderByEmail(pageable)).thenReturn(List.of(1, 2));
 
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
 
-            List<User> resultContent = pageResult.getContent();
-            assertEquals(users.size(), resultContent.size());
-            assertEquals(user1, resultContent.get(0));
-            assertEquals(user2, resultContent.get(1));
-            verify(userRepository, times(1)).findByOrderByEmail(pageable);
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByOrderByEmail(pageable);
         }
 
         @Test
         void hasEmail_noDepartmentsOrRoles() {
-            User user1 = User.builder().gapUserId(1).build();
-            User user2 = User.builder().gapUserId(2).build();
-            List<User> users = Arrays.asList(user1, user2);
-            String emailAddress = "baz";
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
-            UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), emailAddress);
-
-            when(userRepository.findUsersByFuzzyEmail(emailAddress, pageable))
-                    .thenReturn(userPage);
-
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
-
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByFuzzyEmail(emailAddress, pageable);
+            UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), Collections.emptyList(), "baz");
+
+            when(userRepository.findUserIdsByFuzzyEmail("baz", pageable)).thenReturn(List.of(1, 2));
+
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
+
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByFuzzyEmail("baz", pageable);
         }
 
         @Test
         void hasDepartments_noEmailOrRoles() {
-            User user1 = User.builder().gapUserId(1).build();
-            User user2 = User.builder().gapUserId(2).build();
-            List<User> users = Arrays.asList(user1, user2);
-            List<Integer> departmentIds = Arrays.asList(1, 2);
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
             UserQueryDto userQueryDto = new UserQueryDto(departmentIds, Collections.emptyList(), "");
 
-            when(userRepository.findUsersByDepartment(departmentIds, pageable))
-                    .thenReturn(userPage);
+            when(userRepository.findUserIdsByDepartment(departmentIds, pageable)).thenReturn(List.of(1, 2));
 
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
 
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByDepartment(departmentIds, pageable);
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByDepartment(departmentIds, pageable);
         }
 
         @Test
         void hasRoles_NoDepartmentsOrEmail() {
-            User user1 = User.builder().gapUserId(1).build();
-            User user2 = User.builder().gapUserId(2).build();
-            List<User> users = Arrays.asList(user1, user2);
-            List<Integer> roleIds = Arrays.asList(1, 2);
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
             UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), roleIds, "");
 
-            when(userRepository.findUsersByRoles(roleIds, pageable))
-                    .thenReturn(userPage);
+            when(userRepository.findUserIdsByRoles(roleIds, pageable)).thenReturn(List.of(1, 2));
 
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
 
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByRoles(roleIds, pageable);
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByRoles(roleIds, pageable);
         }
 
         @Test
         void hasEmailAndDepartment_NoRoles() {
-            User user1 = User.builder().gapUserId(1).build();
-            User user2 = User.builder().gapUserId(2).build();
-            List<User> users = Arrays.asList(user1, user2);
-            List<Integer> departmentIds = Arrays.asList(1, 2);
-            String emailAddress = "example";
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
-            UserQueryDto userQueryDto = new UserQueryDto(departmentIds, Collections.emptyList(), emailAddress);
-
-            when(userRepository.findUsersByDepartmentAndFuzzyEmail(departmentIds, emailAddress, pageable))
-                    .thenReturn(userPage);
-
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
-
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByDepartmentAndFuzzyEmail(departmentIds, emailAddress, pageable);
+            UserQueryDto userQueryDto = new UserQueryDto(departmentIds, Collections.emptyList(), "example");
+
+            when(userRepository.findUserIdsByDepartmentAndFuzzyEmail(departmentIds, "example", pageable)).thenReturn(List.of(1, 2));
+
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
+
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByDepartmentAndFuzzyEmail(departmentIds, "example", pageable);
         }
 
         @Test
         void hasEmailAndRoles_NoDepartments() {
-            User user1 = User.builder().gapUserId(1).emailAddress("user1@example.com").build();
-            User user2 = User.builder().gapUserId(2).emailAddress("user2@example.com").build();
-            List<User> users = Arrays.asList(user1, user2);
-            List<Integer> roleIds = Arrays.asList(3, 4);
-            String emailAddress = "example";
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
-            UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), roleIds, emailAddress);
-
-            when(userRepository.findUsersByRolesAndFuzzyEmail(roleIds, emailAddress, pageable))
-                    .thenReturn(userPage);
-
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
-
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByRolesAndFuzzyEmail(roleIds, emailAddress, pageable);
+            UserQueryDto userQueryDto = new UserQueryDto(Collections.emptyList(), roleIds, "example");
+
+            when(userRepository.findUserIdsByRolesAndFuzzyEmail(roleIds, "example", pageable)).thenReturn(List.of(1, 2));
+
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
+
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByRolesAndFuzzyEmail(roleIds, "example", pageable);
         }
 
         @Test
         void hasRolesAndDepartment_NoEmail() {
-            User user1 = User.builder().gapUserId(1).build();
-            User user2 = User.builder().gapUserId(2).build();
-            List<User> users = Arrays.asList(user1, user2);
-            List<Integer> departmentIds = Arrays.asList(1, 2);
-            List<Integer> roleIds = Arrays.asList(3, 4);
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
             UserQueryDto userQueryDto = new UserQueryDto(departmentIds, roleIds, "");
 
-            when(userRepository.findUsersByDepartmentAndRoles(roleIds, departmentIds, pageable))
-                    .thenReturn(userPage);
+            when(userRepository.findUserIdsByDepartmentAndRoles(roleIds, departmentIds, pageable)).thenReturn(List.of(1, 2));
 
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
 
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByDepartmentAndRoles(roleIds, departmentIds, pageable);
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByDepartmentAndRoles(roleIds, departmentIds, pageable);
         }
 
         @Test
         void hasEmailDepartmentAndRoles() {
-            User user1 = User.builder().gapUserId(1).emailAddress("user1@example.com").build();
-            User user2 = User.builder().gapUserId(2).emailAddress("user2@example.com").build();
-            List<User> users = Arrays.asList(user1, user2);
-            List<Integer> departmentIds = Arrays.asList(1, 2);
-            List<Integer> roleIds = Arrays.asList(3, 4);
-            String emailAddress = "example";
-            Pageable pageable = PageRequest.of(0, 10);
-            Page<User> userPage = new PageImpl<>(users, pageable, users.size());
-            UserQueryDto userQueryDto = new UserQueryDto(departmentIds, roleIds, emailAddress);
-
-            when(userRepository.findUsersByDepartmentAndRolesAndFuzzyEmail(roleIds, departmentIds, emailAddress, pageable))
-                    .thenReturn(userPage);
-
-            Page<User> pageResult = oneLoginUserService.getPaginatedUsers(pageable, userQueryDto);
-
-            List<User> result = pageResult.getContent();
-            assertEquals(2, result.size());
-            assertEquals(user1, result.get(0));
-            assertEquals(user2, result.get(1));
-            verify(userRepository, times(1)).findUsersByDepartmentAndRolesAndFuzzyEmail(roleIds, departmentIds, emailAddress, pageable);
+            UserQueryDto userQueryDto = new UserQueryDto(departmentIds, roleIds, "example");
+
+            when(userRepository.findUserIdsByDepartmentAndRolesAndFuzzyEmail(roleIds, departmentIds, "example", pageable)).thenReturn(List.of(1, 2));
+
+            List<Integer> result = oneLoginUserService.getPaginatedUserIds(pageable, userQueryDto);
+
+            assertEquals(List.of(1, 2), result);
+            verify(userRepository, times(1)).findUserIdsByDepartmentAndRolesAndFuzzyEmail(roleIds, departmentIds, "example", pageable);
         }
     }
 
@@ -360,20 +459,6 @@ class OneLoginUserServiceTest {
         Integer userId = 1;
         Integer departmentId = 2;
 
-        final WebClient webClient = mock(WebClient.class);
-        final WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
-        final WebClient.RequestBodyUriSpec requestBodyUriSpec = mock(WebClient.RequestBodyUriSpec.class);
-        final WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
-
-        when(webClientBuilder.build()).thenReturn(webClient);
-        when(webClient.patch()).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.header(anyString(), anyString())).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.bodyValue(any())).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(Void.class)).thenReturn(Mono.empty());
-
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         when(departmentRepository.findById(departmentId)).thenReturn(Optional.of(department));
         when(userRepository.save(user)).thenReturn(user);
@@ -381,6 +466,8 @@ class OneLoginUserServiceTest {
 
         assertEquals(department, user.getDepartment());
         verify(userRepository).save(user);
+        verify(userChangeOutboxService).record(eq(userId), eq(UserChangeEventType.UPDATE_APPLY_FUNDING_ORGANISATION),
+                eq("/users/funding-organisation"), any(UpdateFundingOrgDto.class), eq("jwt"));
         assertEquals(user, result);
     }
 
@@ -425,22 +512,15 @@ class OneLoginUserServiceTest {
                 .sub("123445").emailAddress("test.user@email.com").build();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        final WebClient webClient = mock(WebClient.class);
-        when(webClientBuilder.build()).thenReturn(webClient);
-        final WebClient.RequestHeadersUriSpec requestHeadersUriSpec = mock(WebClient.RequestHeadersUriSpec.class);
-        when(webClient.delete()).thenReturn(requestHeadersUriSpec);
-        final WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
-        when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.header(anyString(), anyString())).thenReturn(requestHeadersSpec);
-        final WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(Void.class)).thenReturn(Mono.when());
 
         oneLoginUserService.deleteUser(userId, "jwt");
 
         verify(userRepository).deleteById(userId);
-        verify(webClientBuilder, times(2)).build();
+        final InOrder inOrder = inOrder(userChangeOutboxService);
+        inOrder.verify(userChangeOutboxService).record(userId, UserChangeEventType.DELETE_FIND_USER,
+                "/api/user/delete?sub=123445", null, "jwt");
+        inOrder.verify(userChangeOutboxService).record(userId, UserChangeEventType.DELETE_APPLY_USER,
+                "/users/delete?oneLoginSub=123445", null, "jwt");
     }
 
     @Test
@@ -451,10 +531,10 @@ class OneLoginUserServiceTest {
                 .newUserRoles(Arrays.asList(3, 4)).build();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findById(3)).thenReturn(Optional.of(Role.builder().name(RoleEnum.ADMIN).build()));
-        when(roleRepository.findById(4)).thenReturn(Optional.of(Role.builder().name(RoleEnum.SUPER_ADMIN).build()));
-        when(roleRepository.findByName(RoleEnum.APPLICANT)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
-        when(roleRepository.findByName(RoleEnum.FIND)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
+        when(referenceDataRegistry.getRole(3)).thenReturn(Optional.of(Role.builder().name(RoleEnum.ADMIN).build()));
+        when(referenceDataRegistry.getRole(4)).thenReturn(Optional.of(Role.builder().name(RoleEnum.SUPER_ADMIN).build()));
+        when(referenceDataRegistry.getRole(RoleEnum.APPLICANT)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+        when(referenceDataRegistry.getRole(RoleEnum.FIND)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
         User updatedUser = oneLoginUserService.updateRoles(userId, updateUserRolesRequestDto, "jwt");
 
         assertThat(updatedUser.getRoles()).hasSize(4);
@@ -510,10 +590,30 @@ class OneLoginUserServiceTest {
     void testValidateSessionsRolesThrowsInvalidExceptionWithEmptyUser() {
         String email = "email";
         String roles = "APPLICANT";
-        when(userRepository.findByEmailAddress(email)).thenReturn(Optional.empty());
+        when(userAuthorizationCache.getByEmail(email)).thenReturn(Optional.empty());
         assertThrows(InvalidRequestException.class, () -> oneLoginUserService.validateSessionsRoles(email, roles));
     }
 
+    @Test
+    void testValidateSessionsRolesUsesCachedUser() {
+        String email = "email";
+        when(userAuthorizationCache.getByEmail(email)).thenReturn(Optional.of(new UserAuthorizationSnapshot(
+                1, "sub", email, Set.of(RoleEnum.APPLICANT, RoleEnum.FIND), LoginJourneyState.USER_READY)));
+
+        assertDoesNotThrow(() -> oneLoginUserService.validateSessionsRoles(email, "[APPLICANT, FIND]"));
+        verify(userRepository, never()).findByEmailAddress(any());
+    }
+
+    @Test
+    void testSetUsersLoginJourneyStateInvalidatesCachedUser() {
+        final User user = User.builder().sub("sub").emailAddress("email").build();
+
+        oneLoginUserService.setUsersLoginJourneyState(user, LoginJourneyState.USER_READY);
+
+        verify(userRepository).save(user);
+        verify(userAuthorizationCache).invalidate(user);
+    }
+
     @Test
     void updateRolesShouldSetDepartmentToNullIfNotSuperAdminOrAdmin() {
         Integer userId = 1;
@@ -522,8 +622,8 @@ class OneLoginUserServiceTest {
                 .newUserRoles(Arrays.asList(1, 2)).build();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findById(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
-        when(roleRepository.findById(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
+        when(referenceDataRegistry.getRole(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+        when(referenceDataRegistry.getRole(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
         User updatedUser = oneLoginUserService.updateRoles(1, updateUserRolesRequestDto, "jwt");
 
         assertThat(updatedUser.getDepartment()).isNull();
@@ -537,9 +637,9 @@ class OneLoginUserServiceTest {
                 .newUserRoles(Arrays.asList(1, 2, 3)).build();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findById(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
-        when(roleRepository.findById(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
-        when(roleRepository.findById(3)).thenReturn(Optional.of(Role.builder().name(RoleEnum.ADMIN).build()));
+        when(referenceDataRegistry.getRole(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+        when(referenceDataRegistry.getRole(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
+        when(referenceDataRegistry.getRole(3)).thenReturn(Optional.of(Role.builder().name(RoleEnum.ADMIN).build()));
         User updatedUser = oneLoginUserService.updateRoles(1, updateUserRolesRequestDto, "jwt");
 
         assertThat(updatedUser.getDepartment()).isNotNull();
@@ -553,30 +653,20 @@ class OneLoginUserServiceTest {
         UpdateUserRolesRequestDto updateUserRolesRequestDto = UpdateUserRolesRequestDto.builder()
                 .newUserRoles(Arrays.asList(1, 2, 3, 4, 5)).build();
 
-        final WebClient webClient = mock(WebClient.class);
-        final WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
-        final WebClient.RequestBodyUriSpec requestBodyUriSpec = mock(WebClient.RequestBodyUriSpec.class);
-        final WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
-
-        when(webClientBuilder.build()).thenReturn(webClient);
-        when(webClient.post()).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodyUriSpec);
-        when(requestHeadersSpec.header(anyString(), anyString())).thenReturn(requestHeadersSpec);
-        when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.body(any())).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(Void.class)).thenReturn(Mono.empty());
-
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findById(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
-        when(departmentRepository.findById(1)).thenReturn(Optional.of(department));
-        when(roleRepository.findById(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
-        when(roleRepository.findById(3)).thenReturn(Optional.of(Role.builder().name(RoleEnum.ADMIN).build()));
-        when(roleRepository.findById(4)).thenReturn(Optional.of(Role.builder().name(RoleEnum.SUPER_ADMIN).build()));
-        when(roleRepository.findById(5)).thenReturn(Optional.of(Role.builder().name(RoleEnum.TECHNICAL_SUPPORT).build()));
+        when(referenceDataRegistry.getRole(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
+        when(referenceDataRegistry.getDepartment(1))
+                .thenReturn(Optional.of(DepartmentDto.builder().id(1).name("test").build()));
+        when(referenceDataRegistry.getRole(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+        when(referenceDataRegistry.getRole(3)).thenReturn(Optional.of(Role.builder().name(RoleEnum.ADMIN).build()));
+        when(referenceDataRegistry.getRole(4)).thenReturn(Optional.of(Role.builder().name(RoleEnum.SUPER_ADMIN).build()));
+        when(referenceDataRegistry.getRole(5)).thenReturn(Optional.of(Role.builder().name(RoleEnum.TECHNICAL_SUPPORT).build()));
         User updatedUser = oneLoginUserService.updateRoles(1, updateUserRolesRequestDto, "jwt");
 
         assertThat(updatedUser.getDepartment()).isNotNull();
+        verify(userChangeOutboxService).record(userId, UserChangeEventType.ADD_APPLY_TECH_SUPPORT_USER,
+                "/users/tech-support-user",
+                CreateTechSupportUserDto.builder().userSub("test_sub").departmentName("test").build(), "jwt");
     }
 
     @Test
@@ -598,26 +688,15 @@ class OneLoginUserServiceTest {
                 .newUserRoles(Arrays.asList(1, 2)).build();
 
 
-        final WebClient webClient = mock(WebClient.class);
-        when(webClientBuilder.build()).thenReturn(webClient);
-        final WebClient.RequestHeadersUriSpec requestHeadersUriSpec = mock(WebClient.RequestHeadersUriSpec.class);
-        when(webClient.delete()).thenReturn(requestHeadersUriSpec);
-        final WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
-        when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.header(anyString(), anyString())).thenReturn(requestHeadersSpec);
-        final WebClient.ResponseSpec responseSpec = mock(WebClient.ResponseSpec.class);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.onStatus(any(), any())).thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(Void.class)).thenReturn(Mono.when());
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findById(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
-        when(roleRepository.findById(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+        when(referenceDataRegistry.getRole(1)).thenReturn(Optional.of(Role.builder().name(RoleEnum.FIND).build()));
+        when(referenceDataRegistry.getRole(2)).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
         User updatedUser = oneLoginUserService.updateRoles(1, updateUserRolesRequestDto, "jwt");
 
         assertThat(updatedUser.getDepartment()).isNull();
-        verify(webClientBuilder).build();
-        verify(requestHeadersUriSpec).uri("adminBackend/users/admin-user/123");
+        verify(userChangeOutboxService).record(userId, UserChangeEventType.REMOVE_APPLY_ADMIN_USER,
+                "/users/admin-user/123", null, "jwt");
     }
 
     @Test
@@ -633,7 +712,7 @@ class OneLoginUserServiceTest {
     class CreateUserTest {
         @Test
         void shouldReturnSavedUser() {
-            when(roleRepository.findByName(any())).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+            when(referenceDataRegistry.getRole(any(RoleEnum.class))).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
             when(userRepository.save(any())).thenReturn(User.builder().roles(List.of(Role.builder().name(RoleEnum.APPLICANT).build())).build());
 
             final User result = oneLoginUserService.createNewUser("", "");
@@ -644,7 +723,7 @@ class OneLoginUserServiceTest {
 
         @Test
         void shouldSaveUserWithSubAndEmailWhenUserIsCreated() {
-            when(roleRepository.findByName(any())).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+            when(referenceDataRegistry.getRole(any(RoleEnum.class))).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
 
             oneLoginUserService.createNewUser("sub", "test@email.com");
 
@@ -656,7 +735,7 @@ class OneLoginUserServiceTest {
 
         @Test
         void shouldThrowExceptionWhenRoleDoesNotExist() {
-            when(roleRepository.findByName(any())).thenReturn(Optional.empty());
+            when(referenceDataRegistry.getRole(any(RoleEnum.class))).thenReturn(Optional.empty());
 
             assertThrows(RoleNotFoundException.class, () -> oneLoginUserService.createNewUser("", ""));
         }
@@ -703,7 +782,7 @@ class OneLoginUserServiceTest {
                     .build();
 
             when(userRepository.findBySub(any())).thenReturn(Optional.empty());
-            when(roleRepository.findByName(any())).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
+            when(referenceDataRegistry.getRole(any(RoleEnum.class))).thenReturn(Optional.of(Role.builder().name(RoleEnum.APPLICANT).build()));
 
             final User newUser = oneLoginUserService.createNewUser("sub", "email");
             final User result = oneLoginUserService.createOrGetUserFromInfo(oneLoginUserInfoDto);
@@ -719,14 +798,14 @@ class OneLoginUserServiceTest {
                     new UserEmailDto("encrypted2".getBytes(), "urn:fdc:gov.uk-sub2")
             );
 
-            when(userRepository.findBySubIn(subs)).thenReturn(
+            when(userRepository.findSubAndEmailBySubIn(subs)).thenReturn(
                     List.of(
-                            User.builder().sub("urn:fdc:gov.uk-sub1").emailAddress("unencrypted1").build(),
-                            User.builder().sub("urn:fdc:gov.uk-sub2").emailAddress("unencrypted2").build()
+                            subAndEmail("urn:fdc:gov.uk-sub1", "unencrypted1"),
+                            subAndEmail("urn:fdc:gov.uk-sub2", "unencrypted2")
                     )
             );
-            when(awsEncryptionService.encryptField("unencrypted1")).thenReturn("encrypted1".getBytes());
-            when(awsEncryptionService.encryptField("unencrypted2")).thenReturn("encrypted2".getBytes());
+            when(awsEncryptionService.encryptFields(List.of("unencrypted1", "unencrypted2")))
+                    .thenReturn(List.of("encrypted1".getBytes(), "encrypted2".getBytes()));
 
             List<UserEmailDto> returnedList = oneLoginUserService.getUserEmailsBySubs(subs);
 
@@ -748,20 +827,58 @@ class OneLoginUserServiceTest {
                     new UserEmailDto("encrypted2".getBytes(), sub2.toString())
             );
 
-            when(userRepository.findByColaSubIn(subsAsUuids)).thenReturn(
+            when(userRepository.findSubAndEmailByColaSubIn(subsAsUuids)).thenReturn(
                     List.of(
-                            User.builder().sub(sub1).emailAddress("unencrypted1").build(),
-                            User.builder().sub(sub2).emailAddress("unencrypted2").build()
+                            subAndEmail(sub1, "unencrypted1"),
+                            subAndEmail(sub2, "unencrypted2")
                     )
             );
-            when(awsEncryptionService.encryptField("unencrypted1")).thenReturn("encrypted1".getBytes());
-            when(awsEncryptionService.encryptField("unencrypted2")).thenReturn("encrypted2".getBytes());
+            when(awsEncryptionService.encryptFields(List.of("unencrypted1", "unencrypted2")))
+                    .thenReturn(List.of("encrypted1".getBytes(), "encrypted2".getBytes()));
 
             List<UserEmailDto> returnedList = oneLoginUserService.getUserEmailsBySubs(subs);
 
             assertThat(returnedList).isEqualTo(encryptedUserEmailDtos);
         }
 
+        @Test
+        void shouldLookUpAndEncryptEmailsAChunkAtATime() {
+            ReflectionTestUtils.setField(oneLoginUserService, "userEmailsChunkSize", 2);
+            final List<String> subs = List.of("urn:fdc:gov.uk-sub1", "urn:fdc:gov.uk-sub2", "urn:fdc:gov.uk-sub3");
+
+            when(userRepository.findSubAndEmailBySubIn(List.of("urn:fdc:gov.uk-sub1", "urn:fdc:gov.uk-sub2")))
+                    .thenReturn(List.of(subAndEmail("urn:fdc:gov.uk-sub1", "unencrypted1"),
+                            subAndEmail("urn:fdc:gov.uk-sub2", "unencrypted2")));
+            when(userRepository.findSubAndEmailBySubIn(List.of("urn:fdc:gov.uk-sub3")))
+                    .thenReturn(List.of(subAndEmail("urn:fdc:gov.uk-sub3", "unencrypted3")));
+            when(awsEncryptionService.encryptFields(List.of("unencrypted1", "unencrypted2")))
+                    .thenReturn(List.of("encrypted1".getBytes(), "encrypted2".getBytes()));
+            when(awsEncryptionService.encryptFields(List.of("unencrypted3")))
+                    .thenReturn(List.of("encrypted3".getBytes()));
+
+            final List<UserEmailDto> streamed = new ArrayList<>();
+            oneLoginUserService.forEachUserEmailBySubs(subs, streamed::add);
+
+            assertThat(streamed).containsExactly(
+                    new UserEmailDto("encrypted1".getBytes(), "urn:fdc:gov.uk-sub1"),
+                    new UserEmailDto("encrypted2".getBytes(), "urn:fdc:gov.uk-sub2"),
+                    new UserEmailDto("encrypted3".getBytes(), "urn:fdc:gov.uk-sub3"));
+            verify(userRepository, never()).findSubAndEmailByColaSubIn(any());
+        }
+
+        private UserRepository.SubAndEmail subAndEmail(final String sub, final String email) {
+            return new UserRepository.SubAndEmail() {
+                @Override
+                public String getSub() {
+                    return sub;
+                }
+
+                @Override
+                public String getEmailAddress() {
+                    return email;
+                }
+            };
+        }
     }
 
 
@@ -785,7 +902,7 @@ class OneLoginUserServiceTest {
             final WebClient.RequestHeadersSpec mockRequestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
             final WebClient.ResponseSpec mockResponseSpec = mock(WebClient.ResponseSpec.class);
 
-            when(webClientBuilder.build()).thenReturn(mockWebClient);
+            when(downstreamWebClients.get(DownstreamService.ADMIN_BACKEND)).thenReturn(mockWebClient);
             when(mockWebClient.patch()).thenReturn(mockRequestBodyUriSpec);
             when(mockRequestBodyUriSpec.uri(anyString())).thenReturn(mockRequestBodySpec);
             when(mockRequestBodySpec.header(anyString(), anyString())).thenReturn(mockRequestBodySpec);
@@ -796,13 +913,60 @@ class OneLoginUserServiceTest {
 
             oneLoginUserService.migrateApplyUser(user, "jwt");
 
-            verify(webClientBuilder).build();
+            verify(downstreamWebClients).get(DownstreamService.ADMIN_BACKEND);
             verify(mockRequestBodyUriSpec).uri("adminBackend/users/migrate");
             verify(mockRequestBodySpec).header("Authorization", "Bearer jwt");
             verify(mockRequestBodySpec).bodyValue(migrateUserDto);
         }
     }
 
+    @Test
+    void setUsersMigrationStates_UpdatesOnlyGivenStatesInOneSave() {
+        final User user = User.builder()
+                .applyAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .findAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .loginJourneyState(LoginJourneyState.MIGRATING_USER)
+                .build();
+
+        oneLoginUserService.setUsersMigrationStates(user, MigrationStatus.NEW_USER, null,
+                LoginJourneyState.USER_MIGRATED_AND_READY);
+
+        assertThat(user.getFindAccountMigrated()).isEqualTo(MigrationStatus.NEW_USER);
+        assertThat(user.getApplyAccountMigrated()).isEqualTo(MigrationStatus.IN_PROGRESS);
+        assertThat(user.getLoginJourneyState()).isEqualTo(LoginJourneyState.USER_MIGRATED_AND_READY);
+        assertThat(user.getMigrationStarted()).isNull();
+        verify(userRepository, times(1)).save(user);
+        verify(userAuthorizationCache).invalidate(user);
+    }
+
+    @Test
+    void setUsersMigrationStates_RecordsWhenMigrationStarted() {
+        final User user = User.builder().loginJourneyState(LoginJourneyState.MIGRATING_USER).build();
+
+        oneLoginUserService.setUsersMigrationStates(user, null, MigrationStatus.IN_PROGRESS, null);
+
+        assertThat(user.getApplyAccountMigrated()).isEqualTo(MigrationStatus.IN_PROGRESS);
+        assertThat(user.getMigrationStarted()).isNotNull();
+        verify(userRepository, times(1)).save(user);
+    }
+
+    @Test
+    void setUsersMigrationStates_ReloadsUser_WhenGivenItsId() {
+        final User user = User.builder()
+                .gapUserId(1)
+                .findAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .loginJourneyState(LoginJourneyState.MIGRATING_USER)
+                .build();
+        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+
+        oneLoginUserService.setUsersMigrationStates(1, MigrationStatus.SUCCEEDED, null,
+                LoginJourneyState.USER_MIGRATED_AND_READY);
+
+        assertThat(user.getFindAccountMigrated()).isEqualTo(MigrationStatus.SUCCEEDED);
+        assertThat(user.getLoginJourneyState()).isEqualTo(LoginJourneyState.USER_MIGRATED_AND_READY);
+        verify(userRepository, times(1)).save(user);
+    }
+
     @Test
     void getUserByEmailReturnsUser() {
         User user = User.builder().emailAddress("test@test.com").build();
@@ -821,7 +985,7 @@ class OneLoginUserServiceTest {
     @Test
     void getUserByEmailAndRoleReturnsUser() {
         User user = User.builder().emailAddress("test@test.com").roles(List.of(Role.builder().id(1).name(RoleEnum.ADMIN).build())).build();
-        when(roleRepository.findByName(RoleEnum.ADMIN)).thenReturn(Optional.of(Role.builder().id(1).name(RoleEnum.ADMIN).build()));
+        when(referenceDataRegistry.getRole(RoleEnum.ADMIN)).thenReturn(Optional.of(Role.builder().id(1).name(RoleEnum.ADMIN).build()));
         when(userRepository.findByEmailAddressAndRole("test@test.com", 1)).thenReturn(Optional.of(user));
 
         User result = oneLoginUserService.getUserByEmailAndRole("test@test.com", "ADMIN");
@@ -830,7 +994,7 @@ class OneLoginUserServiceTest {
 
     @Test
     void getUserByEmailAndRoleThrowsExceptionWhenInvalidRole() {
-        when(roleRepository.findByName(RoleEnum.ADMIN)).thenReturn(Optional.empty());
+        when(referenceDataRegistry.getRole(RoleEnum.ADMIN)).thenReturn(Optional.empty());
         assertThrows(RoleNotFoundException.class, () -> oneLoginUserService.getUserByEmailAndRole("test@test.com", "ADMIN"));
     }
 }
@@ -0,0 +1,153 @@
+package gov.cabinetoffice.gapuserservice.service.user;
+
+import gov.cabinetoffice.gapuserservice.dto.UserAuthorizationSnapshot;
+import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.model.Role;
+import gov.cabinetoffice.gapuserservice.model.RoleEnum;
+import gov.cabinetoffice.gapuserservice.model.User;
+import gov.cabinetoffice.gapuserservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAuthorizationCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserAuthorizationCache cacheUnderTest;
+
+    private final User user = User.builder()
+            .gapUserId(1)
+            .sub("sub")
+            .emailAddress("test@gov.uk")
+            .roles(new ArrayList<>(List.of(Role.builder().name(RoleEnum.FIND).build(),
+                    Role.builder().name(RoleEnum.ADMIN).build())))
+            .loginJourneyState(LoginJourneyState.USER_READY)
+            .build();
+
+    @BeforeEach
+    void setup() {
+        cacheUnderTest = new UserAuthorizationCache(userRepository, 30, 100);
+    }
+
+    @Test
+    void getBySub_ReturnsSnapshotOfUser() {
+        when(userRepository.findBySub("sub")).thenReturn(Optional.of(user));
+
+        final Optional<UserAuthorizationSnapshot> snapshot = cacheUnderTest.getBySub("sub");
+
+        assertThat(snapshot).isPresent();
+        assertThat(snapshot.get().roles()).containsExactlyInAnyOrder(RoleEnum.FIND, RoleEnum.ADMIN);
+        assertThat(snapshot.get().isAdmin()).isTrue();
+        assertThat(snapshot.get().isSuperAdmin()).isFalse();
+        assertThat(snapshot.get().isBlocked()).isFalse();
+        assertThat(snapshot.get().roleNames()).isEqualTo(Set.of("FIND", "ADMIN"));
+    }
+
+    @Test
+    void getBySub_OnlyQueriesOnce_ForRepeatedLookups() {
+        when(userRepository.findBySub("sub")).thenReturn(Optional.of(user));
+
+        cacheUnderTest.getBySub("sub");
+        cacheUnderTest.getBySub("sub");
+
+        verify(userRepository, times(1)).findBySub("sub");
+    }
+
+    @Test
+    void getBySub_OnlyQueriesOnce_ForConcurrentMisses() throws Exception {
+        final CountDownLatch queryStarted = new CountDownLatch(1);
+        final CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(userRepository.findBySub("sub")).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await(5, TimeUnit.SECONDS);
+            return Optional.of(user);
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Optional<UserAuthorizationSnapshot>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cacheUnderTest.getBySub("sub")));
+            }
+            queryStarted.await(5, TimeUnit.SECONDS);
+            releaseQuery.countDown();
+
+            for (Future<Optional<UserAuthorizationSnapshot>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isPresent();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(userRepository, times(1)).findBySub("sub");
+    }
+
+    @Test
+    void getBySub_DoesNotCacheMissingUsers() {
+        when(userRepository.findBySub("sub")).thenReturn(Optional.empty(), Optional.of(user));
+
+        assertThat(cacheUnderTest.getBySub("sub")).isEmpty();
+        assertThat(cacheUnderTest.getBySub("sub")).isPresent();
+    }
+
+    @Test
+    void invalidate_EvictsUserBySubAndEmail() {
+        when(userRepository.findBySub("sub")).thenReturn(Optional.of(user));
+        when(userRepository.findByEmailAddress("test@gov.uk")).thenReturn(Optional.of(user));
+        cacheUnderTest.getBySub("sub");
+        cacheUnderTest.getByEmail("test@gov.uk");
+
+        cacheUnderTest.invalidate(user);
+        cacheUnderTest.getBySub("sub");
+        cacheUnderTest.getByEmail("test@gov.uk");
+
+        verify(userRepository, times(2)).findBySub("sub");
+        verify(userRepository, times(2)).findByEmailAddress("test@gov.uk");
+    }
+
+    @Test
+    void getAllBySub_LoadsMissesInOneQuery_AndDoesNotCacheMissingUsers() {
+        when(userRepository.findBySub("sub")).thenReturn(Optional.of(user));
+        cacheUnderTest.getBySub("sub");
+        when(userRepository.findAllBySubIn(List.of("missing-sub"))).thenReturn(List.of());
+
+        final Map<String, UserAuthorizationSnapshot> snapshots = cacheUnderTest.getAllBySub(
+                Arrays.asList("sub", "missing-sub", null, "sub"));
+        cacheUnderTest.getAllBySub(List.of("sub", "missing-sub"));
+
+        assertThat(snapshots).containsOnlyKeys("sub");
+        verify(userRepository, times(1)).findBySub("sub");
+        verify(userRepository, times(2)).findAllBySubIn(List.of("missing-sub"));
+    }
+
+    @Test
+    void getAllByEmail_ReturnsSnapshotsKeyedByEmail() {
+        when(userRepository.findAllByEmailAddressIn(List.of("test@gov.uk"))).thenReturn(List.of(user));
+
+        final Map<String, UserAuthorizationSnapshot> snapshots = cacheUnderTest.getAllByEmail(List.of("test@gov.uk"));
+
+        assertThat(snapshots.get("test@gov.uk").gapUserId()).isEqualTo(1);
+        assertThat(cacheUnderTest.getByEmail("test@gov.uk")).isPresent();
+        verify(userRepository, never()).findByEmailAddress(any());
+    }
+}
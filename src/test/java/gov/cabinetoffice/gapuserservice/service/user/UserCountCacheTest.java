@@ -0,0 +1,43 @@
+package gov.cabinetoffice.gapuserservice.service.user;
+
+import gov.cabinetoffice.gapuserservice.dto.UserQueryDto;
+import gov.cabinetoffice.gapuserservice.repository.UserDashboardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCountCacheTest {
+
+    @Mock
+    private UserDashboardRepository userDashboardRepository;
+
+    private UserCountCache userCountCache;
+
+    @BeforeEach
+    void setup() {
+        userCountCache = new UserCountCache(userDashboardRepository, 60, 100);
+    }
+
+    @Test
+    void getCount_CountsEachFilterOnce() {
+        final UserQueryDto department1 = new UserQueryDto(List.of(1), List.of(), "");
+        final UserQueryDto department2 = new UserQueryDto(List.of(2), List.of(), "");
+        when(userDashboardRepository.count(department1)).thenReturn(10L);
+        when(userDashboardRepository.count(department2)).thenReturn(20L);
+
+        assertThat(userCountCache.getCount(department1)).isEqualTo(10L);
+        assertThat(userCountCache.getCount(new UserQueryDto(List.of(1), List.of(), ""))).isEqualTo(10L);
+        assertThat(userCountCache.getCount(department2)).isEqualTo(20L);
+
+        verify(userDashboardRepository, times(1)).count(department1);
+        verify(userDashboardRepository, times(1)).count(department2);
+    }
+}
@@ -0,0 +1,204 @@
+package gov.cabinetoffice.gapuserservice.service.user;
+
+import gov.cabinetoffice.gapuserservice.dto.UserMigrationStatusDto;
+import gov.cabinetoffice.gapuserservice.enums.LoginJourneyState;
+import gov.cabinetoffice.gapuserservice.enums.MigrationStatus;
+import gov.cabinetoffice.gapuserservice.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserMigrationServiceTest {
+
+    private static final String JWT = "jwt";
+
+    @Mock
+    private OneLoginUserService oneLoginUserService;
+
+    private ExecutorService executor;
+
+    private UserMigrationService serviceUnderTest;
+
+    private static final int GAP_USER_ID = 1;
+    private static final String SUB = "urn:fdc:gov.uk:2022:sub";
+    private static final Instant NOW = Instant.parse("2022-12-25T12:00:00.00z");
+
+    private final Clock clock = Clock.fixed(NOW, ZoneId.of("UTC"));
+
+    private final User user = User.builder()
+            .gapUserId(GAP_USER_ID)
+            .sub(SUB)
+            .colaSub(UUID.randomUUID())
+            .loginJourneyState(LoginJourneyState.MIGRATING_USER)
+            .build();
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newFixedThreadPool(2);
+        serviceUnderTest = new UserMigrationService(oneLoginUserService, executor, 3, 1, 300, clock);
+        lenient().when(oneLoginUserService.getUserById(GAP_USER_ID)).thenReturn(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void migrateAsync_RunsBothMigrationsConcurrently() throws Exception {
+        // each migration waits for the other to start, so this only completes if they run at the same time
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        when(oneLoginUserService.requestFindMigration(user, JWT)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(5, TimeUnit.SECONDS);
+            return MigrationStatus.NEW_USER;
+        });
+        when(oneLoginUserService.requestApplyMigration(user, JWT)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(5, TimeUnit.SECONDS);
+            return MigrationStatus.SUCCEEDED;
+        });
+
+        serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, true, true, LoginJourneyState.USER_MIGRATED_AND_READY)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(bothStarted.getCount()).isZero();
+        verify(oneLoginUserService).setUsersMigrationStates(GAP_USER_ID, MigrationStatus.NEW_USER,
+                MigrationStatus.SUCCEEDED, LoginJourneyState.USER_MIGRATED_AND_READY);
+    }
+
+    @Test
+    void migrateAsync_LoadsTheUserOnTheMigrationThread() throws Exception {
+        final AtomicReference<Thread> loadedOn = new AtomicReference<>();
+        when(oneLoginUserService.getUserById(GAP_USER_ID)).thenAnswer(invocation -> {
+            loadedOn.set(Thread.currentThread());
+            return user;
+        });
+        when(oneLoginUserService.requestApplyMigration(user, JWT)).thenReturn(MigrationStatus.SUCCEEDED);
+
+        serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, false, true, LoginJourneyState.USER_READY)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(loadedOn.get()).isNotNull().isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void migrateAsync_RetriesFailedMigration() throws Exception {
+        when(oneLoginUserService.requestApplyMigration(user, JWT))
+                .thenThrow(mock(WebClientRequestException.class))
+                .thenThrow(mock(WebClientRequestException.class))
+                .thenReturn(MigrationStatus.SUCCEEDED);
+
+        serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, false, true, LoginJourneyState.USER_READY)
+                .get(5, TimeUnit.SECONDS);
+
+        verify(oneLoginUserService, times(3)).requestApplyMigration(user, JWT);
+        verify(oneLoginUserService, never()).requestFindMigration(any(), any());
+        verify(oneLoginUserService).setUsersMigrationStates(GAP_USER_ID, null, MigrationStatus.SUCCEEDED,
+                LoginJourneyState.USER_READY);
+    }
+
+    @Test
+    void migrateAsync_RecordsFailure_WhenRetriesAreExhausted() throws Exception {
+        when(oneLoginUserService.requestFindMigration(user, JWT)).thenThrow(mock(WebClientRequestException.class));
+
+        serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, true, false, LoginJourneyState.USER_MIGRATED_AND_READY)
+                .get(5, TimeUnit.SECONDS);
+
+        verify(oneLoginUserService, times(3)).requestFindMigration(user, JWT);
+        verify(oneLoginUserService).setUsersMigrationStates(GAP_USER_ID, MigrationStatus.FAILED, null,
+                LoginJourneyState.USER_MIGRATED_AND_READY);
+    }
+
+    @Test
+    void migrateAsync_DefersToNextLogin_WhenExecutorRejectsTheMigration() {
+        executor.shutdown();
+
+        final CompletableFuture<Void> result = serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, true, false,
+                LoginJourneyState.USER_MIGRATED_AND_READY);
+
+        assertThat(result).isCompleted();
+        verify(oneLoginUserService, never()).requestFindMigration(any(), any());
+        verify(oneLoginUserService).setUsersMigrationStates(GAP_USER_ID, MigrationStatus.FAILED, null, null);
+
+        serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, true, false, LoginJourneyState.USER_MIGRATED_AND_READY);
+
+        // the deferred migration isn't left in flight, so the next login can start it
+        verify(oneLoginUserService, times(2)).setUsersMigrationStates(GAP_USER_ID, MigrationStatus.FAILED,
+                null, null);
+    }
+
+    @Test
+    void migrateAsync_DoesNotStartASecondMigration_WhileOneIsInFlight() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        when(oneLoginUserService.requestFindMigration(user, JWT)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return MigrationStatus.SUCCEEDED;
+        });
+
+        final CompletableFuture<Void> first = serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, true, false,
+                LoginJourneyState.USER_MIGRATED_AND_READY);
+        final CompletableFuture<Void> second = serviceUnderTest.migrateAsync(GAP_USER_ID, SUB, JWT, true, false,
+                LoginJourneyState.USER_MIGRATED_AND_READY);
+        assertThat(second).isDone();
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        verify(oneLoginUserService, times(1)).requestFindMigration(user, JWT);
+    }
+
+    @Test
+    void getMigrationStatus_ReportsMigrationInProgress_WithinTheStaleTime() {
+        final User migrating = User.builder()
+                .applyAccountMigrated(MigrationStatus.SUCCEEDED)
+                .findAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .migrationStarted(NOW.minus(Duration.ofSeconds(299)))
+                .build();
+
+        assertThat(serviceUnderTest.getMigrationStatus(migrating))
+                .isEqualTo(new UserMigrationStatusDto(MigrationStatus.SUCCEEDED, MigrationStatus.IN_PROGRESS));
+    }
+
+    @Test
+    void getMigrationStatus_ReportsStaleMigrationAsFailed() {
+        final User migrating = User.builder()
+                .applyAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .findAccountMigrated(MigrationStatus.NEW_USER)
+                .migrationStarted(NOW.minus(Duration.ofSeconds(300)))
+                .build();
+
+        assertThat(serviceUnderTest.getMigrationStatus(migrating))
+                .isEqualTo(new UserMigrationStatusDto(MigrationStatus.FAILED, MigrationStatus.NEW_USER));
+    }
+
+    @Test
+    void getMigrationStatus_ReportsMigrationWithoutStartTimeAsFailed() {
+        final User migrating = User.builder()
+                .applyAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .findAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .build();
+
+        assertThat(serviceUnderTest.getMigrationStatus(migrating))
+                .isEqualTo(new UserMigrationStatusDto(MigrationStatus.FAILED, MigrationStatus.FAILED));
+    }
+}
@@ -5,6 +5,7 @@ import gov.cabinetoffice.gapuserservice.dto.DepartmentReqDto;
 import gov.cabinetoffice.gapuserservice.mappers.DepartmentMapper;
 import gov.cabinetoffice.gapuserservice.model.Department;
 import gov.cabinetoffice.gapuserservice.service.DepartmentService;
+import gov.cabinetoffice.gapuserservice.service.ReferenceDataRegistry;
 import gov.cabinetoffice.gapuserservice.service.RoleService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.Test;
@@ -30,6 +31,8 @@ class DepartmentControllerTest {
     private DepartmentService departmentService;
     @Mock
     private RoleService roleService;
+    @Mock
+    private ReferenceDataRegistry referenceDataRegistry;
 
     @Mock
     private DepartmentMapper mapper;
@@ -73,6 +76,7 @@ class DepartmentControllerTest {
         final ResponseEntity<String> methodResponse = departmentController.updateDepartment(httpRequest, body, 1);
 
         assertThat(methodResponse.getBody()).isSameAs("Department updated");
+        verify(referenceDataRegistry).invalidateDepartments();
     }
 
     @Test
@@ -81,6 +85,7 @@ class DepartmentControllerTest {
         when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
         final ResponseEntity<String> methodResponse = departmentController.deleteDepartment(httpRequest, 1);
         verify(departmentService).deleteDepartment(1);
+        verify(referenceDataRegistry).invalidateDepartments();
         assertThat(methodResponse.getBody()).isSameAs("Department deleted");
     }
 
@@ -93,6 +98,7 @@ class DepartmentControllerTest {
         body.setGgisID("initial ggis id");
         final ResponseEntity<String> methodResponse = departmentController.createDepartment(httpRequest, body);
         verify(departmentService).createDepartment("Cabinet office", "initial ggis id");
+        verify(referenceDataRegistry).invalidateDepartments();
         assertThat(methodResponse.getBody()).isSameAs("Department created");
     }
 }
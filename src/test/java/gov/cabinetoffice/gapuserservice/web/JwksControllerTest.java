@@ -0,0 +1,119 @@
+package gov.cabinetoffice.gapuserservice.web;
+
+import gov.cabinetoffice.gapuserservice.dto.TokenRevocationDto;
+import gov.cabinetoffice.gapuserservice.dto.TokenRevocationFeedDto;
+import gov.cabinetoffice.gapuserservice.model.BlacklistedToken;
+import gov.cabinetoffice.gapuserservice.service.JwtBlacklistService;
+import gov.cabinetoffice.gapuserservice.service.jwt.KmsPublicKeyVerifier;
+import gov.cabinetoffice.gapuserservice.util.TokenDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwksControllerTest {
+
+    private static final String SIGNING_KEY_ARN = "arn:aws:kms:eu-west-2:000000000000:key/signing-key";
+
+    @InjectMocks
+    private JwksController controller;
+
+    @Mock
+    private KmsPublicKeyVerifier kmsPublicKeyVerifier;
+
+    @Mock
+    private JwtBlacklistService jwtBlacklistService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(controller, "signingKeyArn", SIGNING_KEY_ARN);
+        ReflectionTestUtils.setField(controller, "cacheMaxAgeSeconds", 3600L);
+        ReflectionTestUtils.setField(controller, "revocationFeedMaxLimit", 100);
+    }
+
+    @Test
+    void getJwks_ReturnsSigningKeyAsCacheableJwk() throws NoSuchAlgorithmException {
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        final RSAPublicKey publicKey = (RSAPublicKey) keyPairGenerator.generateKeyPair().getPublic();
+        when(kmsPublicKeyVerifier.getPublicKey()).thenReturn(Optional.of(publicKey));
+
+        final ResponseEntity<Map<String, Object>> response = controller.getJwks();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=3600, public");
+        @SuppressWarnings("unchecked")
+        final List<Map<String, Object>> keys = (List<Map<String, Object>>) response.getBody().get("keys");
+        assertThat(keys).singleElement().satisfies(key -> {
+            assertThat(key).containsEntry("kty", "RSA")
+                    .containsEntry("kid", SIGNING_KEY_ARN)
+                    .containsEntry("use", "sig")
+                    .containsEntry("alg", "PS256")
+                    .containsKeys("n", "e")
+                    .doesNotContainKey("d");
+        });
+    }
+
+    @Test
+    void getJwks_Returns503_WhenPublicKeyHasNotBeenLoaded() {
+        when(kmsPublicKeyVerifier.getPublicKey()).thenReturn(Optional.empty());
+
+        final ResponseEntity<Map<String, Object>> response = controller.getJwks();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-store");
+    }
+
+    @Test
+    void getTokenRevocations_ReturnsDigestsAndNextCursor() {
+        final LocalDateTime expiryDate = LocalDateTime.of(2022, 12, 25, 12, 0);
+        when(jwtBlacklistService.getBlacklistedTokensAfter(5, 10)).thenReturn(List.of(
+                BlacklistedToken.builder().id(6).tokenDigest(TokenDigest.of("a-jwt").asBytes()).expiryDate(expiryDate).build(),
+                BlacklistedToken.builder().id(9).tokenDigest(TokenDigest.of("another-jwt").asBytes()).expiryDate(expiryDate).build()));
+
+        final ResponseEntity<TokenRevocationFeedDto> response = controller.getTokenRevocations(5, 10);
+
+        assertThat(response.getBody().nextCursor()).isEqualTo(9);
+        assertThat(response.getBody().revocations()).containsExactly(
+                new TokenRevocationDto(TokenDigest.of("a-jwt").toString(), expiryDate),
+                new TokenRevocationDto(TokenDigest.of("another-jwt").toString(), expiryDate));
+    }
+
+    @Test
+    void getTokenRevocations_KeepsCursor_WhenThereAreNoNewRevocations() {
+        when(jwtBlacklistService.getBlacklistedTokensAfter(5, 100)).thenReturn(List.of());
+
+        final ResponseEntity<TokenRevocationFeedDto> response = controller.getTokenRevocations(5, null);
+
+        assertThat(response.getBody().nextCursor()).isEqualTo(5);
+        assertThat(response.getBody().revocations()).isEmpty();
+    }
+
+    @Test
+    void getTokenRevocations_CapsLimit() {
+        when(jwtBlacklistService.getBlacklistedTokensAfter(0, 100)).thenReturn(List.of());
+
+        controller.getTokenRevocations(0, 5000);
+
+        verify(jwtBlacklistService).getBlacklistedTokensAfter(0, 100);
+    }
+}
@@ -4,6 +4,7 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import gov.cabinetoffice.gapuserservice.config.ApplicationConfigProperties;
 import gov.cabinetoffice.gapuserservice.config.ThirdPartyAuthProviderProperties;
+import gov.cabinetoffice.gapuserservice.dto.TokenValidationResultDto;
 import gov.cabinetoffice.gapuserservice.exceptions.TokenNotValidException;
 import gov.cabinetoffice.gapuserservice.model.Role;
 import gov.cabinetoffice.gapuserservice.model.RoleEnum;
@@ -198,6 +199,18 @@ class LoginControllerTest {
         assertThat(response.getBody()).isTrue();
     }
 
+    @Test
+    void validateTokens_ReturnsResultsFromJwtService() {
+        final List<String> tokens = List.of("a-valid-token", "an-invalid-token");
+        final List<TokenValidationResultDto> results = List.of(new TokenValidationResultDto(true, "[FIND]"),
+                new TokenValidationResultDto(false, null));
+        when(customJwtService.validateTokens(tokens)).thenReturn(results);
+
+        final ResponseEntity<List<TokenValidationResultDto>> response = controllerUnderTest.validateTokens(tokens);
+
+        assertThat(response.getBody()).isEqualTo(results);
+    }
+
     @Test
     void logout_RemovesTokenFromCookies() {
         final String customToken = "a-custom-valid-token";
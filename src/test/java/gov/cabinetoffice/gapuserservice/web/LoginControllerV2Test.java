@@ -1,5 +1,7 @@
 package gov.cabinetoffice.gapuserservice.web;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import gov.cabinetoffice.gapuserservice.config.ApplicationConfigProperties;
 import gov.cabinetoffice.gapuserservice.config.FindAGrantConfigProperties;
@@ -18,6 +20,7 @@ import gov.cabinetoffice.gapuserservice.service.encryption.Sha512Service;
 import gov.cabinetoffice.gapuserservice.service.jwt.TestDecodedJwt;
 import gov.cabinetoffice.gapuserservice.service.jwt.impl.CustomJwtServiceImpl;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
+import gov.cabinetoffice.gapuserservice.service.user.UserMigrationService;
 import gov.cabinetoffice.gapuserservice.util.LoggingUtils;
 import gov.cabinetoffice.gapuserservice.util.WebUtil;
 import jakarta.servlet.http.Cookie;
@@ -49,6 +52,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -79,6 +83,9 @@ class LoginControllerV2Test {
 
     @Mock
     private LoggingUtils loggingUtils;
+
+    @Mock
+    private UserMigrationService userMigrationService;
     private static MockedStatic<WebUtils> mockedWebUtils;
 
     @BeforeEach
@@ -89,7 +96,7 @@ class LoginControllerV2Test {
                 .defaultRedirectUrl("https://www.find-government-grants.service.gov.uk/")
                 .build();
 
-        loginController = new LoginControllerV2(oneLoginService, customJwtService, configProperties, encryptionService, oneLoginUserService, findProperties, loggingUtils);
+        loginController = new LoginControllerV2(oneLoginService, customJwtService, configProperties, encryptionService, oneLoginUserService, findProperties, loggingUtils, userMigrationService);
         ReflectionTestUtils.setField(loginController, "userServiceCookieName", "userServiceCookieName");
         ReflectionTestUtils.setField(loginController, "userServiceCookieDomain", "userServiceCookieDomain");
         ReflectionTestUtils.setField(loginController, "adminBaseUrl", "http:localhost:3000/adminBaseUrl");
@@ -694,6 +701,43 @@ class LoginControllerV2Test {
                     verify(oneLoginUserService, times(1)).setUsersLoginJourneyState(user, LoginJourneyState.USER_READY);
                 }
             }
+
+            @Test
+            void whenPrivacyPolicyAccepted_AndAsyncMigrationEnabled_RedirectsBeforeMigrationCompletes() {
+                final PrivacyPolicyDto privacyPolicyDto = PrivacyPolicyDto.builder().acceptPrivacyPolicy("yes").build();
+                final BindingResult result = Mockito.mock(BindingResult.class);
+                final MockHttpServletRequest request = new MockHttpServletRequest();
+                final String redirectUrl = "http://redirectUrl.com";
+                final User user = userBuilder
+                        .roles(List.of(Role.builder().name(RoleEnum.APPLICANT).build()))
+                        .loginJourneyState(LoginJourneyState.PRIVACY_POLICY_PENDING)
+                        .gapUserId(1)
+                        .colaSub(UUID.randomUUID())
+                        .build();
+
+                ReflectionTestUtils.setField(loginController, "findAccountsMigrationEnabled", "true");
+                ReflectionTestUtils.setField(loginController, "asyncUserMigrationEnabled", true);
+                mockedWebUtils.when(() -> WebUtils.getCookie(request, "userServiceCookieName"))
+                        .thenReturn(new Cookie("userServiceCookieName", mockJwt));
+                when(oneLoginService.decodeStateCookie(any())).thenReturn(stateCookieDtoBuilder.build());
+                when(result.hasErrors()).thenReturn(false);
+                when(oneLoginUserService.getUserFromSub(anyString())).thenReturn(Optional.of(user));
+                doAnswer(invocation -> {
+                    user.setApplyAccountMigrated(MigrationStatus.IN_PROGRESS);
+                    user.setFindAccountMigrated(MigrationStatus.IN_PROGRESS);
+                    return null;
+                }).when(oneLoginUserService).setUsersMigrationStates(user, MigrationStatus.IN_PROGRESS,
+                        MigrationStatus.IN_PROGRESS, null);
+                when(userMigrationService.migrateAsync(1, user.getSub(), mockJwt, true, true,
+                        LoginJourneyState.USER_MIGRATED_AND_READY)).thenReturn(new CompletableFuture<>());
+
+                final ModelAndView methodResponse = loginController.submitToPrivacyPolicyPage(privacyPolicyDto, result, request, Optional.of(redirectUrl));
+
+                assertThat(methodResponse.getViewName()).isEqualTo("redirect:" + redirectUrl + "?applyMigrationStatus=IN_PROGRESS&findMigrationStatus=IN_PROGRESS");
+                verify(oneLoginUserService, never()).migrateApplyUser(any(), any());
+                verify(oneLoginUserService, never()).migrateFindUser(any(), any());
+                verify(oneLoginUserService, never()).setUsersLoginJourneyState(user, LoginJourneyState.USER_MIGRATED_AND_READY);
+            }
         }
 
         @Nested
@@ -829,4 +873,24 @@ class LoginControllerV2Test {
         doThrow(UnauthorizedException.class).when(oneLoginUserService).validateSessionsRoles(emailAddress, roles);
         assertThrows(UnauthorizedException.class, () -> loginController.validateSessionsRoles(requestBodyDto));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getMigrationStatus_ReturnsUsersReportedMigrationStates() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        final String jwt = JWT.create().withSubject("urn:fdc:gov.uk:2022:sub").sign(Algorithm.none());
+        mockedWebUtils.when(() -> WebUtils.getCookie(request, "userServiceCookieName"))
+                .thenReturn(new Cookie("userServiceCookieName", jwt));
+        final User user = User.builder()
+                .applyAccountMigrated(MigrationStatus.SUCCEEDED)
+                .findAccountMigrated(MigrationStatus.IN_PROGRESS)
+                .build();
+        when(oneLoginUserService.getUserFromSub("urn:fdc:gov.uk:2022:sub")).thenReturn(Optional.of(user));
+        final UserMigrationStatusDto status = new UserMigrationStatusDto(MigrationStatus.SUCCEEDED,
+                MigrationStatus.IN_PROGRESS);
+        when(userMigrationService.getMigrationStatus(user)).thenReturn(status);
+
+        final ResponseEntity<UserMigrationStatusDto> response = loginController.getMigrationStatus(request);
+
+        assertThat(response.getBody()).isEqualTo(status);
+    }
+}
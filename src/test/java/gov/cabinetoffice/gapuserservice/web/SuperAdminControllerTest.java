@@ -1,10 +1,8 @@
 package gov.cabinetoffice.gapuserservice.web;
 
 import gov.cabinetoffice.gapuserservice.dto.*;
-import gov.cabinetoffice.gapuserservice.model.Department;
-import gov.cabinetoffice.gapuserservice.model.Role;
+import gov.cabinetoffice.gapuserservice.exceptions.InvalidRequestException;
 import gov.cabinetoffice.gapuserservice.model.RoleEnum;
-import gov.cabinetoffice.gapuserservice.model.User;
 import gov.cabinetoffice.gapuserservice.service.DepartmentService;
 import gov.cabinetoffice.gapuserservice.service.RoleService;
 import gov.cabinetoffice.gapuserservice.service.user.OneLoginUserService;
@@ -17,15 +15,19 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -55,11 +57,11 @@ class SuperAdminControllerTest {
                 RoleDto.builder().id(2).build()
         );
 
-        List<User> users = List.of(
-                User.builder().gapUserId(1).build(),
-                User.builder().gapUserId(2).build()
+        List<UserDashboardRowDto> users = List.of(
+                UserDashboardRowDto.builder().gapUserId("1").build(),
+                UserDashboardRowDto.builder().gapUserId("2").build()
         );
-        Page<User> pagedUsers = new PageImpl<>(users);
+        Page<UserDashboardRowDto> pagedUsers = new PageImpl<>(users);
 
         Integer[] departmentIds = {1};
         Integer[] roleIds = {1};
@@ -68,14 +70,12 @@ class SuperAdminControllerTest {
         when(departmentService.getAllDepartments()).thenReturn(departments);
         when(roleService.getAllRoles()).thenReturn(roles);
         when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
-        when(oneLoginUserService.getPaginatedUsers(pagination, userQueryDto)).thenReturn(pagedUsers);
+        when(oneLoginUserService.getPaginatedDashboardRows(pagination, userQueryDto)).thenReturn(pagedUsers);
 
-        List<UserAndRelationsDto> dtoUsers = users.stream().map(UserAndRelationsDto::new).collect(Collectors.toList());
-
-        SuperAdminDashboardPageDto expectedResponseDto = SuperAdminDashboardPageDto.builder().departments(departments).roles(roles).users(dtoUsers).build();
+        SuperAdminDashboardPageDto expectedResponseDto = SuperAdminDashboardPageDto.builder().departments(departments).roles(roles).users(users).build();
 
         ResponseEntity<SuperAdminDashboardPageDto> result = superAdminController.superAdminDashboard(
-                httpRequest, pagination, departmentIds, roleIds, ""
+                httpRequest, pagination, departmentIds, roleIds, "", null
         );
 
         Assertions.assertEquals(HttpStatus.OK, result.getStatusCode());
@@ -100,19 +100,19 @@ class SuperAdminControllerTest {
                 RoleDto.builder().id(1).build(),
                 RoleDto.builder().id(2).build()
         );
-        List<User> users = List.of(
-                User.builder()
-                        .gapUserId(1)
-                        .department(Department.builder().id(1).build())
-                        .roles(List.of(Role.builder().id(1).name(RoleEnum.SUPER_ADMIN).build()))
+        List<UserDashboardRowDto> users = List.of(
+                UserDashboardRowDto.builder()
+                        .gapUserId("1")
+                        .department(DepartmentDto.builder().id(1).build())
+                        .roles(List.of(RoleDto.builder().id(1).name(RoleEnum.SUPER_ADMIN.name()).build()))
                         .build(),
-                User.builder()
-                        .gapUserId(2)
-                        .department(Department.builder().id(2).build())
-                        .roles(List.of(Role.builder().id(2).name(RoleEnum.APPLICANT).build()))
+                UserDashboardRowDto.builder()
+                        .gapUserId("2")
+                        .department(DepartmentDto.builder().id(2).build())
+                        .roles(List.of(RoleDto.builder().id(2).name(RoleEnum.APPLICANT.name()).build()))
                         .build()
         );
-        Page<User> pageUsers = new PageImpl<>(List.of(users.get(0)));
+        Page<UserDashboardRowDto> pageUsers = new PageImpl<>(List.of(users.get(0)));
 
         Integer[] departmentIds = {1};
         Integer[] roleIds = {1};
@@ -121,13 +121,13 @@ class SuperAdminControllerTest {
         when(departmentService.getAllDepartments()).thenReturn(departments);
         when(roleService.getAllRoles()).thenReturn(roles);
         when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
-        when(oneLoginUserService.getPaginatedUsers(pagination, userQueryDto
+        when(oneLoginUserService.getPaginatedDashboardRows(pagination, userQueryDto
         )).thenReturn(pageUsers);
 
 
         ResponseEntity<SuperAdminDashboardPageDto> result =
                 superAdminController.superAdminDashboard(
-                        httpRequest, pagination, departmentIds, roleIds, ""
+                        httpRequest, pagination, departmentIds, roleIds, "", null
                 );
 
         SuperAdminDashboardPageDto responseDto = result.getBody();
@@ -135,4 +135,80 @@ class SuperAdminControllerTest {
         Assertions.assertEquals(1, Objects.requireNonNull(responseDto).getUsers().size());
         Assertions.assertEquals(1L, responseDto.getUserCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnKeysetPageWithNextCursor_WhenCursorIsGiven() {
+        Pageable pagination = PageRequest.of(0, 2);
+        HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+        Integer[] departmentIds = {1};
+        Integer[] roleIds = {};
+        UserQueryDto userQueryDto = new UserQueryDto(List.of(departmentIds), List.of(roleIds), "");
+        UserCursor after = new UserCursor("a@test.com", 1);
+        List<UserDashboardRowDto> users = List.of(
+                UserDashboardRowDto.builder().gapUserId("2").emailAddress("b@test.com").build(),
+                UserDashboardRowDto.builder().gapUserId("3").emailAddress("c@test.com").build()
+        );
+
+        when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
+        when(oneLoginUserService.getUsersAfter(userQueryDto, after, 2))
+                .thenReturn(new UserKeysetPage(users, new UserCursor("c@test.com", 3), 20L));
+
+        ResponseEntity<SuperAdminDashboardPageDto> result = superAdminController.superAdminDashboard(
+                httpRequest, pagination, departmentIds, roleIds, "", after.encode()
+        );
+
+        SuperAdminDashboardPageDto responseDto = result.getBody();
+        Assertions.assertNotNull(responseDto);
+        Assertions.assertEquals(2, responseDto.getUsers().size());
+        Assertions.assertEquals(20L, responseDto.getUserCount());
+        Assertions.assertEquals(new UserCursor("c@test.com", 3), UserCursor.decode(responseDto.getNextCursor()));
+        verify(oneLoginUserService, never()).getPaginatedDashboardRows(any(), any());
+    }
+
+    @Test
+    void shouldRequestFirstKeysetPage_WhenCursorIsBlank() {
+        Pageable pagination = PageRequest.of(0, 2);
+        HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+        Integer[] departmentIds = {};
+        Integer[] roleIds = {};
+        UserQueryDto userQueryDto = new UserQueryDto(List.of(departmentIds), List.of(roleIds), "");
+
+        when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
+        when(oneLoginUserService.getUsersAfter(userQueryDto, null, 2))
+                .thenReturn(new UserKeysetPage(List.of(), null, 0L));
+
+        ResponseEntity<SuperAdminDashboardPageDto> result = superAdminController.superAdminDashboard(
+                httpRequest, pagination, departmentIds, roleIds, "", ""
+        );
+
+        Assertions.assertNull(Objects.requireNonNull(result.getBody()).getNextCursor());
+    }
+
+    @Test
+    void shouldUseOffsetPaging_WhenSearchingByEmail() {
+        Pageable pagination = PageRequest.of(0, 2);
+        HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+        Integer[] departmentIds = {};
+        Integer[] roleIds = {};
+        UserQueryDto userQueryDto = new UserQueryDto(List.of(departmentIds), List.of(roleIds), "test@");
+
+        when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
+        when(oneLoginUserService.getPaginatedDashboardRows(pagination, userQueryDto)).thenReturn(new PageImpl<>(List.of()));
+
+        superAdminController.superAdminDashboard(httpRequest, pagination, departmentIds, roleIds, "test@", "");
+
+        verify(oneLoginUserService, never()).getUsersAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() {
+        HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+        Integer[] departmentIds = {};
+        Integer[] roleIds = {};
+
+        when(roleService.isSuperAdmin(httpRequest)).thenReturn(true);
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> superAdminController.superAdminDashboard(
+                httpRequest, PageRequest.of(0, 2), departmentIds, roleIds, "", "not-a-cursor"));
+    }
+}
@@ -22,11 +22,17 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.WebUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -254,6 +260,58 @@ class UserControllerTest {
         );
     }
 
+    @Test
+    void streamUserEmailsBySubs_WritesAJsonArray() throws IOException {
+        final List<String> subs = List.of("1", "2");
+        doAnswer(invocation -> {
+            final Consumer<UserEmailDto> consumer = invocation.getArgument(1);
+            consumer.accept(new UserEmailDto("a".getBytes(), "1"));
+            consumer.accept(new UserEmailDto("b".getBytes(), "2"));
+            return null;
+        }).when(oneLoginUserService).forEachUserEmailBySubs(eq(subs), any());
+
+        final ResponseEntity<StreamingResponseBody> methodResponse =
+                controller.streamUserEmailsBySubs(subs, MediaType.APPLICATION_JSON_VALUE);
+
+        assertThat(methodResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(write(methodResponse.getBody()))
+                .isEqualTo("[{\"emailAddress\":\"YQ==\",\"sub\":\"1\"},{\"emailAddress\":\"Yg==\",\"sub\":\"2\"}]");
+    }
+
+    @Test
+    void streamUserEmailsBySubs_WritesNdjson_WhenAccepted() throws IOException {
+        final List<String> subs = List.of("1", "2");
+        doAnswer(invocation -> {
+            final Consumer<UserEmailDto> consumer = invocation.getArgument(1);
+            consumer.accept(new UserEmailDto("a".getBytes(), "1"));
+            consumer.accept(new UserEmailDto("b".getBytes(), "2"));
+            return null;
+        }).when(oneLoginUserService).forEachUserEmailBySubs(eq(subs), any());
+
+        final ResponseEntity<StreamingResponseBody> methodResponse =
+                controller.streamUserEmailsBySubs(subs, MediaType.APPLICATION_NDJSON_VALUE);
+
+        assertThat(methodResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(write(methodResponse.getBody()))
+                .isEqualTo("{\"emailAddress\":\"YQ==\",\"sub\":\"1\"}\n{\"emailAddress\":\"Yg==\",\"sub\":\"2\"}\n");
+    }
+
+    @Test
+    void streamUserEmailsFromSubs_WritesAnEmptyArray_WhenNoUsersFound() throws IOException {
+        final UserSubsRequestDto request = new UserSubsRequestDto(List.of("1"));
+
+        final ResponseEntity<StreamingResponseBody> methodResponse = controller.streamUserEmailsFromSubs(request, null);
+
+        assertThat(write(methodResponse.getBody())).isEqualTo("[]");
+        verify(oneLoginUserService).forEachUserEmailBySubs(eq(List.of("1")), any());
+    }
+
+    private static String write(final StreamingResponseBody body) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
     @Test
     void testUserEmailsFromSubs() {
         User mockUser = User.builder().sub("1").gapUserId(1)